@@ -104,6 +104,16 @@ public interface IXMLElement extends Serializable
      */
     IXMLElement getFirstChildNamed(String name);
 
+    /**
+     * Returns the first direct child element with the specified name.
+     * <p/>
+     * Unlike {@link #getFirstChildNamed(String)}, this doesn't search the descendants of the children.
+     *
+     * @param name the name of the child to search for.
+     * @return the child element, or null if no such child was found.
+     */
+    IXMLElement getFirstDirectChildNamed(String name);
+
     /**
      * Returns a list of all child elements named <I>name</I>.
      *
@@ -0,0 +1,291 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.adaptator.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.UserDataHandler;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+
+/**
+ * A SAX handler that builds a DOM document in a single pass, recording the line number of each element.
+ * <p/>
+ * This produces the same tree as an identity transform of the SAX events to a DOM: adjacent text and CDATA
+ * sections are merged into a single text node, and comments and processing instructions are retained.
+ * <p/>
+ * Line numbers are stored in the user data of each element, and are preserved when elements are cloned or
+ * imported into another document.
+ */
+class DOMBuilder extends DefaultHandler implements LexicalHandler
+{
+
+    /**
+     * The user data key for line numbers.
+     */
+    static final String LINE_NUMBER = "ln";
+
+    /**
+     * The document being built.
+     */
+    private final Document document;
+
+    /**
+     * The current parent node.
+     */
+    private Node current;
+
+    /**
+     * Pending character data.
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Namespace declarations pending for the next element, as prefix, uri pairs.
+     */
+    private final List<String> namespaces = new ArrayList<String>();
+
+    /**
+     * The document locator. May be {@code null}.
+     */
+    private Locator locator;
+
+    /**
+     * Determines if the DTD is being parsed.
+     */
+    private boolean inDTD;
+
+    /**
+     * Copies line numbers to cloned and imported elements.
+     */
+    private static final UserDataHandler LINE_NUMBER_HANDLER = new UserDataHandler()
+    {
+        @Override
+        public void handle(short operation, String key, Object data, Node src, Node dst)
+        {
+            if (dst != null && (operation == NODE_CLONED || operation == NODE_IMPORTED))
+            {
+                dst.setUserData(key, data, this);
+            }
+        }
+    };
+
+    /**
+     * The document builder for the current thread.
+     */
+    private static final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<DocumentBuilder>()
+    {
+        @Override
+        protected DocumentBuilder initialValue()
+        {
+            try
+            {
+                return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            }
+            catch (ParserConfigurationException exception)
+            {
+                throw new IllegalStateException(exception);
+            }
+        }
+    };
+
+
+    /**
+     * Constructs a {@code DOMBuilder}.
+     */
+    public DOMBuilder()
+    {
+        document = newDocument();
+        current = document;
+    }
+
+    /**
+     * Creates a new, empty document, using a document builder shared by the current thread.
+     *
+     * @return a new document
+     */
+    static Document newDocument()
+    {
+        return builders.get().newDocument();
+    }
+
+    /**
+     * Returns the document.
+     *
+     * @return the document
+     */
+    public Document getDocument()
+    {
+        return document;
+    }
+
+    /**
+     * Returns the document locator.
+     *
+     * @return the locator. May be {@code null}
+     */
+    public Locator getDocumentLocator()
+    {
+        return locator;
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator)
+    {
+        this.locator = locator;
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri)
+    {
+        namespaces.add(prefix);
+        namespaces.add(uri);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+    {
+        appendText();
+        Element element = document.createElementNS(uri.length() != 0 ? uri : null, qName);
+        for (int i = 0; i < namespaces.size(); i += 2)
+        {
+            String prefix = namespaces.get(i);
+            String name = (prefix == null || prefix.length() == 0) ? XMLConstants.XMLNS_ATTRIBUTE
+                    : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix;
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, name, namespaces.get(i + 1));
+        }
+        namespaces.clear();
+        for (int i = 0; i < attributes.getLength(); ++i)
+        {
+            if (attributes.getLocalName(i).length() == 0)
+            {
+                element.setAttribute(attributes.getQName(i), attributes.getValue(i));
+            }
+            else
+            {
+                String attributeURI = attributes.getURI(i);
+                element.setAttributeNS(attributeURI.length() != 0 ? attributeURI : null, attributes.getQName(i),
+                                       attributes.getValue(i));
+            }
+        }
+        if (locator != null)
+        {
+            element.setUserData(LINE_NUMBER, locator.getLineNumber(), LINE_NUMBER_HANDLER);
+        }
+        current.appendChild(element);
+        current = element;
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName)
+    {
+        appendText();
+        current = current.getParentNode();
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length)
+    {
+        text.append(ch, start, length);
+    }
+
+    @Override
+    public void processingInstruction(String target, String data)
+    {
+        appendText();
+        current.appendChild(document.createProcessingInstruction(target, data));
+    }
+
+    @Override
+    public void comment(char[] ch, int start, int length)
+    {
+        if (inDTD)
+        {
+            return;
+        }
+        appendText();
+        current.appendChild(document.createComment(new String(ch, start, length)));
+    }
+
+    @Override
+    public void endDocument()
+    {
+        appendText();
+    }
+
+    @Override
+    public void startDTD(String name, String publicId, String systemId)
+    {
+        inDTD = true;
+    }
+
+    @Override
+    public void endDTD()
+    {
+        inDTD = false;
+    }
+
+    @Override
+    public void startEntity(String name)
+    {
+    }
+
+    @Override
+    public void endEntity(String name)
+    {
+    }
+
+    @Override
+    public void startCDATA()
+    {
+    }
+
+    @Override
+    public void endCDATA()
+    {
+    }
+
+    /**
+     * Appends any pending character data to the current node.
+     */
+    private void appendText()
+    {
+        if (text.length() != 0)
+        {
+            if (current != document)
+            {
+                current.appendChild(document.createTextNode(text.toString()));
+            }
+            text.setLength(0);
+        }
+    }
+}
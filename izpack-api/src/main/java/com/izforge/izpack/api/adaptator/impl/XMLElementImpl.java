@@ -26,14 +26,13 @@ import com.izforge.izpack.api.adaptator.IXMLElement;
 
 import org.w3c.dom.*;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Pattern;
 
@@ -53,17 +52,31 @@ public class XMLElementImpl implements IXMLElement
      */
     private Element element;
 
+    /**
+     * The index of the children elements, keyed on name.
+     * It is generated as it is called, and regenerated after this element is changed via {@link #addChild},
+     * {@link #removeChild} or {@link #setContent}.
+     * <p/>
+     * Changes made directly through the DOM, e.g. via {@link #getElement()}, are not tracked.
+     */
+    private transient ChildIndex index;
+
     /**
      * A flag to notice any changement made to the element.
-     * It is used to generate the childrenList.
+     * It is used to regenerate the index.
      */
-    private boolean hasChanged = true;
+    private transient boolean hasChanged = true;
 
     /**
-     * List of the children elements.
-     * It is generated as it is called.
+     * The element whose index created this wrapper, or {@code null} if it was created directly.
+     * Its cached descendant lookups are invalidated when this element is changed.
      */
-    private List<IXMLElement> childrenList;
+    private transient XMLElementImpl parent;
+
+    /**
+     * Placeholder for a name with no matching descendant.
+     */
+    private static final IXMLElement NONE = new XMLElementImpl();
 
     /**
      * Create a new root element in a new document.
@@ -72,22 +85,10 @@ public class XMLElementImpl implements IXMLElement
      */
     public XMLElementImpl(String name)
     {
-        Document document;
-        try
-        {
-            // Création d'un nouveau DOM
-            DocumentBuilderFactory documentFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder constructeur = documentFactory.newDocumentBuilder();
-            document = constructeur.newDocument();
-            // Propriétés du DOM
-            document.setXmlVersion("1.0");
-            element = document.createElement(name);
-            document.appendChild(element);
-        }
-        catch (ParserConfigurationException e)
-        {
-            e.printStackTrace();
-        }
+        Document document = DOMBuilder.newDocument();
+        document.setXmlVersion("1.0");
+        element = document.createElement(name);
+        document.appendChild(element);
     }
 
     /**
@@ -112,6 +113,13 @@ public class XMLElementImpl implements IXMLElement
         element = elementReference.getElement().getOwnerDocument().createElement(name);
     }
 
+    /**
+     * Constructor for the {@link #NONE} placeholder.
+     */
+    private XMLElementImpl()
+    {
+    }
+
     /**
      * Constructor saving the passed node
      *
@@ -135,7 +143,7 @@ public class XMLElementImpl implements IXMLElement
     @Override
     public void addChild(IXMLElement child)
     {
-        hasChanged = true;
+        changed();
         Document targetDoc = element.getOwnerDocument();
         Document sourceDoc = child.getElement().getOwnerDocument();
         if (targetDoc.equals(sourceDoc)) {
@@ -149,7 +157,7 @@ public class XMLElementImpl implements IXMLElement
     @Override
     public void removeChild(IXMLElement child)
     {
-        hasChanged = true;
+        changed();
         element.removeChild(child.getElement());
     }
 
@@ -166,67 +174,126 @@ public class XMLElementImpl implements IXMLElement
         return false;
     }
 
-    private void initChildrenList()
+    /**
+     * Returns the index of the children elements, regenerating it if this element has changed.
+     * <p/>
+     * The wrappers of children that are still present are reused.
+     *
+     * @return the index
+     */
+    private ChildIndex getIndex()
     {
-        if (hasChanged)
+        if (hasChanged || index == null)
         {
-            hasChanged = false;
-            childrenList = new ArrayList<IXMLElement>();
+            Map<Node, IXMLElement> existing = new IdentityHashMap<Node, IXMLElement>();
+            if (index != null)
+            {
+                for (IXMLElement child : index.children)
+                {
+                    existing.put(child.getElement(), child);
+                }
+            }
+            ChildIndex result = new ChildIndex();
             for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
             {
                 if (child.getNodeType() == Node.ELEMENT_NODE)
                 {
-                    childrenList.add(new XMLElementImpl(child));
+                    IXMLElement wrapper = existing.get(child);
+                    if (wrapper == null)
+                    {
+                        XMLElementImpl created = new XMLElementImpl(child);
+                        created.parent = this;
+                        wrapper = created;
+                    }
+                    result.add(wrapper);
                 }
             }
+            index = result;
+            hasChanged = false;
+        }
+        return index;
+    }
+
+    /**
+     * Invalidates the index of this element, and the cached descendant lookups of its ancestors.
+     */
+    private void changed()
+    {
+        hasChanged = true;
+        for (XMLElementImpl ancestor = parent; ancestor != null; ancestor = ancestor.parent)
+        {
+            if (ancestor.index != null)
+            {
+                ancestor.index.descendants.clear();
+            }
         }
     }
 
     @Override
     public int getChildrenCount()
     {
-        initChildrenList();
-        return childrenList.size();
+        return getIndex().children.size();
     }
 
     @Override
     public List<IXMLElement> getChildren()
     {
-        initChildrenList();
-        return childrenList;
+        return getIndex().children;
     }
 
     @Override
     public IXMLElement getChildAtIndex(int index)
     {
-        initChildrenList();
-        return childrenList.get(index);
+        return getIndex().children.get(index);
     }
 
+    /**
+     * Searches a descendant element, in document order.
+     * <p/>
+     * Results are cached until this element or one of its descendants is changed via this class.
+     *
+     * @param name the name of the element to search for, or {@code *} to match any element
+     * @return the element, or {@code null} if no such element was found
+     */
     @Override
     public IXMLElement getFirstChildNamed(String name)
     {
-        XMLElementImpl res = null;
-        NodeList nodeList = element.getElementsByTagName(name);
-        if (nodeList.getLength() > 0)
+        ChildIndex index = getIndex();
+        IXMLElement result = index.descendants.get(name);
+        if (result == null)
         {
-            res = new XMLElementImpl(nodeList.item(0));
+            result = NONE;
+            for (IXMLElement child : index.children)
+            {
+                if ("*".equals(name) || name.equals(child.getName()))
+                {
+                    result = child;
+                    break;
+                }
+                IXMLElement descendant = child.getFirstChildNamed(name);
+                if (descendant != null)
+                {
+                    result = descendant;
+                    break;
+                }
+            }
+            index.descendants.put(name, result);
         }
-        return res;
+        return (result != NONE) ? result : null;
+    }
+
+    @Override
+    public IXMLElement getFirstDirectChildNamed(String name)
+    {
+        List<IXMLElement> children = getIndex().getChildrenNamed(name);
+        return (children != null) ? children.get(0) : null;
     }
 
     @Override
     public List<IXMLElement> getChildrenNamed(String name)
     {
-        List<IXMLElement> res = new ArrayList<IXMLElement>();
-        for (IXMLElement child : getChildren())
-        {
-            if (child.getName() != null && child.getName().equals(name))
-            {
-                res.add(new XMLElementImpl(child.getElement()));
-            }
-        }
-        return res;
+        List<IXMLElement> children = getIndex().getChildrenNamed(name);
+        return (children != null) ? new ArrayList<IXMLElement>(children) : new ArrayList<IXMLElement>();
     }
 
     @Override
@@ -295,14 +362,14 @@ public class XMLElementImpl implements IXMLElement
     @Override
     public int getLineNr()
     {
-        Object ln = element.getUserData("ln");
+        Object ln = element.getUserData(DOMBuilder.LINE_NUMBER);
         if (ln == null)
         {
             return NO_LINE;
         }
         try
         {
-            return (Integer) element.getUserData("ln");
+            return (Integer) ln;
         }
         catch (ClassCastException e)
         {
@@ -351,6 +418,7 @@ public class XMLElementImpl implements IXMLElement
     @Override
     public void setContent(String content)
     {
+        changed();
         Node child;
         while ((child = this.element.getFirstChild()) != null)
         {
@@ -402,4 +470,49 @@ public class XMLElementImpl implements IXMLElement
         }
         return hashCode;
     }
+
+    /**
+     * The children of an element, indexed by name.
+     */
+    private static class ChildIndex
+    {
+
+        /**
+         * The children elements.
+         */
+        private final List<IXMLElement> children = new ArrayList<IXMLElement>();
+
+        /**
+         * The children elements, keyed on name.
+         */
+        private final Map<String, List<IXMLElement>> named = new HashMap<String, List<IXMLElement>>();
+
+        /**
+         * The first descendant of each name searched for, or {@link #NONE} if there is none.
+         */
+        private final Map<String, IXMLElement> descendants = new HashMap<String, IXMLElement>();
+
+        public void add(IXMLElement child)
+        {
+            children.add(child);
+            List<IXMLElement> list = named.get(child.getName());
+            if (list == null)
+            {
+                list = new ArrayList<IXMLElement>(1);
+                named.put(child.getName(), list);
+            }
+            list.add(child);
+        }
+
+        /**
+         * Returns the children with the specified name.
+         *
+         * @param name the name
+         * @return the children, or {@code null} if there are none
+         */
+        public List<IXMLElement> getChildrenNamed(String name)
+        {
+            return named.get(name);
+        }
+    }
 }
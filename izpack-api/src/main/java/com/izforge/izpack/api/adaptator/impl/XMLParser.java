@@ -20,28 +20,45 @@ package com.izforge.izpack.api.adaptator.impl;
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.adaptator.IXMLParser;
 import com.izforge.izpack.api.adaptator.XMLException;
+import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Parses XML into {@link IXMLElement}s.
+ * <p/>
+ * Documents are built directly from the SAX events, recording the line number of each element. The SAX parser
+ * factories are shared per thread.
+ * <p/>
+ * Documents parsed from <em>jar:</em> URLs referring to local jars are cached, keyed on the jar's last modification
+ * time and size as well as the URL, so that a jar rebuilt at the same location is parsed again. Each parse returns
+ * a copy of the cached document.
+ */
 public class XMLParser implements IXMLParser
 {
     public class ByteBufferInputStream extends InputStream
@@ -83,7 +100,51 @@ public class XMLParser implements IXMLParser
         }
     }
 
-    private LineNumberFilter filter;
+    /**
+     * The maximum no. of cached documents.
+     */
+    private static final int MAX_CACHED = 32;
+
+    /**
+     * The SAX lexical handler property.
+     */
+    private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+
+    /**
+     * The SAX parser factories for the current thread, for non-validating and validating parsers.
+     */
+    private static final ThreadLocal<SAXParserFactory[]> factories = new ThreadLocal<SAXParserFactory[]>()
+    {
+        @Override
+        protected SAXParserFactory[] initialValue()
+        {
+            return new SAXParserFactory[2];
+        }
+    };
+
+    /**
+     * Documents parsed from jar URLs, keyed on URL, jar modification time and size, and validation. Access must be synchronized on the map, and
+     * the documents must not be exposed.
+     */
+    private static final Map<String, Document> documents = new LinkedHashMap<String, Document>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Document> eldest)
+        {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    /**
+     * Determines if the parser validates.
+     */
+    private final boolean validating;
+
+    /**
+     * The parser factory, if the parser validates against supplied schemas. May be {@code null}.
+     */
+    private final SAXParserFactory schemaFactory;
+
     private String parsedItem = null;
 
 
@@ -99,45 +160,28 @@ public class XMLParser implements IXMLParser
 
     public XMLParser(boolean validating, StreamSource[] schemaSources)
     {
-        try
+        this.validating = validating;
+        if (validating && (schemaSources != null && schemaSources.length > 0))
         {
-            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
-            saxParserFactory.setValidating(false); // we don't use DTD
-            saxParserFactory.setNamespaceAware(true);
-            saxParserFactory.setXIncludeAware(true);
-
-            if (validating && (schemaSources != null && schemaSources.length > 0))
+            try
             {
-                SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-                saxParserFactory.setSchema(schemaFactory.newSchema(schemaSources));
+                SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                schemaFactory = createFactory(factory.newSchema(schemaSources));
             }
-
-            saxParserFactory.setFeature("http://apache.org/xml/features/xinclude/fixup-base-uris", false);
-            saxParserFactory.setFeature("http://apache.org/xml/features/xinclude/fixup-language", false);
-
-            SAXParser parser = saxParserFactory.newSAXParser();
-            if (validating && (schemaSources == null || schemaSources.length == 0))
+            catch (SAXException e)
             {
-                parser.setProperty("http://java.sun.com/xml/jaxp/properties/schemaLanguage",
-                        XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                throw new XMLException(e);
             }
-
-            XMLReader xmlReader = parser.getXMLReader();
-            filter = new LineNumberFilter(xmlReader);
-        }
-        catch (ParserConfigurationException e)
-        {
-            throw new XMLException(e);
         }
-        catch (SAXException e)
+        else
         {
-            throw new XMLException(e);
+            schemaFactory = null;
         }
     }
 
-    private IXMLElement searchFirstElement(DOMResult domResult)
+    private IXMLElement searchFirstElement(Document document)
     {
-        for (Node child = domResult.getNode().getFirstChild(); child != null; child = child.getNextSibling())
+        for (Node child = document.getFirstChild(); child != null; child = child.getNextSibling())
         {
             if (child.getNodeType() == Node.ELEMENT_NODE)
             {
@@ -147,44 +191,41 @@ public class XMLParser implements IXMLParser
         return null;
     }
 
-    private DOMResult parseLineNrFromInputSource(InputSource inputSource)
+    private Document parseLineNrFromInputSource(InputSource inputSource)
     {
-        DOMResult result = null;
+        DOMBuilder builder = new DOMBuilder();
         try
         {
-            result = new DOMResult();
-            SAXSource source = new SAXSource(inputSource);
-            source.setXMLReader(filter);
-
-            TransformerFactory.newInstance().newTransformer().transform(source, result);
-
-            filter.applyLN(result);
-        }
-        catch (TransformerException e)
-        {
-            String extraInfos = null;
-            if (this.parsedItem != null)
+            XMLReader reader = createReader();
+            reader.setContentHandler(builder);
+            reader.setErrorHandler(builder);
+            try
             {
-                extraInfos = " in " + parsedItem;
+                reader.setProperty(LEXICAL_HANDLER, builder);
             }
-            // we try to get the location of the error.
-            // can't use an ErrorHander here !
-            if (e.getLocator() == null && filter.getDocumentLocator() != null)
+            catch (SAXNotRecognizedException ignore)
             {
-                Locator locator = filter.getDocumentLocator();
-                extraInfos += " at line " + locator.getLineNumber() + ", column " + locator.getColumnNumber();
+                // comments won't be retained
             }
-            if (extraInfos != null)
+            catch (SAXNotSupportedException ignore)
             {
-                throw new XMLException("Error" + extraInfos + " : " + e.getMessage(), e);
+                // comments won't be retained
             }
-            throw new XMLException(e);
+            reader.parse(inputSource);
+        }
+        catch (SAXException e)
+        {
+            throw createException(e, builder.getDocumentLocator());
+        }
+        catch (IOException e)
+        {
+            throw createException(e, builder.getDocumentLocator());
         }
         finally
         {
             this.parsedItem = null;
         }
-        return result;
+        return builder.getDocument();
     }
 
     public IXMLElement parse(InputStream inputStream)
@@ -193,7 +234,7 @@ public class XMLParser implements IXMLParser
 
         this.parsedItem = null;
         InputSource inputSource = new InputSource(inputStream);
-        DOMResult result = parseLineNrFromInputSource(inputSource);
+        Document result = parseLineNrFromInputSource(inputSource);
         return searchFirstElement(result);
     }
 
@@ -204,7 +245,7 @@ public class XMLParser implements IXMLParser
         this.parsedItem = systemId;
         InputSource inputSource = new InputSource(inputStream);
         inputSource.setSystemId(systemId);
-        DOMResult result = parseLineNrFromInputSource(inputSource);
+        Document result = parseLineNrFromInputSource(inputSource);
         return searchFirstElement(result);
     }
 
@@ -219,10 +260,76 @@ public class XMLParser implements IXMLParser
 
     public IXMLElement parse(URL inputURL)
     {
+        String key = (schemaFactory == null) ? getCacheKey(inputURL) : null;
+        if (key != null)
+        {
+            Document cached;
+            synchronized (documents)
+            {
+                cached = documents.get(key);
+            }
+            if (cached != null)
+            {
+                return searchFirstElement(copy(cached));
+            }
+        }
+
         this.parsedItem = inputURL.toString();
         InputSource inputSource = new InputSource(inputURL.toExternalForm());
-        DOMResult domResult = parseLineNrFromInputSource(inputSource);
-        return searchFirstElement(domResult);
+        Document document = parseLineNrFromInputSource(inputSource);
+        if (key != null)
+        {
+            synchronized (documents)
+            {
+                documents.put(key, document);
+            }
+            document = copy(document);
+        }
+        return searchFirstElement(document);
+    }
+
+    /**
+     * Returns the key to cache the document parsed from a URL under.
+     *
+     * @param url the URL
+     * @return the key, or {@code null} if the URL doesn't refer to an entry in a local jar
+     */
+    private String getCacheKey(URL url)
+    {
+        if (!"jar".equals(url.getProtocol()))
+        {
+            return null;
+        }
+        String spec = url.toExternalForm();
+        int index = spec.indexOf("!/");
+        if (index == -1)
+        {
+            return null;
+        }
+        File jar;
+        try
+        {
+            URI uri = new URI(spec.substring("jar:".length(), index));
+            if (!"file".equals(uri.getScheme()))
+            {
+                return null;
+            }
+            jar = new File(uri);
+        }
+        catch (URISyntaxException exception)
+        {
+            return null;
+        }
+        catch (IllegalArgumentException exception)
+        {
+            return null;
+        }
+        long lastModified = jar.lastModified();
+        if (lastModified == 0)
+        {
+            return null;
+        }
+        return validating + ":" + lastModified + ":" + jar.length() + ":" + spec;
     }
 
     private void checkNotNullStream(InputStream inputStream)
@@ -232,4 +339,129 @@ public class XMLParser implements IXMLParser
             throw new NullPointerException("The input stream must be not null.");
         }
     }
+
+    /**
+     * Copies a cached document.
+     *
+     * @param document the cached document
+     * @return a copy of the document
+     */
+    private Document copy(Document document)
+    {
+        synchronized (document)
+        {
+            return (Document) document.cloneNode(true);
+        }
+    }
+
+    /**
+     * Creates a new XML reader.
+     *
+     * @return a new reader
+     * @throws XMLException if the reader cannot be created
+     */
+    private XMLReader createReader()
+    {
+        try
+        {
+            SAXParserFactory factory = schemaFactory;
+            if (factory == null)
+            {
+                SAXParserFactory[] pool = factories.get();
+                int index = validating ? 1 : 0;
+                if (pool[index] == null)
+                {
+                    pool[index] = createFactory(null);
+                }
+                factory = pool[index];
+            }
+
+            SAXParser parser = factory.newSAXParser();
+            if (validating && schemaFactory == null)
+            {
+                parser.setProperty("http://java.sun.com/xml/jaxp/properties/schemaLanguage",
+                        XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            }
+            return parser.getXMLReader();
+        }
+        catch (ParserConfigurationException e)
+        {
+            throw new XMLException(e);
+        }
+        catch (SAXException e)
+        {
+            throw new XMLException(e);
+        }
+    }
+
+    /**
+     * Creates a new SAX parser factory.
+     *
+     * @param schema the schema to validate against. May be {@code null}
+     * @return a new factory
+     * @throws XMLException if the factory cannot be configured
+     */
+    private static SAXParserFactory createFactory(Schema schema)
+    {
+        try
+        {
+            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+            saxParserFactory.setValidating(false); // we don't use DTD
+            saxParserFactory.setNamespaceAware(true);
+            saxParserFactory.setXIncludeAware(true);
+            if (schema != null)
+            {
+                saxParserFactory.setSchema(schema);
+            }
+
+            saxParserFactory.setFeature("http://apache.org/xml/features/xinclude/fixup-base-uris", false);
+            saxParserFactory.setFeature("http://apache.org/xml/features/xinclude/fixup-language", false);
+            return saxParserFactory;
+        }
+        catch (ParserConfigurationException e)
+        {
+            throw new XMLException(e);
+        }
+        catch (SAXException e)
+        {
+            throw new XMLException(e);
+        }
+    }
+
+    /**
+     * Creates an exception for a parse failure, including the location of the error where possible.
+     *
+     * @param exception the cause of the failure
+     * @param locator   the document locator. May be {@code null}
+     * @return a new exception
+     */
+    private XMLException createException(Exception exception, Locator locator)
+    {
+        String extraInfos = null;
+        if (this.parsedItem != null)
+        {
+            extraInfos = " in " + parsedItem;
+        }
+        int line = -1;
+        int column = -1;
+        if (exception instanceof SAXParseException)
+        {
+            line = ((SAXParseException) exception).getLineNumber();
+            column = ((SAXParseException) exception).getColumnNumber();
+        }
+        else if (locator != null)
+        {
+            line = locator.getLineNumber();
+            column = locator.getColumnNumber();
+        }
+        if (line != -1)
+        {
+            extraInfos = (extraInfos != null ? extraInfos : "") + " at line " + line + ", column " + column;
+        }
+        if (extraInfos != null)
+        {
+            return new XMLException("Error" + extraInfos + " : " + exception.getMessage(), exception);
+        }
+        return new XMLException(exception);
+    }
 }
@@ -0,0 +1,220 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.config.spi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.izforge.izpack.api.config.Config;
+import com.izforge.izpack.api.config.InvalidFileFormatException;
+
+/**
+ * Looks up a single option of an INI or options file as it is parsed, without building an
+ * {@link com.izforge.izpack.api.config.Ini} or {@link com.izforge.izpack.api.config.Options}.
+ * <p/>
+ * Only the values of the requested option are retained, so memory use doesn't depend on the size of the file.
+ * The result is the same as that of {@code Ini.get(section, key)} or {@code Options.get(key)} for the same
+ * configuration.
+ */
+public class OptionLookup implements IniHandler, OptionsHandler
+{
+    private final Config _config;
+    private final String _section;
+    private final String _key;
+    private boolean _inSection;
+    private List<String> _values;
+
+    private OptionLookup(Config config, String section, String key)
+    {
+        _config = config;
+        _section = section;
+        _key = key;
+        _inSection = section == null;
+    }
+
+    /**
+     * Returns the value of an option of an options file.
+     *
+     * @param input  the options file contents
+     * @param config the configuration to parse with
+     * @param key    the option name
+     * @return the option value, or {@code null} if it isn't present
+     * @throws IOException                for any I/O error
+     * @throws InvalidFileFormatException if the file cannot be parsed
+     */
+    public static String getOption(InputStream input, Config config, String key)
+            throws IOException, InvalidFileFormatException
+    {
+        OptionLookup lookup = new OptionLookup(config, null, key);
+        OptionsParser.newInstance(config).parse(input, lookup);
+        return lookup.getValue();
+    }
+
+    /**
+     * Returns the value of an option of an INI file.
+     *
+     * @param input   the INI file contents
+     * @param config  the configuration to parse with
+     * @param section the section name
+     * @param key     the option name
+     * @return the option value, or {@code null} if the section or option isn't present
+     * @throws IOException                for any I/O error
+     * @throws InvalidFileFormatException if the file cannot be parsed
+     */
+    public static String getOption(InputStream input, Config config, String section, String key)
+            throws IOException, InvalidFileFormatException
+    {
+        OptionLookup lookup = new OptionLookup(config, section, key);
+        IniParser.newInstance(config).parse(input, lookup);
+        return lookup.getValue();
+    }
+
+    @Override public void startIni()
+    {
+        assert true;
+    }
+
+    @Override public void endIni()
+    {
+        assert true;
+    }
+
+    @Override public void startOptions()
+    {
+        assert true;
+    }
+
+    @Override public void endOptions()
+    {
+        assert true;
+    }
+
+    @Override public void startSection(String sectionName)
+    {
+        _inSection = sectionName.equals(_section);
+        if (_inSection && _config.isMultiSection())
+        {
+            // a later section of the same name replaces the earlier ones
+            _values = null;
+        }
+    }
+
+    @Override public void endSection()
+    {
+        _inSection = false;
+    }
+
+    @Override public void handleEmptyLine()
+    {
+        assert true;
+    }
+
+    @Override public void handleComment(List<String> comment)
+    {
+        assert true;
+    }
+
+    @Override public void handleOption(String optionName, String optionValue)
+    {
+        if (!_inSection)
+        {
+            return;
+        }
+        if (_section == null && _config.isAutoNumbering() && optionName.matches("(.+\\.)+[\\d]+(\\.+.*)*"))
+        {
+            handleNumberedOption(optionName, optionValue);
+        }
+        else if (optionName.equals(_key))
+        {
+            List<String> values = getValues();
+            if (_config.isMultiOption() || values.isEmpty())
+            {
+                values.add(optionValue);
+            }
+            else
+            {
+                values.set(values.size() - 1, optionValue);
+            }
+        }
+    }
+
+    /**
+     * Handles an auto numbered option of an options file, as per {@link OptionsBuilder}.
+     *
+     * @param optionName  the option name, including the number
+     * @param optionValue the option value
+     */
+    private void handleNumberedOption(String optionName, String optionValue)
+    {
+        StringBuilder sb = new StringBuilder();
+        int pos = -1;
+        for (String part : optionName.split("\\."))
+        {
+            if (sb.length() > 0)
+            {
+                sb.append(".");
+            }
+            if (pos != -1)
+            {
+                sb.append(part);
+            }
+            else
+            {
+                try
+                {
+                    pos = Integer.parseInt(part);
+                }
+                catch (NumberFormatException nfe)
+                {
+                    sb.append(part);
+                }
+            }
+        }
+        if (sb.toString().equals(_key))
+        {
+            List<String> values = getValues();
+            if (values.isEmpty())
+            {
+                values.add(null);
+            }
+            while (values.size() <= pos)
+            {
+                values.add(null);
+            }
+            values.set(pos, optionValue);
+        }
+    }
+
+    private List<String> getValues()
+    {
+        if (_values == null)
+        {
+            _values = new ArrayList<String>();
+        }
+        return _values;
+    }
+
+    private String getValue()
+    {
+        return (_values == null || _values.isEmpty()) ? null : _values.get(_values.size() - 1);
+    }
+}
@@ -0,0 +1,855 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.config.spi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.izforge.izpack.api.config.Config;
+
+/**
+ * Sets and removes options of an INI or options file in place.
+ * <p/>
+ * Unlike loading the file into an {@link com.izforge.izpack.api.config.Ini} or
+ * {@link com.izforge.izpack.api.config.Options} and storing it, only the lines of changed options are rewritten.
+ * Comments, empty lines, ordering and the formatting of all other lines are preserved, and the file is not
+ * written at all if no option changes.
+ * <p/>
+ * The changes have the same effect as the equivalent {@code put(...)} and {@code remove(...)} calls on the
+ * loaded configuration: setting an option replaces its last value, in the last section of that name if there
+ * are multiple sections, and removing it removes all of its values. New options are added at the end of their
+ * section, and new sections at the end of the file.
+ * <p/>
+ * Files using includes, or auto numbered options that map to a changed option, can't be patched. In that case
+ * {@link #patch(File)} returns {@code false} and leaves the file unchanged.
+ */
+public class OptionPatcher extends AbstractParser
+{
+    private static final String INI_COMMENTS = ";#";
+    private static final String OPTIONS_COMMENTS = "!#";
+    private static final String OPERATORS = ":=";
+    private static final String AUTO_NUMBERED = "(.+\\.)+[\\d]+(\\.+.*)*";
+    private static final char BOM = '\uFEFF';
+
+    private final boolean _ini;
+    private final String _comments;
+    private final Map<String, Change> _changes = new LinkedHashMap<String, Change>();
+
+    private OptionPatcher(Config config, boolean ini, String comments)
+    {
+        super(OPERATORS, comments);
+        setConfig(config);
+        _ini = ini;
+        _comments = comments;
+    }
+
+    /**
+     * Creates a patcher for INI files.
+     *
+     * @param config the configuration used to read and write the file
+     * @return a new patcher
+     */
+    public static OptionPatcher newIniPatcher(Config config)
+    {
+        return new OptionPatcher(config, true, INI_COMMENTS);
+    }
+
+    /**
+     * Creates a patcher for options files.
+     *
+     * @param config the configuration used to read and write the file
+     * @return a new patcher
+     */
+    public static OptionPatcher newOptionsPatcher(Config config)
+    {
+        return new OptionPatcher(config, false, OPTIONS_COMMENTS);
+    }
+
+    /**
+     * Sets an option.
+     *
+     * @param section the section name. Must be {@code null} for options files
+     * @param name    the option name
+     * @param value   the option value
+     */
+    public void set(String section, String name, String value)
+    {
+        getChange(section, name).value = value;
+    }
+
+    /**
+     * Removes all values of an option.
+     *
+     * @param section the section name. Must be {@code null} for options files
+     * @param name    the option name
+     */
+    public void remove(String section, String name)
+    {
+        Change change = getChange(section, name);
+        change.value = null;
+        change.clear = true;
+    }
+
+    /**
+     * Determines if options are grouped into sections, as for INI files.
+     *
+     * @return {@code true} if options belong to sections
+     */
+    public boolean hasSections()
+    {
+        return _ini;
+    }
+
+    /**
+     * Determines if there are no changes.
+     *
+     * @return {@code true} if no option has been set or removed
+     */
+    public boolean isEmpty()
+    {
+        return _changes.isEmpty();
+    }
+
+    /**
+     * Applies the changes to a file.
+     *
+     * @param file the file to patch
+     * @return {@code true} if the file was patched or didn't need to change, {@code false} if it cannot be
+     *         patched in place
+     * @throws IOException for any I/O error
+     */
+    public boolean patch(File file) throws IOException
+    {
+        for (Change change : _changes.values())
+        {
+            change.reset();
+            if (!_ini && getConfig().isAutoNumbering() && change.name.matches(AUTO_NUMBERED))
+            {
+                return false;
+            }
+        }
+
+        Map<Integer, Edit> edits = new HashMap<Integer, Edit>();
+        Map<Integer, List<String>> inserts = new HashMap<Integer, List<String>>();
+        List<String> appends = new ArrayList<String>();
+        String separator = scan(file);
+        if (separator == null)
+        {
+            return false;
+        }
+        if (!plan(edits, inserts, appends))
+        {
+            return true;
+        }
+        write(file, edits, inserts, appends, separator);
+        return true;
+    }
+
+    /**
+     * Reads the file, recording the occurrences of the changed options and the ends of their sections.
+     *
+     * @param file the file
+     * @return the line separator to use for new lines, or {@code null} if the file cannot be patched
+     * @throws IOException for any I/O error
+     */
+    private String scan(File file) throws IOException
+    {
+        Map<String, Instance> sections = new HashMap<String, Instance>();
+        Instance instance = _ini ? null : new Instance(-1);
+        String sectionName = null;
+        String separator = null;
+        StringBuilder buff = new StringBuilder();
+        int start = -1;
+        LineReader reader = new LineReader(openReader(file));
+        try
+        {
+            for (int lineNo = 0; reader.next(); ++lineNo)
+            {
+                if (separator == null && reader.getTerminator().length() != 0)
+                {
+                    separator = reader.getTerminator();
+                }
+                String line = getContent(reader, lineNo).trim();
+                if (line.length() == 0 || ((_comments.indexOf(line.charAt(0)) >= 0) && (buff.length() == 0)))
+                {
+                    continue;
+                }
+                if (start < 0)
+                {
+                    start = lineNo;
+                }
+                if (getConfig().isEscapeNewline() && ((countEndingEscapes(line) & 1) != 0))
+                {
+                    buff.append(line.subSequence(0, line.length() - 1));
+                    continue;
+                }
+                buff.append(line);
+                line = buff.toString();
+                buff.setLength(0);
+                int first = start;
+                start = -1;
+
+                if (getConfig().isInclude() && (line.length() > 2) && (line.charAt(0) == IniSource.INCLUDE_BEGIN)
+                        && (line.charAt(line.length() - 1) == IniSource.INCLUDE_END))
+                {
+                    return null;
+                }
+                if (_ini && line.charAt(0) == IniParser.SECTION_BEGIN)
+                {
+                    sectionName = parseSectionName(line);
+                    if (sectionName == null)
+                    {
+                        return null;
+                    }
+                    instance = new Instance(lineNo);
+                    sections.put(sectionName, instance);
+                    continue;
+                }
+                if (_ini && sectionName == null)
+                {
+                    if (!getConfig().isGlobalSection())
+                    {
+                        return null;
+                    }
+                    sectionName = getConfig().getGlobalSectionName();
+                    instance = new Instance(first - 1);
+                    sections.put(sectionName, instance);
+                }
+                if (!handleOption(line, sectionName, instance, first, lineNo, reader.getContent()))
+                {
+                    return null;
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        if (!_ini && instance.end >= 0)
+        {
+            // new options follow the last option, or are appended if there are none
+            sections.put(null, instance);
+        }
+        for (Change change : _changes.values())
+        {
+            change.section = sections.get(change.sectionName);
+        }
+        return (separator != null) ? separator : getConfig().getLineSeparator();
+    }
+
+    /**
+     * Records an option, if it is changed.
+     *
+     * @param line        the logical line
+     * @param sectionName the section name, or {@code null} for options files
+     * @param instance    the section the option belongs to
+     * @param first       the first physical line of the option
+     * @param last        the last physical line of the option
+     * @param raw         the raw content of the last physical line
+     * @return {@code false} if the file cannot be patched
+     */
+    private boolean handleOption(String line, String sectionName, Instance instance, int first, int last,
+                                 String raw)
+    {
+        int idx = indexOfOperator(line);
+        String name;
+        String value;
+        if (idx < 0)
+        {
+            if (!getConfig().isEmptyOption())
+            {
+                return false;
+            }
+            name = line;
+            value = line;
+        }
+        else
+        {
+            name = unescapeFilter(line.substring(0, idx)).trim();
+            value = unescapeFilter(line.substring(idx + 1)).trim();
+        }
+        if (name.length() == 0)
+        {
+            return false;
+        }
+        if (getConfig().isLowerCaseOption())
+        {
+            name = name.toLowerCase(Locale.getDefault());
+        }
+        instance.end = last;
+
+        if (!_ini && getConfig().isAutoNumbering() && name.matches(AUTO_NUMBERED))
+        {
+            return !_changes.containsKey(getNumberedName(name));
+        }
+        Change change = _changes.get(getKey(sectionName, name));
+        if (change != null)
+        {
+            if (getConfig().isMultiSection() && change.instance != instance)
+            {
+                // only the last section of a name is updated
+                change.occurrences.clear();
+            }
+            change.instance = instance;
+            Occurrence occurrence = new Occurrence(first, last, value);
+            if (first == last && idx >= 0)
+            {
+                // retain the formatting of the name and operator
+                int offset = raw.indexOf(line.charAt(0));
+                int end = offset + idx + 1;
+                while (end < raw.length() && Character.isWhitespace(raw.charAt(end)))
+                {
+                    ++end;
+                }
+                occurrence.prefix = raw.substring(0, end);
+            }
+            change.occurrences.add(occurrence);
+        }
+        return true;
+    }
+
+    /**
+     * Determines the edits required to apply the changes.
+     *
+     * @param edits   collects the replaced and removed lines, keyed on their last line
+     * @param inserts collects the lines to insert, keyed on the line they follow
+     * @param appends collects the lines to append to the file
+     * @return {@code true} if the file needs to change
+     */
+    private boolean plan(Map<Integer, Edit> edits, Map<Integer, List<String>> inserts, List<String> appends)
+    {
+        boolean changed = false;
+        Map<String, List<String>> newSections = new LinkedHashMap<String, List<String>>();
+        for (Change change : _changes.values())
+        {
+            List<Occurrence> occurrences = change.occurrences;
+            if (getConfig().isMultiSection() && change.section != null && change.instance != change.section)
+            {
+                occurrences = new ArrayList<Occurrence>();
+            }
+            Occurrence replaced = null;
+            if (change.value != null && !change.clear && !occurrences.isEmpty())
+            {
+                replaced = occurrences.get(occurrences.size() - 1);
+                if (replaced.value.equals(change.value))
+                {
+                    continue;
+                }
+            }
+            for (Occurrence occurrence : occurrences)
+            {
+                if (occurrence == replaced)
+                {
+                    String line = (occurrence.prefix != null) ? occurrence.prefix + escapeFilter(change.value)
+                            : format(change.name, change.value);
+                    edits.put(occurrence.last, new Edit(occurrence.first, line));
+                    changed = true;
+                }
+                else if (change.clear)
+                {
+                    edits.put(occurrence.last, new Edit(occurrence.first, null));
+                    changed = true;
+                }
+            }
+            if (change.value != null && replaced == null)
+            {
+                String line = format(change.name, change.value);
+                if (change.section != null)
+                {
+                    List<String> lines = inserts.get(change.section.end);
+                    if (lines == null)
+                    {
+                        lines = new ArrayList<String>();
+                        inserts.put(change.section.end, lines);
+                    }
+                    lines.add(line);
+                }
+                else
+                {
+                    List<String> lines = newSections.get(change.sectionName);
+                    if (lines == null)
+                    {
+                        lines = new ArrayList<String>();
+                        newSections.put(change.sectionName, lines);
+                    }
+                    lines.add(line);
+                }
+                changed = true;
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : newSections.entrySet())
+        {
+            if (entry.getKey() != null && (!getConfig().isGlobalSection()
+                    || !entry.getKey().equals(getConfig().getGlobalSectionName())))
+            {
+                appends.add(IniParser.SECTION_BEGIN + escapeFilter(entry.getKey()) + IniParser.SECTION_END);
+            }
+            appends.addAll(entry.getValue());
+        }
+        return changed;
+    }
+
+    /**
+     * Writes the patched file.
+     * <p/>
+     * The patched content is written to a temporary file, which is then copied over the file in place, so that the
+     * file keeps its permissions and owner. If the file cannot be overwritten, the temporary file is kept, so that
+     * the patched content isn't lost.
+     *
+     * @param file      the file
+     * @param edits     the replaced and removed lines, keyed on their last line
+     * @param inserts   the lines to insert, keyed on the line they follow
+     * @param appends   the lines to append to the file
+     * @param separator the line separator for new lines
+     * @throws IOException for any I/O error
+     */
+    private void write(File file, Map<Integer, Edit> edits, Map<Integer, List<String>> inserts,
+                       List<String> appends, String separator) throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        boolean written = false;
+        try
+        {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(temp), getConfig().getFileEncoding());
+            try
+            {
+                List<String> headers = inserts.get(-1);
+                if (headers != null)
+                {
+                    writeLines(writer, headers, separator);
+                }
+                // lines of removed or replaced options, keyed on their first line
+                Map<Integer, Edit> skipped = new HashMap<Integer, Edit>();
+                for (Edit edit : edits.values())
+                {
+                    skipped.put(edit.first, edit);
+                }
+                LineReader reader = new LineReader(openReader(file));
+                try
+                {
+                    // determines if the last line written has no terminator
+                    boolean open = false;
+                    int skipTo = -1;
+                    for (int lineNo = 0; reader.next(); ++lineNo)
+                    {
+                        String terminator = reader.getTerminator();
+                        Edit edit = skipped.get(lineNo);
+                        if (edit != null)
+                        {
+                            skipTo = lineNo;
+                            while (!edits.containsKey(skipTo))
+                            {
+                                ++skipTo;
+                            }
+                        }
+                        if (lineNo <= skipTo)
+                        {
+                            edit = edits.get(lineNo);
+                            if (edit != null && edit.line != null)
+                            {
+                                writer.write(edit.line);
+                                writer.write(terminator.length() != 0 ? terminator : separator);
+                                open = false;
+                            }
+                        }
+                        else
+                        {
+                            writer.write(reader.getContent());
+                            writer.write(terminator);
+                            open = terminator.length() == 0;
+                        }
+                        List<String> lines = inserts.get(lineNo);
+                        if (lines != null)
+                        {
+                            if (open)
+                            {
+                                writer.write(separator);
+                                open = false;
+                            }
+                            writeLines(writer, lines, separator);
+                        }
+                    }
+                    if (!appends.isEmpty())
+                    {
+                        if (open)
+                        {
+                            writer.write(separator);
+                        }
+                        writeLines(writer, appends, separator);
+                    }
+                }
+                finally
+                {
+                    reader.close();
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+            written = true;
+        }
+        finally
+        {
+            if (!written)
+            {
+                temp.delete();
+            }
+        }
+        try
+        {
+            copy(temp, file);
+        }
+        catch (IOException exception)
+        {
+            throw new IOException("Failed to write " + file + ". The patched content has been kept in " + temp,
+                                  exception);
+        }
+        if (!temp.delete())
+        {
+            temp.deleteOnExit();
+        }
+    }
+
+    /**
+     * Copies a file over another, truncating it in place.
+     *
+     * @param source the file to copy
+     * @param target the file to overwrite
+     * @throws IOException for any I/O error
+     */
+    private void copy(File source, File target) throws IOException
+    {
+        InputStream in = new FileInputStream(source);
+        try
+        {
+            OutputStream out = new FileOutputStream(target);
+            try
+            {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1)
+                {
+                    out.write(buffer, 0, read);
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private void writeLines(Writer writer, List<String> lines, String separator) throws IOException
+    {
+        for (String line : lines)
+        {
+            writer.write(line);
+            writer.write(separator);
+        }
+    }
+
+    private String parseSectionName(String line)
+    {
+        if (line.charAt(line.length() - 1) != IniParser.SECTION_END)
+        {
+            return null;
+        }
+        String name = unescapeFilter(line.substring(1, line.length() - 1).trim());
+        if ((name.length() == 0) && !getConfig().isUnnamedSection())
+        {
+            return null;
+        }
+        if (getConfig().isLowerCaseSection())
+        {
+            name = name.toLowerCase(Locale.getDefault());
+        }
+        return name;
+    }
+
+    private String format(String name, String value)
+    {
+        return escapeFilter(name) + getConfig().getOperator() + escapeFilter(value);
+    }
+
+    private String escapeFilter(String input)
+    {
+        return getConfig().isEscape() ? EscapeTool.getInstance().escape(input) : input;
+    }
+
+    private Reader openReader(File file) throws IOException
+    {
+        return new InputStreamReader(new FileInputStream(file), getConfig().getFileEncoding());
+    }
+
+    private static String getContent(LineReader reader, int lineNo)
+    {
+        String content = reader.getContent();
+        return (lineNo == 0 && content.length() != 0 && content.charAt(0) == BOM) ? content.substring(1) : content;
+    }
+
+    /**
+     * Returns the name an auto numbered option is stored under, as per {@link OptionsBuilder}.
+     *
+     * @param name the option name, including the number
+     * @return the name, excluding the number
+     */
+    private static String getNumberedName(String name)
+    {
+        StringBuilder sb = new StringBuilder();
+        boolean found = false;
+        for (String part : name.split("\\."))
+        {
+            if (sb.length() > 0)
+            {
+                sb.append(".");
+            }
+            if (found || !part.matches("[\\d]+"))
+            {
+                sb.append(part);
+            }
+            else
+            {
+                found = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int countEndingEscapes(String line)
+    {
+        int escapeCount = 0;
+        for (int i = line.length() - 1; (i >= 0) && (line.charAt(i) == '\\'); i--)
+        {
+            escapeCount++;
+        }
+        return escapeCount;
+    }
+
+    private Change getChange(String section, String name)
+    {
+        if (_ini == (section == null))
+        {
+            throw new IllegalArgumentException(_ini ? "INI options require a section" : "Options have no sections");
+        }
+        String key = getKey(section, name);
+        Change change = _changes.get(key);
+        if (change == null)
+        {
+            change = new Change(section, name);
+            _changes.put(key, change);
+        }
+        return change;
+    }
+
+    private static String getKey(String section, String name)
+    {
+        return (section == null) ? name : section + '\0' + name;
+    }
+
+    /**
+     * A change to an option.
+     */
+    private static class Change
+    {
+        final String sectionName;
+        final String name;
+        String value;
+        /**
+         * Determines if the existing values are removed. A value set after removal is added to the end of the
+         * section.
+         */
+        boolean clear;
+        Instance section;
+        Instance instance;
+        final List<Occurrence> occurrences = new ArrayList<Occurrence>();
+
+        Change(String sectionName, String name)
+        {
+            this.sectionName = sectionName;
+            this.name = name;
+        }
+
+        void reset()
+        {
+            section = null;
+            instance = null;
+            occurrences.clear();
+        }
+    }
+
+    /**
+     * An occurrence of a section in the file.
+     */
+    private static class Instance
+    {
+        /**
+         * The last line of the section header or options.
+         */
+        int end;
+
+        Instance(int end)
+        {
+            this.end = end;
+        }
+    }
+
+    /**
+     * An occurrence of a changed option in the file.
+     */
+    private static class Occurrence
+    {
+        final int first;
+        final int last;
+        final String value;
+        String prefix;
+
+        Occurrence(int first, int last, String value)
+        {
+            this.first = first;
+            this.last = last;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Replaces the lines of an option.
+     */
+    private static class Edit
+    {
+        final int first;
+        final String line;
+
+        Edit(int first, String line)
+        {
+            this.first = first;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Reads lines, retaining their terminators.
+     */
+    private static class LineReader
+    {
+        private final Reader _reader;
+        private final char[] _buffer = new char[8192];
+        private int _pos;
+        private int _limit;
+        private final StringBuilder _content = new StringBuilder();
+        private String _terminator = "";
+
+        LineReader(Reader reader)
+        {
+            _reader = reader;
+        }
+
+        boolean next() throws IOException
+        {
+            _content.setLength(0);
+            _terminator = "";
+            boolean read = false;
+            while (true)
+            {
+                if (_pos == _limit)
+                {
+                    _limit = _reader.read(_buffer);
+                    _pos = 0;
+                    if (_limit <= 0)
+                    {
+                        _limit = 0;
+                        return read;
+                    }
+                }
+                read = true;
+                int start = _pos;
+                while (_pos < _limit && _buffer[_pos] != '\n' && _buffer[_pos] != '\r')
+                {
+                    ++_pos;
+                }
+                _content.append(_buffer, start, _pos - start);
+                if (_pos < _limit)
+                {
+                    char c = _buffer[_pos++];
+                    if (c == '\r')
+                    {
+                        if (_pos == _limit)
+                        {
+                            _limit = _reader.read(_buffer);
+                            _pos = 0;
+                            if (_limit < 0)
+                            {
+                                _limit = 0;
+                            }
+                        }
+                        if (_pos < _limit && _buffer[_pos] == '\n')
+                        {
+                            ++_pos;
+                            _terminator = "\r\n";
+                        }
+                        else
+                        {
+                            _terminator = "\r";
+                        }
+                    }
+                    else
+                    {
+                        _terminator = "\n";
+                    }
+                    return true;
+                }
+            }
+        }
+
+        String getContent()
+        {
+            return _content.toString();
+        }
+
+        String getTerminator()
+        {
+            return _terminator;
+        }
+
+        void close() throws IOException
+        {
+            _reader.close();
+        }
+    }
+}
@@ -25,6 +25,8 @@ package com.izforge.izpack.api.container;
 import com.izforge.izpack.api.exception.ContainerException;
 import com.izforge.izpack.api.exception.IzPackClassNotFoundException;
 
+import java.util.concurrent.Callable;
+
 
 /**
  * Component container.
@@ -51,6 +53,16 @@ public interface Container
      */
     void addComponent(Object componentKey, Object implementation);
 
+    /**
+     * Register a component that is created when it is first retrieved.
+     *
+     * @param componentKey  the component identifier. This must be unique within the container
+     * @param componentType the component type
+     * @param factory       the factory to create the component. This is invoked at most once
+     * @throws ContainerException if registration fails
+     */
+    <T> void addComponent(Object componentKey, Class<T> componentType, Callable<? extends T> factory);
+
     /**
      * Retrieve a component by its component type.
      * <p/>
@@ -26,6 +26,7 @@ import com.izforge.izpack.api.data.binding.OsModel;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -112,6 +113,16 @@ public class ExecutableFile implements Serializable
      */
     private String condition = null;
 
+    /**
+     * The group this executable belongs to. Executables of a group may run concurrently.
+     */
+    private String group = null;
+
+    /**
+     * The groups that must complete before this executable runs.
+     */
+    private List<String> after = null;
+
     /**
      * Constructs a new uninitialized instance.
      */
@@ -195,6 +206,16 @@ public class ExecutableFile implements Serializable
         }
         retval.append("keepFile = ").append(keepFile);
         retval.append("\n");
+        if (group != null)
+        {
+            retval.append("group = ").append(group);
+            retval.append("\n");
+        }
+        if (after != null && !after.isEmpty())
+        {
+            retval.append("after = ").append(after);
+            retval.append("\n");
+        }
         return retval.toString();
     }
 
@@ -220,4 +241,47 @@ public class ExecutableFile implements Serializable
     {
         return this.condition != null;
     }
+
+    /**
+     * Returns the group this executable belongs to.
+     * <p/>
+     * Executables of a group are independent of each other, and of other groups, so may run concurrently.
+     * Executables without a group run in order, after all executables preceding them.
+     *
+     * @return the group, or {@code null} if the executable doesn't belong to one
+     */
+    public String getGroup()
+    {
+        return group;
+    }
+
+    /**
+     * Sets the group this executable belongs to.
+     *
+     * @param group the group. May be {@code null}
+     */
+    public void setGroup(String group)
+    {
+        this.group = group;
+    }
+
+    /**
+     * Returns the groups whose preceding executables must complete before this executable runs.
+     *
+     * @return the group names
+     */
+    public List<String> getAfter()
+    {
+        return (after != null) ? after : Collections.<String>emptyList();
+    }
+
+    /**
+     * Sets the groups whose preceding executables must complete before this executable runs.
+     *
+     * @param after the group names. May be {@code null}
+     */
+    public void setAfter(List<String> after)
+    {
+        this.after = after;
+    }
 }
@@ -129,8 +129,35 @@ public class Info implements Serializable
 
     private boolean isSingleInstance = true;
 
+    /**
+     * Determines if the installer supports installing into an archive.
+     */
+    private boolean archiveInstallation = false;
+
     private String compressionFormat = PackCompression.DEFAULT.toName();
 
+    private long solidBlockSize = 0;
+
+    /**
+     * The extensions of files to store without compression, or {@code null} to use the compiler defaults.
+     */
+    private Set<String> storedExtensions = null;
+
+    private boolean compressionProbe = true;
+
+    private int compressionLevel = 0;
+
+    private int compressionWindowLog = 0;
+
+    private int compressionDictionarySize = 0;
+
+    private long chunkSize = 0;
+
+    /**
+     * The previous installer that upgrade deltas are generated against. Only used at compile time.
+     */
+    private transient String upgradeBaseline = null;
+
     private boolean requirePrivilegedExecution = false;
 
     private boolean requirePrivilegedExecutionUninstaller = false;
@@ -433,6 +460,178 @@ public class Info implements Serializable
         this.compressionFormat = compression.toName();
     }
 
+    /**
+     * Returns the maximum uncompressed size of the blocks that pack files are compressed in.
+     *
+     * @return the block size, or {@code 0} if each file is compressed separately
+     */
+    public long getSolidBlockSize()
+    {
+        return solidBlockSize;
+    }
+
+    /**
+     * Sets the maximum uncompressed size of the blocks that pack files are compressed in.
+     * <p/>
+     * This only applies to compression formats other than {@link PackCompression#DEFAULT}.
+     *
+     * @param solidBlockSize the block size, or {@code 0} to compress each file separately
+     */
+    public void setSolidBlockSize(long solidBlockSize)
+    {
+        this.solidBlockSize = solidBlockSize;
+    }
+
+    /**
+     * Returns the size of the chunks that large pack files are split into, so that they can be compressed and
+     * decompressed in parallel.
+     * <p/>
+     * This only applies to compression formats other than {@link PackCompression#DEFAULT}.
+     *
+     * @return the uncompressed chunk size, or {@code 0} if files are compressed as a whole
+     */
+    public long getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the size of the chunks that large pack files are split into.
+     *
+     * @param chunkSize the uncompressed chunk size, or {@code 0} to compress files as a whole
+     */
+    public void setChunkSize(long chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the previous installer that upgrade deltas are generated against.
+     * <p/>
+     * Files that are unchanged from the previous installer aren't stored, and files that have changed are stored
+     * as deltas, to be applied to the installed files.
+     *
+     * @return the path of the previous installer, or {@code null} if files are stored in full
+     */
+    public String getUpgradeBaseline()
+    {
+        return upgradeBaseline;
+    }
+
+    /**
+     * Sets the previous installer that upgrade deltas are generated against.
+     *
+     * @param upgradeBaseline the path of the previous installer, or {@code null} to store files in full
+     */
+    public void setUpgradeBaseline(String upgradeBaseline)
+    {
+        this.upgradeBaseline = upgradeBaseline;
+    }
+
+    /**
+     * Returns the extensions of files that are stored in packs without compression, as they are already compressed.
+     *
+     * @return the lowercase extensions, without the leading dot, or {@code null} to use the compiler defaults
+     */
+    public Set<String> getStoredExtensions()
+    {
+        return storedExtensions;
+    }
+
+    /**
+     * Sets the extensions of files that are stored in packs without compression.
+     *
+     * @param storedExtensions the lowercase extensions, without the leading dot, or {@code null} to use the
+     *                         compiler defaults
+     */
+    public void setStoredExtensions(Set<String> storedExtensions)
+    {
+        this.storedExtensions = storedExtensions;
+    }
+
+    /**
+     * Determines if a sample of each pack file is compressed to decide if the file is worth compressing.
+     *
+     * @return {@code true} if files that don't compress are stored without compression
+     */
+    public boolean isCompressionProbe()
+    {
+        return compressionProbe;
+    }
+
+    /**
+     * Determines if a sample of each pack file is compressed to decide if the file is worth compressing.
+     *
+     * @param compressionProbe if {@code true}, files that don't compress are stored without compression
+     */
+    public void setCompressionProbe(boolean compressionProbe)
+    {
+        this.compressionProbe = compressionProbe;
+    }
+
+    /**
+     * Returns the level to compress packs with. This only applies to {@link PackCompression#ZSTD}.
+     *
+     * @return the compression level, or {@code 0} to use the default level
+     */
+    public int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+
+    /**
+     * Sets the level to compress packs with. This only applies to {@link PackCompression#ZSTD}.
+     *
+     * @param compressionLevel the compression level, or {@code 0} to use the default level
+     */
+    public void setCompressionLevel(int compressionLevel)
+    {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Returns the window size for long distance matching. This only applies to {@link PackCompression#ZSTD}.
+     *
+     * @return the window size as a power of 2, or {@code 0} if long distance matching is disabled
+     */
+    public int getCompressionWindowLog()
+    {
+        return compressionWindowLog;
+    }
+
+    /**
+     * Sets the window size for long distance matching. This only applies to {@link PackCompression#ZSTD}.
+     *
+     * @param compressionWindowLog the window size as a power of 2, or {@code 0} to disable long distance matching
+     */
+    public void setCompressionWindowLog(int compressionWindowLog)
+    {
+        this.compressionWindowLog = compressionWindowLog;
+    }
+
+    /**
+     * Returns the maximum size of the dictionary trained for the small files of each pack. This only applies to
+     * {@link PackCompression#ZSTD}.
+     *
+     * @return the dictionary size in bytes, or {@code 0} if files are compressed without a dictionary
+     */
+    public int getCompressionDictionarySize()
+    {
+        return compressionDictionarySize;
+    }
+
+    /**
+     * Sets the maximum size of the dictionary trained for the small files of each pack. This only applies to
+     * {@link PackCompression#ZSTD}.
+     *
+     * @param compressionDictionarySize the dictionary size in bytes, or {@code 0} to compress files without a
+     *                                  dictionary
+     */
+    public void setCompressionDictionarySize(int compressionDictionarySize)
+    {
+        this.compressionDictionarySize = compressionDictionarySize;
+    }
+
     /**
      * This class represents an author.
      *
@@ -635,6 +834,28 @@ public class Info implements Serializable
 
     }
 
+    /**
+     * Determines if the installer supports installing into a tar or zip archive, rather than the file system.
+     *
+     * @return {@code true} if installing into an archive is supported
+     */
+    public boolean isArchiveInstallation()
+    {
+        return archiveInstallation;
+    }
+
+    /**
+     * Sets whether the installer supports installing into a tar or zip archive, rather than the file system.
+     * <p/>
+     * This requires the archiving classes to be included in the installer.
+     *
+     * @param archiveInstallation if {@code true}, installing into an archive is supported
+     */
+    public void setArchiveInstallation(boolean archiveInstallation)
+    {
+        this.archiveInstallation = archiveInstallation;
+    }
+
 
     public String getUninstallerCondition()
     {
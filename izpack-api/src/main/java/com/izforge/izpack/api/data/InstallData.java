@@ -52,6 +52,22 @@ public interface InstallData
      */
     String MODIFY_INSTALLATION = "modify.izpack.install";
 
+    /**
+     * Determines if the installation is running embedded in another application, alongside other installations.
+     */
+    String EMBEDDED_INSTALLATION = "izpack.embedded.install";
+
+    /**
+     * Determines if the installation is automated, i.e. runs without user interaction.
+     */
+    String AUTOMATED_INSTALLATION = "izpack.automated.install";
+
+    /**
+     * The tar or zip archive to install into, instead of the file system. Only supported if the installer was
+     * compiled with {@link Info#isArchiveInstallation() archive installation} enabled.
+     */
+    String ARCHIVE_TARGET = "izpack.archive.target";
+
     /**
      * Installation information file name.
      */
@@ -20,10 +20,21 @@
 package com.izforge.izpack.api.data;
 
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.text.MessageFormat;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,19 +48,30 @@ import com.izforge.izpack.api.resource.Messages;
 
 /**
  * Represents a database of a locale.
+ * <p/>
+ * Lookups with arguments are served from an immutable snapshot of this database merged with those of its parents,
+ * along with the compiled {@link MessageFormat} for each message. The snapshot is discarded when this database or
+ * one of its parents changes, and rebuilt on the next lookup.
+ * <p/>
+ * The views returned by {@link #entrySet()}, {@link #keySet()} and {@link #values()} are read-only. Messages are
+ * changed via {@link #put}, {@link #putAll}, {@link #remove} and {@link #clear}.
  *
  * @author Julien Ponge
  * @author J. Chris Folsom <jchrisfolsom@gmail.com>
  */
-public class LocaleDatabase extends TreeMap<String, String> implements Messages
+public class LocaleDatabase extends AbstractMap<String, String> implements Messages
 {
-    private static final long serialVersionUID = -5263020795271672830L;
 
     /**
      * static character for replacing quotes
      */
     private static final char TEMP_QUOTING_CHARACTER = '\uffff';
 
+    /**
+     * The messages, keyed on identifier.
+     */
+    private final Map<String, String> messages = new TreeMap<String, String>();
+
     /**
      * The parent messages. May be {@code null}.
      */
@@ -60,6 +82,16 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
      */
     private final Locales locales;
 
+    /**
+     * The databases that inherit this database's messages, to be invalidated when it changes.
+     */
+    private final List<WeakReference<LocaleDatabase>> children = new ArrayList<WeakReference<LocaleDatabase>>();
+
+    /**
+     * The flattened messages and compiled formats. May be {@code null}.
+     */
+    private volatile Snapshot snapshot;
+
     /**
      * The logger.
      */
@@ -100,6 +132,10 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
     {
         this.parent = parent;
         this.locales = locales;
+        if (parent instanceof LocaleDatabase)
+        {
+            ((LocaleDatabase) parent).addChild(this);
+        }
         if (in != null)
         {
             add(in);
@@ -135,18 +171,20 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
         }
 
         // We fill the Hashtable
+        Map<String, String> messages = new LinkedHashMap<String, String>();
         for (IXMLElement child : data.getChildren())
         {
             String text = child.getContent();
             if (text != null && !text.isEmpty())
             {
-                put(child.getAttribute("id"), text.trim());
+                messages.put(child.getAttribute("id"), text.trim());
             }
             else
             {
-                put(child.getAttribute("id"), child.getAttribute("txt"));
+                messages.put(child.getAttribute("id"), child.getAttribute("txt"));
             }
         }
+        putAll(messages);
     }
 
     /**
@@ -158,7 +196,7 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
     @Override
     public String get(Object id)
     {
-        String result = super.get(id);
+        String result = messages.get(id);
         return result != null ? result : id.toString();
     }
 
@@ -175,23 +213,15 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
     public String get(String id, Object... args)
     {
         String result;
-        String pattern = (id != null) ? super.get(id) : null;
+        Snapshot snapshot = getSnapshot();
+        String pattern = (id != null) ? snapshot.get(id) : null;
         if (pattern != null)
         {
             if (args.length > 0)
             {
                 try
                 {
-                    // replace all ' characters because MessageFormat.format() doesn't substitute quoted place
-                    // holders '{0}'
-                    // TODO - fix quotes in langpacks to MessageFormat format
-                    pattern = pattern.replace('\'', TEMP_QUOTING_CHARACTER);
-
-                    pattern = MessageFormat.format(pattern, args);
-                    result = MessageFormat.format(pattern, args);
-
-                    // replace all ' characters back
-                    result = result.replace(TEMP_QUOTING_CHARACTER, '\'');
+                    result = snapshot.format(id, pattern, args);
                 }
                 catch (IllegalArgumentException exception)
                 {
@@ -204,8 +234,9 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
                 result = pattern;
             }
         }
-        else if (parent != null)
+        else if (parent != null && !(parent instanceof LocaleDatabase))
         {
+            // the messages that the parent inherits aren't part of the snapshot
             result = parent.get(id, args);
         }
         else
@@ -215,6 +246,205 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
         return result;
     }
 
+    /**
+     * Determines if a message exists with the specified identifier.
+     *
+     * @param id the message identifier
+     * @return {@code true} if the message exists in this database, excluding its parents
+     */
+    @Override
+    public boolean containsKey(Object id)
+    {
+        return messages.containsKey(id);
+    }
+
+    /**
+     * Returns the number of messages in this database, excluding its parents.
+     *
+     * @return the number of messages
+     */
+    @Override
+    public int size()
+    {
+        return messages.size();
+    }
+
+    /**
+     * Associates a message with an identifier.
+     *
+     * @param id      the message identifier
+     * @param message the message
+     * @return the previous message, or {@code null} if there was none
+     */
+    @Override
+    public String put(String id, String message)
+    {
+        String result;
+        synchronized (this)
+        {
+            result = messages.put(id, message);
+            snapshot = null;
+        }
+        invalidateChildren();
+        return result;
+    }
+
+    /**
+     * Associates a message with an identifier, if there is no message for the identifier.
+     * <p/>
+     * This and the {@code replace} methods provide the semantics of those of {@code Map}, which would otherwise
+     * consult {@link #get(Object)}, which doesn't return {@code null} for missing messages.
+     *
+     * @param id      the message identifier
+     * @param message the message
+     * @return the existing message, or {@code null} if there was none
+     */
+    public String putIfAbsent(String id, String message)
+    {
+        String result;
+        synchronized (this)
+        {
+            result = messages.get(id);
+            if (result != null)
+            {
+                return result;
+            }
+            messages.put(id, message);
+            snapshot = null;
+        }
+        invalidateChildren();
+        return result;
+    }
+
+    /**
+     * Replaces the message with the specified identifier, if there is one.
+     *
+     * @param id      the message identifier
+     * @param message the new message
+     * @return the previous message, or {@code null} if there was none
+     */
+    public String replace(String id, String message)
+    {
+        String result;
+        synchronized (this)
+        {
+            if (!messages.containsKey(id))
+            {
+                return null;
+            }
+            result = messages.put(id, message);
+            snapshot = null;
+        }
+        invalidateChildren();
+        return result;
+    }
+
+    /**
+     * Replaces the message with the specified identifier, if it is the expected message.
+     *
+     * @param id         the message identifier
+     * @param oldMessage the expected message
+     * @param newMessage the new message
+     * @return {@code true} if the message was replaced
+     */
+    public boolean replace(String id, String oldMessage, String newMessage)
+    {
+        synchronized (this)
+        {
+            String current = messages.get(id);
+            if (!messages.containsKey(id) || (current == null ? oldMessage != null : !current.equals(oldMessage)))
+            {
+                return false;
+            }
+            messages.put(id, newMessage);
+            snapshot = null;
+        }
+        invalidateChildren();
+        return true;
+    }
+
+    /**
+     * Adds all of the supplied messages.
+     *
+     * @param messages the messages to add
+     */
+    @Override
+    public void putAll(Map<? extends String, ? extends String> messages)
+    {
+        synchronized (this)
+        {
+            this.messages.putAll(messages);
+            snapshot = null;
+        }
+        invalidateChildren();
+    }
+
+    /**
+     * Removes a message.
+     *
+     * @param id the message identifier
+     * @return the removed message, or {@code null} if there was none
+     */
+    @Override
+    public String remove(Object id)
+    {
+        String result;
+        synchronized (this)
+        {
+            result = messages.remove(id);
+            snapshot = null;
+        }
+        invalidateChildren();
+        return result;
+    }
+
+    /**
+     * Removes all messages.
+     */
+    @Override
+    public void clear()
+    {
+        synchronized (this)
+        {
+            messages.clear();
+            snapshot = null;
+        }
+        invalidateChildren();
+    }
+
+    /**
+     * Returns a read-only view of the messages, ordered on identifier.
+     *
+     * @return the messages
+     */
+    @Override
+    public Set<Map.Entry<String, String>> entrySet()
+    {
+        return Collections.unmodifiableMap(messages).entrySet();
+    }
+
+    /**
+     * Returns a read-only view of the message identifiers, in order.
+     *
+     * @return the message identifiers
+     */
+    @Override
+    public Set<String> keySet()
+    {
+        return Collections.unmodifiableSet(messages.keySet());
+    }
+
+    /**
+     * Returns a read-only view of the message formats, ordered on identifier.
+     *
+     * @return the message formats
+     */
+    @Override
+    public Collection<String> values()
+    {
+        return Collections.unmodifiableCollection(messages.values());
+    }
+
     /**
      * Adds messages.
      * <p/>
@@ -237,7 +467,7 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
     @Override
     public Map<String, String> getMessages()
     {
-        return Collections.unmodifiableMap(this);
+        return Collections.unmodifiableMap(messages);
     }
 
     /**
@@ -250,8 +480,9 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
     public Messages newMessages(String name)
     {
         Messages child = locales.getMessages(name);
-        Messages result = new LocaleDatabase(this, locales);
+        LocaleDatabase result = new LocaleDatabase(this, locales);
         result.add(child);
+        result.getSnapshot();
         return result;
     }
 
@@ -291,15 +522,164 @@ public class LocaleDatabase extends TreeMap<String, String> implements Messages
         }
 
         String message = get(key);
+        if (containsKey(key))
+        {
+            return getSnapshot().format(key, message, variables);
+        }
+        return Snapshot.compile(message).format(variables).replace(TEMP_QUOTING_CHARACTER, '\'');
+    }
 
-        // replace all ' characters because MessageFormat.format()
-        // don't substitute quoted place holders '{0}'
-        message = message.replace('\'', TEMP_QUOTING_CHARACTER);
+    /**
+     * Registers a database that inherits this database's messages.
+     *
+     * @param child the child database
+     */
+    private void addChild(LocaleDatabase child)
+    {
+        synchronized (children)
+        {
+            children.add(new WeakReference<LocaleDatabase>(child));
+        }
+    }
 
-        message = MessageFormat.format(message, (Object[]) variables);
+    /**
+     * Discards the snapshots of the databases that inherit this database's messages.
+     */
+    private void invalidateChildren()
+    {
+        List<LocaleDatabase> databases = new ArrayList<LocaleDatabase>();
+        synchronized (children)
+        {
+            Iterator<WeakReference<LocaleDatabase>> iterator = children.iterator();
+            while (iterator.hasNext())
+            {
+                LocaleDatabase child = iterator.next().get();
+                if (child == null)
+                {
+                    iterator.remove();
+                }
+                else
+                {
+                    databases.add(child);
+                }
+            }
+        }
+        for (LocaleDatabase child : databases)
+        {
+            synchronized (child)
+            {
+                child.snapshot = null;
+            }
+            child.invalidateChildren();
+        }
+    }
 
-        // replace all ' characters back
-        return message.replace(TEMP_QUOTING_CHARACTER, '\'');
+    /**
+     * Returns the flattened messages and compiled formats, building them if this database or one of its parents has
+     * changed since they were last built.
+     *
+     * @return the snapshot
+     */
+    private Snapshot getSnapshot()
+    {
+        Snapshot result = snapshot;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = snapshot;
+                if (result == null)
+                {
+                    Map<String, String> flattened = new HashMap<String, String>();
+                    if (parent instanceof LocaleDatabase)
+                    {
+                        flattened.putAll(((LocaleDatabase) parent).getSnapshot().messages);
+                    }
+                    else if (parent != null)
+                    {
+                        flattened.putAll(parent.getMessages());
+                    }
+                    flattened.putAll(messages);
+                    result = new Snapshot(Collections.unmodifiableMap(flattened));
+                    snapshot = result;
+                }
+            }
+        }
+        return result;
     }
 
+    /**
+     * An immutable copy of the messages of a database and its parents, with a cache of compiled formats.
+     */
+    private static class Snapshot
+    {
+
+        /**
+         * The messages, keyed on identifier.
+         */
+        private final Map<String, String> messages;
+
+        /**
+         * The compiled formats, keyed on message identifier.
+         */
+        private final ConcurrentMap<String, MessageFormat> formats = new ConcurrentHashMap<String, MessageFormat>();
+
+        public Snapshot(Map<String, String> messages)
+        {
+            this.messages = messages;
+        }
+
+        /**
+         * Returns a message.
+         *
+         * @param id the message identifier
+         * @return the message, or {@code null} if it doesn't exist
+         */
+        public String get(String id)
+        {
+            return messages.get(id);
+        }
+
+        /**
+         * Formats a message.
+         *
+         * @param id      the message identifier
+         * @param pattern the message pattern
+         * @param args    the message arguments
+         * @return the formatted message
+         * @throws IllegalArgumentException if the pattern is invalid, or an argument is of the wrong type
+         */
+        public String format(String id, String pattern, Object[] args)
+        {
+            MessageFormat format = formats.get(id);
+            if (format == null)
+            {
+                format = compile(pattern);
+                formats.put(id, format);
+            }
+            String result;
+            synchronized (format)
+            {
+                result = format.format(args);
+            }
+
+            // replace all ' characters back
+            return result.replace(TEMP_QUOTING_CHARACTER, '\'');
+        }
+
+        /**
+         * Compiles a message pattern.
+         *
+         * @param pattern the message pattern
+         * @return the compiled pattern
+         * @throws IllegalArgumentException if the pattern is invalid
+         */
+        public static MessageFormat compile(String pattern)
+        {
+            // replace all ' characters because MessageFormat.format() doesn't substitute quoted place
+            // holders '{0}'
+            // TODO - fix quotes in langpacks to MessageFormat format
+            return new MessageFormat(pattern.replace('\'', TEMP_QUOTING_CHARACTER));
+        }
+    }
 }
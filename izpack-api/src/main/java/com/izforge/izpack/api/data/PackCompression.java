@@ -28,7 +28,7 @@ import java.util.Map;
  */
 public enum PackCompression
 {
-    DEFAULT("default"), GZIP("gz"), BZIP2("bzip2"), XZ("xz"), LZMA("lzma"), DEFLATE("deflate");
+    DEFAULT("default"), GZIP("gz"), BZIP2("bzip2"), XZ("xz"), LZMA("lzma"), DEFLATE("deflate"), ZSTD("zstd");
 
     private static Map<String, PackCompression> lookupByName;
 
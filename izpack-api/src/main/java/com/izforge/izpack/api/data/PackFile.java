@@ -29,6 +29,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -94,6 +95,11 @@ public class PackFile implements Serializable
      */
     private boolean isDirectory = false;
 
+    /**
+     * True if the file is executable. This is only captured when compiling on a platform with POSIX permissions.
+     */
+    private boolean executable = false;
+
     /**
      * Whether or not this file is going to override any existing ones
      */
@@ -119,6 +125,50 @@ public class PackFile implements Serializable
     private String streamResourceName;
     private long streamOffset = -1;
 
+    /**
+     * The compressed size of the solid block containing the file, or {@code 0} if the file isn't stored in a
+     * solid block. For files in a solid block, the stream offset is that of the block.
+     */
+    private long blockSize = 0;
+
+    /**
+     * The offset of the file in its uncompressed solid block.
+     */
+    private long blockOffset = 0;
+
+    /**
+     * The compression format the file is stored with, or {@code null} if it is stored with the installation's format.
+     */
+    private PackCompression compression = null;
+
+    /**
+     * The dictionary the file is compressed with, or {@code null} if it is compressed without a dictionary.
+     * Shared by the files of a pack, so it is serialized once.
+     */
+    private byte[] compressionDictionary = null;
+
+    /**
+     * The uncompressed size of the chunks the file is split into, or {@code 0} if it is compressed as a whole.
+     * Each chunk is compressed independently, so that chunks can be compressed and decompressed in parallel.
+     */
+    private long chunkSize = 0;
+
+    /**
+     * The compressed sizes of the chunks, in order, or {@code null} if the file is compressed as a whole.
+     */
+    private long[] compressedChunkSizes = null;
+
+    /**
+     * The digest of the file content, or {@code null} if the installer isn't an upgrade.
+     */
+    private byte[] digest = null;
+
+    /**
+     * The digest of the installed file that the stored delta is applied to, or {@code null} if the file is stored in
+     * full.
+     */
+    private byte[] baselineDigest = null;
+
     private PackFile linkedPackFile;
 
     /**
@@ -196,6 +246,7 @@ public class PackFile implements Serializable
 
         this.mtime = src.lastModified();
         this.isDirectory = src.isDirectory();
+        this.executable = !isDirectory && '/' == File.separatorChar && src.canExecute();
         if (!this.isDirectory())
         {
             this.length = src.length();
@@ -274,6 +325,198 @@ public class PackFile implements Serializable
         this.streamOffset = offset;
     }
 
+    /**
+     * Returns the compressed size of the solid block containing the file.
+     *
+     * @return the block size, or {@code 0} if the file isn't stored in a solid block
+     */
+    public long getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * Sets the compressed size of the solid block containing the file.
+     *
+     * @param blockSize the block size
+     */
+    public void setBlockSize(long blockSize)
+    {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the offset of the file in its uncompressed solid block.
+     *
+     * @return the block offset
+     */
+    public long getBlockOffset()
+    {
+        return blockOffset;
+    }
+
+    /**
+     * Sets the offset of the file in its uncompressed solid block.
+     *
+     * @param blockOffset the block offset
+     */
+    public void setBlockOffset(long blockOffset)
+    {
+        this.blockOffset = blockOffset;
+    }
+
+    /**
+     * Determines if the file is stored in a solid block, i.e. compressed together with other files.
+     *
+     * @return {@code true} if the file is stored in a solid block
+     */
+    public boolean isSolid()
+    {
+        return blockSize > 0;
+    }
+
+    /**
+     * Returns the compression format the file is stored with in the pack stream.
+     *
+     * @return the compression format, or {@code null} if the file is stored with the installation's format
+     */
+    public PackCompression getCompression()
+    {
+        return compression;
+    }
+
+    /**
+     * Sets the compression format the file is stored with in the pack stream.
+     *
+     * @param compression the compression format, or {@code null} to use the installation's format
+     */
+    public void setCompression(PackCompression compression)
+    {
+        this.compression = compression;
+    }
+
+    /**
+     * Determines if the file is split into independently compressed chunks.
+     *
+     * @return {@code true} if the file is split into chunks
+     */
+    public boolean isChunked()
+    {
+        return compressedChunkSizes != null;
+    }
+
+    /**
+     * Returns the uncompressed size of the chunks the file is split into. The last chunk may be smaller.
+     *
+     * @return the chunk size, or {@code 0} if the file is compressed as a whole
+     */
+    public long getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the compressed sizes of the chunks the file is split into.
+     *
+     * @return the compressed chunk sizes, in order, or {@code null} if the file is compressed as a whole
+     */
+    public long[] getCompressedChunkSizes()
+    {
+        return compressedChunkSizes;
+    }
+
+    /**
+     * Records that the file is split into independently compressed chunks.
+     *
+     * @param chunkSize            the uncompressed size of the chunks
+     * @param compressedChunkSizes the compressed sizes of the chunks, in order
+     */
+    public void setChunks(long chunkSize, long[] compressedChunkSizes)
+    {
+        this.chunkSize = chunkSize;
+        this.compressedChunkSizes = compressedChunkSizes;
+    }
+
+    /**
+     * Returns the dictionary the file is compressed with.
+     *
+     * @return the dictionary, or {@code null} if the file is compressed without a dictionary
+     */
+    public byte[] getCompressionDictionary()
+    {
+        return compressionDictionary;
+    }
+
+    /**
+     * Sets the dictionary the file is compressed with.
+     *
+     * @param compressionDictionary the dictionary. May be {@code null}
+     */
+    public void setCompressionDictionary(byte[] compressionDictionary)
+    {
+        this.compressionDictionary = compressionDictionary;
+    }
+
+    /**
+     * Returns the digest of the file content.
+     *
+     * @return the digest, or {@code null} if the installer isn't an upgrade
+     */
+    public byte[] getDigest()
+    {
+        return digest;
+    }
+
+    /**
+     * Sets the digest of the file content.
+     *
+     * @param digest the digest. May be {@code null}
+     */
+    public void setDigest(byte[] digest)
+    {
+        this.digest = digest;
+    }
+
+    /**
+     * Determines if the file is stored as a delta against the installed file.
+     *
+     * @return {@code true} if the file is stored as a delta
+     */
+    public boolean isDelta()
+    {
+        return baselineDigest != null;
+    }
+
+    /**
+     * Determines if the file is unchanged from the installed file, in which case nothing is stored for it.
+     *
+     * @return {@code true} if the file is unchanged
+     */
+    public boolean isUnchanged()
+    {
+        return baselineDigest != null && Arrays.equals(baselineDigest, digest);
+    }
+
+    /**
+     * Returns the digest of the installed file that the stored delta is applied to.
+     *
+     * @return the digest, or {@code null} if the file is stored in full
+     */
+    public byte[] getBaselineDigest()
+    {
+        return baselineDigest;
+    }
+
+    /**
+     * Records that the file is stored as a delta against the installed file.
+     *
+     * @param baselineDigest the digest of the installed file. If it is the same as that of the file, nothing is stored
+     */
+    public void setBaselineDigest(byte[] baselineDigest)
+    {
+        this.baselineDigest = baselineDigest;
+    }
+
     /**
      * The target operating system constraints of this file
      */
@@ -356,6 +599,16 @@ public class PackFile implements Serializable
         return isDirectory;
     }
 
+    /**
+     * Determines if the file should be made executable when it is installed.
+     *
+     * @return {@code true} if the source file was executable at compile time
+     */
+    public final boolean isExecutable()
+    {
+        return executable;
+    }
+
     public final boolean isBackReference()
     {
         return (linkedPackFile != null);
@@ -121,6 +121,44 @@ public class XMLElementTest
         Assert.assertEquals(element.getName(), "locale");
     }
 
+    @Test
+    public void testGetFirstChildNamedSearchesDescendants()
+    {
+        // descendants are searched in document order
+        Assert.assertEquals("info", root.getFirstChildNamed("author").getElement().getParentNode().getParentNode()
+                .getNodeName());
+        Assert.assertNull(root.getFirstDirectChildNamed("author"));
+        Assert.assertNull(root.getFirstChildNamed("nonexistent"));
+
+        // verify the cached results are invalidated when a descendant changes
+        IXMLElement variables = root.getFirstDirectChildNamed("variables");
+        variables.addChild(new XMLElementImpl("nonexistent", root));
+        Assert.assertNotNull(root.getFirstChildNamed("nonexistent"));
+        Assert.assertSame(variables, root.getFirstChildNamed("variables"));
+    }
+
+    @Test
+    public void testMutatorsInvalidateCache()
+    {
+        Assert.assertNull(root.getFirstChildNamed("nonexistent"));
+        int count = root.getChildrenCount();
+        IXMLElement variables = root.getFirstDirectChildNamed("variables");
+        Assert.assertNotNull(variables);
+
+        // changes to a grandchild invalidate the lookups cached by its ancestors
+        IXMLElement variable = variables.getChildAtIndex(0);
+        IXMLElement added = new XMLElementImpl("nonexistent", root);
+        variable.addChild(added);
+        Assert.assertSame(added.getElement(), root.getFirstChildNamed("nonexistent").getElement());
+        variable.removeChild(added);
+        Assert.assertNull(variables.getFirstChildNamed("nonexistent"));
+        Assert.assertNull(root.getFirstChildNamed("nonexistent"));
+
+        root.removeChild(variables);
+        Assert.assertEquals(count - 1, root.getChildrenCount());
+        Assert.assertNull(root.getFirstDirectChildNamed("variables"));
+    }
+
     @Test
     public void testGetChildrenNamed()
     {
@@ -23,18 +23,27 @@
 package com.izforge.izpack.api.adaptator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.xml.sax.SAXException;
 
 import com.izforge.izpack.api.adaptator.impl.XMLParser;
@@ -55,6 +64,11 @@ public class XMLParserTest
     private static final String parseErrorFilename = "notvalid.xml";
     private static final String parseErrorXincludeFilename = "xinclude-notvalid.xml";
 
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     @Test
     public void testParseFile() throws Exception
@@ -79,6 +93,20 @@ public class XMLParserTest
         Assert.assertEquals("izpack:shortcuts", spec.getName());
     }
 
+    private void writeJar(File file, String content) throws IOException
+    {
+        JarOutputStream jar = new JarOutputStream(new FileOutputStream(file));
+        try
+        {
+            jar.putNextEntry(new ZipEntry("test.xml"));
+            jar.write(content.getBytes("UTF-8"));
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
     private void checkEltLN(IXMLElement elt)
     {
         assertEquals(Integer.parseInt(elt.getAttribute("ln")), elt.getLineNr());
@@ -112,6 +140,67 @@ public class XMLParserTest
         checkEltLN(elt);
     }
 
+    /**
+     * Verifies that documents parsed from jar URLs are copied from the cache, with their line numbers.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testParseJarURL() throws IOException
+    {
+        File file = temporaryFolder.newFile("test.jar");
+        JarOutputStream jar = new JarOutputStream(new FileOutputStream(file));
+        try
+        {
+            jar.putNextEntry(new ZipEntry(lnFilename));
+            IOUtils.copy(XMLParserTest.class.getResourceAsStream(lnFilename), jar);
+        }
+        finally
+        {
+            jar.close();
+        }
+        URL url = new URL("jar:" + file.toURI().toURL() + "!/" + lnFilename);
+
+        IXMLElement first = new XMLParser(false).parse(url);
+        checkEltLN(first);
+        first.removeAttribute("ln");
+
+        IXMLElement second = new XMLParser(false).parse(url);
+        checkEltLN(second);
+        assertNull(first.getAttribute("ln"));
+    }
+
+    /**
+     * Verifies that a document parsed from a jar URL is parsed again when the jar is replaced.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testParseReplacedJarURL() throws IOException
+    {
+        File file = temporaryFolder.newFile("replaced.jar");
+        writeJar(file, "<first/>");
+        assertTrue(file.setLastModified(file.lastModified() - 10000));
+        URL url = new URL("jar:" + file.toURI().toURL() + "!/test.xml");
+
+        // prevent the JDK caching the jar, so that its replacement is read
+        URLConnection connection = file.toURI().toURL().openConnection();
+        boolean useCaches = connection.getDefaultUseCaches();
+        connection.setDefaultUseCaches(false);
+        try
+        {
+            assertEquals("first", new XMLParser(false).parse(url).getName());
+            assertEquals("first", new XMLParser(false).parse(url).getName());
+
+            writeJar(file, "<second/>");
+            assertEquals("second", new XMLParser(false).parse(url).getName());
+        }
+        finally
+        {
+            connection.setDefaultUseCaches(useCaches);
+        }
+    }
+
     @Test(expected = XMLException.class)
     public void testXMLExceptionThrown()
     {
@@ -0,0 +1,205 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.config.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.config.Config;
+import com.izforge.izpack.api.config.Ini;
+import com.izforge.izpack.api.config.Options;
+
+
+/**
+ * Tests the {@link OptionPatcher} and {@link OptionLookup} classes.
+ */
+public class OptionPatcherTest
+{
+    private static final String INI = "; header\r\n"
+            + "[first]\r\n"
+            + "a   =   1\r\n"
+            + "# about b\r\n"
+            + "b=2\r\n"
+            + "b=3\r\n"
+            + "\r\n"
+            + "[second]\r\n"
+            + "c : 4\r\n";
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    /**
+     * Verifies that only the changed lines of an INI file are rewritten.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPatchIni() throws Exception
+    {
+        File file = tmpDir.newFile("test.ini");
+        FileUtils.writeStringToFile(file, INI, "UTF-8");
+
+        Config config = Config.getGlobal().clone();
+        OptionPatcher patcher = OptionPatcher.newIniPatcher(config);
+        patcher.set("first", "a", "10");
+        patcher.set("first", "b", "30");
+        patcher.set("first", "d", "5");
+        patcher.remove("second", "c");
+        patcher.set("third", "e", "6");
+        assertTrue(patcher.patch(file));
+
+        assertEquals("; header\r\n"
+                             + "[first]\r\n"
+                             + "a   =   10\r\n"
+                             + "# about b\r\n"
+                             + "b=2\r\n"
+                             + "b=30\r\n"
+                             + "d" + config.getOperator() + "5\r\n"
+                             + "\r\n"
+                             + "[second]\r\n"
+                             + "[third]\r\n"
+                             + "e" + config.getOperator() + "6\r\n",
+                     FileUtils.readFileToString(file, "UTF-8"));
+    }
+
+    /**
+     * Verifies that a patched file is overwritten in place, so that it keeps its permissions, and that no temporary
+     * files are left behind.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPatchInPlace() throws Exception
+    {
+        File file = tmpDir.newFile("test.properties");
+        FileUtils.writeStringToFile(file, "a = 1\n", "UTF-8");
+        assertTrue(file.setExecutable(true, true));
+
+        OptionPatcher patcher = OptionPatcher.newOptionsPatcher(Config.getGlobal().clone());
+        patcher.set(null, "a", "2");
+        assertTrue(patcher.patch(file));
+
+        assertEquals("a = 2\n", FileUtils.readFileToString(file, "UTF-8"));
+        assertTrue(file.canExecute());
+        assertEquals(1, tmpDir.getRoot().list().length);
+    }
+
+    /**
+     * Verifies that a file is not written if no option changes, and that files with includes are not patched.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testNoChange() throws Exception
+    {
+        File file = tmpDir.newFile("test.properties");
+        FileUtils.writeStringToFile(file, "a = 1\n", "UTF-8");
+        assertTrue(file.setLastModified(1000L));
+
+        OptionPatcher patcher = OptionPatcher.newOptionsPatcher(Config.getGlobal().clone());
+        patcher.set(null, "a", "1");
+        assertTrue(patcher.patch(file));
+        assertEquals(1000L, file.lastModified());
+
+        Config config = Config.getGlobal().clone();
+        config.setInclude(true);
+        FileUtils.writeStringToFile(file, "<other.properties>\na = 1\n", "UTF-8");
+        patcher = OptionPatcher.newOptionsPatcher(config);
+        patcher.set(null, "a", "2");
+        assertFalse(patcher.patch(file));
+        assertEquals("<other.properties>\na = 1\n", FileUtils.readFileToString(file, "UTF-8"));
+    }
+
+    /**
+     * Verifies that a patched file loads the same as the loaded file, after the same changes.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSameAsModel() throws Exception
+    {
+        File file = tmpDir.newFile("test.properties");
+        FileUtils.writeStringToFile(file, "! comment\nx=1\ny = a\\\n  b\nx=2\nlast=z", "UTF-8");
+        Config config = Config.getGlobal().clone();
+
+        Options expected = new Options(file, config);
+        expected.put("x", "3");
+        expected.put("y", "c");
+        expected.remove("last");
+        expected.put("new", "n");
+
+        OptionPatcher patcher = OptionPatcher.newOptionsPatcher(config);
+        patcher.set(null, "x", "3");
+        patcher.set(null, "y", "c");
+        patcher.remove(null, "last");
+        patcher.set(null, "new", "n");
+        assertTrue(patcher.patch(file));
+
+        Options actual = new Options(file, config);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String key : expected.keySet())
+        {
+            assertEquals(expected.getAll(key), actual.getAll(key));
+        }
+    }
+
+    /**
+     * Verifies that options are looked up with the same result as the loaded configuration.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testLookup() throws Exception
+    {
+        Config config = Config.getGlobal().clone();
+        Ini ini = new Ini(open(INI), config);
+        for (String[] option : new String[][]{{"first", "a"}, {"first", "b"}, {"second", "c"}, {"second", "a"},
+                {"none", "a"}})
+        {
+            assertEquals(ini.get(option[0], option[1]), OptionLookup.getOption(open(INI), config, option[0],
+                                                                                option[1]));
+        }
+
+        config.setMultiSection(true);
+        String sections = "[s]\na=1\n[t]\na=2\n[s]\nb=3\n";
+        assertEquals(new Ini(open(sections), config).get("s", "a"),
+                     OptionLookup.getOption(open(sections), config, "s", "a"));
+
+        String options = "a=1\nlist.1.item=x\nlist.0.item=y\na=2\n";
+        Options opts = new Options(open(options), config);
+        assertEquals(opts.get("a"), OptionLookup.getOption(open(options), config, "a"));
+        assertEquals(opts.get("list.item"), OptionLookup.getOption(open(options), config, "list.item"));
+    }
+
+    private InputStream open(String content) throws Exception
+    {
+        return new ByteArrayInputStream(content.getBytes("UTF-8"));
+    }
+}
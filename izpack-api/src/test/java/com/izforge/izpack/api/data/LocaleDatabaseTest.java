@@ -20,6 +20,13 @@
 package com.izforge.izpack.api.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -54,6 +61,103 @@ public class LocaleDatabaseTest
         assertEquals("Argument1: 'one', Argument2: 'two'", db.get("string.with.quoted.arguments", "one", "two"));
     }
 
+    @Test
+    public void testGetWithArgsFromParent()
+    {
+        LocaleDatabase child = new LocaleDatabase(db, Mockito.mock(Locales.class));
+        child.put("child", "Child: {0}");
+        assertEquals("Child: one", child.get("child", "one"));
+        assertEquals("Argument1: one, Argument2: two", child.get("string.with.arguments", "one", "two"));
+
+        // verify that changes to the parent are visible to the child
+        db.put("string.with.arguments", "Changed: {1}");
+        assertEquals("Changed: two", child.get("string.with.arguments", "one", "two"));
+        child.put("string.with.arguments", "Overridden: {0}");
+        assertEquals("Overridden: one", child.get("string.with.arguments", "one", "two"));
+    }
+
+    @Test
+    public void testChangesVisibleToDescendants()
+    {
+        LocaleDatabase child = new LocaleDatabase(db, Mockito.mock(Locales.class));
+        LocaleDatabase grandchild = new LocaleDatabase(child, Mockito.mock(Locales.class));
+        assertEquals("Argument1: one, Argument2: two", grandchild.get("string.with.arguments", "one", "two"));
+
+        db.remove("string.with.arguments");
+        assertEquals("string.with.arguments", grandchild.get("string.with.arguments", "one", "two"));
+
+        Map<String, String> messages = new HashMap<String, String>();
+        messages.put("a", "A: {0}");
+        messages.put("b", "B: {0}");
+        db.putAll(messages);
+        assertEquals("A: one", grandchild.get("a", "one"));
+        child.put("a", "Child A: {0}");
+        assertEquals("Child A: one", grandchild.get("a", "one"));
+        assertEquals("A: one", db.get("a", "one"));
+
+        db.clear();
+        assertEquals("b", grandchild.get("b", "one"));
+        assertEquals("Child A: one", grandchild.get("a", "one"));
+        child.clear();
+        assertEquals("a", grandchild.get("a", "one"));
+    }
+
+    @Test
+    public void testReplace()
+    {
+        LocaleDatabase child = new LocaleDatabase(db, Mockito.mock(Locales.class));
+        db.put("k", "Old {0}");
+        assertEquals("Old x", child.get("k", "x"));
+
+        assertEquals("Old {0}", db.replace("k", "New {0}"));
+        assertEquals("New x", child.get("k", "x"));
+        assertFalse(db.replace("k", "Old {0}", "Other {0}"));
+        assertTrue(db.replace("k", "New {0}", "Newer {0}"));
+        assertEquals("Newer x", child.get("k", "x"));
+
+        assertNull(db.replace("missing", "Missing"));
+        assertFalse(db.replace("missing", "missing", "Missing"));
+        assertFalse(db.containsKey("missing"));
+
+        assertEquals("Newer {0}", db.putIfAbsent("k", "Ignored"));
+        assertNull(db.putIfAbsent("absent", "Absent {0}"));
+        assertEquals("Absent x", child.get("absent", "x"));
+    }
+
+    @Test
+    public void testReadOnlyViews()
+    {
+        Map.Entry<String, String> entry = db.entrySet().iterator().next();
+        try
+        {
+            entry.setValue("Changed");
+            fail("Expected UnsupportedOperationException");
+        }
+        catch (UnsupportedOperationException expected)
+        {
+            // expected
+        }
+        try
+        {
+            db.keySet().remove("string");
+            fail("Expected UnsupportedOperationException");
+        }
+        catch (UnsupportedOperationException expected)
+        {
+            // expected
+        }
+        try
+        {
+            db.values().clear();
+            fail("Expected UnsupportedOperationException");
+        }
+        catch (UnsupportedOperationException expected)
+        {
+            // expected
+        }
+        assertEquals("String Text", db.get("string"));
+    }
+
     @Test
     public void testNpeHandling()
     {
@@ -46,6 +46,7 @@ import com.izforge.izpack.compiler.helper.XmlCompilerHelper;
 import com.izforge.izpack.compiler.listener.CompilerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.packager.IPackager;
+import com.izforge.izpack.compiler.packager.impl.MultiVolumePackager;
 import com.izforge.izpack.compiler.resource.ResourceFinder;
 import com.izforge.izpack.compiler.util.AntPathMatcher;
 import com.izforge.izpack.compiler.util.CompilerClassLoader;
@@ -81,6 +82,7 @@ import com.izforge.izpack.panels.userinput.field.button.ButtonFieldReader;
 import com.izforge.izpack.util.FileUtil;
 import com.izforge.izpack.util.OsConstraintHelper;
 import com.izforge.izpack.util.PlatformModelMatcher;
+import com.izforge.izpack.util.compress.Zstd;
 import com.izforge.izpack.util.file.DirectoryScanner;
 import com.izforge.izpack.util.helper.SpecHelper;
 import org.apache.commons.compress.archivers.ArchiveEntry;
@@ -132,6 +134,11 @@ public class CompilerConfig extends Thread
      */
     private static final String NATIVES_PATH = "com/izforge/izpack/bin/native/";
 
+    /**
+     * The maximum size of the chunks that large pack files are split into.
+     */
+    private static final long MAX_CHUNK_SIZE = 1024 * 1024 * 1024;
+
     /**
      * The installer packager compiler
      */
@@ -378,7 +385,7 @@ public class CompilerConfig extends Thread
     private void addInstallerRequirement(IXMLElement data) throws CompilerException
     {
         notifyCompilerListener("addInstallerRequirement", CompilerListener.BEGIN, data);
-        IXMLElement root = data.getFirstChildNamed("installerrequirements");
+        IXMLElement root = data.getFirstDirectChildNamed("installerrequirements");
         List<InstallerRequirement> installerrequirements = new ArrayList<InstallerRequirement>();
 
         if (root != null)
@@ -412,11 +419,11 @@ public class CompilerConfig extends Thread
         notifyCompilerListener("loadPackager", CompilerListener.BEGIN, data);
         // Initialisation
         // REFACTOR : Moved packager initialisation to provider
-        IXMLElement root = data.getFirstChildNamed("packaging");
+        IXMLElement root = data.getFirstDirectChildNamed("packaging");
         IXMLElement packagerElement = null;
         if (root != null)
         {
-            packagerElement = root.getFirstChildNamed("packager");
+            packagerElement = root.getFirstDirectChildNamed("packager");
 
             if (packagerElement != null)
             {
@@ -425,7 +432,7 @@ public class CompilerConfig extends Thread
                 packagerClassname = packagerClass.getName();
             }
 
-            IXMLElement unpacker = root.getFirstChildNamed("unpacker");
+            IXMLElement unpacker = root.getFirstDirectChildNamed("unpacker");
 
             if (unpacker != null)
             {
@@ -437,7 +444,7 @@ public class CompilerConfig extends Thread
         packager = factory.create(packagerClassname, IPackager.class);
         if (packagerElement != null)
         {
-            IXMLElement options = packagerElement.getFirstChildNamed("options");
+            IXMLElement options = packagerElement.getFirstDirectChildNamed("options");
             if (options != null)
             {
                 packager.addConfigurationInformation(options);
@@ -463,11 +470,11 @@ public class CompilerConfig extends Thread
     {
         notifyCompilerListener("addConsolePrefs", CompilerListener.BEGIN, data);
         // We get the IXMLElement & the attributes
-        IXMLElement consolePrefsElement = data.getFirstChildNamed("consoleprefs");
+        IXMLElement consolePrefsElement = data.getFirstDirectChildNamed("consoleprefs");
         ConsolePrefs prefs = new ConsolePrefs();
         if (consolePrefsElement != null)
         {
-            IXMLElement detectTerminalTag = consolePrefsElement.getFirstChildNamed("detectTerminal");
+            IXMLElement detectTerminalTag = consolePrefsElement.getFirstDirectChildNamed("detectTerminal");
             if (detectTerminalTag != null)
             {
                 prefs.enableConsoleReader = Boolean.parseBoolean(xmlCompilerHelper.requireContent(detectTerminalTag));
@@ -487,7 +494,7 @@ public class CompilerConfig extends Thread
     {
         notifyCompilerListener("addGUIPrefs", CompilerListener.BEGIN, data);
         // We get the IXMLElement & the attributes
-        IXMLElement guiPrefsElement = data.getFirstChildNamed("guiprefs");
+        IXMLElement guiPrefsElement = data.getFirstDirectChildNamed("guiprefs");
         GUIPrefs prefs = new GUIPrefs();
         if (guiPrefsElement != null)
         {
@@ -683,7 +690,7 @@ public class CompilerConfig extends Thread
     private void addListenerJars(IXMLElement data) throws IOException
     {
         notifyCompilerListener("addListenerJars", CompilerListener.BEGIN, data);
-        IXMLElement listeners = data.getFirstChildNamed("listeners");
+        IXMLElement listeners = data.getFirstDirectChildNamed("listeners");
         if (listeners != null)
         {
             for (IXMLElement listener : listeners.getChildrenNamed("listener"))
@@ -710,7 +717,7 @@ public class CompilerConfig extends Thread
     private void addNativeLibraries(IXMLElement data)
     {
         notifyCompilerListener("addNativeLibraries", CompilerListener.BEGIN, data);
-        IXMLElement nativesElement = data.getFirstChildNamed("natives");
+        IXMLElement nativesElement = data.getFirstDirectChildNamed("natives");
         if (nativesElement == null)
         {
             return;
@@ -1226,7 +1233,7 @@ public class CompilerConfig extends Thread
 
     private Map<String, String> readPack200Properties(IXMLElement element)
     {
-        IXMLElement pack200Element = element.getFirstChildNamed("pack200");
+        IXMLElement pack200Element = element.getFirstDirectChildNamed("pack200");
         Map<String, String> pack200Properties = null;
         if (pack200Element != null)
         {
@@ -1325,8 +1332,23 @@ public class CompilerConfig extends Thread
             val = executableNode.getAttribute("keep");
             keepFile = Boolean.parseBoolean(val);
 
+            // the group to run with, and the groups to run after
+            String group = executableNode.getAttribute("group");
+            List<String> after = new ArrayList<String>();
+            val = executableNode.getAttribute("after");
+            if (val != null)
+            {
+                for (String name : val.split(","))
+                {
+                    if (!name.trim().isEmpty())
+                    {
+                        after.add(name.trim());
+                    }
+                }
+            }
+
             // get arguments for this executable
-            IXMLElement args = executableNode.getFirstChildNamed("args");
+            IXMLElement args = executableNode.getFirstDirectChildNamed("args");
             List<String> argsList = new ArrayList<String>();
             if (null != args)
             {
@@ -1339,7 +1361,7 @@ public class CompilerConfig extends Thread
             if (target != null)
             {
                 addNewExecutableFile(pack, target, conditionId, osList, executionStage, type, mainClass,
-                        onFailure, keepFile, argsList);
+                        onFailure, keepFile, argsList, group, after);
                 logMarkFileExecutable(target);
             }
             for (IXMLElement fileSetElement : executableNode.getChildrenNamed("fileset"))
@@ -1349,7 +1371,7 @@ public class CompilerConfig extends Thread
                 for (String filePath : includedFiles)
                 {
                     addNewExecutableFile(pack, filePath, conditionId, osList, executionStage, type, mainClass,
-                            onFailure, keepFile, argsList);
+                            onFailure, keepFile, argsList, group, after);
                     logMarkFileExecutable(filePath);
                 }
             }
@@ -1357,8 +1379,8 @@ public class CompilerConfig extends Thread
     }
 
     private void addNewExecutableFile(PackInfo pack, String target, String condition, List<OsModel> osList,
-            int executionStage, int type, String mainClass, int onFailure, boolean keepFile, List<String> argsList
-            ) throws CompilerException
+            int executionStage, int type, String mainClass, int onFailure, boolean keepFile, List<String> argsList,
+            String group, List<String> after) throws CompilerException
     {
         ExecutableFile executable = new ExecutableFile();
         executable.path = target;
@@ -1369,6 +1391,8 @@ public class CompilerConfig extends Thread
         executable.mainClass = mainClass;
         executable.onFailure = onFailure;
         executable.keepFile = keepFile;
+        executable.setGroup(group);
+        executable.setAfter(after);
         for (String arg : argsList)
         {
             executable.argList.add(arg);
@@ -1881,7 +1905,7 @@ public class CompilerConfig extends Thread
     {
         notifyCompilerListener("addLogging", CompilerListener.BEGIN, data);
 
-        IXMLElement loggingElement = data.getFirstChildNamed("logging");
+        IXMLElement loggingElement = data.getFirstDirectChildNamed("logging");
         if (loggingElement == null)
         {
             return;
@@ -2033,7 +2057,7 @@ public class CompilerConfig extends Thread
         // are lists of {@link URL} pointing to the concrete packsLang-files.         *
         final Map<String, List<URL>> packsLangUrlMap = new HashMap<String, List<URL>>();
 
-        IXMLElement root = data.getFirstChildNamed("resources");
+        IXMLElement root = data.getFirstDirectChildNamed("resources");
         if (root == null)
         {
             return;
@@ -2453,14 +2477,14 @@ public class CompilerConfig extends Thread
         info.setAppName(xmlCompilerHelper.requireContent(xmlCompilerHelper.requireChildNamed(root, "appname")));
         info.setAppVersion(xmlCompilerHelper.requireContent(xmlCompilerHelper.requireChildNamed(root, "appversion")));
         // We get the installation subpath
-        IXMLElement subpath = root.getFirstChildNamed("appsubpath");
+        IXMLElement subpath = root.getFirstDirectChildNamed("appsubpath");
         if (subpath != null)
         {
             info.setInstallationSubPath(xmlCompilerHelper.requireContent(subpath));
         }
 
         // validate and insert app URL
-        final IXMLElement URLElem = root.getFirstChildNamed("url");
+        final IXMLElement URLElem = root.getFirstDirectChildNamed("url");
         if (URLElem != null)
         {
             URL appURL = xmlCompilerHelper.requireURLContent(URLElem);
@@ -2468,7 +2492,7 @@ public class CompilerConfig extends Thread
         }
         
         // We get the authors list
-        IXMLElement authors = root.getFirstChildNamed("authors");
+        IXMLElement authors = root.getFirstDirectChildNamed("authors");
         if (authors != null)
         {
             for (IXMLElement authorNode : authors.getChildrenNamed("author"))
@@ -2480,7 +2504,7 @@ public class CompilerConfig extends Thread
         }
 
         // We get the java version required
-        IXMLElement javaVersion = root.getFirstChildNamed("javaversion");
+        IXMLElement javaVersion = root.getFirstDirectChildNamed("javaversion");
         if (javaVersion != null)
         {
             info.setJavaVersion(xmlCompilerHelper.requireContent(javaVersion));
@@ -2491,14 +2515,14 @@ public class CompilerConfig extends Thread
         }
 
         // Is a JDK required?
-        IXMLElement jdkRequired = root.getFirstChildNamed("requiresjdk");
+        IXMLElement jdkRequired = root.getFirstDirectChildNamed("requiresjdk");
         if (jdkRequired != null)
         {
             info.setJdkRequired("yes".equals(jdkRequired.getContent()));
         }
 
         // Does the installer expire?
-        IXMLElement expiresDate = root.getFirstChildNamed("expiresdate");
+        IXMLElement expiresDate = root.getFirstDirectChildNamed("expiresdate");
         if (expiresDate != null)
         {
             try
@@ -2514,7 +2538,7 @@ public class CompilerConfig extends Thread
         }
 
         // validate and insert (and require if -web kind) web dir
-        IXMLElement webDirURL = root.getFirstChildNamed("webdir");
+        IXMLElement webDirURL = root.getFirstDirectChildNamed("webdir");
         if (webDirURL != null)
         {
             info.setWebDirURL(xmlCompilerHelper.requireURLContent(webDirURL).toString());
@@ -2535,7 +2559,7 @@ public class CompilerConfig extends Thread
         }
 
         String compressionName = compilerData.getComprFormat();
-        IXMLElement compressionElement = root.getFirstChildNamed("pack-compression-format");
+        IXMLElement compressionElement = root.getFirstDirectChildNamed("pack-compression-format");
         if (compressionElement != null)
         {
             compressionName = xmlCompilerHelper.requireContent(compressionElement);
@@ -2547,37 +2571,138 @@ public class CompilerConfig extends Thread
             {
                 throw new CompilerException("Unknown compression format: " + compressionName);
             }
+            if (compression == PackCompression.ZSTD && !Zstd.isAvailable())
+            {
+                throw new CompilerException("Zstandard compression requires the zstd-jni library on the classpath");
+            }
             info.setCompressionFormat(compression);
             logger.info("Pack compression method: " + compression.toName());
         }
+        if (compressionElement != null)
+        {
+            String blockSize = compressionElement.getAttribute("solidblocksize");
+            if (blockSize != null)
+            {
+                try
+                {
+                    info.setSolidBlockSize(Long.parseLong(blockSize.trim()));
+                }
+                catch (NumberFormatException exception)
+                {
+                    assertionHelper.parseError(compressionElement, "Invalid solid block size: " + blockSize,
+                                               exception);
+                }
+                if (info.getSolidBlockSize() > 0 && info.getCompressionFormat() == PackCompression.DEFAULT)
+                {
+                    assertionHelper.parseWarn(compressionElement,
+                                              "Solid blocks are ignored for the default pack compression format");
+                }
+                if (info.getSolidBlockSize() > 0 && packager instanceof MultiVolumePackager)
+                {
+                    assertionHelper.parseError(compressionElement,
+                                               "Solid blocks are not supported by the multi-volume packager");
+                }
+            }
+            String chunkSize = compressionElement.getAttribute("chunksize");
+            if (chunkSize != null)
+            {
+                try
+                {
+                    info.setChunkSize(Long.parseLong(chunkSize.trim()));
+                }
+                catch (NumberFormatException exception)
+                {
+                    assertionHelper.parseError(compressionElement, "Invalid chunk size: " + chunkSize, exception);
+                }
+                if (info.getChunkSize() > MAX_CHUNK_SIZE)
+                {
+                    // chunks are compressed in memory
+                    assertionHelper.parseError(compressionElement, "Chunk size cannot exceed " + MAX_CHUNK_SIZE
+                            + " bytes");
+                }
+                if (info.getChunkSize() > 0 && packager instanceof MultiVolumePackager)
+                {
+                    assertionHelper.parseError(compressionElement,
+                                               "Chunks are not supported by the multi-volume packager");
+                }
+            }
+            String storedExtensions = compressionElement.getAttribute("storedextensions");
+            if (storedExtensions != null)
+            {
+                Set<String> extensions = new HashSet<String>();
+                for (String extension : storedExtensions.split(","))
+                {
+                    extension = extension.trim().toLowerCase();
+                    if (extension.startsWith("."))
+                    {
+                        extension = extension.substring(1);
+                    }
+                    if (!extension.isEmpty())
+                    {
+                        extensions.add(extension);
+                    }
+                }
+                info.setStoredExtensions(extensions);
+            }
+            info.setCompressionProbe(xmlCompilerHelper.validateYesNoAttribute(compressionElement, "probe", YES));
+            info.setCompressionLevel(parseCompressionSetting(compressionElement, "level"));
+            info.setCompressionWindowLog(parseCompressionSetting(compressionElement, "longwindow"));
+            info.setCompressionDictionarySize(parseCompressionSetting(compressionElement, "dictionarysize"));
+            if (info.getCompressionFormat() != PackCompression.ZSTD && (info.getCompressionLevel() != 0
+                    || info.getCompressionWindowLog() != 0 || info.getCompressionDictionarySize() != 0))
+            {
+                assertionHelper.parseWarn(compressionElement,
+                                          "Compression level, window and dictionary only apply to zstd compression");
+            }
+        }
+
+        // Is the installer an upgrade from a previous installer?
+        IXMLElement upgradeBaseline = root.getFirstDirectChildNamed("upgrade-baseline");
+        if (upgradeBaseline != null)
+        {
+            File baseline = FileUtil.getAbsoluteFile(xmlCompilerHelper.requireContent(upgradeBaseline),
+                                                     compilerData.getBasedir());
+            if (!baseline.isFile())
+            {
+                assertionHelper.parseError(upgradeBaseline, "Upgrade baseline installer not found: " + baseline);
+            }
+            info.setUpgradeBaseline(baseline.getPath());
+            logger.info("Upgrade baseline: " + baseline);
+        }
 
         // Add the path for the summary log file if specified
-        IXMLElement slfPath = root.getFirstChildNamed("summarylogfilepath");
+        IXMLElement slfPath = root.getFirstDirectChildNamed("summarylogfilepath");
         if (slfPath != null)
         {
             info.setSummaryLogFilePath(xmlCompilerHelper.requireContent(slfPath));
         }
 
-        IXMLElement writeInstallInfo = root.getFirstChildNamed("writeinstallationinformation");
+        IXMLElement writeInstallInfo = root.getFirstDirectChildNamed("writeinstallationinformation");
         if (writeInstallInfo != null)
         {
             String writeInstallInfoString = xmlCompilerHelper.requireContent(writeInstallInfo);
             info.setWriteInstallationInformation(validateYesNo(writeInstallInfoString));
         }
         
-        IXMLElement readInstallInfo = root.getFirstChildNamed("readinstallationinformation");
+        IXMLElement readInstallInfo = root.getFirstDirectChildNamed("readinstallationinformation");
         if (readInstallInfo != null)
         {
             String readInstallInfoString = xmlCompilerHelper.requireContent(readInstallInfo);
             info.setReadInstallationInformation(validateYesNo(readInstallInfoString));
         }
 
-        IXMLElement isSingleInstance = root.getFirstChildNamed("singleinstance");
+        IXMLElement isSingleInstance = root.getFirstDirectChildNamed("singleinstance");
         if (isSingleInstance != null)
         {
             String isSingleInstanceString = xmlCompilerHelper.requireContent(isSingleInstance);
             info.setSingleInstance(validateYesNo(isSingleInstanceString));
         }
+
+        IXMLElement archiveInstallation = root.getFirstDirectChildNamed("archive-installation");
+        if (archiveInstallation != null)
+        {
+            info.setArchiveInstallation(validateYesNo(xmlCompilerHelper.requireContent(archiveInstallation)));
+        }
         
          // Check if any temp directories have been specified
         List<IXMLElement> tempdirs = root.getChildrenNamed(TEMP_DIR_ELEMENT_NAME);
@@ -2632,6 +2757,32 @@ public class CompilerConfig extends Thread
         packager.setInfo(info);
         notifyCompilerListener("addInfoStrings", CompilerListener.END, data);
     }
+
+    /**
+     * Parses an optional integer setting of the pack compression format.
+     *
+     * @param element the pack compression format element
+     * @param name    the attribute name
+     * @return the setting, or {@code 0} if it isn't specified
+     * @throws CompilerException if the setting isn't an integer
+     */
+    private int parseCompressionSetting(IXMLElement element, String name) throws CompilerException
+    {
+        int result = 0;
+        String value = element.getAttribute(name);
+        if (value != null)
+        {
+            try
+            {
+                result = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException exception)
+            {
+                assertionHelper.parseError(element, "Invalid " + name + ": " + value, exception);
+            }
+        }
+        return result;
+    }
     
 
     /**
@@ -2648,7 +2799,7 @@ public class CompilerConfig extends Thread
         Info info = compilerData.getExternalInfo();
 
         // Privileged execution
-        IXMLElement privileged = root.getFirstChildNamed("run-privileged");
+        IXMLElement privileged = root.getFirstDirectChildNamed("run-privileged");
         info.setRequirePrivilegedExecution(privileged != null);
         if (privileged != null && privileged.hasAttribute("condition"))
         {
@@ -2656,7 +2807,7 @@ public class CompilerConfig extends Thread
         }
 
         // Reboot if necessary
-        IXMLElement reboot = root.getFirstChildNamed("rebootaction");
+        IXMLElement reboot = root.getFirstDirectChildNamed("rebootaction");
         if (reboot != null)
         {
             String content = reboot.getContent();
@@ -2689,7 +2840,7 @@ public class CompilerConfig extends Thread
         }
 
         // Add the uninstaller as a resource if specified
-        IXMLElement uninstallInfo = root.getFirstChildNamed("uninstaller");
+        IXMLElement uninstallInfo = root.getFirstDirectChildNamed("uninstaller");
         if (xmlCompilerHelper.validateYesNoAttribute(uninstallInfo, "write", YES))
         {
             logger.info("Adding uninstaller");
@@ -2766,7 +2917,7 @@ public class CompilerConfig extends Thread
     {
         notifyCompilerListener("addVariables", CompilerListener.BEGIN, data);
         // We get the varible list
-        IXMLElement root = data.getFirstChildNamed("variables");
+        IXMLElement root = data.getFirstDirectChildNamed("variables");
         if (root == null)
         {
             return;
@@ -2823,7 +2974,7 @@ public class CompilerConfig extends Thread
     {
         notifyCompilerListener("addDynamicVariables", CompilerListener.BEGIN, data);
         // We get the dynamic variable list
-        IXMLElement root = data.getFirstChildNamed("dynamicvariables");
+        IXMLElement root = data.getFirstDirectChildNamed("dynamicvariables");
         if (root == null)
         {
             return;
@@ -2844,7 +2995,7 @@ public class CompilerConfig extends Thread
             }
             else
             {
-                IXMLElement valueElement = var.getFirstChildNamed("value");
+                IXMLElement valueElement = var.getFirstDirectChildNamed("value");
                 if (valueElement != null)
                 {
                     value = valueElement.getContent();
@@ -3043,7 +3194,7 @@ public class CompilerConfig extends Thread
             }
 
             // Nested value filters
-            IXMLElement filters = var.getFirstChildNamed("filters");
+            IXMLElement filters = var.getFirstDirectChildNamed("filters");
             if (filters != null)
             {
                 List<IXMLElement> filterList = filters.getChildren();
@@ -3140,7 +3291,7 @@ public class CompilerConfig extends Thread
     {
         notifyCompilerListener("addDynamicInstallerRequirements", CompilerListener.BEGIN, data);
         // We get the dynamic variable list
-        IXMLElement root = data.getFirstChildNamed("dynamicinstallerrequirements");
+        IXMLElement root = data.getFirstDirectChildNamed("dynamicinstallerrequirements");
         List<DynamicInstallerRequirementValidator> dynamicReq = packager.getDynamicInstallerRequirements();
 
         if (root != null)
@@ -3175,7 +3326,7 @@ public class CompilerConfig extends Thread
     {
         notifyCompilerListener("addConditions", CompilerListener.BEGIN, data);
         // We get the condition list
-        IXMLElement root = data.getFirstChildNamed("conditions");
+        IXMLElement root = data.getFirstDirectChildNamed("conditions");
         Map<String, Condition> conditions = packager.getRules();
         if (root != null)
         {
@@ -3255,7 +3406,7 @@ public class CompilerConfig extends Thread
     {
         notifyCompilerListener("substituteProperties", CompilerListener.BEGIN, data);
 
-        IXMLElement root = data.getFirstChildNamed("properties");
+        IXMLElement root = data.getFirstDirectChildNamed("properties");
         if (root != null)
         {
             // add individual properties
@@ -3426,7 +3577,7 @@ public class CompilerConfig extends Thread
     private void addListeners(IXMLElement data) throws CompilerException
     {
         notifyCompilerListener("addListeners", CompilerListener.BEGIN, data);
-        IXMLElement listeners = data.getFirstChildNamed("listeners");
+        IXMLElement listeners = data.getFirstDirectChildNamed("listeners");
         if (listeners != null)
         {
             for (IXMLElement listener : listeners.getChildrenNamed("listener"))
@@ -3448,7 +3599,7 @@ public class CompilerConfig extends Thread
      */
     private void addCompilerListeners(IXMLElement data) throws CompilerException
     {
-        IXMLElement listeners = data.getFirstChildNamed("listeners");
+        IXMLElement listeners = data.getFirstDirectChildNamed("listeners");
         if (listeners != null)
         {
             for (IXMLElement listener : listeners.getChildrenNamed("listener"))
@@ -3640,7 +3791,7 @@ public class CompilerConfig extends Thread
      */
     private void addPanelActions(IXMLElement xmlPanel, Panel panel) throws CompilerException
     {
-        IXMLElement xmlActions = xmlPanel.getFirstChildNamed(PanelAction.PANEL_ACTIONS_TAG);
+        IXMLElement xmlActions = xmlPanel.getFirstDirectChildNamed(PanelAction.PANEL_ACTIONS_TAG);
         if (xmlActions != null)
         {
             List<IXMLElement> actionList = xmlActions.getChildrenNamed(PanelAction.PANEL_ACTION_TAG);
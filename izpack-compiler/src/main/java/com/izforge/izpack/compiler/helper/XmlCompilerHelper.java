@@ -76,7 +76,7 @@ public class XmlCompilerHelper
     }
 
     /**
-     * Call getFirstChildNamed on the parent, producing a meaningful error message on failure. It is
+     * Call getFirstDirectChildNamed on the parent, producing a meaningful error message on failure. It is
      * an error for 'parent' to be null.
      *
      * @param parent The element to search for a child
@@ -84,7 +84,7 @@ public class XmlCompilerHelper
      */
     public IXMLElement requireChildNamed(IXMLElement parent, String name) throws CompilerException
     {
-        IXMLElement child = parent.getFirstChildNamed(name);
+        IXMLElement child = parent.getFirstDirectChildNamed(name);
         if (child == null)
         {
             assertionHelper.parseError(parent, "<" + parent.getName() + "> requires child <" + name + ">");
@@ -0,0 +1,324 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.data.PackInfo;
+import com.izforge.izpack.util.compress.PackCompressors;
+import com.izforge.izpack.util.compress.SolidPackInputStream;
+import com.izforge.izpack.util.delta.Digests;
+
+
+/**
+ * Reads the files of a previous installer, that an upgrade installer generates deltas against.
+ * <p/>
+ * Files are identified by their target paths. Only those with target paths in the upgrade installer are read, and
+ * these are extracted to temporary files. Files are excluded if:
+ * <ul>
+ * <li>more than one file in the previous installer has the same target path; or</li>
+ * <li>their content cannot be read from the installer, i.e. they are Pack200 jars, back references, or in packs
+ * stored in separate jars</li>
+ * </ul>
+ * Files that the previous installer stored as deltas have a digest but no content, so changes to them are stored in
+ * full.
+ */
+class BaselineReader
+{
+
+    /**
+     * The files of the previous installer, keyed on target path.
+     */
+    private final Map<String, BaselineFile> files = new HashMap<String, BaselineFile>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(BaselineReader.class.getName());
+
+
+    /**
+     * Constructs a {@code BaselineReader}.
+     *
+     * @param installer   the previous installer
+     * @param targetPaths the target paths of the files of the upgrade installer
+     * @throws IOException if the installer cannot be read
+     */
+    public BaselineReader(File installer, Set<String> targetPaths) throws IOException
+    {
+        ZipFile jar = new ZipFile(installer);
+        try
+        {
+            read(jar, targetPaths);
+        }
+        catch (IOException exception)
+        {
+            close();
+            throw new IOException("Failed to read upgrade baseline " + installer + ": " + exception.getMessage(),
+                                  exception);
+        }
+        finally
+        {
+            jar.close();
+        }
+        logger.fine("Read " + files.size() + " files from upgrade baseline " + installer);
+    }
+
+    /**
+     * Returns the digest of a file in the previous installer.
+     *
+     * @param targetPath the target path of the file
+     * @return the digest, or {@code null} if the previous installer has no such file
+     */
+    public byte[] getDigest(String targetPath)
+    {
+        BaselineFile file = files.get(targetPath);
+        return (file != null) ? file.digest : null;
+    }
+
+    /**
+     * Returns the content of a file in the previous installer.
+     *
+     * @param targetPath the target path of the file
+     * @return the extracted file, or {@code null} if the previous installer has no such file, or its content isn't
+     *         available
+     */
+    public File getFile(String targetPath)
+    {
+        BaselineFile file = files.get(targetPath);
+        return (file != null) ? file.content : null;
+    }
+
+    /**
+     * Deletes the extracted files.
+     */
+    public void close()
+    {
+        for (BaselineFile file : files.values())
+        {
+            FileUtils.deleteQuietly(file.content);
+        }
+        files.clear();
+    }
+
+    /**
+     * Reads the files of the previous installer.
+     *
+     * @param jar         the previous installer
+     * @param targetPaths the target paths of the files of the upgrade installer
+     * @throws IOException for any I/O error
+     */
+    @SuppressWarnings("unchecked")
+    private void read(ZipFile jar, Set<String> targetPaths) throws IOException
+    {
+        Info info = (Info) readObject(jar, PackagerBase.RESOURCES_PATH + "info");
+        List<PackInfo> packs = (List<PackInfo>) readObject(jar, PackagerBase.PACKSINFO_RESOURCE_PATH);
+
+        Map<String, PackFile> unique = new HashMap<String, PackFile>();
+        Set<String> duplicates = new HashSet<String>();
+        for (PackInfo pack : packs)
+        {
+            for (PackFile file : pack.getPackFiles())
+            {
+                String path = file.getTargetPath();
+                if (!file.isDirectory() && targetPaths.contains(path) && unique.put(path, file) != null)
+                {
+                    duplicates.add(path);
+                }
+            }
+        }
+        for (String path : duplicates)
+        {
+            logger.fine("Excluding " + path + " from upgrade baseline, as it is installed by more than one file");
+            unique.remove(path);
+        }
+
+        for (PackInfo pack : packs)
+        {
+            List<PackFile> extract = new ArrayList<PackFile>();
+            for (PackFile file : pack.getPackFiles())
+            {
+                if (unique.get(file.getTargetPath()) == file)
+                {
+                    if (file.isDelta())
+                    {
+                        // the previous installer was itself an upgrade, and doesn't contain the file
+                        files.put(file.getTargetPath(), new BaselineFile(null, file.getDigest()));
+                    }
+                    else if (!pack.getPack().isLoose() && !file.isPack200Jar() && !file.isBackReference())
+                    {
+                        extract.add(file);
+                    }
+                }
+            }
+            ZipEntry entry = jar.getEntry(PackagerBase.RESOURCES_PATH + "packs/pack-" + pack.getPack().getName());
+            if (!extract.isEmpty() && entry != null)
+            {
+                SolidPackInputStream stream = new SolidPackInputStream(jar.getInputStream(entry),
+                                                                       info.getCompressionFormat());
+                try
+                {
+                    for (PackFile file : extract)
+                    {
+                        extract(file, stream, info.getCompressionFormat());
+                    }
+                }
+                finally
+                {
+                    stream.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts a file from its pack stream.
+     *
+     * @param file   the pack file
+     * @param stream the pack stream
+     * @param format the installation's compression format
+     * @throws IOException for any I/O error
+     */
+    private void extract(PackFile file, SolidPackInputStream stream, PackCompression format) throws IOException
+    {
+        PackCompression compression = (file.getCompression() != null) ? file.getCompression() : format;
+        File content = File.createTempFile("izpack-baseline", null, FileUtils.getTempDirectory());
+        content.deleteOnExit(); // in case packaging fails before the reader is closed
+        MessageDigest digest = Digests.create();
+        OutputStream out = new DigestOutputStream(IOUtils.buffer(FileUtils.openOutputStream(content)), digest);
+        long length = 0;
+        try
+        {
+            InputStream in = stream.getInputStream(file);
+            if (file.isSolid() || compression == PackCompression.DEFAULT)
+            {
+                length = IOUtils.copyLarge(in, out);
+            }
+            else if (file.isChunked())
+            {
+                for (long size : file.getCompressedChunkSizes())
+                {
+                    BoundedInputStream chunk = new BoundedInputStream(in, size);
+                    chunk.setPropagateClose(false);
+                    length += decompress(compression, chunk, null, out);
+                }
+            }
+            else
+            {
+                length = decompress(compression, in, file.getCompressionDictionary(), out);
+            }
+            out.close();
+        }
+        catch (IOException exception)
+        {
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(content);
+            throw exception;
+        }
+        if (length != file.length())
+        {
+            FileUtils.deleteQuietly(content);
+            throw new IOException("File size mismatch when reading " + file.getTargetPath());
+        }
+        files.put(file.getTargetPath(), new BaselineFile(content, digest.digest()));
+    }
+
+    private static long decompress(PackCompression format, InputStream in, byte[] dictionary, OutputStream out)
+            throws IOException
+    {
+        InputStream decompressed = null;
+        try
+        {
+            decompressed = PackCompressors.createInputStream(format, IOUtils.buffer(in), dictionary);
+            return IOUtils.copyLarge(decompressed, out);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(decompressed);
+        }
+    }
+
+    private static Object readObject(ZipFile jar, String name) throws IOException
+    {
+        ZipEntry entry = jar.getEntry(name);
+        if (entry == null)
+        {
+            throw new IOException("Not an installer: " + name + " not found");
+        }
+        ObjectInputStream in = new ObjectInputStream(jar.getInputStream(entry));
+        try
+        {
+            return in.readObject();
+        }
+        catch (ClassNotFoundException exception)
+        {
+            throw new IOException("Failed to read " + name + ": " + exception.getMessage(), exception);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * A file of the previous installer.
+     */
+    private static class BaselineFile
+    {
+
+        /**
+         * The extracted content, or {@code null} if it isn't available.
+         */
+        private final File content;
+
+        /**
+         * The digest of the content.
+         */
+        private final byte[] digest;
+
+        public BaselineFile(File content, byte[] digest)
+        {
+            this.content = content;
+            this.digest = digest;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+
+
+/**
+ * Writes large pack files to a pack stream as chunks that are compressed in parallel.
+ * <p/>
+ * Each chunk is compressed as an independent stream, so the installer can decompress the chunks in parallel too.
+ * The chunks are written in order, and their compressed sizes recorded against the pack file.
+ * <p/>
+ * Compressed chunks are spooled to temporary files until they can be written, as chunks may be too large to hold in
+ * memory.
+ */
+class ChunkWriter
+{
+
+    /**
+     * The installation information.
+     */
+    private final Info info;
+
+    /**
+     * The compression format.
+     */
+    private final PackCompression format;
+
+    /**
+     * The uncompressed chunk size.
+     */
+    private final long chunkSize;
+
+    /**
+     * The no. of threads to compress chunks with.
+     */
+    private final int threads;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ChunkWriter.class.getName());
+
+
+    /**
+     * Constructs a {@code ChunkWriter}.
+     *
+     * @param info the installation information, supplying the compression format and chunk size
+     */
+    public ChunkWriter(Info info)
+    {
+        this.info = info;
+        this.format = info.getCompressionFormat();
+        this.chunkSize = info.getChunkSize();
+        this.threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Determines if a file is large enough to be split into chunks.
+     *
+     * @param packFile the pack file
+     * @return {@code true} if the file should be split into chunks
+     */
+    public boolean isChunked(PackFile packFile)
+    {
+        return packFile.length() > chunkSize;
+    }
+
+    /**
+     * Compresses a file in chunks, and writes them to the pack stream.
+     *
+     * @param packFile   the pack file
+     * @param file       the file to compress
+     * @param packStream the pack stream
+     * @throws IOException for any I/O error
+     */
+    public void write(PackFile packFile, File file, OutputStream packStream) throws IOException
+    {
+        long length = packFile.length();
+        if (file.length() != length)
+        {
+            throw new IOException("File size mismatch when reading " + file);
+        }
+        int count = (int) ((length + chunkSize - 1) / chunkSize);
+        long[] sizes = new long[count];
+        long size = 0;
+        // bound the no. of chunks spooled to disk, whilst keeping all threads busy
+        int maxPending = threads * 2;
+        LinkedList<Future<File>> pending = new LinkedList<Future<File>>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, count));
+        try
+        {
+            int submitted = 0;
+            for (int i = 0; i < count; ++i)
+            {
+                while (submitted < count && pending.size() < maxPending)
+                {
+                    long offset = submitted * chunkSize;
+                    pending.add(executor.submit(new Compress(file, offset, Math.min(chunkSize, length - offset))));
+                    ++submitted;
+                }
+                File chunk = get(pending.removeFirst());
+                try
+                {
+                    FileUtils.copyFile(chunk, packStream);
+                    sizes[i] = chunk.length();
+                    size += sizes[i];
+                }
+                finally
+                {
+                    FileUtils.deleteQuietly(chunk);
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            if (!pending.isEmpty())
+            {
+                discard(executor, pending);
+            }
+        }
+        packFile.setChunks(chunkSize, sizes);
+        packFile.setSize(size);
+        logger.fine("File " + packFile.getTargetPath() + " added compressed as " + format.toName() + " in "
+                            + count + " chunks (" + length + " -> " + size + " bytes)");
+    }
+
+    /**
+     * Deletes the chunks that were compressed, but not written, when writing fails.
+     *
+     * @param executor the executor, shut down
+     * @param pending  the pending chunks
+     */
+    private static void discard(ExecutorService executor, LinkedList<Future<File>> pending)
+    {
+        try
+        {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+        for (Future<File> future : pending)
+        {
+            if (future.isDone() && !future.isCancelled())
+            {
+                try
+                {
+                    FileUtils.deleteQuietly(future.get());
+                }
+                catch (Exception ignore)
+                {
+                    // the chunk failed, and removed its own file
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a chunk to be compressed.
+     *
+     * @param future the chunk future
+     * @return the file containing the compressed chunk
+     * @throws IOException if the chunk couldn't be compressed, or the thread was interrupted
+     */
+    private static File get(Future<File> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted compressing chunk");
+        }
+        catch (ExecutionException exception)
+        {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Compresses a chunk of a file to a temporary file.
+     */
+    private class Compress implements Callable<File>
+    {
+
+        private final File file;
+
+        private final long offset;
+
+        private final long length;
+
+        public Compress(File file, long offset, long length)
+        {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public File call() throws IOException
+        {
+            File result = File.createTempFile("izpack-chunk", null, FileUtils.getTempDirectory());
+            boolean success = false;
+            RandomAccessFile input = new RandomAccessFile(file, "r");
+            OutputStream target = null;
+            try
+            {
+                input.seek(offset);
+                InputStream in = new BoundedInputStream(Channels.newInputStream(input.getChannel()), length);
+                target = new BufferedOutputStream(new FileOutputStream(result));
+                OutputStream out = Packager.createCompressorOutputStream(format, info, null, target);
+                long copied;
+                try
+                {
+                    copied = IOUtils.copyLarge(in, out);
+                }
+                finally
+                {
+                    out.close();
+                }
+                if (copied != length)
+                {
+                    throw new IOException("File size mismatch when reading " + file);
+                }
+                success = true;
+            }
+            finally
+            {
+                input.close();
+                IOUtils.closeQuietly(target);
+                if (!success)
+                {
+                    FileUtils.deleteQuietly(result);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.PackCompression;
+
+
+/**
+ * Selects the compression format to store each pack file with.
+ * <p/>
+ * Files that are already compressed gain nothing from being compressed again, but cost build time and slow down
+ * installation. These are stored without compression if:
+ * <ul>
+ * <li>their extension is one of the stored extensions; or</li>
+ * <li>the compression probe is enabled, and a fast compression of a sample of the file doesn't shrink it</li>
+ * </ul>
+ */
+class CompressionSelector
+{
+
+    /**
+     * The extensions of files stored without compression, unless configured otherwise.
+     */
+    static final Set<String> DEFAULT_STORED_EXTENSIONS = Collections.unmodifiableSet(new HashSet<String>(
+            Arrays.asList("jar", "war", "ear", "zip", "gz", "tgz", "bz2", "tbz2", "xz", "txz", "lzma", "7z", "rar",
+                          "png", "jpg", "jpeg", "gif", "mp3", "mp4", "m4a", "ogg", "avi", "mkv", "mov", "webm")));
+
+    /**
+     * The size of the sample of each file that is compressed by the probe.
+     */
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    /**
+     * The ratio of compressed to uncompressed sample size above which a file is stored without compression.
+     */
+    private static final double STORE_RATIO = 0.95;
+
+    /**
+     * The compression format of the installation.
+     */
+    private final PackCompression format;
+
+    /**
+     * The extensions of files to store without compression.
+     */
+    private final Set<String> storedExtensions;
+
+    /**
+     * Determines if files are sampled to decide if they are worth compressing.
+     */
+    private final boolean probe;
+
+    /**
+     * The sample buffer.
+     */
+    private final byte[] sample = new byte[SAMPLE_SIZE];
+
+    /**
+     * The buffer for compressed sample data.
+     */
+    private final byte[] compressed = new byte[SAMPLE_SIZE];
+
+
+    /**
+     * Constructs a {@code CompressionSelector}.
+     *
+     * @param info the installation information
+     */
+    public CompressionSelector(Info info)
+    {
+        format = info.getCompressionFormat();
+        storedExtensions = (info.getStoredExtensions() != null) ? info.getStoredExtensions()
+                                                                 : DEFAULT_STORED_EXTENSIONS;
+        probe = info.isCompressionProbe();
+    }
+
+    /**
+     * Selects the compression format to store a file with.
+     *
+     * @param file the file
+     * @return the installation's compression format, or {@link PackCompression#DEFAULT} to store the file without
+     *         compression
+     * @throws IOException if the file cannot be read
+     */
+    public PackCompression select(File file) throws IOException
+    {
+        if (format == PackCompression.DEFAULT)
+        {
+            return format;
+        }
+        String extension = FilenameUtils.getExtension(file.getName()).toLowerCase();
+        if (storedExtensions.contains(extension) || (probe && !isCompressible(file)))
+        {
+            return PackCompression.DEFAULT;
+        }
+        return format;
+    }
+
+    /**
+     * Determines if a file is compressible, by compressing a sample from the start of it at the fastest deflate
+     * level.
+     *
+     * @param file the file
+     * @return {@code true} if the file is compressible
+     * @throws IOException if the file cannot be read
+     */
+    private boolean isCompressible(File file) throws IOException
+    {
+        int length;
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            length = IOUtils.read(in, sample);
+        }
+        finally
+        {
+            in.close();
+        }
+        if (length == 0)
+        {
+            return true;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try
+        {
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+            long limit = (long) (length * STORE_RATIO);
+            while (!deflater.finished() && deflater.getBytesWritten() <= limit)
+            {
+                deflater.deflate(compressed);
+            }
+            return deflater.getBytesWritten() <= limit;
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+}
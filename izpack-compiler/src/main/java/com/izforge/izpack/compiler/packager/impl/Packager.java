@@ -22,6 +22,7 @@ package com.izforge.izpack.compiler.packager.impl;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.adaptator.impl.XMLElementImpl;
+import com.izforge.izpack.api.data.Info;
 import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.PackCompression;
 import com.izforge.izpack.api.data.PackFile;
@@ -33,6 +34,9 @@ import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
 import com.izforge.izpack.util.NoCloseOutputStream;
+import com.izforge.izpack.util.compress.Zstd;
+import com.izforge.izpack.util.delta.DeltaEncoder;
+import com.izforge.izpack.util.delta.Digests;
 import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.compress.compressors.deflate.DeflateCompressorOutputStream;
@@ -50,10 +54,13 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Pack200;
@@ -72,6 +79,16 @@ public class Packager extends PackagerBase
 {
     private static final Logger logger = Logger.getLogger(Packager.class.getName());
 
+    /**
+     * The maximum size of files that are compressed with a pack's dictionary.
+     */
+    static final int DICTIONARY_FILE_SIZE = 64 * 1024;
+
+    /**
+     * The size of the samples to train a dictionary with, relative to the dictionary size.
+     */
+    private static final int DICTIONARY_SAMPLE_RATIO = 100;
+
     private final CompilerData compilerData;
 
     /**
@@ -134,6 +151,19 @@ public class Packager extends PackagerBase
 
         List<PackFile> pack200Files = new ArrayList<PackFile>();
 
+        CompressionSelector selector = new CompressionSelector(getInfo());
+        ChunkWriter chunks = null;
+        if (getInfo().getChunkSize() > 0 && getInfo().getCompressionFormat() != PackCompression.DEFAULT)
+        {
+            chunks = new ChunkWriter(getInfo());
+        }
+        BaselineReader baseline = null;
+        if (getInfo().getUpgradeBaseline() != null)
+        {
+            sendMsg("Reading upgrade baseline " + getInfo().getUpgradeBaseline(), PackagerListener.MSG_VERBOSE);
+            baseline = new BaselineReader(new File(getInfo().getUpgradeBaseline()), getTargetPaths(packs));
+        }
+
         // Force UTF-8 encoding in order to have proper ZipEntry names.
         JarOutputStream installerJar = getInstallerJar();
 
@@ -166,6 +196,12 @@ public class Packager extends PackagerBase
 
             CountingOutputStream packOutputStream = new CountingOutputStream(new NoCloseOutputStream(
                     new BufferedOutputStream(packJar)));
+            SolidBlockWriter blocks = null;
+            if (getInfo().getSolidBlockSize() > 0 && getInfo().getCompressionFormat() != PackCompression.DEFAULT)
+            {
+                blocks = new SolidBlockWriter(packOutputStream, getInfo());
+            }
+            byte[] packDictionary = (blocks == null) ? trainDictionary(packInfo, selector) : null;
 
             try
             {
@@ -204,14 +240,43 @@ public class Packager extends PackagerBase
                             pack200Files.add(packFile);
                         } else
                         {
+                            PackCompression comprFormat = selector.select(file);
+                            packFile.setCompression(comprFormat);
+                            boolean delta = baseline != null && prepareDelta(packFile, file, baseline);
+                            boolean chunked = !delta && chunks != null && comprFormat != PackCompression.DEFAULT
+                                    && chunks.isChunked(packFile);
+                            if (blocks != null && (comprFormat == PackCompression.DEFAULT || chunked || delta))
+                            {
+                                // files stored without compression, in chunks or as deltas end the current block
+                                blocks.close();
+                            }
+
                             packFile.setStreamResourceName(streamResourceName);
                             packFile.setStreamOffset(packOutputStream.getByteCount()); // get the position
 
-                            PackCompression comprFormat = getInfo().getCompressionFormat();
-                            if (comprFormat != PackCompression.DEFAULT)
+                            if (delta)
+                            {
+                                writeDelta(packFile, file, baseline.getFile(packFile.getTargetPath()), comprFormat,
+                                           packOutputStream);
+                            }
+                            else if (chunked)
+                            {
+                                chunks.write(packFile, file, packOutputStream);
+                            }
+                            else if (blocks != null && comprFormat != PackCompression.DEFAULT)
+                            {
+                                blocks.add(packFile, file);
+                            }
+                            else if (comprFormat != PackCompression.DEFAULT)
                             {
                                 File tmpfile = null;
                                 OutputStream finalStream = null;
+                                byte[] dictionary = null;
+                                if (packDictionary != null && packFile.length() <= DICTIONARY_FILE_SIZE)
+                                {
+                                    dictionary = packDictionary;
+                                    packFile.setCompressionDictionary(dictionary);
+                                }
 
                                 try
                                 {
@@ -219,29 +284,8 @@ public class Packager extends PackagerBase
                                     CountingOutputStream proxyOutputStream = new CountingOutputStream(FileUtils.openOutputStream(tmpfile));
                                     OutputStream bufferedStream = IOUtils.buffer(proxyOutputStream);
 
-                                    switch (comprFormat)
-                                    {
-                                        case LZMA:
-                                            // LZMA as output stream supported from commons-compress 1.13 (requires JDK 1.7)
-                                            // for now create it from the Tukaani Project (tukaani.org)
-                                            finalStream = new LZMAOutputStream(bufferedStream, new LZMA2Options(), -1);
-                                            break;
-                                        case DEFLATE:
-                                            DeflateParameters deflateParameters = new DeflateParameters();
-                                            deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
-                                            new DeflateCompressorOutputStream(bufferedStream, deflateParameters);
-                                        default:
-                                            try
-                                            {
-                                                finalStream = new CompressorStreamFactory().createCompressorOutputStream(
-                                                        comprFormat.toName(),
-                                                        bufferedStream);
-                                            }
-                                            catch (CompressorException e)
-                                            {
-                                                throw new IOException(e);
-                                            }
-                                    }
+                                    finalStream = createCompressorOutputStream(comprFormat, getInfo(), dictionary,
+                                                                               bufferedStream);
 
                                     long bytesWritten = FileUtils.copyFile(file, finalStream);
                                     try
@@ -284,7 +328,11 @@ public class Packager extends PackagerBase
                             }
                         }
 
-                        storedFiles.put(file, packFile);
+                        if (!packFile.isDelta())
+                        {
+                            // deltas depend on the installed file, so cannot be referenced
+                            storedFiles.put(file, packFile);
+                        }
                     }
 
                     // even if not written, it counts towards pack size
@@ -296,6 +344,11 @@ public class Packager extends PackagerBase
                     pack.setSize(pack.getFileSize());
                 }
 
+                if (blocks != null)
+                {
+                    blocks.close();
+                }
+
                 // Cleanup
                 packOutputStream.flush();
                 packOutputStream.close();
@@ -325,6 +378,11 @@ public class Packager extends PackagerBase
             packNumber++;
         }
 
+        if (baseline != null)
+        {
+            baseline.close();
+        }
+
         // Now that we know sizes, write pack metadata to primary jar.
         installerJar.putNextEntry(new ZipEntry(PACKSINFO_RESOURCE_PATH));
         ObjectOutputStream out = new ObjectOutputStream(installerJar);
@@ -370,6 +428,196 @@ public class Packager extends PackagerBase
         }
     }
 
+    /**
+     * Creates a stream to compress pack files with.
+     *
+     * @param format     the compression format
+     * @param info       the installation information, supplying the compression settings
+     * @param dictionary the dictionary to compress with. May be {@code null}
+     * @param out        the stream to write compressed data to
+     * @return a new compressor stream
+     * @throws IOException if the stream cannot be created
+     */
+    static OutputStream createCompressorOutputStream(PackCompression format, Info info, byte[] dictionary,
+                                                     OutputStream out) throws IOException
+    {
+        switch (format)
+        {
+            case ZSTD:
+                return Zstd.createOutputStream(out, info.getCompressionLevel(), info.getCompressionWindowLog(),
+                                               dictionary);
+            case LZMA:
+                // LZMA as output stream supported from commons-compress 1.13 (requires JDK 1.7)
+                // for now create it from the Tukaani Project (tukaani.org)
+                return new LZMAOutputStream(out, new LZMA2Options(), -1);
+            case DEFLATE:
+                DeflateParameters deflateParameters = new DeflateParameters();
+                deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
+                return new DeflateCompressorOutputStream(out, deflateParameters);
+            default:
+                try
+                {
+                    return new CompressorStreamFactory().createCompressorOutputStream(format.toName(), out);
+                }
+                catch (CompressorException e)
+                {
+                    throw new IOException(e);
+                }
+        }
+    }
+
+    /**
+     * Returns the target paths of the files to be packed.
+     *
+     * @param packs the packs
+     * @return the target paths
+     */
+    private Set<String> getTargetPaths(List<PackInfo> packs)
+    {
+        Set<String> result = new HashSet<String>();
+        for (PackInfo packInfo : packs)
+        {
+            for (PackFile packFile : packInfo.getPackFiles())
+            {
+                if (!packFile.isDirectory())
+                {
+                    result.add(packFile.getTargetPath());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a file can be stored as a delta against the file installed by the upgrade baseline, recording
+     * the digests to verify the installed and upgraded files with if so.
+     * <p/>
+     * Files that the installer renames before overwriting them are stored in full, as are files whose previous
+     * content isn't available.
+     *
+     * @param packFile the pack file
+     * @param file     the file to pack
+     * @param baseline the upgrade baseline
+     * @return {@code true} if the file is unchanged, or can be stored as a delta
+     * @throws IOException if the file cannot be read
+     */
+    private boolean prepareDelta(PackFile packFile, File file, BaselineReader baseline) throws IOException
+    {
+        byte[] baselineDigest = baseline.getDigest(packFile.getTargetPath());
+        if (baselineDigest == null || packFile.overrideRenameTo() != null)
+        {
+            return false;
+        }
+        byte[] digest = Digests.digest(file);
+        if (!Arrays.equals(digest, baselineDigest) && baseline.getFile(packFile.getTargetPath()) == null)
+        {
+            return false;
+        }
+        packFile.setDigest(digest);
+        packFile.setBaselineDigest(baselineDigest);
+        return true;
+    }
+
+    /**
+     * Writes a file as a delta against its previous version. Nothing is written for unchanged files.
+     *
+     * @param packFile   the pack file
+     * @param file       the file to pack
+     * @param source     the previous version of the file
+     * @param format     the compression format to store the delta with
+     * @param packStream the pack stream
+     * @throws IOException for any I/O error
+     */
+    private void writeDelta(PackFile packFile, File file, File source, PackCompression format,
+                            OutputStream packStream) throws IOException
+    {
+        if (packFile.isUnchanged())
+        {
+            packFile.setSize(0);
+            logger.fine("File " + packFile.getTargetPath() + " is unchanged from the upgrade baseline");
+            return;
+        }
+        File tmpfile = null;
+        OutputStream out = null;
+        try
+        {
+            tmpfile = File.createTempFile("izpack-delta", null, FileUtils.getTempDirectory());
+            CountingOutputStream counter = new CountingOutputStream(FileUtils.openOutputStream(tmpfile));
+            out = IOUtils.buffer(counter);
+            if (format != PackCompression.DEFAULT)
+            {
+                out = createCompressorOutputStream(format, getInfo(), null, out);
+            }
+            long copied = new DeltaEncoder().encode(source, file, out);
+            out.close();
+            packFile.setSize(counter.getByteCount());
+
+            final long bytesPacked = FileUtils.copyFile(tmpfile, packStream);
+            if (bytesPacked != packFile.size())
+            {
+                throw new IOException("File size mismatch when writing " + file);
+            }
+            logger.fine("File " + packFile.getTargetPath() + " added as delta, " + copied + " of "
+                                + packFile.length() + " bytes unchanged (" + packFile.length() + " -> "
+                                + packFile.size() + " bytes)");
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(tmpfile);
+        }
+    }
+
+    /**
+     * Trains a dictionary for the small files of a pack, if the installation is configured to use one.
+     *
+     * @param packInfo the pack
+     * @param selector the compression selector
+     * @return the dictionary, or {@code null} if no dictionary is used
+     * @throws IOException if a file cannot be read
+     */
+    private byte[] trainDictionary(PackInfo packInfo, CompressionSelector selector) throws IOException
+    {
+        Info info = getInfo();
+        int dictionarySize = info.getCompressionDictionarySize();
+        if (info.getCompressionFormat() != PackCompression.ZSTD || dictionarySize <= 0 || packInfo.getPack().isLoose())
+        {
+            return null;
+        }
+        List<byte[]> samples = new ArrayList<byte[]>();
+        long sampleSize = 0;
+        long maxSampleSize = (long) dictionarySize * DICTIONARY_SAMPLE_RATIO;
+        for (PackFile packFile : packInfo.getPackFiles())
+        {
+            File file = packInfo.getFile(packFile);
+            if (!packFile.isDirectory() && !packFile.isPack200Jar() && packFile.length() > 0
+                    && packFile.length() <= DICTIONARY_FILE_SIZE && sampleSize + packFile.length() <= maxSampleSize
+                    && selector.select(file) == PackCompression.ZSTD)
+            {
+                samples.add(FileUtils.readFileToByteArray(file));
+                sampleSize += packFile.length();
+            }
+        }
+        if (sampleSize <= dictionarySize)
+        {
+            logger.fine("Not enough small files to train a dictionary for pack " + packInfo.getPack().getName());
+            return null;
+        }
+        try
+        {
+            byte[] dictionary = Zstd.trainDictionary(samples, dictionarySize);
+            logger.fine("Trained " + dictionary.length + " byte dictionary for pack " + packInfo.getPack().getName()
+                                + " from " + samples.size() + " files");
+            return dictionary;
+        }
+        catch (IOException exception)
+        {
+            logger.warning("Failed to train dictionary for pack " + packInfo.getPack().getName() + ": "
+                                   + exception.getMessage());
+            return null;
+        }
+    }
+
     private Pack200.Packer createPack200Packer(PackFile packFile)
     {
         Pack200.Packer packer = Pack200.newPacker();
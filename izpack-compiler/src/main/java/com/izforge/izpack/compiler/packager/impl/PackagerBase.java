@@ -24,6 +24,7 @@ package com.izforge.izpack.compiler.packager.impl;
 
 import com.izforge.izpack.api.data.*;
 import com.izforge.izpack.api.exception.CompilerException;
+import com.izforge.izpack.api.merge.Mergeable;
 import com.izforge.izpack.api.rules.Condition;
 import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.compiler.data.CompilerData;
@@ -33,9 +34,11 @@ import com.izforge.izpack.compiler.merge.PanelMerge;
 import com.izforge.izpack.compiler.packager.IPackager;
 import com.izforge.izpack.compiler.util.graph.DependencyGraph;
 import com.izforge.izpack.data.CustomData;
+import com.izforge.izpack.installer.data.UninstallDataWriter;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
 import com.izforge.izpack.util.FileUtil;
+import com.izforge.izpack.util.compress.Zstd;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
@@ -63,6 +66,12 @@ public abstract class PackagerBase implements IPackager
 
     protected static final String PACKSINFO_RESOURCE_PATH = RESOURCES_PATH + "packs.info";
 
+    /**
+     * Path to the prebuilt uninstaller skeleton jar.
+     */
+    protected static final String UNINSTALLER_SKELETON_RESOURCE_PATH = RESOURCES_PATH
+            + UninstallDataWriter.UNINSTALLER_SKELETON;
+
     /**
      * Variables.
      */
@@ -405,6 +414,7 @@ public abstract class PackagerBase implements IPackager
         // write the installer jar. MUST be first so manifest is not overwritten by an included jar
         writeManifest();
         writeSkeletonInstaller();
+        writeUninstallerSkeleton();
 
         writeInstallerObject("info", info);
         writeInstallerObject("vars", properties);
@@ -469,21 +479,88 @@ public abstract class PackagerBase implements IPackager
         mergeManager.addResourceToMerge("jline/");
         mergeManager.addResourceToMerge("org/fusesource/");
         PackCompression comprFormat = info.getCompressionFormat();
-        switch (comprFormat)
+        if (comprFormat != PackCompression.DEFAULT || info.isArchiveInstallation())
         {
-            case DEFAULT:
-                break;
-            default:
-                mergeManager.addResourceToMerge("org/apache/commons/compress");
+            // required for pack decompression, and installing into archives
+            mergeManager.addResourceToMerge("org/apache/commons/compress");
         }
         if (comprFormat == PackCompression.XZ || comprFormat == PackCompression.LZMA)
         {
             mergeManager.addResourceToMerge("org/tukaani/xz");
         }
+        if (comprFormat == PackCompression.ZSTD)
+        {
+            // the zstd-jni jar bundles its native libraries, so it is merged whole
+            for (Mergeable mergeable : pathResolver.getMergeableJarFromPackageName(Zstd.PACKAGE))
+            {
+                mergeManager.addResourceToMerge(mergeable);
+            }
+        }
         mergeManager.addResourceToMerge("META-INF/native/");
         mergeManager.merge(installerJar);
     }
 
+    /**
+     * Writes the uninstaller skeleton to the installer jar, if an uninstaller is required.
+     * <p/>
+     * The skeleton holds the classes common to every uninstaller. It is stored uncompressed, so that at install
+     * time its entries can be copied to the uninstaller jar as is, rather than being resolved from the installer
+     * jar and recompressed.
+     *
+     * @throws IOException for any I/O error
+     */
+    protected void writeUninstallerSkeleton() throws IOException
+    {
+        if (info.getUninstallerPath() == null)
+        {
+            return;
+        }
+        sendMsg("Building the uninstaller skeleton", PackagerListener.MSG_VERBOSE);
+        File skeleton = File.createTempFile("uninstaller", ".jar", FileUtils.getTempDirectory());
+        try
+        {
+            JarOutputStream jar = new JarOutputStream(FileUtils.openOutputStream(skeleton));
+            try
+            {
+                jar.setLevel(9);
+                for (Mergeable mergeable : pathResolver.getMergeableFromPath("uninstaller-META-INF/", "META-INF/"))
+                {
+                    mergeable.merge(jar);
+                }
+                for (String path : UninstallDataWriter.UNINSTALLER_PATHS)
+                {
+                    for (Mergeable mergeable : pathResolver.getMergeableFromPath(path))
+                    {
+                        mergeable.merge(jar);
+                    }
+                }
+            }
+            finally
+            {
+                jar.close();
+            }
+
+            ZipEntry entry = new ZipEntry(UNINSTALLER_SKELETON_RESOURCE_PATH);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(skeleton.length());
+            entry.setCompressedSize(skeleton.length());
+            entry.setCrc(FileUtils.checksumCRC32(skeleton));
+            installerJar.putNextEntry(entry);
+            try
+            {
+                FileUtils.copyFile(skeleton, installerJar);
+            }
+            finally
+            {
+                installerJar.closeEntry();
+            }
+        }
+        finally
+        {
+            FileUtils.deleteQuietly(skeleton);
+        }
+    }
+
     /**
      * Write an arbitrary object to installer jar.
      *
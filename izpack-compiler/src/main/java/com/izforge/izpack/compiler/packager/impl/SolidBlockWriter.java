@@ -0,0 +1,175 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.packager.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.util.NoCloseOutputStream;
+
+
+/**
+ * Writes pack files to a pack stream in solid blocks.
+ * <p/>
+ * Consecutive files are compressed together in a block until the block reaches the maximum uncompressed size, so
+ * that small files share the compression dictionary. Each block is a separate compressed stream, so the installer
+ * can skip blocks that contain no files to install without decompressing them.
+ * <p/>
+ * The stream offset of each pack file is set to the offset of its block in the pack stream, and the block offset to
+ * the offset of the file in the uncompressed block.
+ */
+class SolidBlockWriter
+{
+
+    /**
+     * The pack stream.
+     */
+    private final CountingOutputStream packStream;
+
+    /**
+     * The installation information.
+     */
+    private final Info info;
+
+    /**
+     * The compression format.
+     */
+    private final PackCompression format;
+
+    /**
+     * The maximum uncompressed size of a block.
+     */
+    private final long blockSize;
+
+    /**
+     * The files in the current block.
+     */
+    private final List<PackFile> files = new ArrayList<PackFile>();
+
+    /**
+     * The current block compressor, or {@code null} if no block is open.
+     */
+    private OutputStream block;
+
+    /**
+     * The offset of the current block in the pack stream.
+     */
+    private long blockStart;
+
+    /**
+     * The uncompressed size of the current block.
+     */
+    private long uncompressed;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(SolidBlockWriter.class.getName());
+
+
+    /**
+     * Constructs a {@code SolidBlockWriter}.
+     * <p/>
+     * Blocks are compressed with the installation's compression format, and are no larger than its solid block size.
+     * A file larger than this is stored in a block of its own.
+     *
+     * @param packStream the pack stream
+     * @param info       the installation information
+     */
+    public SolidBlockWriter(CountingOutputStream packStream, Info info)
+    {
+        this.packStream = packStream;
+        this.info = info;
+        this.format = info.getCompressionFormat();
+        this.blockSize = info.getSolidBlockSize();
+    }
+
+    /**
+     * Adds a file to the current block, starting a new block if it would exceed the maximum block size.
+     *
+     * @param packFile the pack file
+     * @param file     the file to add
+     * @throws IOException for any I/O error
+     */
+    public void add(PackFile packFile, File file) throws IOException
+    {
+        if (block != null && uncompressed > 0 && uncompressed + packFile.length() > blockSize)
+        {
+            closeBlock();
+        }
+        if (block == null)
+        {
+            blockStart = packStream.getByteCount();
+            block = Packager.createCompressorOutputStream(format, info, null, new NoCloseOutputStream(packStream));
+            uncompressed = 0;
+        }
+        packFile.setStreamOffset(blockStart);
+        packFile.setBlockOffset(uncompressed);
+        long bytesWritten = FileUtils.copyFile(file, block);
+        if (bytesWritten != packFile.length())
+        {
+            throw new IOException("File size mismatch when reading " + file);
+        }
+        uncompressed += bytesWritten;
+        files.add(packFile);
+    }
+
+    /**
+     * Closes the current block, if any.
+     *
+     * @throws IOException for any I/O error
+     */
+    public void close() throws IOException
+    {
+        if (block != null)
+        {
+            closeBlock();
+        }
+    }
+
+    /**
+     * Completes the current block, and records its compressed size against its files.
+     *
+     * @throws IOException for any I/O error
+     */
+    private void closeBlock() throws IOException
+    {
+        block.close();
+        block = null;
+        long size = packStream.getByteCount() - blockStart;
+        for (PackFile file : files)
+        {
+            file.setBlockSize(size);
+        }
+        logger.fine("Added block of " + files.size() + " files compressed as " + format.toName()
+                            + " (" + uncompressed + " -> " + size + " bytes)");
+        files.clear();
+    }
+}
@@ -35,6 +35,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.izforge.izpack.api.exception.CompilerException;
 import com.izforge.izpack.compiler.container.TestCompilerContainer;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.core.container.AbstractContainer;
@@ -144,4 +145,41 @@ public class CompilerConfigTest
                 "com/izforge/izpack/panels/defaulttarget/DefaultTargetConsolePanel.class",
                 "com/izforge/izpack/panels/target/TargetPanelHelper.class"));
     }
+
+    /**
+     * Verifies that solid blocks are rejected when the multi-volume packager is used, as it doesn't support them.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    @InstallFile("samples/multiVolume-solid.xml")
+    public void testMultiVolumeRejectsSolidBlocks() throws Exception
+    {
+        checkRejected("Solid blocks are not supported by the multi-volume packager");
+    }
+
+    /**
+     * Verifies that chunks are rejected when the multi-volume packager is used, as it doesn't support them.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    @InstallFile("samples/multiVolume-chunked.xml")
+    public void testMultiVolumeRejectsChunks() throws Exception
+    {
+        checkRejected("Chunks are not supported by the multi-volume packager");
+    }
+
+    private void checkRejected(String message) throws Exception
+    {
+        try
+        {
+            compilerConfig.executeCompiler();
+            Assert.fail("Expected CompilerException");
+        }
+        catch (CompilerException expected)
+        {
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().endsWith(message));
+        }
+    }
 }
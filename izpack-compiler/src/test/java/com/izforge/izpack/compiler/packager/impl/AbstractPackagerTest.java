@@ -23,6 +23,7 @@ package com.izforge.izpack.compiler.packager.impl;
 import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackCompression;
 import com.izforge.izpack.api.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
 import org.apache.commons.io.IOUtils;
@@ -44,6 +45,7 @@ import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -83,6 +85,18 @@ public abstract class AbstractPackagerTest
         verify(mergeManager).addResourceToMerge(anyString(), anyString());
     }
 
+    /**
+     * Verifies that commons-compress is only merged into installers that use pack compression, or support
+     * installing into archives.
+     */
+    @Test
+    public void testMergeCompress()
+    {
+        checkMergeCompress(PackCompression.DEFAULT, false, false);
+        checkMergeCompress(PackCompression.DEFAULT, true, true);
+        checkMergeCompress(PackCompression.BZIP2, false, true);
+    }
+
     /**
      * Verifies that the pack size can be specified.
      * <p/>
@@ -122,6 +136,24 @@ public abstract class AbstractPackagerTest
         assertTrue(file.delete());
     }
 
+    /**
+     * Verifies whether commons-compress is merged into the skeleton installer.
+     *
+     * @param format              the pack compression format
+     * @param archiveInstallation determines if installing into archives is supported
+     * @param merged              if {@code true}, expect commons-compress to be merged
+     */
+    private void checkMergeCompress(PackCompression format, boolean archiveInstallation, boolean merged)
+    {
+        MergeManager mergeManager = mock(MergeManager.class);
+        PackagerBase packager = createPackager(Mockito.mock(JarOutputStream.class), mergeManager);
+        packager.getInfo().setCompressionFormat(format);
+        packager.getInfo().setArchiveInstallation(archiveInstallation);
+        packager.writeSkeletonInstaller();
+
+        verify(mergeManager, times(merged ? 1 : 0)).addResourceToMerge("org/apache/commons/compress");
+    }
+
     /**
      * Helper to create a packager that writes to the provided jar.
      *
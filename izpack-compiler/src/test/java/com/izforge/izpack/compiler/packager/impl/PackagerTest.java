@@ -22,6 +22,8 @@ package com.izforge.izpack.compiler.packager.impl;
 import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.Info;
 import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.PackInfo;
 import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.compiler.data.CompilerData;
@@ -30,17 +32,33 @@ import com.izforge.izpack.compiler.packager.IPackager;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
 import com.izforge.izpack.test.util.TestHelper;
+import com.izforge.izpack.util.delta.DeltaDecoder;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -101,13 +119,237 @@ public class PackagerTest extends AbstractPackagerTest
         System.out.println("Writing pack of " + packSize + " KiB took " + timeDiff + "ms");
     }
 
+    /**
+     * Verifies that files are compressed together in solid blocks no larger than the configured size.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSolidBlocks() throws Exception
+    {
+        File installerJar = temporaryFolder.newFile("installer.jar");
+        File dir = temporaryFolder.newFolder("files");
+        File file1 = TestHelper.createFile(dir, "f1.dat", 1000);
+        File file2 = TestHelper.createFile(dir, "f2.dat", 2000);
+        File file3 = TestHelper.createFile(dir, "f3.dat", 3000);
+        PackInfo packInfo = createPackInfo("Core", file1, file2, file3);
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        PackagerBase packager = createPackager(jarOutputStream, mock(MergeManager.class));
+        packager.getInfo().setCompressionFormat(PackCompression.XZ);
+        packager.getInfo().setSolidBlockSize(4000);
+        packager.getInfo().setCompressionProbe(false);
+        packager.addPack(packInfo);
+        packager.createInstaller();
+
+        List<PackFile> packFiles = new ArrayList<PackFile>(packInfo.getPackFiles());
+        PackFile packFile1 = packFiles.get(0);
+        PackFile packFile2 = packFiles.get(1);
+        PackFile packFile3 = packFiles.get(2);
+        assertTrue(packFile1.isSolid());
+        assertEquals(packFile1.getStreamOffset(), packFile2.getStreamOffset());
+        assertEquals(0, packFile1.getBlockOffset());
+        assertEquals(1000, packFile2.getBlockOffset());
+        assertEquals(packFile1.getStreamOffset() + packFile1.getBlockSize(), packFile3.getStreamOffset());
+        assertEquals(0, packFile3.getBlockOffset());
+
+        JarFile jar = new JarFile(installerJar);
+        try
+        {
+            byte[] pack = IOUtils.toByteArray(jar.getInputStream(jar.getEntry("resources/packs/pack-Core")));
+            byte[] block1 = IOUtils.toByteArray(new XZCompressorInputStream(new ByteArrayInputStream(
+                    pack, (int) packFile1.getStreamOffset(), (int) packFile1.getBlockSize())));
+            byte[] block2 = IOUtils.toByteArray(new XZCompressorInputStream(new ByteArrayInputStream(
+                    pack, (int) packFile3.getStreamOffset(), (int) packFile3.getBlockSize())));
+            assertArrayEquals(ArrayUtils.addAll(FileUtils.readFileToByteArray(file1),
+                                                FileUtils.readFileToByteArray(file2)), block1);
+            assertArrayEquals(FileUtils.readFileToByteArray(file3), block2);
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
+    /**
+     * Verifies that files that are already compressed, or that don't compress, are stored without compression.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testStoreIncompressible() throws Exception
+    {
+        File installerJar = temporaryFolder.newFile("installer.jar");
+        File dir = temporaryFolder.newFolder("files");
+        File text = new File(dir, "text.txt");
+        FileUtils.writeStringToFile(text, StringUtils.repeat("compressible ", 1000), "UTF-8");
+        File archive = new File(dir, "archive.zip");
+        FileUtils.copyFile(text, archive);
+        File random = TestHelper.createFile(dir, "random.dat", 10000);
+        PackInfo packInfo = createPackInfo("Core", text, archive, random);
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        PackagerBase packager = createPackager(jarOutputStream, mock(MergeManager.class));
+        packager.getInfo().setCompressionFormat(PackCompression.XZ);
+        packager.addPack(packInfo);
+        packager.createInstaller();
+
+        List<PackFile> packFiles = new ArrayList<PackFile>(packInfo.getPackFiles());
+        assertEquals(PackCompression.XZ, packFiles.get(0).getCompression());
+        assertTrue(packFiles.get(0).size() < text.length());
+        assertEquals(PackCompression.DEFAULT, packFiles.get(1).getCompression());
+        assertEquals(archive.length(), packFiles.get(1).size());
+        assertEquals(PackCompression.DEFAULT, packFiles.get(2).getCompression());
+        assertEquals(random.length(), packFiles.get(2).size());
+
+        JarFile jar = new JarFile(installerJar);
+        try
+        {
+            byte[] pack = IOUtils.toByteArray(jar.getInputStream(jar.getEntry("resources/packs/pack-Core")));
+            PackFile stored = packFiles.get(2);
+            assertArrayEquals(FileUtils.readFileToByteArray(random),
+                              ArrayUtils.subarray(pack, (int) stored.getStreamOffset(),
+                                                  (int) (stored.getStreamOffset() + stored.size())));
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
+    /**
+     * Verifies that files larger than the chunk size are compressed in independent chunks.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testChunks() throws Exception
+    {
+        File installerJar = temporaryFolder.newFile("installer.jar");
+        File dir = temporaryFolder.newFolder("files");
+        File file = new File(dir, "large.txt");
+        FileUtils.writeStringToFile(file, StringUtils.repeat("chunked ", 1000), "UTF-8");
+        PackInfo packInfo = createPackInfo("Core", file);
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        PackagerBase packager = createPackager(jarOutputStream, mock(MergeManager.class));
+        packager.getInfo().setCompressionFormat(PackCompression.XZ);
+        packager.getInfo().setChunkSize(3000);
+        packager.addPack(packInfo);
+        packager.createInstaller();
+
+        PackFile packFile = packInfo.getPackFiles().iterator().next();
+        assertTrue(packFile.isChunked());
+        assertEquals(3000, packFile.getChunkSize());
+        long[] sizes = packFile.getCompressedChunkSizes();
+        assertEquals(3, sizes.length);
+
+        // the chunks are spooled to temporary files, which must be removed once written
+        String[] spooled = FileUtils.getTempDirectory().list(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith("izpack-chunk");
+            }
+        });
+        assertEquals(0, spooled.length);
+
+        JarFile jar = new JarFile(installerJar);
+        try
+        {
+            byte[] pack = IOUtils.toByteArray(jar.getInputStream(jar.getEntry("resources/packs/pack-Core")));
+            byte[] content = FileUtils.readFileToByteArray(file);
+            int offset = (int) packFile.getStreamOffset();
+            for (int i = 0; i < sizes.length; ++i)
+            {
+                byte[] chunk = IOUtils.toByteArray(new XZCompressorInputStream(new ByteArrayInputStream(
+                        pack, offset, (int) sizes[i])));
+                assertArrayEquals(ArrayUtils.subarray(content, i * 3000, (i + 1) * 3000), chunk);
+                offset += sizes[i];
+            }
+            assertEquals(packFile.getStreamOffset() + packFile.size(), offset);
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
+    /**
+     * Verifies that an upgrade installer stores changed files as deltas against the baseline installer, and
+     * nothing for unchanged files.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUpgrade() throws Exception
+    {
+        File baselineJar = temporaryFolder.newFile("baseline.jar");
+        File oldDir = temporaryFolder.newFolder("old");
+        File oldA = new File(oldDir, "a.txt");
+        File oldB = new File(oldDir, "b.txt");
+        String content = StringUtils.repeat("the quick brown fox jumps over the lazy dog ", 1000);
+        FileUtils.writeStringToFile(oldA, content, "UTF-8");
+        FileUtils.writeStringToFile(oldB, "unchanged", "UTF-8");
+
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(baselineJar));
+        PackagerBase packager = createPackager(jarOutputStream, mock(MergeManager.class));
+        packager.getInfo().setCompressionFormat(PackCompression.XZ);
+        packager.getInfo().setSolidBlockSize(1000);
+        packager.addPack(createPackInfo("Core", oldA, oldB));
+        packager.createInstaller();
+
+        File installerJar = temporaryFolder.newFile("installer.jar");
+        File newDir = temporaryFolder.newFolder("new");
+        File a = new File(newDir, "a.txt");
+        File b = new File(newDir, "b.txt");
+        File c = new File(newDir, "c.txt");
+        FileUtils.writeStringToFile(a, content.replace("lazy dog", "lazy cat"), "UTF-8");
+        FileUtils.copyFileToDirectory(oldB, newDir);
+        FileUtils.writeStringToFile(c, "added", "UTF-8");
+        PackInfo packInfo = createPackInfo("Core", a, b, c);
+
+        jarOutputStream = new JarOutputStream(new FileOutputStream(installerJar));
+        packager = createPackager(jarOutputStream, mock(MergeManager.class));
+        packager.getInfo().setCompressionFormat(PackCompression.XZ);
+        packager.getInfo().setUpgradeBaseline(baselineJar.getPath());
+        packager.addPack(packInfo);
+        packager.createInstaller();
+
+        List<PackFile> packFiles = new ArrayList<PackFile>(packInfo.getPackFiles());
+        PackFile deltaA = packFiles.get(0);
+        PackFile unchangedB = packFiles.get(1);
+        PackFile addedC = packFiles.get(2);
+        assertTrue(deltaA.isDelta());
+        assertFalse(deltaA.isUnchanged());
+        assertTrue(deltaA.size() < 200);
+        assertTrue(unchangedB.isUnchanged());
+        assertEquals(0, unchangedB.size());
+        assertFalse(addedC.isDelta());
+
+        JarFile jar = new JarFile(installerJar);
+        try
+        {
+            byte[] pack = IOUtils.toByteArray(jar.getInputStream(jar.getEntry("resources/packs/pack-Core")));
+            ByteArrayOutputStream upgraded = new ByteArrayOutputStream();
+            new DeltaDecoder().decode(oldA, new XZCompressorInputStream(new ByteArrayInputStream(
+                    pack, (int) deltaA.getStreamOffset(), (int) deltaA.size())), upgraded);
+            assertArrayEquals(FileUtils.readFileToByteArray(a), upgraded.toByteArray());
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
     private PackInfo createPackInfo(String name, File... files) throws IOException {
 
         PackInfo packInfo = new PackInfo(name, null, "", true, false, null, true, calculateTotalSize(files));
         for (File file : files)
         {
             packInfo.addFile(file.getParentFile(), file, "$INSTALL_DIR/" + file.getName(), null,
-                    OverrideType.OVERRIDE_TRUE, "", Blockable.BLOCKABLE_NONE, Collections.emptyMap(),
+                    OverrideType.OVERRIDE_TRUE, null, Blockable.BLOCKABLE_NONE, Collections.emptyMap(),
                     "", null);
         }
         return packInfo;
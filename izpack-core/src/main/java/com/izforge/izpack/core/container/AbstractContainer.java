@@ -32,6 +32,8 @@ import com.izforge.izpack.api.exception.ContainerException;
 import com.izforge.izpack.api.exception.IzPackClassNotFoundException;
 import com.izforge.izpack.api.exception.IzPackException;
 
+import java.util.concurrent.Callable;
+
 
 /**
  * Abstract implementation of the {@link Container} interface.
@@ -114,6 +116,27 @@ public abstract class AbstractContainer implements Container
         }
     }
 
+    /**
+     * Register a component that is created when it is first retrieved.
+     *
+     * @param componentKey  the component identifier. This must be unique within the container
+     * @param componentType the component type
+     * @param factory       the factory to create the component. This is invoked at most once
+     * @throws ContainerException if registration fails
+     */
+    @Override
+    public <T> void addComponent(Object componentKey, Class<T> componentType, Callable<? extends T> factory)
+    {
+        try
+        {
+            container.addAdapter(new FactoryAdapter<T>(componentKey, componentType, factory));
+        }
+        catch (PicoException exception)
+        {
+            throw new ContainerException(exception);
+        }
+    }
+
     /**
      * Retrieve a component by its component type.
      * <p/>
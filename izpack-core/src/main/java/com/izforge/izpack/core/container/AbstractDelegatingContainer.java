@@ -25,6 +25,8 @@ import com.izforge.izpack.api.container.Container;
 import com.izforge.izpack.api.exception.ContainerException;
 import com.izforge.izpack.api.exception.IzPackClassNotFoundException;
 
+import java.util.concurrent.Callable;
+
 
 /**
  * A {@link Container} that delegates to another.
@@ -105,6 +107,20 @@ public abstract class AbstractDelegatingContainer implements Container
         return container.getComponent(componentKeyOrType);
     }
 
+    /**
+     * Register a component that is created when it is first retrieved.
+     *
+     * @param componentKey  the component identifier. This must be unique within the container
+     * @param componentType the component type
+     * @param factory       the factory to create the component. This is invoked at most once
+     * @throws ContainerException if registration fails
+     */
+    @Override
+    public <T> void addComponent(Object componentKey, Class<T> componentType, Callable<? extends T> factory)
+    {
+        container.addComponent(componentKey, componentType, factory);
+    }
+
     /**
      * Creates a child container.
      * <p/>
@@ -0,0 +1,111 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.container;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
+
+import org.picocontainer.PicoCompositionException;
+import org.picocontainer.PicoContainer;
+import org.picocontainer.adapters.AbstractAdapter;
+
+
+/**
+ * A component adapter that creates its component using a factory, the first time the component is retrieved.
+ *
+ * @param <T> the component type
+ */
+class FactoryAdapter<T> extends AbstractAdapter<T>
+{
+
+    /**
+     * The factory.
+     */
+    private final Callable<? extends T> factory;
+
+    /**
+     * The component, or {@code null} if it hasn't been created.
+     */
+    private T instance;
+
+
+    /**
+     * Constructs a {@code FactoryAdapter}.
+     *
+     * @param componentKey  the component key
+     * @param componentType the component type
+     * @param factory       the factory to create the component
+     */
+    public FactoryAdapter(Object componentKey, Class<T> componentType, Callable<? extends T> factory)
+    {
+        super(componentKey, componentType);
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the component, creating it if required.
+     *
+     * @param container the container
+     * @param into      the type the component is being injected into
+     * @return the component
+     * @throws PicoCompositionException if the component cannot be created
+     */
+    @Override
+    public synchronized T getComponentInstance(PicoContainer container, Type into)
+    {
+        if (instance == null)
+        {
+            try
+            {
+                instance = factory.call();
+            }
+            catch (RuntimeException exception)
+            {
+                throw exception;
+            }
+            catch (Exception exception)
+            {
+                throw new PicoCompositionException("Failed to create component " + getComponentKey(), exception);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Verifies that the component can be created. This is a no-op.
+     *
+     * @param container the container
+     */
+    @Override
+    public void verify(PicoContainer container)
+    {
+    }
+
+    /**
+     * Returns a description of the adapter.
+     *
+     * @return the description
+     */
+    @Override
+    public String getDescriptor()
+    {
+        return "Factory-";
+    }
+}
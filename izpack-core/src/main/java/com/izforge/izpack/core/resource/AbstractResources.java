@@ -82,7 +82,7 @@ public abstract class AbstractResources implements Resources
     public InputStream getInputStream(String name)
     {
         name = resolveName(name);
-        InputStream result = loader.getResourceAsStream(name);
+        InputStream result = getResourceAsStream(name);
         if (result == null)
         {
             throw new ResourceNotFoundException("Failed to locate resource: " + name);
@@ -243,6 +243,17 @@ public abstract class AbstractResources implements Resources
         }
     }
 
+    /**
+     * Opens a stream to a resource.
+     *
+     * @param name the resolved resource name
+     * @return a stream to the resource, or {@code null} if the resource cannot be found
+     */
+    protected InputStream getResourceAsStream(String name)
+    {
+        return loader.getResourceAsStream(name);
+    }
+
     /**
      * Returns a resource URL.
      *
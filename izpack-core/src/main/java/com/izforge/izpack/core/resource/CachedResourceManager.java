@@ -0,0 +1,74 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.resource;
+
+import java.io.InputStream;
+import java.net.URL;
+
+
+/**
+ * A {@link ResourceManager} that reads resources from a {@link ResourceCache} shared with other installations.
+ * <p/>
+ * Each installation requires its own instance, as the selected locale is per installation.
+ */
+public class CachedResourceManager extends ResourceManager
+{
+
+    /**
+     * The shared cache.
+     */
+    private final ResourceCache cache;
+
+
+    /**
+     * Constructs a {@code CachedResourceManager}.
+     *
+     * @param cache the shared cache
+     */
+    public CachedResourceManager(ResourceCache cache)
+    {
+        super(cache.getLoader());
+        this.cache = cache;
+    }
+
+    /**
+     * Opens a stream to a resource.
+     *
+     * @param name the resolved resource name
+     * @return a stream to the resource, or {@code null} if the resource cannot be found
+     */
+    @Override
+    protected InputStream getResourceAsStream(String name)
+    {
+        return cache.getInputStream(name);
+    }
+
+    /**
+     * Returns a resource URL.
+     *
+     * @param name the resource name
+     * @return the corresponding URL, or {@code null} if the resource cannot be found
+     */
+    @Override
+    protected URL getResource(String name)
+    {
+        return cache.getResource(resolveName(name));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.IOUtils;
+
+import com.izforge.izpack.api.exception.ResourceException;
+
+
+/**
+ * A thread-safe cache of installer resources, shared by the {@link CachedResourceManager}s of installations running
+ * in the same JVM.
+ * <p/>
+ * Resources are read from the class loader once, and served from memory thereafter. The content is cached rather
+ * than the deserialized objects, as installations modify the objects they read. Pack streams are not cached.
+ */
+public class ResourceCache
+{
+
+    /**
+     * The path of the pack streams, which are read once per installation and may be large.
+     */
+    private static final String PACKS_PATH = "resources/packs/";
+
+    /**
+     * The class loader to load resources from.
+     */
+    private final ClassLoader loader;
+
+    /**
+     * The resource content, keyed on resource name.
+     */
+    private final ConcurrentMap<String, byte[]> content = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * The resource URLs, keyed on resource name.
+     */
+    private final ConcurrentMap<String, URL> urls = new ConcurrentHashMap<String, URL>();
+
+    /**
+     * The names of resources that don't exist.
+     */
+    private final Set<String> missing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+
+    /**
+     * Constructs a {@code ResourceCache}.
+     *
+     * @param loader the class loader to load resources from
+     */
+    public ResourceCache(ClassLoader loader)
+    {
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the class loader that resources are loaded from.
+     *
+     * @return the class loader
+     */
+    public ClassLoader getLoader()
+    {
+        return loader;
+    }
+
+    /**
+     * Returns a stream to a resource.
+     *
+     * @param name the resolved resource name
+     * @return a stream to the resource, or {@code null} if the resource cannot be found
+     * @throws ResourceException if the resource cannot be read
+     */
+    public InputStream getInputStream(String name)
+    {
+        if (name.startsWith(PACKS_PATH))
+        {
+            return loader.getResourceAsStream(name);
+        }
+        byte[] bytes = content.get(name);
+        if (bytes == null && !missing.contains(name))
+        {
+            InputStream in = loader.getResourceAsStream(name);
+            if (in == null)
+            {
+                missing.add(name);
+            }
+            else
+            {
+                try
+                {
+                    bytes = IOUtils.toByteArray(in);
+                }
+                catch (IOException exception)
+                {
+                    throw new ResourceException("Failed to read resource: " + name, exception);
+                }
+                finally
+                {
+                    IOUtils.closeQuietly(in);
+                }
+                // concurrent readers may both load the resource; either copy will do
+                content.putIfAbsent(name, bytes);
+            }
+        }
+        return (bytes != null) ? new ByteArrayInputStream(bytes) : null;
+    }
+
+    /**
+     * Returns a resource URL.
+     *
+     * @param name the resolved resource name
+     * @return the corresponding URL, or {@code null} if the resource cannot be found
+     */
+    public URL getResource(String name)
+    {
+        URL result = urls.get(name);
+        if (result == null && !missing.contains(name))
+        {
+            result = loader.getResource(name);
+            if (result == null)
+            {
+                missing.add(name);
+            }
+            else
+            {
+                urls.putIfAbsent(name, result);
+            }
+        }
+        return result;
+    }
+}
@@ -41,8 +41,7 @@ import org.xml.sax.SAXException;
 
 import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.api.config.Config;
-import com.izforge.izpack.api.config.Ini;
-import com.izforge.izpack.api.config.Options;
+import com.izforge.izpack.api.config.spi.OptionLookup;
 
 public abstract class ConfigFileValue extends ValueImpl implements Serializable
 {
@@ -131,15 +130,11 @@ public abstract class ConfigFileValue extends ValueImpl implements Serializable
             case CONFIGFILE_TYPE_OPTIONS:
                 config = Config.getGlobal().clone();
                 config.setEscape(isEscape());
-                Options opts = new Options(config);
-                opts.load(in);
-                return opts.get(key);
+                return OptionLookup.getOption(in, config, key);
             case CONFIGFILE_TYPE_INI:
                 config = Config.getGlobal().clone();
                 config.setEscape(isEscape());
-                Ini ini = new Ini(config);
-                ini.load(in);
-                return ini.get(section, key);
+                return OptionLookup.getOption(in, config, section, key);
             case CONFIGFILE_TYPE_XML:
                 return parseXPath(in, key, System.getProperty("line.separator"));
             default:
@@ -162,20 +157,16 @@ public abstract class ConfigFileValue extends ValueImpl implements Serializable
             case CONFIGFILE_TYPE_OPTIONS:
                 config = Config.getGlobal().clone();
                 config.setEscape(isEscape());
-                Options opts;
-                opts = new Options(in, config);
-                return opts.get(_key_);
+                return OptionLookup.getOption(in, config, _key_);
             case CONFIGFILE_TYPE_INI:
                 config = Config.getGlobal().clone();
                 config.setEscape(isEscape());
-                Ini ini;
                 String _section_ = section;
                 for (VariableSubstitutor substitutor : substitutors)
                 {
                     _section_ = substitutor.substitute(_section_);
                 }
-                ini = new Ini(in, config);
-                return ini.get(_section_, _key_);
+                return OptionLookup.getOption(in, config, _section_, _key_);
             case CONFIGFILE_TYPE_XML:
                 return parseXPath(in, _key_, System.getProperty("line.separator"));
             default:
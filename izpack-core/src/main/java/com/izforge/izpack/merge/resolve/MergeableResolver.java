@@ -21,6 +21,8 @@ package com.izforge.izpack.merge.resolve;
 
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +44,23 @@ public class MergeableResolver
     {
     }
 
+    /**
+     * Registers entries that have already been written to a stream, so that they won't be merged again.
+     *
+     * @param outputStream the stream
+     * @param entries      the entry names
+     */
+    public void addMergedEntries(OutputStream outputStream, Collection<String> entries)
+    {
+        List<String> merged = mergeContent.get(outputStream);
+        if (merged == null)
+        {
+            merged = new ArrayList<String>();
+            mergeContent.put(outputStream, merged);
+        }
+        merged.addAll(entries);
+    }
+
     public Mergeable getMergeableFromURL(URL url)
     {
         if (!ResolveUtils.isJar(url))
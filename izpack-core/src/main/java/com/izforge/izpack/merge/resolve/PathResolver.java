@@ -20,8 +20,10 @@
 package com.izforge.izpack.merge.resolve;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
@@ -154,6 +156,18 @@ public class PathResolver
         return result;
     }
 
+    /**
+     * Registers entries that have already been written to a stream by other means, so that they are skipped by
+     * subsequent merges to that stream.
+     *
+     * @param outputStream the stream
+     * @param entries      the entry names
+     */
+    public void addMergedEntries(OutputStream outputStream, Collection<String> entries)
+    {
+        mergeableResolver.addMergedEntries(outputStream, entries);
+    }
+
     /**
      * Returns the mergeable resolver.
      *
@@ -0,0 +1,107 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.core.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.exception.ResourceNotFoundException;
+
+
+/**
+ * Tests the {@link CachedResourceManager} and {@link ResourceCache}.
+ */
+public class CachedResourceManagerTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that resources are read once, and shared by the resource managers using the cache.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testShared() throws Exception
+    {
+        File dir = temporaryFolder.newFolder("resources");
+        File resource = new File(dir, "info");
+        FileUtils.writeStringToFile(resource, "info", "UTF-8");
+        ResourceCache cache = createCache();
+
+        CachedResourceManager first = new CachedResourceManager(cache);
+        assertEquals("info", first.getString("info"));
+
+        // the content is served from the cache, even when the underlying resource changes
+        FileUtils.writeStringToFile(resource, "changed", "UTF-8");
+        CachedResourceManager second = new CachedResourceManager(cache);
+        assertEquals("info", second.getString("info"));
+        assertNotNull(second.getURL("info"));
+    }
+
+    /**
+     * Verifies that pack streams are not cached.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPacksNotCached() throws Exception
+    {
+        File dir = temporaryFolder.newFolder("resources", "packs");
+        File pack = new File(dir, "pack-core");
+        FileUtils.writeStringToFile(pack, "pack", "UTF-8");
+        CachedResourceManager resources = new CachedResourceManager(createCache());
+
+        assertEquals("pack", resources.getString("packs/pack-core"));
+        FileUtils.writeStringToFile(pack, "changed", "UTF-8");
+        assertEquals("changed", resources.getString("packs/pack-core"));
+    }
+
+    /**
+     * Verifies that a {@link ResourceNotFoundException} is thrown for missing resources.
+     *
+     * @throws Exception for any error
+     */
+    @Test(expected = ResourceNotFoundException.class)
+    public void testMissing() throws Exception
+    {
+        ResourceCache cache = createCache();
+        assertNull(cache.getResource("resources/missing"));
+        InputStream in = new CachedResourceManager(cache).getInputStream("missing");
+        in.close();
+    }
+
+    private ResourceCache createCache() throws Exception
+    {
+        URL root = temporaryFolder.getRoot().toURI().toURL();
+        return new ResourceCache(new URLClassLoader(new URL[]{root}, null));
+    }
+}
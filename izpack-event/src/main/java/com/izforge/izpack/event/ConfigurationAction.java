@@ -54,10 +54,7 @@ public class ConfigurationAction extends ActionBase
     public void performInstallAction() throws Exception
     {
         logger.fine("Found " + actionTasks.size() + " configuration tasks");
-        for (ConfigurationActionTask task : actionTasks)
-        {
-            task.execute();
-        }
+        ConfigurationActionTask.execute(actionTasks);
     }
 
     public List<ConfigurationActionTask> getActionTasks()
@@ -21,9 +21,13 @@
 
 package com.izforge.izpack.event;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.util.config.ConfigFileTask;
+import com.izforge.izpack.util.config.ConfigFileTaskPlan;
 import com.izforge.izpack.util.config.ConfigurableTask;
 
 
@@ -65,14 +69,73 @@ public class ConfigurationActionTask
 
     public void execute() throws Exception
     {
-        if (condition == null || condition.trim().length() == 0 || rules.isConditionTrue(condition))
+        if (isConditionTrue())
         {
             logger.fine("Executing configuration task class " + task.getClass().getName());
             this.task.execute();
         }
-        else
+    }
+
+    /**
+     * Executes a sequence of tasks.
+     * <p/>
+     * Consecutive configuration file tasks are executed by a {@link ConfigFileTaskPlan}, so that each file is
+     * written once, and distinct files are updated concurrently. Their conditions are evaluated before any of
+     * them are executed. Other tasks are executed in order.
+     *
+     * @param tasks the tasks to execute
+     * @throws Exception for any error
+     */
+    public static void execute(List<ConfigurationActionTask> tasks) throws Exception
+    {
+        List<ConfigFileTask> fileTasks = new ArrayList<ConfigFileTask>();
+        for (ConfigurationActionTask task : tasks)
+        {
+            if (task.getConfigurableTask() instanceof ConfigFileTask)
+            {
+                if (task.isConditionTrue())
+                {
+                    fileTasks.add((ConfigFileTask) task.getConfigurableTask());
+                }
+            }
+            else
+            {
+                execute(fileTasks, tasks.size());
+                task.execute();
+            }
+        }
+        execute(fileTasks, tasks.size());
+    }
+
+    /**
+     * Executes and clears pending configuration file tasks.
+     *
+     * @param fileTasks the tasks
+     * @param total     the total no. of tasks, for logging
+     * @throws Exception for any error
+     */
+    private static void execute(List<ConfigFileTask> fileTasks, int total) throws Exception
+    {
+        if (!fileTasks.isEmpty())
+        {
+            logger.fine("Executing " + fileTasks.size() + " of " + total + " configuration tasks as a batch");
+            new ConfigFileTaskPlan().execute(fileTasks);
+            fileTasks.clear();
+        }
+    }
+
+    /**
+     * Determines if the task condition is met.
+     *
+     * @return {@code true} if there is no condition, or it evaluates {@code true}
+     */
+    private boolean isConditionTrue()
+    {
+        if (condition == null || condition.trim().length() == 0 || rules.isConditionTrue(condition))
         {
-            logger.fine("Condition " + condition + " not met - skipping configuration task class " + task.getClass().getName());
+            return true;
         }
+        logger.fine("Condition " + condition + " not met - skipping configuration task class " + task.getClass().getName());
+        return false;
     }
 }
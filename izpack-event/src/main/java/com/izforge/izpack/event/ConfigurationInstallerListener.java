@@ -313,26 +313,35 @@ public class ConfigurationInstallerListener extends AbstractProgressInstallerLis
             return;
         }
 
-        logger.fine("Executing all " + order + " configuration actions for " + packName + " ...");
-        for (ConfigurationAction act : actList)
+        // Inform progress bar if needed. Works only on AFTER_PACKS
+        if (notifyProgress() && order.equals(ActionBase.AFTERPACKS))
         {
-            // Inform progress bar if needed. Works only on AFTER_PACKS
-            if (notifyProgress() && order.equals(ActionBase.AFTERPACKS))
+            // in this mode the actions are reported rather than performed, so no message is separated from its work
+            for (ConfigurationAction act : actList)
             {
                 listener.progress((act.getMessageID() != null) ? getMessage(act.getMessageID()) : "");
             }
-            else
+            return;
+        }
+
+        logger.fine("Executing all " + order + " configuration actions for " + packName + " ...");
+        // the tasks of all actions are executed together, so that each configuration file is written once
+        List<ConfigurationActionTask> tasks = new ArrayList<ConfigurationActionTask>();
+        for (ConfigurationAction act : actList)
+        {
+            if (act.getActionTasks() != null)
             {
-                try
-                {
-                    act.performInstallAction();
-                }
-                catch (Exception e)
-                {
-                    throw new InstallerException(e);
-                }
+                tasks.addAll(act.getActionTasks());
             }
         }
+        try
+        {
+            ConfigurationActionTask.execute(tasks);
+        }
+        catch (Exception e)
+        {
+            throw new InstallerException(e);
+        }
     }
 
     /**
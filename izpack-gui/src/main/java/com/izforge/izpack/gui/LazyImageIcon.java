@@ -0,0 +1,106 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.gui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.net.URL;
+
+/**
+ * An {@link ImageIcon} that loads its image from a URL the first time it is used, rather than on construction.
+ */
+public class LazyImageIcon extends ImageIcon
+{
+    private static final long serialVersionUID = -4127465217446398718L;
+
+    /**
+     * The image URL. {@code null} once the image is loaded.
+     */
+    private transient URL url;
+
+    /**
+     * Constructs a {@code LazyImageIcon}.
+     *
+     * @param url the image URL
+     */
+    public LazyImageIcon(URL url)
+    {
+        this.url = url;
+        setDescription(url.toExternalForm());
+    }
+
+    @Override
+    public Image getImage()
+    {
+        load();
+        return super.getImage();
+    }
+
+    @Override
+    public void setImage(Image image)
+    {
+        synchronized (this)
+        {
+            url = null;
+        }
+        super.setImage(image);
+    }
+
+    @Override
+    public int getImageLoadStatus()
+    {
+        load();
+        return super.getImageLoadStatus();
+    }
+
+    @Override
+    public int getIconWidth()
+    {
+        load();
+        return super.getIconWidth();
+    }
+
+    @Override
+    public int getIconHeight()
+    {
+        load();
+        return super.getIconHeight();
+    }
+
+    @Override
+    public synchronized void paintIcon(Component c, Graphics g, int x, int y)
+    {
+        load();
+        super.paintIcon(c, g, x, y);
+    }
+
+    /**
+     * Loads the image, if it hasn't already been loaded.
+     */
+    private synchronized void load()
+    {
+        if (url != null)
+        {
+            URL location = url;
+            url = null;
+            super.setImage(Toolkit.getDefaultToolkit().getImage(location));
+        }
+    }
+}
@@ -123,9 +123,20 @@ public class AutomatedInstaller implements InstallerBase
             }
             System.exit(0);
         }
-        if (inputFilename != null)
+        init(inputFilename != null ? new File(inputFilename) : null, mediaPath);
+    }
+
+    /**
+     * Initialize the automated installer, without checking that the installer has the required permissions.
+     *
+     * @param input     the file containing the installation data. May be <tt>null</tt>
+     * @param mediaPath the multi-volume media directory. May be <tt>null</tt>
+     * @throws IOException if the installation data cannot be read
+     */
+    public void init(File input, String mediaPath) throws IOException
+    {
+        if (input != null)
         {
-            File input = new File(inputFilename);
             IXMLElement installRecord = getXMLData(input);
             installData.setInstallationRecord(installRecord);
             String code = installRecord.getAttribute("langpack", "eng");
@@ -144,8 +155,6 @@ public class AutomatedInstaller implements InstallerBase
      */
     public void doInstall() throws Exception
     {
-        boolean success = false;
-
         // check installer conditions
         if (!requirements.check())
         {
@@ -154,6 +163,59 @@ public class AutomatedInstaller implements InstallerBase
             return;
         }
 
+        boolean success = false;
+        try
+        {
+            success = installPanels();
+        }
+        finally
+        {
+            // Bye
+            // FIXME !!! Reboot handling
+            boolean reboot = false;
+            if (installData.isRebootNecessary())
+            {
+                System.out.println("[ There are file operations pending after reboot ]");
+                switch (installData.getInfo().getRebootAction())
+                {
+                    case Info.REBOOT_ACTION_ALWAYS:
+                        reboot = true;
+                }
+                if (reboot)
+                {
+                    System.out.println("[ Rebooting now automatically ]");
+                }
+            }
+            housekeeper.shutDown(success ? 0 : 1, reboot);
+        }
+    }
+
+    /**
+     * Checks the installer requirements, and runs the automated installation logic for each panel in turn.
+     * <p/>
+     * Unlike {@link #doInstall()}, this doesn't shut down the JVM on completion.
+     *
+     * @return <tt>true</tt> if the installation was successful, otherwise <tt>false</tt>
+     */
+    public boolean install()
+    {
+        if (!requirements.check())
+        {
+            System.out.println("[ Automated installation FAILED! ]");
+            return false;
+        }
+        return installPanels();
+    }
+
+    /**
+     * Runs the automated installation logic for each panel in turn.
+     *
+     * @return <tt>true</tt> if the installation was successful, otherwise <tt>false</tt>
+     */
+    private boolean installPanels()
+    {
+        boolean success = false;
+
         // TODO: i18n
         System.out.println("[ Starting automated installation ]");
 
@@ -208,35 +270,16 @@ public class AutomatedInstaller implements InstallerBase
             System.err.println(e.toString());
             e.printStackTrace();
         }
-        finally
-        {
-            if (success)
-            {
-                System.out.println("[ Automated installation done ]");
-            }
-            else
-            {
-                System.out.println("[ Automated installation FAILED! ]");
-            }
 
-            // Bye
-            // FIXME !!! Reboot handling
-            boolean reboot = false;
-            if (installData.isRebootNecessary())
-            {
-                System.out.println("[ There are file operations pending after reboot ]");
-                switch (installData.getInfo().getRebootAction())
-                {
-                    case Info.REBOOT_ACTION_ALWAYS:
-                        reboot = true;
-                }
-                if (reboot)
-                {
-                    System.out.println("[ Rebooting now automatically ]");
-                }
-            }
-            housekeeper.shutDown(success ? 0 : 1, reboot);
+        if (success)
+        {
+            System.out.println("[ Automated installation done ]");
+        }
+        else
+        {
+            System.out.println("[ Automated installation FAILED! ]");
         }
+        return success;
     }
 
     /**
@@ -0,0 +1,71 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.automation;
+
+import java.util.logging.Logger;
+
+import com.izforge.izpack.util.Housekeeper;
+
+
+/**
+ * A {@link Housekeeper} for installations embedded in another application.
+ * <p/>
+ * This performs cleanup, but never terminates the JVM or reboots the system, as that is up to the application.
+ */
+public class EmbeddedHousekeeper extends Housekeeper
+{
+
+    /**
+     * The exit code of the installation, or {@code -1} if it hasn't been shut down.
+     */
+    private volatile int exitCode = -1;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(EmbeddedHousekeeper.class.getName());
+
+
+    /**
+     * Returns the exit code the installation was shut down with.
+     *
+     * @return the exit code, or {@code -1} if the installation hasn't been shut down
+     */
+    public int getExitCode()
+    {
+        return exitCode;
+    }
+
+    /**
+     * Records the exit code, rather than terminating the JVM.
+     *
+     * @param exitCode the exit code
+     * @param reboot   ignored
+     */
+    @Override
+    protected void terminate(int exitCode, boolean reboot)
+    {
+        if (this.exitCode == -1)
+        {
+            this.exitCode = exitCode;
+        }
+        logger.fine("Embedded installation shut down with exit code " + exitCode);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.automation;
+
+import java.io.File;
+import java.util.Properties;
+
+import com.izforge.izpack.api.data.AutomatedInstallData;
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.core.resource.ResourceCache;
+import com.izforge.izpack.installer.container.impl.AutomatedInstallerContainer;
+import com.izforge.izpack.util.Housekeeper;
+
+
+/**
+ * Runs automated installations embedded in another application.
+ * <p/>
+ * The installer resources are read once, and shared by all installations run by the engine. Each installation has
+ * its own container, and therefore its own installation data, variables and uninstallation data, so installations
+ * may run concurrently, provided they install into different locations. Installations never terminate the JVM.
+ * <p/>
+ * The installer jar must be available to the class loader supplied to the engine. As the logging configuration is
+ * global to the JVM, installations don't reconfigure logging; this is left to the application.
+ * <p/>
+ * Example:
+ * <pre>
+ * InstallerEngine engine = new InstallerEngine(new URLClassLoader(new URL[]{installerJar.toURI().toURL()}));
+ * Properties variables = new Properties();
+ * variables.setProperty(InstallData.INSTALL_PATH, tenantDir.getPath());
+ * boolean success = engine.install(new File("auto-install.xml"), variables);
+ * </pre>
+ */
+public class InstallerEngine
+{
+
+    /**
+     * The resources shared by the installations.
+     */
+    private final ResourceCache cache;
+
+
+    /**
+     * Constructs an {@code InstallerEngine} that loads the installer from the class loader of this class.
+     */
+    public InstallerEngine()
+    {
+        this(InstallerEngine.class.getClassLoader());
+    }
+
+    /**
+     * Constructs an {@code InstallerEngine}.
+     *
+     * @param loader the class loader to load the installer from
+     */
+    public InstallerEngine(ClassLoader loader)
+    {
+        cache = new ResourceCache(loader);
+    }
+
+    /**
+     * Runs an automated installation.
+     * <p/>
+     * This may be invoked concurrently by different threads.
+     *
+     * @param installRecord the installation record, as generated by a previous installation. If {@code null}, the
+     *                      panels are run with their default values
+     * @param variables     variables to set prior to installation, e.g. {@link InstallData#INSTALL_PATH}. May be
+     *                      {@code null}
+     * @return {@code true} if the installation was successful, otherwise {@code false}
+     * @throws Exception if the installer cannot be loaded, or the installation record cannot be read
+     */
+    public boolean install(File installRecord, Properties variables) throws Exception
+    {
+        AutomatedInstallerContainer container = new AutomatedInstallerContainer(cache);
+        EmbeddedHousekeeper housekeeper = (EmbeddedHousekeeper) container.getComponent(Housekeeper.class);
+        boolean success = false;
+        try
+        {
+            AutomatedInstallData installData = container.getComponent(AutomatedInstallData.class);
+            installData.setVariable(InstallData.EMBEDDED_INSTALLATION, Boolean.TRUE.toString());
+            if (variables != null)
+            {
+                for (String name : variables.stringPropertyNames())
+                {
+                    installData.setVariable(name, variables.getProperty(name));
+                }
+            }
+
+            AutomatedInstaller installer = container.getComponent(AutomatedInstaller.class);
+            installer.init(installRecord, null);
+            // a shut down during installation indicates failure
+            success = installer.install() && housekeeper.getExitCode() == -1;
+        }
+        finally
+        {
+            housekeeper.shutDown(success ? 0 : 1);
+            container.dispose();
+        }
+        return success;
+    }
+}
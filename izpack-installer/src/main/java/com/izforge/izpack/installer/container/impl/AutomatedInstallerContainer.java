@@ -24,12 +24,17 @@ package com.izforge.izpack.installer.container.impl;
 
 import com.izforge.izpack.api.exception.ContainerException;
 import com.izforge.izpack.core.handler.AutomatedPrompt;
+import com.izforge.izpack.core.resource.CachedResourceManager;
+import com.izforge.izpack.core.resource.ResourceCache;
+import com.izforge.izpack.core.resource.ResourceManager;
 import com.izforge.izpack.installer.automation.AutomatedInstaller;
+import com.izforge.izpack.installer.automation.EmbeddedHousekeeper;
 import com.izforge.izpack.installer.console.ConsolePanelAutomationHelper;
 import com.izforge.izpack.installer.container.provider.AutomatedInstallDataProvider;
 import com.izforge.izpack.installer.container.provider.AutomatedPanelsProvider;
 import com.izforge.izpack.installer.multiunpacker.MultiVolumeUnpackerAutomationHelper;
 import com.izforge.izpack.installer.unpacker.ConsolePackResources;
+import com.izforge.izpack.util.Housekeeper;
 import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.injectors.ProviderAdapter;
 
@@ -41,6 +46,12 @@ import org.picocontainer.injectors.ProviderAdapter;
 public class AutomatedInstallerContainer extends InstallerContainer
 {
 
+    /**
+     * The resources shared with other installations in the same JVM, or <tt>null</tt> if the installation isn't
+     * embedded.
+     */
+    private final ResourceCache cache;
+
     /**
      * Constructs a <tt>AutomatedInstallerContainer</tt>.
      *
@@ -48,6 +59,21 @@ public class AutomatedInstallerContainer extends InstallerContainer
      */
     public AutomatedInstallerContainer()
     {
+        this.cache = null;
+        initialise();
+    }
+
+    /**
+     * Constructs a <tt>AutomatedInstallerContainer</tt> for an installation embedded in another application.
+     * <p/>
+     * Resources are read via the shared cache, and the housekeeper doesn't terminate the JVM.
+     *
+     * @param cache the resources shared with other installations
+     * @throws ContainerException if initialisation fails
+     */
+    public AutomatedInstallerContainer(ResourceCache cache)
+    {
+        this.cache = cache;
         initialise();
     }
 
@@ -61,6 +87,7 @@ public class AutomatedInstallerContainer extends InstallerContainer
      */
     protected AutomatedInstallerContainer(MutablePicoContainer container)
     {
+        this.cache = null;
         initialise(container);
     }
 
@@ -84,5 +111,13 @@ public class AutomatedInstallerContainer extends InstallerContainer
                 .addComponent(ConsolePanelAutomationHelper.class)
                 .addComponent(ConsolePackResources.class)
                 .addComponent(MultiVolumeUnpackerAutomationHelper.class);
+
+        if (cache != null)
+        {
+            container.removeComponent(ResourceManager.class);
+            container.addComponent(ResourceManager.class, new CachedResourceManager(cache));
+            container.removeComponent(Housekeeper.class);
+            container.addComponent(Housekeeper.class, new EmbeddedHousekeeper());
+        }
     }
 }
@@ -22,6 +22,8 @@ public class AutomatedInstallDataProvider extends AbstractInstallDataProvider
             throws IOException, ClassNotFoundException, InstallerException
     {
         AutomatedInstallData automatedInstallData = new InstallData(variables, matcher.getCurrentPlatform());
+        // recorded per installation, as several automated installations may run in the same JVM
+        automatedInstallData.setVariable(InstallData.AUTOMATED_INSTALLATION, Boolean.TRUE.toString());
         // Loads the installation data
         loadInstallData(automatedInstallData, resources, matcher, housekeeper);
         loadInstallerRequirements(automatedInstallData, resources);
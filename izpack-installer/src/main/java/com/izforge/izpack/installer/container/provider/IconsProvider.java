@@ -14,6 +14,7 @@ import com.izforge.izpack.api.adaptator.IXMLParser;
 import com.izforge.izpack.api.adaptator.impl.XMLParser;
 import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.gui.IconsDatabase;
+import com.izforge.izpack.gui.LazyImageIcon;
 import com.izforge.izpack.installer.gui.InstallerFrame;
 
 /**
@@ -110,6 +111,8 @@ public class IconsProvider implements Provider
 
     /**
      * Loads an icon declared in an XML file.
+     * <p/>
+     * The image is read the first time the icon is used.
      *
      * @param icon
      *            the XML element that declares the icon
@@ -127,7 +130,7 @@ public class IconsProvider implements Provider
         }
         else
         {
-            img = new ImageIcon(url);
+            img = new LazyImageIcon(url);
             logger.fine("Icon with id '" + id + "' found");
         }
         return img;
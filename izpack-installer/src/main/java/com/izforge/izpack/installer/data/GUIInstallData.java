@@ -22,6 +22,7 @@ package com.izforge.izpack.installer.data;
 import java.awt.Color;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.swing.UIManager;
@@ -58,6 +59,11 @@ public class GUIInstallData extends InstallData implements Serializable
      */
     private List<IzPanel> panels = new ArrayList<IzPanel>();
 
+    /**
+     * The panels that have been constructed.
+     */
+    private Collection<IzPanel> createdPanels = panels;
+
 
     public GUIInstallData(Variables variables, Platform platform)
     {
@@ -86,4 +92,43 @@ public class GUIInstallData extends InstallData implements Serializable
     {
         return panels;
     }
+
+    /**
+     * Returns the panels that have been constructed, in installation order.
+     * <p/>
+     * Unlike iterating {@link #getPanels()}, this doesn't construct panels.
+     *
+     * @return the constructed panels
+     */
+    public Collection<IzPanel> getCreatedPanels()
+    {
+        return createdPanels;
+    }
+
+    /**
+     * Sets the panels.
+     * <p/>
+     * The list may construct panels on demand, but must have an entry for each panel in the installation,
+     * in installation order.
+     *
+     * @param panels the panels
+     */
+    public void setPanels(List<IzPanel> panels)
+    {
+        setPanels(panels, panels);
+    }
+
+    /**
+     * Sets the panels.
+     *
+     * @param panels  the panels. The list may construct panels on demand, but must have an entry for each panel
+     *                in the installation, in installation order
+     * @param created the panels that have been constructed, in installation order. Iterating this must not
+     *                construct panels
+     */
+    public void setPanels(List<IzPanel> panels, Collection<IzPanel> created)
+    {
+        this.panels = panels;
+        this.createdPanels = created;
+    }
 }
@@ -0,0 +1,229 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.data;
+
+import com.izforge.izpack.api.exception.IzPackException;
+import com.izforge.izpack.util.file.FrontCodedPathReader;
+import com.izforge.izpack.util.file.FrontCodedPathWriter;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+
+/**
+ * An append-only log of paths, spooled to a temporary file in the {@link FrontCodedPathWriter} format.
+ * <p/>
+ * This avoids holding every installed path in memory for large installations. The temporary file is created
+ * on the first append, and removed by {@link #delete()}. A subsequent append starts a new log.
+ */
+public class PathLog
+{
+
+    /**
+     * The temporary file prefix.
+     */
+    private final String prefix;
+
+    /**
+     * The temporary file. May be <tt>null</tt>.
+     */
+    private File file;
+
+    /**
+     * The writer. May be <tt>null</tt>.
+     */
+    private FrontCodedPathWriter writer;
+
+    /**
+     * The reader, opened on demand after the log has been flushed. May be <tt>null</tt>.
+     */
+    private FrontCodedPathReader reader;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(PathLog.class.getName());
+
+
+    /**
+     * Constructs a <tt>PathLog</tt>.
+     *
+     * @param prefix the temporary file prefix
+     */
+    public PathLog(String prefix)
+    {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Appends a path.
+     *
+     * @param path the path
+     * @throws IzPackException if the path cannot be written
+     */
+    public synchronized void add(String path)
+    {
+        try
+        {
+            if (writer == null)
+            {
+                file = File.createTempFile(prefix, ".log");
+                writer = new FrontCodedPathWriter(new BufferedOutputStream(new FileOutputStream(file)));
+            }
+            closeReader();
+            writer.write(path);
+        }
+        catch (IOException exception)
+        {
+            throw new IzPackException("Failed to log path: " + path, exception);
+        }
+    }
+
+    /**
+     * Returns the no. of paths in the log.
+     *
+     * @return the no. of paths
+     */
+    public synchronized int size()
+    {
+        return (writer != null) ? (int) writer.getCount() : 0;
+    }
+
+    /**
+     * Returns a read-only view of the paths, in the order they were added.
+     * <p/>
+     * The view reflects the paths logged at the time of the call.
+     *
+     * @return the paths
+     * @throws IzPackException if the log cannot be read
+     */
+    public synchronized List<String> getPaths()
+    {
+        if (writer == null)
+        {
+            return Collections.emptyList();
+        }
+        final int size = size();
+        return new AbstractList<String>()
+        {
+            @Override
+            public String get(int index)
+            {
+                if (index >= size)
+                {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                synchronized (PathLog.this)
+                {
+                    try
+                    {
+                        return getReader().get(index);
+                    }
+                    catch (IOException exception)
+                    {
+                        throw new IzPackException("Failed to read path log: " + file, exception);
+                    }
+                }
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Writes the log, in {@link FrontCodedPathWriter} format.
+     *
+     * @param out the stream to write to
+     * @throws IOException for any I/O error
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException
+    {
+        if (writer == null)
+        {
+            new FrontCodedPathWriter(out).flush();
+        }
+        else
+        {
+            writer.flush();
+            FileUtils.copyFile(file, out);
+        }
+    }
+
+    /**
+     * Closes and deletes the temporary file.
+     */
+    public synchronized void delete()
+    {
+        closeReader();
+        IOUtils.closeQuietly(writer);
+        writer = null;
+        if (file != null && !file.delete())
+        {
+            logger.fine("Failed to delete: " + file);
+        }
+        file = null;
+    }
+
+    /**
+     * Returns a reader for the paths logged so far.
+     *
+     * @return the reader
+     * @throws IzPackException if the log cannot be read
+     */
+    private FrontCodedPathReader getReader()
+    {
+        if (reader == null)
+        {
+            try
+            {
+                writer.flush();
+                reader = new FrontCodedPathReader(file);
+            }
+            catch (IOException exception)
+            {
+                throw new IzPackException("Failed to read path log: " + file, exception);
+            }
+        }
+        return reader;
+    }
+
+    /**
+     * Closes the reader, if it is open.
+     */
+    private void closeReader()
+    {
+        IOUtils.closeQuietly(reader);
+        reader = null;
+    }
+
+}
@@ -21,6 +21,8 @@ package com.izforge.izpack.installer.data;
 
 import com.izforge.izpack.data.CustomData;
 import com.izforge.izpack.api.data.ExecutableFile;
+import com.izforge.izpack.util.CleanupClient;
+import com.izforge.izpack.util.Housekeeper;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -32,18 +34,18 @@ import java.util.Map;
  *
  * @author Julien Ponge created October 27, 2002
  */
-public class UninstallData
+public class UninstallData implements CleanupClient
 {
 
     /**
-     * The installed files list.
+     * The installed files log.
      */
-    private List<String> installedFilesList;
+    private final PathLog installedFiles;
 
     /**
-     * The uninstallable files list.
+     * The uninstallable files log.
      */
-    private List<String> uninstallableFilesList;
+    private final PathLog uninstallableFiles;
 
     /**
      * The executables list.
@@ -90,13 +92,24 @@ public class UninstallData
      */
     public UninstallData()
     {
-        installedFilesList = new ArrayList<String>();
-        uninstallableFilesList = new ArrayList<String>();
+        installedFiles = new PathLog("izpack-installed");
+        uninstallableFiles = new PathLog("izpack-uninstall");
         executablesList = new ArrayList<ExecutableFile>();
         additionalData = new HashMap<String, Object>();
         unInstallScripts = new ArrayList<String>();
     }
 
+    /**
+     * Constructs an <tt>UninstallData</tt> whose file logs are deleted when the installer shuts down.
+     *
+     * @param housekeeper the house keeper
+     */
+    public UninstallData(Housekeeper housekeeper)
+    {
+        this();
+        housekeeper.registerForCleanup(this);
+    }
+
     /**
      * Constant RootFiles = "rootfiles"
      */
@@ -112,32 +125,62 @@ public class UninstallData
     {
         if (path != null)
         {
-            installedFilesList.add(path);
+            installedFiles.add(path);
             if (uninstall)
             {
-                uninstallableFilesList.add(path);
+                uninstallableFiles.add(path);
             }
         }
     }
 
     /**
      * Returns the installed files list.
+     * <p/>
+     * This is a read-only view of the files installed at the time of the call, read on demand from the installed
+     * files log.
      *
      * @return The installed files list.
      */
     public List<String> getInstalledFilesList()
     {
-        return installedFilesList;
+        return installedFiles.getPaths();
     }
 
     /**
      * Returns the uninstallable files list.
+     * <p/>
+     * This is a read-only view of the uninstallable files at the time of the call, read on demand from the
+     * uninstallable files log.
      *
      * @return The uninstallable files list.
      */
     public List<String> getUninstalableFilesList()
     {
-        return uninstallableFilesList;
+        return uninstallableFiles.getPaths();
+    }
+
+    /**
+     * Returns the uninstallable files log.
+     * <p/>
+     * This may be used to stream the uninstallable files without reading them.
+     *
+     * @return the uninstallable files log
+     */
+    public PathLog getUninstallableFilesLog()
+    {
+        return uninstallableFiles;
+    }
+
+    /**
+     * Deletes the temporary files holding the installed and uninstallable file logs.
+     * <p/>
+     * Files added subsequently are written to new logs.
+     */
+    @Override
+    public synchronized void cleanUp()
+    {
+        installedFiles.delete();
+        uninstallableFiles.delete();
     }
 
     /**
@@ -1,16 +1,22 @@
 package com.izforge.izpack.installer.data;
 
 import com.izforge.izpack.api.data.AutomatedInstallData;
+import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.merge.Mergeable;
+import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.data.CustomData;
 import com.izforge.izpack.api.data.ExecutableFile;
 import com.izforge.izpack.merge.resolve.PathResolver;
 import com.izforge.izpack.util.IoHelper;
+import com.izforge.izpack.util.file.RawZipMerger;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +60,45 @@ public class UninstallDataWriter
      */
     private final RulesEngine rules;
 
+    /**
+     * The resources.
+     */
+    private final Resources resources;
+
+    /**
+     * The prebuilt uninstaller skeleton, or <tt>null</tt> if the installer doesn't include one.
+     */
+    private File skeleton;
+
+    /**
+     * The jar holding the install specific entries, when a prebuilt skeleton is used.
+     */
+    private File dataJar;
+
+    /**
+     * The packages merged into every uninstaller. These are merged into the prebuilt uninstaller skeleton when the
+     * installer is compiled, or into the uninstaller at installation if there is no skeleton.
+     */
+    public static final List<String> UNINSTALLER_PATHS = Collections.unmodifiableList(Arrays.asList(
+            "com/izforge/izpack/uninstaller/",
+            "com/izforge/izpack/api/",
+            "com/izforge/izpack/data/",
+            "com/izforge/izpack/core/",
+            "com/izforge/izpack/util/",
+            "com/izforge/izpack/logging/",
+            "com/izforge/izpack/gui/",
+            "com/izforge/izpack/img/",
+            "org/picocontainer/",
+            "org/apache/commons/io/",
+            //required by console uninstaller
+            "jline/",
+            "org/fusesource/"));
+
+    /**
+     * The prebuilt uninstaller skeleton resource.
+     */
+    public static final String UNINSTALLER_SKELETON = "uninstaller-skeleton.jar";
+
     /**
      * The logger.
      */
@@ -64,6 +109,11 @@ public class UninstallDataWriter
      */
     private static final String LOGFILE_PATH = "InstallerFrame.logfilePath";
 
+    /**
+     * The installed files resource, in {@link com.izforge.izpack.util.file.FrontCodedPathWriter} format.
+     */
+    private static final String INSTALL_FILES = "install.files";
+
     /**
      * Constructs an <tt>UninstallDataWriter</tt>.
      *
@@ -71,14 +121,16 @@ public class UninstallDataWriter
      * @param installData   the install data
      * @param pathResolver  the path resolver
      * @param rules         the rules engine
+     * @param resources     the resources
      */
     public UninstallDataWriter(UninstallData uninstallData, AutomatedInstallData installData, PathResolver pathResolver,
-                               RulesEngine rules)
+                               RulesEngine rules, Resources resources)
     {
         this.uninstallData = uninstallData;
         this.installData = installData;
         this.pathResolver = pathResolver;
         this.rules = rules;
+        this.resources = resources;
     }
 
     /**
@@ -100,6 +152,8 @@ public class UninstallDataWriter
 
     /**
      * Writes the uninstall data.
+     * <p/>
+     * On completion, the file logs held by the uninstall data are deleted.
      *
      * @return <tt>true</tt> if uninstall data was successfully written, otherwise <tt>false</tt>
      */
@@ -124,6 +178,10 @@ public class UninstallDataWriter
             writeScriptFiles();
 
             jar.close();
+            if (skeleton != null)
+            {
+                mergeSkeleton();
+            }
             result = true;
         }
         catch (Throwable t)
@@ -131,6 +189,11 @@ public class UninstallDataWriter
             logger.log(Level.SEVERE, t.getMessage(), t);
             destroyJar(); // don't keep the jar - it may be incomplete or corrupted
         }
+        finally
+        {
+            deleteTempFiles();
+            uninstallData.cleanUp();
+        }
         return result;
     }
 
@@ -178,6 +241,8 @@ public class UninstallDataWriter
 
     /**
      * Writes the uninstaller skeleton.
+     * <p/>
+     * If the installer includes a prebuilt skeleton, this only merges the install specific classes and resources.
      *
      * @throws IOException for any I/O error
      * @throws com.izforge.izpack.api.exception.IzPackException
@@ -185,21 +250,15 @@ public class UninstallDataWriter
      */
     private void writeJarSkeleton() throws IOException
     {
-        List<Mergeable> uninstallerMerge = pathResolver.getMergeableFromPath("com/izforge/izpack/uninstaller/");
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("uninstaller-META-INF/", "META-INF/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("com/izforge/izpack/api/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("com/izforge/izpack/data/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("com/izforge/izpack/core/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("com/izforge/izpack/util/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("com/izforge/izpack/logging/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("com/izforge/izpack/gui/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("com/izforge/izpack/img/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("org/picocontainer/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("org/apache/commons/io/"));
-
-        //required by console uninstaller
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("jline/"));
-        uninstallerMerge.addAll(pathResolver.getMergeableFromPath("org/fusesource/"));
+        List<Mergeable> uninstallerMerge = new ArrayList<Mergeable>();
+        if (skeleton == null)
+        {
+            uninstallerMerge.addAll(pathResolver.getMergeableFromPath("uninstaller-META-INF/", "META-INF/"));
+            for (String path : UNINSTALLER_PATHS)
+            {
+                uninstallerMerge.addAll(pathResolver.getMergeableFromPath(path));
+            }
+        }
 
         if (!uninstallData.getUninstallerListeners().isEmpty())
         {
@@ -254,51 +313,41 @@ public class UninstallDataWriter
 
     /**
      * Writes the file log.
+     * <p/>
+     * The <em>install.log</em> entry holds the installation path. The uninstallable files are copied from the
+     * {@link PathLog} to the <em>install.files</em> entry as is, so they are never held in memory.
      *
      * @param extLogWriter the external log writer. May be <tt>null</tt>
      * @throws IOException for any I/O error
      */
     private void writeFilesLog(BufferedWriter extLogWriter) throws IOException
     {
-        List<String> files = uninstallData.getUninstalableFilesList();
-
         jar.putNextEntry(new JarEntry("install.log"));
         BufferedWriter logWriter = new BufferedWriter(new OutputStreamWriter(jar));
         logWriter.write(installData.getInstallPath());
         logWriter.newLine();
-        Iterator<String> iter = files.iterator();
+        logWriter.flush();
+        jar.closeEntry();
+
+        jar.putNextEntry(new JarEntry(INSTALL_FILES));
+        uninstallData.getUninstallableFilesLog().writeTo(jar);
+        jar.closeEntry();
+
         if (extLogWriter != null)
         {
-            // Write intern (in uninstaller.jar) and extern log file.
+            // Write the extern log file.
+            Iterator<String> iter = uninstallData.getUninstalableFilesList().iterator();
             while (iter.hasNext())
             {
-                String txt = iter.next();
-                logWriter.write(txt);
-                extLogWriter.write(txt);
+                extLogWriter.write(iter.next());
                 if (iter.hasNext())
                 {
-                    logWriter.newLine();
                     extLogWriter.newLine();
                 }
             }
-            logWriter.flush();
             extLogWriter.flush();
             extLogWriter.close();
         }
-        else
-        {
-            while (iter.hasNext())
-            {
-                String txt = iter.next();
-                logWriter.write(txt);
-                if (iter.hasNext())
-                {
-                    logWriter.newLine();
-                }
-            }
-            logWriter.flush();
-        }
-        jar.closeEntry();
     }
 
     /**
@@ -480,6 +529,9 @@ public class UninstallDataWriter
 
     /**
      * Creates the uninstaller jar file.
+     * <p/>
+     * If the installer includes a prebuilt skeleton, the install specific entries are written to a temporary jar,
+     * to be merged with the skeleton by {@link #mergeSkeleton()}.
      *
      * @throws IOException for any I/O error
      */
@@ -499,12 +551,90 @@ public class UninstallDataWriter
         uninstallData.setUninstallerPath(dirPath);
 
         // Create the jar file
-        jarStream = new FileOutputStream(jarPath);
+        skeleton = getSkeleton();
+        if (skeleton != null)
+        {
+            dataJar = File.createTempFile("uninstaller", ".jar");
+            jarStream = new FileOutputStream(dataJar);
+        }
+        else
+        {
+            jarStream = new FileOutputStream(jarPath);
+        }
         jar = new JarOutputStream(new BufferedOutputStream(jarStream));
         jar.setLevel(9);
+        if (skeleton != null)
+        {
+            // prevent the skeleton entries from being merged again
+            pathResolver.addMergedEntries(jar, RawZipMerger.getEntryNames(skeleton));
+        }
         uninstallData.addFile(jarPath, true);
     }
 
+    /**
+     * Extracts the prebuilt uninstaller skeleton to a temporary file.
+     *
+     * @return the skeleton, or <tt>null</tt> if the installer doesn't include one
+     * @throws IOException for any I/O error
+     */
+    private File getSkeleton() throws IOException
+    {
+        InputStream in;
+        try
+        {
+            in = resources.getInputStream(UNINSTALLER_SKELETON);
+        }
+        catch (ResourceNotFoundException exception)
+        {
+            return null;
+        }
+        File file = File.createTempFile("uninstaller-skeleton", ".jar");
+        try
+        {
+            FileUtils.copyInputStreamToFile(in, file);
+        }
+        catch (IOException exception)
+        {
+            FileUtils.deleteQuietly(file);
+            throw exception;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+        return file;
+    }
+
+    /**
+     * Writes the uninstaller jar by copying the entries of the prebuilt skeleton and the install specific jar
+     * as is.
+     *
+     * @throws IOException for any I/O error
+     */
+    private void mergeSkeleton() throws IOException
+    {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(uninstallData.getUninstallerJarFilename()));
+        try
+        {
+            RawZipMerger.merge(Arrays.asList(skeleton, dataJar), out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Deletes the temporary files used when merging a prebuilt skeleton.
+     */
+    private void deleteTempFiles()
+    {
+        FileUtils.deleteQuietly(skeleton);
+        FileUtils.deleteQuietly(dataJar);
+        skeleton = null;
+        dataJar = null;
+    }
+
     /**
      * Destroys the uninstaller jar when it cannot be written.
      */
@@ -37,6 +37,11 @@ import java.awt.*;
  */
 public class IzPanelView extends AbstractPanelView<IzPanel>
 {
+    /**
+     * The panels to notify when the view is created. May be {@code null}
+     */
+    private IzPanels panels;
+
     /**
      * Constructs a {@code IzPanelView}.
      *
@@ -49,6 +54,16 @@ public class IzPanelView extends AbstractPanelView<IzPanel>
         super(panel, IzPanel.class, factory, installData);
     }
 
+    /**
+     * Sets the panels to notify when the view is created.
+     *
+     * @param panels the panels. May be {@code null}
+     */
+    void setPanels(IzPanels panels)
+    {
+        this.panels = panels;
+    }
+
     /**
      * Determines if the panel is valid.
      *
@@ -92,6 +107,10 @@ public class IzPanelView extends AbstractPanelView<IzPanel>
     {
         setVisible(true);
         view.setHelpUrl(panel.getHelpUrl(installData.getLocaleISO3()));
+        if (panels != null)
+        {
+            panels.created(this, view);
+        }
     }
 
     /**
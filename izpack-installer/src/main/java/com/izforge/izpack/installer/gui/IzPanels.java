@@ -22,14 +22,35 @@
 package com.izforge.izpack.installer.gui;
 
 import com.izforge.izpack.api.container.Container;
+import com.izforge.izpack.api.exception.IzPackException;
 import com.izforge.izpack.installer.data.GUIInstallData;
 import com.izforge.izpack.installer.panel.AbstractPanels;
 
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 
 /**
  * Implementation of {@link AbstractPanels} for {@link IzPanel}.
+ * <p/>
+ * {@link IzPanel}s are constructed on demand. Only the first panel is constructed on initialisation; when a panel
+ * is switched to, the classes of the panels following it are loaded in a background thread, and the panels are
+ * then constructed on the event dispatch thread, so that they are ready by the time the user navigates to them.
+ * <p/>
+ * Every panel is registered with the container on initialisation, so that it may be retrieved by its identifier
+ * before it has been constructed.
  *
  * @author Tim Anderson
  */
@@ -55,6 +76,26 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
      */
     private boolean isBack = false;
 
+    /**
+     * The views that have been created, keyed on panel index.
+     */
+    private final ConcurrentSkipListMap<Integer, IzPanel> views = new ConcurrentSkipListMap<Integer, IzPanel>();
+
+    /**
+     * The executor used to load the classes of upcoming panels. Created on demand.
+     */
+    private ExecutorService prewarmer;
+
+    /**
+     * The no. of panels to construct ahead of the current panel.
+     */
+    private static final int PREWARM_PANELS = 2;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(IzPanels.class.getName());
+
     /**
      * Constructs a {@code IzPanels}.
      *
@@ -67,24 +108,44 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
         super(panels, installData);
         this.container = container;
         this.installData = installData;
+        for (IzPanelView panel : panels)
+        {
+            panel.setPanels(this);
+        }
     }
 
     /**
      * Initialises the {@link IzPanel} instances.
+     * <p/>
+     * This constructs the first panel, and starts constructing those following it. The remaining panels are
+     * constructed when they are first accessed.
      */
     public void initialise()
     {
-        for (IzPanelView panel : getPanelViews())
+        // need to defer creation of the IzPanel until after the InstallerFrame is constructed
+        installData.setPanels(new PanelList(), Collections.unmodifiableCollection(views.values()));
+        List<IzPanelView> panels = getPanelViews();
+        for (final IzPanelView panel : panels)
         {
-            // need to defer creation of the IzPanel until after the InstallerFrame is constructed
-            IzPanel view = panel.getView();
-            installData.getPanels().add(view);
+            Class<IzPanel> type = container.getClass(panel.getPanel().getClassName(), IzPanel.class);
             String panelId = panel.getPanelId();
             if (panelId == null)
             {
-                panelId = view.getClass().getName();
+                panelId = type.getName();
             }
-            container.addComponent(panelId, view);
+            container.addComponent(panelId, type, new Callable<IzPanel>()
+            {
+                @Override
+                public IzPanel call()
+                {
+                    return getView(panel);
+                }
+            });
+        }
+        if (!panels.isEmpty())
+        {
+            panels.get(0).getView();
+            prewarm(0);
         }
     }
 
@@ -133,7 +194,217 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
         {
             isBack = false;
         }
+        if (result)
+        {
+            prewarm(newPanel.getIndex());
+        }
         return result;
     }
 
+    /**
+     * Invoked by an {@link IzPanelView} when its view is created.
+     *
+     * @param panel the panel
+     * @param view  the view
+     */
+    void created(IzPanelView panel, IzPanel view)
+    {
+        views.put(panel.getIndex(), view);
+    }
+
+    /**
+     * Determines if the view of a panel has been created.
+     *
+     * @param panel the panel
+     * @return {@code true} if the view has been created
+     */
+    boolean isCreated(IzPanelView panel)
+    {
+        return views.containsKey(panel.getIndex());
+    }
+
+    /**
+     * Constructs the panels following a panel, if they haven't already been constructed.
+     * <p/>
+     * The panel classes are loaded in a background thread. The panels themselves are constructed on the event
+     * dispatch thread, once the classes are loaded.
+     *
+     * @param index the index of the panel
+     */
+    private void prewarm(int index)
+    {
+        List<IzPanelView> panels = getPanelViews();
+        final List<IzPanelView> pending = new ArrayList<IzPanelView>();
+        for (int i = index + 1; i < panels.size() && pending.size() < PREWARM_PANELS; ++i)
+        {
+            IzPanelView panel = panels.get(i);
+            if (!isCreated(panel))
+            {
+                pending.add(panel);
+            }
+        }
+        if (pending.isEmpty())
+        {
+            return;
+        }
+
+        getPrewarmer().execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (IzPanelView panel : pending)
+                {
+                    String className = panel.getPanel().getClassName();
+                    try
+                    {
+                        Class.forName(className, true, IzPanels.class.getClassLoader());
+                    }
+                    catch (Throwable exception)
+                    {
+                        logger.log(Level.FINE, "Failed to load panel class " + className, exception);
+                    }
+                }
+                SwingUtilities.invokeLater(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for (IzPanelView panel : pending)
+                        {
+                            if (!isCreated(panel))
+                            {
+                                try
+                                {
+                                    panel.getView();
+                                }
+                                catch (Exception exception)
+                                {
+                                    // the failure will be reported if the panel is displayed
+                                    logger.log(Level.FINE, "Failed to construct panel " + panel.getPanelId(),
+                                               exception);
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns the executor used to load the classes of upcoming panels, creating it if required.
+     * <p/>
+     * This uses a single daemon thread, so it never prevents the installer from exiting.
+     *
+     * @return the executor
+     */
+    private synchronized ExecutorService getPrewarmer()
+    {
+        if (prewarmer == null)
+        {
+            prewarmer = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "IzPanels prewarm");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return prewarmer;
+    }
+
+    /**
+     * Returns the view of a panel, creating it on the event dispatch thread if required.
+     *
+     * @param panel the panel
+     * @return the view
+     * @throws IzPackException if the view cannot be created
+     */
+    private IzPanel getView(final IzPanelView panel)
+    {
+        if (isCreated(panel) || SwingUtilities.isEventDispatchThread())
+        {
+            return panel.getView();
+        }
+        final IzPanel[] result = new IzPanel[1];
+        try
+        {
+            SwingUtilities.invokeAndWait(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    result[0] = panel.getView();
+                }
+            });
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new IzPackException(exception);
+        }
+        catch (InvocationTargetException exception)
+        {
+            throw new IzPackException(exception.getCause());
+        }
+        return result[0];
+    }
+
+    /**
+     * A list of the {@link IzPanel}s, in installation order, that constructs them on demand.
+     * <p/>
+     * Searching the list doesn't construct panels, as a panel that hasn't been constructed cannot be present.
+     * Neither does {@link #toString()}, which only describes the constructed panels.
+     */
+    private class PanelList extends AbstractList<IzPanel>
+    {
+        @Override
+        public IzPanel get(int index)
+        {
+            return getView(getPanelViews().get(index));
+        }
+
+        @Override
+        public int size()
+        {
+            return getPanelViews().size();
+        }
+
+        @Override
+        public int indexOf(Object object)
+        {
+            for (Map.Entry<Integer, IzPanel> entry : views.entrySet())
+            {
+                if (entry.getValue() == object)
+                {
+                    return entry.getKey();
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object object)
+        {
+            // each panel has a single view
+            return indexOf(object);
+        }
+
+        @Override
+        public boolean contains(Object object)
+        {
+            return indexOf(object) != -1;
+        }
+
+        @Override
+        public String toString()
+        {
+            return views.values() + " (" + views.size() + " of " + size() + " panels constructed)";
+        }
+    }
+
 }
@@ -80,7 +80,9 @@ public class LockFileChecker implements RequirementChecker
         boolean result = true;
         Info installationInfo = installData.getInfo();
 
-        if (installationInfo.isSingleInstance() && !Boolean.getBoolean("MULTIINSTANCE"))
+        // embedded installations may run concurrently in the same JVM, and are never left running
+        boolean embedded = Boolean.parseBoolean(installData.getVariable(InstallData.EMBEDDED_INSTALLATION));
+        if (installationInfo.isSingleInstance() && !Boolean.getBoolean("MULTIINSTANCE") && !embedded)
         {
             String appName = installationInfo.getAppName();
             File file = FileUtil.getLockFile(appName);
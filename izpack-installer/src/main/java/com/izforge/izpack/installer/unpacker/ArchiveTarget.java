@@ -0,0 +1,308 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.exception.InstallerException;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+
+
+/**
+ * Installs files into a tar or zip archive, rather than the file system.
+ * <p/>
+ * Entries are named relative to the installation path. Files installed outside of it are named by their absolute
+ * path, less the file system root. Directories, executable permissions and timestamps are recorded in the entries.
+ * <p/>
+ * The archive format is determined by the extension of the archive: <em>.tar</em>, <em>.tar.gz</em>,
+ * <em>.tgz</em> or <em>.zip</em>.
+ */
+public class ArchiveTarget implements Closeable
+{
+
+    /**
+     * The permissions of executable files and directories.
+     */
+    private static final int EXECUTABLE_MODE = 0755;
+
+    /**
+     * The permissions of other files.
+     */
+    private static final int FILE_MODE = 0644;
+
+    /**
+     * The archive.
+     */
+    private final File archive;
+
+    /**
+     * The archive stream.
+     */
+    private final ArchiveOutputStream out;
+
+    /**
+     * The installation path, with a trailing separator.
+     */
+    private final String root;
+
+    /**
+     * The names of the directory entries added.
+     */
+    private final Set<String> directories = new HashSet<String>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ArchiveTarget.class.getName());
+
+
+    /**
+     * Constructs an {@code ArchiveTarget}.
+     *
+     * @param archive     the archive to create
+     * @param installPath the installation path
+     * @throws InstallerException if the archive format is not supported
+     * @throws IOException        if the archive cannot be created
+     */
+    public ArchiveTarget(File archive, File installPath) throws IOException
+    {
+        this.archive = archive;
+        String name = archive.getName().toLowerCase();
+        if (name.endsWith(".zip"))
+        {
+            FileUtils.forceMkdirParent(archive);
+            out = new ZipArchiveOutputStream(archive);
+        }
+        else if (name.endsWith(".tar") || name.endsWith(".tar.gz") || name.endsWith(".tgz"))
+        {
+            OutputStream stream = new BufferedOutputStream(FileUtils.openOutputStream(archive));
+            if (!name.endsWith(".tar"))
+            {
+                stream = new GzipCompressorOutputStream(stream);
+            }
+            TarArchiveOutputStream tar = new TarArchiveOutputStream(stream);
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            out = tar;
+        }
+        else
+        {
+            throw new InstallerException("Unsupported archive format: " + archive
+                                                 + ". Expected a .tar, .tar.gz, .tgz or .zip file");
+        }
+        String path = installPath.getAbsolutePath();
+        root = path.endsWith(File.separator) ? path : path + File.separator;
+    }
+
+    /**
+     * Returns the archive.
+     *
+     * @return the archive
+     */
+    public File getArchive()
+    {
+        return archive;
+    }
+
+    /**
+     * Adds a directory, and any parent directories not yet added.
+     *
+     * @param dir          the directory
+     * @param lastModified the last modified timestamp, or {@code -1} to use the current time
+     * @throws IOException for any I/O error
+     */
+    public synchronized void addDirectory(File dir, long lastModified) throws IOException
+    {
+        String name = getEntryName(dir);
+        if (!name.isEmpty())
+        {
+            addDirectory(name + "/", lastModified);
+        }
+    }
+
+    /**
+     * Adds a file, copying its content from a stream.
+     *
+     * @param target       the installed file
+     * @param length       the file length
+     * @param lastModified the last modified timestamp, or {@code -1} to use the current time
+     * @param executable   determines if the file is executable
+     * @param in           the stream to read the content from
+     * @throws IOException if the stream doesn't contain {@code length} bytes, or for any I/O error
+     */
+    public synchronized void addFile(File target, long length, long lastModified, boolean executable,
+                                     InputStream in) throws IOException
+    {
+        String name = getEntryName(target);
+        addParents(name);
+        ArchiveEntry entry = createEntry(name, length, lastModified, (executable ? EXECUTABLE_MODE : FILE_MODE)
+                | UnixStat.FILE_FLAG);
+        out.putArchiveEntry(entry);
+        long copied = IOUtils.copyLarge(in, out, 0, length);
+        if (copied != length)
+        {
+            throw new IOException("Unexpected end of stream (installer corrupted?)");
+        }
+        out.closeArchiveEntry();
+        logger.fine("|- Added " + name + " to archive (" + length + " bytes)");
+    }
+
+    /**
+     * Adds a file that has been installed to the file system.
+     *
+     * @param target       the installed file
+     * @param content      the file to read the content from
+     * @param lastModified the last modified timestamp, or {@code -1} to use the current time
+     * @param executable   determines if the file is executable
+     * @throws IOException for any I/O error
+     */
+    public synchronized void addFile(File target, File content, long lastModified, boolean executable)
+            throws IOException
+    {
+        InputStream in = new FileInputStream(content);
+        try
+        {
+            addFile(target, content.length(), lastModified, executable, in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Completes the archive.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        try
+        {
+            out.finish();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Adds the directories containing an entry.
+     *
+     * @param name the entry name
+     * @throws IOException for any I/O error
+     */
+    private void addParents(String name) throws IOException
+    {
+        int index = name.lastIndexOf('/');
+        if (index > 0)
+        {
+            addDirectory(name.substring(0, index + 1), -1);
+        }
+    }
+
+    private void addDirectory(String name, long lastModified) throws IOException
+    {
+        if (!directories.contains(name))
+        {
+            addParents(name.substring(0, name.length() - 1));
+            out.putArchiveEntry(createEntry(name, 0, lastModified, EXECUTABLE_MODE | UnixStat.DIR_FLAG));
+            out.closeArchiveEntry();
+            directories.add(name);
+        }
+    }
+
+    private ArchiveEntry createEntry(String name, long length, long lastModified, int mode)
+    {
+        long time = (lastModified >= 0) ? lastModified : System.currentTimeMillis();
+        ArchiveEntry result;
+        if (out instanceof TarArchiveOutputStream)
+        {
+            TarArchiveEntry entry = new TarArchiveEntry(name);
+            entry.setSize(length);
+            entry.setModTime(time);
+            entry.setMode(mode);
+            result = entry;
+        }
+        else
+        {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setSize(length);
+            entry.setTime(time);
+            entry.setUnixMode(mode);
+            result = entry;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entry name of a file.
+     *
+     * @param file the file
+     * @return the path of the file relative to the installation path, or its absolute path less the file system root
+     *         if it is outside of the installation path
+     */
+    private String getEntryName(File file)
+    {
+        String path = file.getAbsolutePath();
+        String name;
+        if (path.startsWith(root))
+        {
+            name = path.substring(root.length());
+        }
+        else if (path.equals(root.substring(0, root.length() - 1)))
+        {
+            name = "";
+        }
+        else
+        {
+            name = path;
+            for (File fsRoot : File.listRoots())
+            {
+                if (path.startsWith(fsRoot.getPath()))
+                {
+                    name = path.substring(fsRoot.getPath().length());
+                    break;
+                }
+            }
+        }
+        return name.replace(File.separatorChar, '/');
+    }
+}
@@ -24,19 +24,29 @@ package com.izforge.izpack.installer.unpacker;
 import com.izforge.izpack.api.data.PackCompression;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.util.compress.PackCompressors;
 import com.izforge.izpack.util.os.FileQueue;
-import org.apache.commons.compress.compressors.CompressorException;
-import org.apache.commons.compress.compressors.CompressorStreamFactory;
-import org.apache.commons.compress.compressors.deflate.DeflateCompressorInputStream;
-import org.apache.commons.compress.compressors.deflate.DeflateParameters;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.util.zip.Deflater;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
 
 
 /**
@@ -46,6 +56,16 @@ public class CompressedFileUnpacker extends FileUnpacker
 {
     private final PackCompression compressionFormat;
 
+    /**
+     * The size of the buffer used by each thread to decompress chunks.
+     */
+    private static final int CHUNK_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(CompressedFileUnpacker.class.getName());
+
     /**
      * Constructs a <tt>CompressedFileUnpacker</tt>.
      *
@@ -87,31 +107,26 @@ public class CompressedFileUnpacker extends FileUnpacker
                 throw new IOException("File size mismatch when reading from pack: " + file.getRelativeSourcePath());
             }
 
-            InputStream in = IOUtils.buffer(FileUtils.openInputStream(tmpfile));
-
-            if (compressionFormat == PackCompression.DEFLATE)
+            PackFile stored = file.isBackReference() ? file.getLinkedPackFile() : file;
+            final long bytesUncompressed;
+            if (stored.isChunked())
             {
-                DeflateParameters deflateParameters = new DeflateParameters();
-                deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
-                finalStream = new DeflateCompressorInputStream(in, deflateParameters);
+                bytesUncompressed = unpackChunks(file, stored, tmpfile, target);
             }
             else
             {
-                finalStream = new CompressorStreamFactory().createCompressorInputStream(compressionFormat.toName(), in);
+                InputStream in = IOUtils.buffer(FileUtils.openInputStream(tmpfile));
+                finalStream = PackCompressors.createInputStream(compressionFormat, in,
+                                                                stored.getCompressionDictionary());
+                bytesUncompressed = copy(file, finalStream, target);
             }
 
-            final long bytesUncompressed = copy(file, finalStream, target);
-
             if (bytesUncompressed != file.length())
             {
                 throw new IOException("File size mismatch when uncompressing from pack: " + file.getRelativeSourcePath());
             }
 
         }
-        catch (CompressorException e)
-        {
-            throw new IOException("An exception occurred whilst unpacking: " + file.getRelativeSourcePath() + ": " + e.getMessage(), e);
-        }
         finally
         {
             IOUtils.closeQuietly(fo);
@@ -119,4 +134,151 @@ public class CompressedFileUnpacker extends FileUnpacker
             FileUtils.deleteQuietly(tmpfile);
         }
     }
+
+    /**
+     * Decompresses the chunks of a file in parallel, writing each at its offset in the target.
+     *
+     * @param file       the pack file meta-data
+     * @param stored     the pack file the data is stored for. This differs to {@code file} for back references
+     * @param compressed the compressed chunks
+     * @param target     the target
+     * @return the number of bytes decompressed
+     * @throws IOException for any I/O error
+     */
+    private long unpackChunks(PackFile file, PackFile stored, File compressed, File target) throws IOException
+    {
+        long[] sizes = stored.getCompressedChunkSizes();
+        long chunkSize = stored.getChunkSize();
+        long length = stored.length();
+        logger.fine("|- Decompressing " + sizes.length + " chunks (size: " + length + " bytes)");
+        FileChannel out = getTargetChannel(file, target, length);
+        int threads = Math.max(1, Math.min(sizes.length, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long bytesUncompressed = 0;
+        try
+        {
+            List<Future<Long>> futures = new ArrayList<Future<Long>>();
+            long offset = 0;
+            for (int i = 0; i < sizes.length; ++i)
+            {
+                long position = i * chunkSize;
+                futures.add(executor.submit(new DecompressChunk(compressed, offset, sizes[i], out, position,
+                                                                Math.min(chunkSize, length - position))));
+                offset += sizes[i];
+            }
+            for (Future<Long> future : futures)
+            {
+                bytesUncompressed += get(future);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            IOUtils.closeQuietly(out);
+        }
+        postCopy(file);
+        return bytesUncompressed;
+    }
+
+    /**
+     * Waits for a chunk to be decompressed.
+     *
+     * @param future the chunk future
+     * @return the number of bytes decompressed
+     * @throws IOException if the chunk couldn't be decompressed, or the thread was interrupted
+     */
+    private static long get(Future<Long> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted decompressing chunk");
+        }
+        catch (ExecutionException exception)
+        {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Decompresses a chunk of a file, and writes it to its offset in the target.
+     */
+    private class DecompressChunk implements Callable<Long>
+    {
+
+        private final File compressed;
+
+        private final long offset;
+
+        private final long size;
+
+        private final FileChannel out;
+
+        private final long position;
+
+        private final long length;
+
+        /**
+         * Constructs a {@code DecompressChunk}.
+         *
+         * @param compressed the compressed chunks
+         * @param offset     the offset of the chunk in the compressed chunks
+         * @param size       the compressed size of the chunk
+         * @param out        the target channel
+         * @param position   the offset of the chunk in the target
+         * @param length     the uncompressed size of the chunk
+         */
+        public DecompressChunk(File compressed, long offset, long size, FileChannel out, long position, long length)
+        {
+            this.compressed = compressed;
+            this.offset = offset;
+            this.size = size;
+            this.out = out;
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        public Long call() throws IOException
+        {
+            RandomAccessFile input = new RandomAccessFile(compressed, "r");
+            try
+            {
+                input.seek(offset);
+                InputStream in = PackCompressors.createInputStream(compressionFormat, IOUtils.buffer(
+                        new BoundedInputStream(Channels.newInputStream(input.getChannel()), size)), null);
+                byte[] buffer = new byte[CHUNK_BUFFER_SIZE];
+                long written = 0;
+                while (written < length)
+                {
+                    checkCancelled();
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, length - written));
+                    if (read == -1)
+                    {
+                        throw new IOException("Unexpected end of stream (installer corrupted?)");
+                    }
+                    ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                    while (data.hasRemaining())
+                    {
+                        out.write(data, position + written + data.position());
+                    }
+                    written += read;
+                }
+                return written;
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+    }
 }
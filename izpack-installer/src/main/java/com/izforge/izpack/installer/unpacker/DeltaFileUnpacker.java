@@ -0,0 +1,146 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.util.compress.PackCompressors;
+import com.izforge.izpack.util.delta.DeltaDecoder;
+import com.izforge.izpack.util.delta.Digests;
+import com.izforge.izpack.util.os.FileQueue;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+
+/**
+ * Unpacker for files stored by upgrade installers as deltas against the installed files.
+ * <p/>
+ * The installed file must match the file the delta was generated against. The new file is reconstructed into a
+ * temporary file and verified, before it replaces the installed file. Unchanged files are verified, but not written.
+ */
+public class DeltaFileUnpacker extends FileUnpacker
+{
+
+    /**
+     * The compression format the delta is stored with.
+     */
+    private final PackCompression compressionFormat;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(DeltaFileUnpacker.class.getName());
+
+
+    /**
+     * Constructs a {@code DeltaFileUnpacker}.
+     *
+     * @param cancellable       determines if unpacking should be cancelled
+     * @param queue             the file queue. May be {@code null}
+     * @param compressionFormat the compression format the delta is stored with
+     */
+    public DeltaFileUnpacker(Cancellable cancellable, FileQueue queue, PackCompression compressionFormat)
+    {
+        super(cancellable, queue);
+        this.compressionFormat = compressionFormat;
+    }
+
+    /**
+     * Unpacks a pack file.
+     *
+     * @param file            the pack file meta-data
+     * @param packInputStream the pack input stream
+     * @param target          the target
+     * @throws IOException        for any I/O error
+     * @throws InstallerException if the installed file doesn't match the file the delta was generated against
+     */
+    @Override
+    public void unpack(PackFile file, InputStream packInputStream, File target)
+            throws IOException, InstallerException
+    {
+        if (!target.isFile())
+        {
+            throw new InstallerException("Cannot upgrade " + target + ": the file is not installed");
+        }
+        byte[] installed = Digests.digest(target);
+        if (!Arrays.equals(installed, file.getBaselineDigest()))
+        {
+            throw new InstallerException("Cannot upgrade " + target + ": the installed file has digest "
+                                                 + Digests.toString(installed) + ", expected "
+                                                 + Digests.toString(file.getBaselineDigest()));
+        }
+        if (file.isUnchanged())
+        {
+            logger.fine("|- Unchanged");
+            return;
+        }
+
+        File tmpfile = File.createTempFile("izpack-delta", null, FileUtils.getTempDirectory());
+        InputStream delta = null;
+        OutputStream out = null;
+        InputStream in = null;
+        try
+        {
+            // bound the delta, so that the decompressor cannot read ahead into the next file
+            BoundedInputStream stored = new BoundedInputStream(packInputStream, file.size());
+            stored.setPropagateClose(false);
+            delta = IOUtils.buffer(stored);
+            if (compressionFormat != PackCompression.DEFAULT)
+            {
+                delta = PackCompressors.createInputStream(compressionFormat, delta, null);
+            }
+            MessageDigest digest = Digests.create();
+            out = new DigestOutputStream(IOUtils.buffer(FileUtils.openOutputStream(tmpfile)), digest);
+            long length = new DeltaDecoder().decode(target, delta, out);
+            out.close();
+            // move the pack stream to the next file
+            IOUtils.skip(stored, file.size());
+
+            if (length != file.length() || !Arrays.equals(digest.digest(), file.getDigest()))
+            {
+                throw new IOException("Upgraded file failed verification: " + target);
+            }
+            checkCancelled();
+            logger.fine("|- Reconstructed from delta (" + file.size() + " -> " + length + " bytes)");
+
+            in = new FileInputStream(tmpfile);
+            copy(file, in, target);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(delta);
+            IOUtils.closeQuietly(out);
+            IOUtils.closeQuietly(in);
+            FileUtils.deleteQuietly(tmpfile);
+        }
+    }
+}
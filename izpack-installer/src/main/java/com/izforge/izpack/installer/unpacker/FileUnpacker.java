@@ -30,6 +30,10 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.logging.Logger;
 
 
@@ -68,6 +72,38 @@ public abstract class FileUnpacker
      */
     private boolean queued;
 
+    /**
+     * The archive to install into, or {@code null} to install into the file system.
+     */
+    private ArchiveTarget archive;
+
+    /**
+     * The temporary file that content is written to before being added to the archive.
+     */
+    private File staging;
+
+    /**
+     * The size of the buffer used to copy files.
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * The maximum no. of bytes to transfer between files before checking for cancellation.
+     */
+    private static final long TRANSFER_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * The copy buffer. Unpackers are created per file, so the buffer is shared by those on the same thread.
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>()
+    {
+        @Override
+        protected ByteBuffer initialValue()
+        {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
     /**
      * The logger.
      */
@@ -98,6 +134,19 @@ public abstract class FileUnpacker
     public abstract void unpack(PackFile file, InputStream packInputStream, File target)
             throws IOException, InstallerException;
 
+    /**
+     * Installs the file into an archive, rather than the file system.
+     * <p/>
+     * Files copied from a stream are written directly to the archive. Files written by other means are written to a
+     * temporary file first, and added to the archive by {@link #postCopy}.
+     *
+     * @param archive the archive. May be {@code null}
+     */
+    public void setArchiveTarget(ArchiveTarget archive)
+    {
+        this.archive = archive;
+    }
+
     /**
      * Determines if the file was queued.
      *
@@ -112,6 +161,12 @@ public abstract class FileUnpacker
      * Copies an input stream to a target, setting its timestamp to that of the pack file.
      * <p/>
      * If the target is a blockable file, then a temporary file will be created, and the file queued.
+     * <p/>
+     * The target is written via a {@link FileChannel}, preallocated to the length of the pack file. If the stream is
+     * a {@link FileInputStream}, the data is transferred between the channels by the file system, otherwise it is
+     * copied via a direct buffer shared by the unpackers of the current thread.
+     * <p/>
+     * If the file is being installed into an archive, the stream is copied directly to it.
      *
      * @param file   the pack file
      * @param in     the pack file stream
@@ -122,21 +177,36 @@ public abstract class FileUnpacker
      */
     protected long copy(PackFile file, InputStream in, File target) throws IOException
     {
-        OutputStream out = getTarget(file, target);
-        byte[] buffer = new byte[5120];
         long bytesCopied = 0;
         long bytesToCopy = (file.isBackReference() ? file.getLinkedPackFile().length() : file.length());
+        if (archive != null)
+        {
+            checkCancelled();
+            archive.addFile(target, bytesToCopy, file.lastModified(), file.isExecutable(), in);
+            return bytesToCopy;
+        }
         logger.fine("|- Copying to file system (size: " + bytesToCopy + " bytes)");
+        FileChannel out = getTargetChannel(file, target, bytesToCopy);
         try
         {
-            while (bytesCopied < bytesToCopy)
+            if (in instanceof FileInputStream)
             {
-                if (cancellable.isCancelled())
+                FileChannel channel = ((FileInputStream) in).getChannel();
+                while (bytesCopied < bytesToCopy)
                 {
-                    // operation cancelled
-                    throw new InterruptedIOException("Copy operation cancelled");
+                    checkCancelled();
+                    bytesCopied = transfer(channel, out, bytesCopied, bytesToCopy);
+                }
+            }
+            else
+            {
+                ReadableByteChannel channel = Channels.newChannel(in);
+                ByteBuffer buffer = BUFFER.get();
+                while (bytesCopied < bytesToCopy)
+                {
+                    checkCancelled();
+                    bytesCopied = copy(buffer, channel, out, bytesCopied, bytesToCopy);
                 }
-                bytesCopied = copy(file, buffer, in, out, bytesCopied);
             }
         }
         finally
@@ -150,12 +220,29 @@ public abstract class FileUnpacker
     }
 
     /**
-     * Invoked after copying is complete to set the last modified timestamp, and queue blockable files.
+     * Invoked after copying is complete to set the permissions and last modified timestamp, and queue blockable
+     * files.
+     * <p/>
+     * If the file is being installed into an archive, the temporary file is added to it instead.
      *
      * @param file the pack file meta-data
+     * @throws IOException if the file cannot be added to the archive
      */
-    protected void postCopy(PackFile file)
+    protected void postCopy(PackFile file) throws IOException
     {
+        if (archive != null)
+        {
+            try
+            {
+                archive.addFile(target, staging, file.lastModified(), file.isExecutable());
+            }
+            finally
+            {
+                FileUtils.deleteQuietly(staging);
+            }
+            return;
+        }
+        setPermissions(file);
         setLastModified(file);
 
         if (isBlockable(file))
@@ -165,43 +252,56 @@ public abstract class FileUnpacker
     }
 
     /**
-     * Copies from the input stream to the output stream.
+     * Copies from the channel to the file, via a buffer.
+     * <p/>
+     * The buffer is filled before being written, so that each write is as large as possible.
      *
-     * @param file        the pack file
      * @param buffer      the buffer to use
-     * @param in          the stream to read from
-     * @param out         the stream to write to
+     * @param in          the channel to read from
+     * @param out         the channel to write to
      * @param bytesCopied the current no. of bytes copied
+     * @param bytesToCopy the total no. of bytes to copy
      * @return the number of bytes actually copied
      * @throws IOException for any I/O error
      */
-    protected long copy(PackFile file, byte[] buffer, InputStream in, OutputStream out, long bytesCopied)
-            throws IOException
+    protected long copy(ByteBuffer buffer, ReadableByteChannel in, FileChannel out, long bytesCopied,
+                        long bytesToCopy) throws IOException
     {
-        int maxBytes = (int) Math.min(file.length() - bytesCopied, buffer.length);
-        int read = read(buffer, in, maxBytes);
-        if (read == -1)
+        buffer.clear();
+        buffer.limit((int) Math.min(bytesToCopy - bytesCopied, buffer.capacity()));
+        while (buffer.hasRemaining())
         {
-            throw new IOException("Unexpected end of stream (installer corrupted?)");
+            if (in.read(buffer) == -1)
+            {
+                throw new IOException("Unexpected end of stream (installer corrupted?)");
+            }
         }
-        out.write(buffer, 0, read);
-        bytesCopied += read;
-
-        return bytesCopied;
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            out.write(buffer);
+        }
+        return bytesCopied + buffer.limit();
     }
 
     /**
-     * Reads up to <tt>maxBytes</tt> bytes to the specified buffer.
+     * Transfers from one file to another, without copying the data through the heap.
      *
-     * @param buffer   the buffer
-     * @param in       the input stream
-     * @param maxBytes the maximum no. of bytes to read
-     * @return the no. of bytes read
+     * @param in          the channel to read from
+     * @param out         the channel to write to
+     * @param bytesCopied the current no. of bytes copied
+     * @param bytesToCopy the total no. of bytes to copy
+     * @return the number of bytes actually copied
      * @throws IOException for any I/O error
      */
-    protected int read(byte[] buffer, InputStream in, int maxBytes) throws IOException
+    protected long transfer(FileChannel in, FileChannel out, long bytesCopied, long bytesToCopy) throws IOException
     {
-        return in.read(buffer, 0, maxBytes);
+        long transferred = out.transferFrom(in, bytesCopied, Math.min(bytesToCopy - bytesCopied, TRANSFER_SIZE));
+        if (transferred <= 0)
+        {
+            throw new IOException("Unexpected end of stream (installer corrupted?)");
+        }
+        return bytesCopied + transferred;
     }
 
     /**
@@ -215,23 +315,126 @@ public abstract class FileUnpacker
      * @throws IOException an I/O error occurred
      */
     protected OutputStream getTarget(PackFile file, File target) throws IOException
+    {
+        return FileUtils.openOutputStream(getTargetFile(file, target));
+    }
+
+    /**
+     * Returns a channel to the target file, truncated or extended to the specified length.
+     * <p/>
+     * If the target file is blockable, then a temporary file will be created, and a channel to this returned instead.
+     * <p/>
+     * Files that can be copied with a single write aren't extended, as preallocating them would only add a call.
+     *
+     * @param file   the pack file meta-data
+     * @param target the requested target
+     * @param length the length of the file
+     * @return a channel to the actual target
+     * @throws IOException an I/O error occurred
+     */
+    protected FileChannel getTargetChannel(PackFile file, File target, long length) throws IOException
+    {
+        File actual = getTargetFile(file, target);
+        if (actual.exists())
+        {
+            if (actual.isDirectory())
+            {
+                throw new IOException("File '" + actual + "' exists but is a directory");
+            }
+            if (!actual.canWrite())
+            {
+                throw new IOException("File '" + actual + "' cannot be written to");
+            }
+        }
+        else
+        {
+            File parent = actual.getParentFile();
+            if (parent != null && !parent.mkdirs() && !parent.isDirectory())
+            {
+                throw new IOException("Directory '" + parent + "' could not be created");
+            }
+        }
+        RandomAccessFile output = new RandomAccessFile(actual, "rw");
+        try
+        {
+            output.setLength(length > BUFFER_SIZE ? length : 0);
+        }
+        catch (IOException exception)
+        {
+            IOUtils.closeQuietly(output);
+            throw exception;
+        }
+        return output.getChannel();
+    }
+
+    /**
+     * Returns the file to write to.
+     * <p/>
+     * If the target file is blockable, then a temporary file will be created, and this returned instead.
+     * If installing into an archive, a temporary file is returned, to be added to the archive by {@link #postCopy}.
+     *
+     * @param file   the pack file meta-data
+     * @param target the requested target
+     * @return the actual target
+     * @throws IOException an I/O error occurred
+     */
+    private File getTargetFile(PackFile file, File target) throws IOException
     {
         this.target = target;
-        OutputStream result;
-        if (isBlockable(file))
+        File result;
+        if (archive != null)
+        {
+            staging = File.createTempFile("izpack-archive", null, FileUtils.getTempDirectory());
+            result = staging;
+        }
+        else if (isBlockable(file))
         {
             // If target file might be blocked the output file must first refer to a temporary file, because
             // Windows Setup API doesn't work on streams but only on physical files
             tmpTarget = File.createTempFile("__FQ__", null, target.getParentFile());
-            result = FileUtils.openOutputStream(tmpTarget);
+            result = tmpTarget;
         }
         else
         {
-            result = FileUtils.openOutputStream(target);
+            result = target;
         }
         return result;
     }
 
+    /**
+     * Throws an exception if unpacking has been cancelled.
+     *
+     * @throws InterruptedIOException if unpacking has been cancelled
+     */
+    protected void checkCancelled() throws InterruptedIOException
+    {
+        if (cancellable.isCancelled())
+        {
+            // operation cancelled
+            throw new InterruptedIOException("Copy operation cancelled");
+        }
+    }
+
+    /**
+     * Makes a file executable by its owner if it was executable at compile time.
+     * <p/>
+     * This is done in-process, so that executables don't need to be made executable by running <em>chmod</em>.
+     * The group and other permissions are left as created, as only the executable bit is captured at compile time.
+     *
+     * @param file the pack file meta-data
+     */
+    protected void setPermissions(PackFile file)
+    {
+        if (file.isExecutable())
+        {
+            File f = (tmpTarget != null) ? tmpTarget : target;
+            if (!f.setExecutable(true, true))
+            {
+                logger.warning("Failed to set executable permission for: " + target);
+            }
+        }
+    }
+
     /**
      * Sets the last-modified timestamp of a file from the pack-file meta-data.
      *
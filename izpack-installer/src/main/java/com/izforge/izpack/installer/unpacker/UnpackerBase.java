@@ -38,15 +38,16 @@ import com.izforge.izpack.api.substitutor.VariableSubstitutor;
 import com.izforge.izpack.core.handler.ProgressHandler;
 import com.izforge.izpack.core.handler.PromptUIHandler;
 import com.izforge.izpack.core.resource.ResourceManager;
-import com.izforge.izpack.installer.bootstrap.Installer;
 import com.izforge.izpack.installer.data.UninstallData;
 import com.izforge.izpack.installer.event.InstallerListeners;
 import com.izforge.izpack.installer.util.PackHelper;
 import com.izforge.izpack.util.*;
+import com.izforge.izpack.util.compress.SolidPackInputStream;
 import com.izforge.izpack.util.file.DirectoryScanner;
 import com.izforge.izpack.util.file.GlobPatternMapper;
 import com.izforge.izpack.util.file.types.FileSet;
 import com.izforge.izpack.util.os.FileQueue;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
@@ -58,7 +59,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.izforge.izpack.api.handler.Prompt.*;
-import static com.izforge.izpack.installer.bootstrap.Installer.INSTALLER_AUTO;
 
 
 /**
@@ -179,6 +179,22 @@ public abstract class UnpackerBase implements IUnpacker
      */
     private Messages packMessages;
 
+    /**
+     * The archive to install into, or {@code null} to install into the file system.
+     */
+    private ArchiveTarget archive;
+
+    /**
+     * The paths of the parsable and executable files of the current pack. When installing into an archive, these are
+     * staged in the file system, and added to the archive once they have been processed.
+     */
+    private final Set<String> stagedPaths = new HashSet<String>();
+
+    /**
+     * The staged files of the current pack.
+     */
+    private final List<File> stagedFiles = new ArrayList<File>();
+
     /**
      * Constructs an <tt>UnpackerBase</tt>.
      *
@@ -237,7 +253,11 @@ public abstract class UnpackerBase implements IUnpacker
     @Override
     public void run()
     {
-        resetLogging();
+        if (!isEmbedded())
+        {
+            // the logging configuration is global, so is left to the application embedding the installer
+            resetLogging();
+        }
         unpack();
     }
 
@@ -295,9 +315,15 @@ public abstract class UnpackerBase implements IUnpacker
 
             selectedPacks = installData.getSelectedPacks();
 
+            archive = createArchiveTarget();
             preUnpack(selectedPacks);
             unpack(packsInfo, queue);
             postUnpack(selectedPacks, queue);
+            if (archive != null)
+            {
+                archive.close();
+                archive = null;
+            }
         }
         catch (Exception exception)
         {
@@ -483,6 +509,8 @@ public abstract class UnpackerBase implements IUnpacker
                 executeFiles(executables);
                 checkInterrupt();
 
+                archiveStagedFiles();
+
                 // update checks should be done _after_ uninstaller was put, so we don't delete it. TODO
                 performUpdateChecks(updateChecks);
                 checkInterrupt();
@@ -514,7 +542,16 @@ public abstract class UnpackerBase implements IUnpacker
             selectedPacks = installData.getSelectedPacks();
             listener.nextStep(stepName, selectedPacks.indexOf(pack) + 1, len);
 
+            if (archive != null)
+            {
+                readStagedPaths(packInfo);
+            }
+
             in = resources.getPackStream(pack.getName());
+            if (isSolid(packFiles))
+            {
+                in = new SolidPackInputStream(in, getInstallData().getInfo().getCompressionFormat());
+            }
 
             for (int i = 0; i < len; i++)
             {
@@ -553,6 +590,24 @@ public abstract class UnpackerBase implements IUnpacker
         }
     }
 
+    /**
+     * Determines if any pack file is stored in a solid block of the pack stream.
+     *
+     * @param packFiles the pack files
+     * @return {@code true} if the pack stream contains solid blocks
+     */
+    private boolean isSolid(PackFile[] packFiles)
+    {
+        for (PackFile packFile : packFiles)
+        {
+            if (packFile.isSolid())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Determines if a file should be unpacked.
      *
@@ -598,7 +653,15 @@ public abstract class UnpackerBase implements IUnpacker
             dir = target.getParentFile();
         }
 
-        createDirectory(dir, packFile, pack);
+        if (isArchived(target))
+        {
+            // listeners are not notified of archived directories
+            archive.addDirectory(dir, -1);
+        }
+        else
+        {
+            createDirectory(dir, packFile, pack);
+        }
 
         // Add path to the log
         getUninstallData().addFile(path, pack.isUninstall());
@@ -612,10 +675,16 @@ public abstract class UnpackerBase implements IUnpacker
 
         listener.progress(fileNo, path);
 
+        if (isArchived(target))
+        {
+            // nothing is installed in the file system, so there is nothing to override
+            extract(packFile, target, packInputStream, pack, queue);
+        }
         // if this file exists and should not be overwritten, check what to do
-        if (target.exists() && (packFile.override() != OverrideType.OVERRIDE_TRUE) && !isOverwriteFile(packFile, target))
+        else if (target.exists() && (packFile.override() != OverrideType.OVERRIDE_TRUE) && !isOverwriteFile(packFile, target))
         {
-            if (!packFile.isBackReference() && !pack.isLoose() && !packFile.isPack200Jar())
+            if (!packFile.isBackReference() && !pack.isLoose() && !packFile.isPack200Jar()
+                    && !(packInputStream instanceof SolidPackInputStream))
             {
                 long size = packFile.size();
                 logger.fine("|- No overwrite - skipping pack stream by " + size + " bytes");
@@ -652,7 +721,21 @@ public abstract class UnpackerBase implements IUnpacker
             {
                 PackFile linkedPackFile = packFile.getLinkedPackFile();
                 packStream = resources.getInputStream(ResourceManager.RESOURCE_BASEPATH_DEFAULT + linkedPackFile.getStreamResourceName());
-                if (!packFile.isPack200Jar())
+                if (linkedPackFile.isSolid())
+                {
+                    // decompress the linked file from its block, closing the resource with the file stream
+                    final SolidPackInputStream blocks = new SolidPackInputStream(
+                            packStream, getInstallData().getInfo().getCompressionFormat());
+                    packStream = new FilterInputStream(blocks.getInputStream(linkedPackFile))
+                    {
+                        @Override
+                        public void close() throws IOException
+                        {
+                            blocks.close();
+                        }
+                    };
+                }
+                else if (!packFile.isPack200Jar())
                 {
                     // Non-Pack200 files are saved in main pack stream
                     // Offset is always 0 for Pack200 resources, because each file has its own stream resource
@@ -663,15 +746,26 @@ public abstract class UnpackerBase implements IUnpacker
             } else if (packFile.isPack200Jar())
             {
                 packStream = resources.getInputStream(ResourceManager.RESOURCE_BASEPATH_DEFAULT + packFile.getStreamResourceName());
+            } else if (packInputStream instanceof SolidPackInputStream)
+            {
+                packStream = new NoCloseInputStream(((SolidPackInputStream) packInputStream).getInputStream(packFile));
             } else
             {
                 packStream = new NoCloseInputStream(packInputStream);
             }
 
             unpacker = createFileUnpacker(packFile, pack, queue, cancellable);
+            if (isArchived(target))
+            {
+                unpacker.setArchiveTarget(archive);
+            }
             logger.fine("|- Extracting file using " + unpacker.getClass().getName() + ")");
             unpacker.unpack(packFile, packStream, target);
             checkInterrupt();
+            if (archive != null && !isArchived(target))
+            {
+                stagedFiles.add(target);
+            }
 
             if (!unpacker.isQueued())
             {
@@ -697,7 +791,8 @@ public abstract class UnpackerBase implements IUnpacker
      */
     protected void skip(PackFile packFile, Pack pack, InputStream packInputStream) throws IOException
     {
-        if (!pack.isLoose() && !packFile.isBackReference() && !packFile.isPack200Jar())
+        if (!pack.isLoose() && !packFile.isBackReference() && !packFile.isPack200Jar()
+                && !(packInputStream instanceof SolidPackInputStream))
         {
             long size = packFile.size();
             logger.fine("|- Condition not fulfilled - skipping pack stream " + packFile.getTargetPath() + " by " + size + " bytes ");
@@ -718,14 +813,26 @@ public abstract class UnpackerBase implements IUnpacker
     protected FileUnpacker createFileUnpacker(PackFile file, Pack pack, FileQueue queue, Cancellable cancellable)
             throws InstallerException
     {
-        PackCompression compressionFormat = getInstallData().getInfo().getCompressionFormat();
+        PackFile stored = file.isBackReference() ? file.getLinkedPackFile() : file;
+        PackCompression compressionFormat = stored.getCompression();
+        if (compressionFormat == null)
+        {
+            compressionFormat = getInstallData().getInfo().getCompressionFormat();
+        }
         FileUnpacker unpacker;
         if (pack.isLoose())
         {
             unpacker = new LooseFileUnpacker(cancellable, queue, prompt);
+        } else if (file.isDelta())
+        {
+            unpacker = new DeltaFileUnpacker(cancellable, queue, compressionFormat);
         } else if (file.isPack200Jar())
         {
             unpacker = new Pack200FileUnpacker(cancellable, resources, queue);
+        } else if (stored.isSolid())
+        {
+            // solid blocks are decompressed as they are read
+            unpacker = new DefaultFileUnpacker(cancellable, queue);
         } else if (compressionFormat != PackCompression.DEFAULT)
         {
             unpacker = new CompressedFileUnpacker(cancellable, queue, compressionFormat);
@@ -772,6 +879,10 @@ public abstract class UnpackerBase implements IUnpacker
     protected void cleanup()
     {
         state = State.READY;
+        IOUtils.closeQuietly(archive);
+        archive = null;
+        stagedPaths.clear();
+        deleteStagedFiles();
     }
 
     /**
@@ -915,6 +1026,118 @@ public abstract class UnpackerBase implements IUnpacker
         }
     }
 
+    /**
+     * Creates the archive to install into, if the {@link InstallData#ARCHIVE_TARGET} variable is set.
+     *
+     * @return the archive, or {@code null} to install into the file system
+     * @throws IOException        if the archive cannot be created
+     * @throws InstallerException if the installer doesn't support installing into an archive
+     */
+    protected ArchiveTarget createArchiveTarget() throws IOException
+    {
+        ArchiveTarget result = null;
+        String path = variables.get(InstallData.ARCHIVE_TARGET);
+        if (path != null && path.trim().length() != 0)
+        {
+            if (!installData.getInfo().isArchiveInstallation())
+            {
+                // the archiving classes are only included in installers that enable it
+                throw new InstallerException("Cannot install into archive " + path
+                                                     + ": the installer does not support archive installation");
+            }
+            File file = new File(IoHelper.translatePath(path.trim(), variables));
+            logger.info("Installing into archive " + file);
+            result = new ArchiveTarget(file, new File(installData.getInstallPath()));
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a file is installed into the archive.
+     * <p/>
+     * Parsable and executable files are processed in the file system, so these are staged there instead.
+     *
+     * @param file the file
+     * @return {@code true} if installing into an archive, and the file isn't staged
+     */
+    private boolean isArchived(File file)
+    {
+        return archive != null && !stagedPaths.contains(file.getAbsolutePath());
+    }
+
+    /**
+     * Collects the paths of the parsable and executable files of a pack, so that they may be staged.
+     *
+     * @param packInfo the pack info
+     */
+    private void readStagedPaths(PackInfo packInfo)
+    {
+        stagedPaths.clear();
+        stagedFiles.clear();
+        for (ParsableFile file : packInfo.getParsables())
+        {
+            stagedPaths.add(new File(IoHelper.translatePath(file.getPath(), variables)).getAbsolutePath());
+        }
+        for (ExecutableFile file : packInfo.getExecutables())
+        {
+            stagedPaths.add(new File(IoHelper.translatePath(file.path, variables)).getAbsolutePath());
+        }
+    }
+
+    /**
+     * Adds the staged files of the current pack to the archive, once they have been parsed and executed.
+     * <p/>
+     * Executables that were removed after execution are not added. The staged files are removed once they have been
+     * added.
+     *
+     * @throws InstallerException if a file cannot be added
+     */
+    private void archiveStagedFiles()
+    {
+        if (archive != null)
+        {
+            for (File file : stagedFiles)
+            {
+                if (file.isFile())
+                {
+                    try
+                    {
+                        archive.addFile(file, file, file.lastModified(), file.canExecute());
+                    }
+                    catch (IOException exception)
+                    {
+                        throw new InstallerException("Failed to add " + file + " to archive", exception);
+                    }
+                }
+            }
+            deleteStagedFiles();
+        }
+    }
+
+    /**
+     * Deletes the staged files of the current pack, along with any directories left empty, up to the installation
+     * path.
+     */
+    private void deleteStagedFiles()
+    {
+        if (stagedFiles.isEmpty())
+        {
+            return;
+        }
+        File installPath = new File(installData.getInstallPath()).getAbsoluteFile();
+        for (File file : stagedFiles)
+        {
+            FileUtils.deleteQuietly(file);
+            File dir = file.getAbsoluteFile().getParentFile();
+            while (dir != null && !dir.equals(installPath) && dir.getPath().startsWith(installPath.getPath())
+                    && dir.delete())
+            {
+                dir = dir.getParentFile();
+            }
+        }
+        stagedFiles.clear();
+    }
+
     /**
      * Parses {@link ParsableFile} instances collected during unpacking.
      *
@@ -1264,7 +1487,7 @@ public abstract class UnpackerBase implements IUnpacker
                     }
 
                     // are we running in automated mode? If so use default choice.
-                    if (Installer.getInstallerMode() == INSTALLER_AUTO)
+                    if (isAutomated() || isEmbedded())
                     {
                         result = (defChoice == Option.YES);
                     } else // ask the user
@@ -1385,6 +1608,26 @@ public abstract class UnpackerBase implements IUnpacker
         updateChecks.addAll(packInfo.getUpdateChecks());
     }
 
+    /**
+     * Determines if the installation is running embedded in another application.
+     *
+     * @return {@code true} if the installation is embedded
+     */
+    private boolean isEmbedded()
+    {
+        return Boolean.parseBoolean(variables.get(InstallData.EMBEDDED_INSTALLATION));
+    }
+
+    /**
+     * Determines if the installation is automated.
+     *
+     * @return {@code true} if the installation is automated
+     */
+    private boolean isAutomated()
+    {
+        return Boolean.parseBoolean(variables.get(InstallData.AUTOMATED_INSTALLATION));
+    }
+
     private void resetLogging()
     {
         try
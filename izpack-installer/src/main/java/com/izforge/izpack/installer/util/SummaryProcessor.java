@@ -63,7 +63,8 @@ public class SummaryProcessor
     /**
      * Returns a HTML formated string which contains the summary of all panels. To get the summary,
      * the methods * {@link com.izforge.izpack.api.installer.ISummarisable#getSummaryCaption} and {@link com.izforge.izpack.api.installer.ISummarisable#getSummaryBody()} of all
-     * panels are called.
+     * panels are called. Only panels that have been constructed are included, as a panel must be constructed
+     * to be visited.
      *
      * @param idata AutomatedInstallData which contains the panel references
      * @return a HTML formated string with the summary of all panels
@@ -72,7 +73,7 @@ public class SummaryProcessor
     {
         StringBuilder buffer = new StringBuilder(2048);
         buffer.append(HTML_HEADER);
-        for (ISummarisable panel : idata.getPanels())
+        for (ISummarisable panel : idata.getCreatedPanels())
         {
             if (((IzPanel) panel).getMetadata().isVisited())
             {
@@ -69,7 +69,9 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -187,6 +189,27 @@ public class Unix_Shortcut extends Shortcut
 
     private String myXdgDesktopIconCmd = null;
 
+    /**
+     * Cached values from {@link UnixHelper#getCustomCommand(String)}, keyed on command name.
+     */
+    private final Map<String, String> commands = new HashMap<String, String>();
+
+    /**
+     * The user that ran the installer via {@code sudo}, if any. Only valid if {@link #sudoUserResolved} is set.
+     */
+    private UnixUser sudoUser;
+
+    /**
+     * Determines if {@link #sudoUser} has been resolved.
+     */
+    private boolean sudoUserResolved;
+
+    /**
+     * Files whose ownership is transferred to the sudo user by {@link #execPostAction()}, using a single
+     * {@code chown}.
+     */
+    private final List<String> sudoUserFiles = new ArrayList<String>();
+
     /**
      * The resources.
      */
@@ -430,22 +453,43 @@ public class Unix_Shortcut extends Shortcut
     /**
      * Returns value of the {@code SUDO_USER} enviroment variable. The variable
      * is set when the installer is executed using {@code sudo} command.
+     * <p/>
+     * The user is resolved once, and shared by all shortcuts.
      * @return value of {@code SUDO_USER}
      */
     private UnixUser getSudoUser()
     {
-        String printEnvCmd = UnixHelper.getCustomCommand("printenv");
-        String sudoUserName = FileExecutor.getExecOutput(
-                new String[]{printEnvCmd, "SUDO_USER"}, true).trim();
-        
-        for (UnixUser user : getUsers())
+        if (!sudoUserResolved)
         {
-            if (user.getName().equals(sudoUserName))
+            String sudoUserName = getSudoUserName();
+            if (sudoUserName != null && sudoUserName.trim().length() != 0)
             {
-                return user;
+                sudoUserName = sudoUserName.trim();
+                for (UnixUser user : getUsers())
+                {
+                    if (user.getName().equals(sudoUserName))
+                    {
+                        sudoUser = user;
+                        break;
+                    }
+                }
             }
+            sudoUserResolved = true;
         }
-        return null;
+        return sudoUser;
+    }
+
+
+    /**
+     * Returns the name of the user that ran the installer via {@code sudo}.
+     * <p/>
+     * This method is provided for testing purposes.
+     *
+     * @return the value of {@code SUDO_USER}. May be {@code null}
+     */
+    String getSudoUserName()
+    {
+        return System.getenv("SUDO_USER");
     }
     
 
@@ -580,16 +624,15 @@ public class Unix_Shortcut extends Shortcut
                 FileUtils.copyFile(writtenDesktopFile, myDesktopFile, false);
                 
                 // make sure about permissions and ownership
-                String chmodCmd = UnixHelper.getCustomCommand("chmod");
-                FileExecutor.getExecOutput(new String[]{chmodCmd, "u+x",
-                    StringTool.escapeSpaces(myDesktopFile.getPath())});
-                
+                if (!myDesktopFile.setExecutable(true, true))
+                {
+                    logger.warning("Failed to make " + myDesktopFile + " executable");
+                }
+
                 if (sudoUser != null)
                 {
-                    // transfer ownership of shortcut to sudo user
-                    String chownCmd = UnixHelper.getCustomCommand("chown");
-                    FileExecutor.getExecOutput(new String[]{chownCmd, sudoUser.getName(),
-                        StringTool.escapeSpaces(myDesktopFile.getPath())});
+                    // transfer ownership of shortcut to sudo user, once all shortcuts have been created
+                    sudoUserFiles.add(myDesktopFile.getPath());
                 }
                 
                 uninstaller.addFile(myDesktopFile.toString(), true);
@@ -721,15 +764,24 @@ public class Unix_Shortcut extends Shortcut
      */
     private void createExtXdgDesktopIconCmd(File shortCutLocation) throws ResourceNotFoundException
     {
+        String path = shortCutLocation + FS + "IzPackLocaleEnabledXdgDesktopIconScript.sh";
+        if (path.equals(myXdgDesktopIconCmd) && new File(path).exists())
+        {
+            // already created for a previous shortcut
+            return;
+        }
         ShellScript myXdgDesktopIconScript = new ShellScript(null);
 
         String lines = resources.getString("/com/izforge/izpack/util/unix/xdgdesktopiconscript.sh", null);
 
         myXdgDesktopIconScript.append(lines);
 
-        myXdgDesktopIconCmd = shortCutLocation + FS + "IzPackLocaleEnabledXdgDesktopIconScript.sh";
+        myXdgDesktopIconCmd = path;
         myXdgDesktopIconScript.write(myXdgDesktopIconCmd);
-        FileExecutor.getExecOutput(new String[]{UnixHelper.getCustomCommand("chmod"), "+x", myXdgDesktopIconCmd}, true);
+        if (!new File(myXdgDesktopIconCmd).setExecutable(true, false))
+        {
+            logger.warning("Failed to make " + myXdgDesktopIconCmd + " executable");
+        }
     }
 
 
@@ -785,13 +837,50 @@ public class Unix_Shortcut extends Shortcut
     {
         if (xdgDesktopIconCmd == null)
         {
-            xdgDesktopIconCmd = UnixHelper.getCustomCommand("xdg-desktop-icon");
+            xdgDesktopIconCmd = getCommand("xdg-desktop-icon");
         }
         return xdgDesktopIconCmd;
     }
 
 
-    private List<UnixUser> getUsers()
+    /**
+     * Returns the path of a command, looking it up on the first invocation only.
+     *
+     * @param name the command name
+     * @return the command path, or {@code null} if it cannot be found
+     */
+    private String getCommand(String name)
+    {
+        if (!commands.containsKey(name))
+        {
+            commands.put(name, findCommand(name));
+        }
+        return commands.get(name);
+    }
+
+
+    /**
+     * Looks up the path of a command.
+     * <p/>
+     * This method is provided for testing purposes.
+     *
+     * @param name the command name
+     * @return the command path, or {@code null} if it cannot be found
+     */
+    String findCommand(String name)
+    {
+        return UnixHelper.getCustomCommand(name);
+    }
+
+
+    /**
+     * Returns the users with valid shells, existing homes and desktops.
+     * <p/>
+     * This method is package-private for testing purposes.
+     *
+     * @return the users
+     */
+    List<UnixUser> getUsers()
     {
         if (users == null)
         {
@@ -807,10 +896,9 @@ public class Unix_Shortcut extends Shortcut
      */
     private void copyDesktopFileToAllUsersDesktop(File writtenDesktopFile) throws IOException
     {
-        String chmod = UnixHelper.getCustomCommand("chmod");
-        String chown = UnixHelper.getCustomCommand("chown");
-        String rm = UnixHelper.getRmCommand();
-        String copy = UnixHelper.getCpCommand();
+        String chown = getCommand("chown");
+        String rm = getCommand("rm");
+        String copy = getCommand("cp");
 
         File dest;
 
@@ -823,7 +911,11 @@ public class Unix_Shortcut extends Shortcut
 
         // Debug.log("Wrote Tempfile: " + tempFile.toString());
 
-        FileExecutor.getExecOutput(new String[]{chmod, "uga+rwx", tempFile.toString()});
+        if (!(tempFile.setReadable(true, false) && tempFile.setWritable(true, false)
+                && tempFile.setExecutable(true, false)))
+        {
+            logger.warning("Failed to set permissions of " + tempFile);
+        }
 
         // su marc.eppelmann -c "/bin/cp /home/marc.eppelmann/backup.job.out.txt
         // /home/marc.eppelmann/backup.job.out2.txt"
@@ -921,6 +1013,8 @@ public class Unix_Shortcut extends Shortcut
     {
         logger.fine("Launching post execution action");
 
+        changeSudoUserFileOwnership();
+
         String pseudoUnique = this.getClass().getName() + Long.toString(System.currentTimeMillis());
 
         String scriptFilename;
@@ -967,6 +1061,36 @@ public class Unix_Shortcut extends Shortcut
     }
 
 
+    /**
+     * Transfers ownership of the files created on behalf of the sudo user, with a single {@code chown}.
+     */
+    private void changeSudoUserFileOwnership()
+    {
+        if (!sudoUserFiles.isEmpty() && sudoUser != null)
+        {
+            List<String> command = new ArrayList<String>();
+            command.add(getCommand("chown"));
+            command.add(sudoUser.getName());
+            command.addAll(sudoUserFiles);
+            exec(command.toArray(new String[command.size()]));
+            sudoUserFiles.clear();
+        }
+    }
+
+
+    /**
+     * Executes a command.
+     * <p/>
+     * This method is provided for testing purposes.
+     *
+     * @param command the command and its arguments
+     */
+    void exec(String[] command)
+    {
+        FileExecutor.getExecOutput(command);
+    }
+
+
     private String writtenFileName;
 
     public String getWrittenFileName()
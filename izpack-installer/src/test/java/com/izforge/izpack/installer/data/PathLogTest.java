@@ -0,0 +1,196 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.util.Housekeeper;
+import com.izforge.izpack.util.file.FrontCodedPathReader;
+
+
+/**
+ * Tests the {@link PathLog} class.
+ */
+public class PathLogTest
+{
+
+    /**
+     * The temporary file prefix.
+     */
+    private static final String PREFIX = "izpack-pathlogtest";
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Removes any log left over by a failed test.
+     */
+    @After
+    public void tearDown()
+    {
+        for (File file : getLogs())
+        {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    /**
+     * Verifies that paths written to the log are front coded, and can be read back in either direction.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        PathLog log = new PathLog(PREFIX);
+        assertEquals(0, log.size());
+        assertTrue(log.getPaths().isEmpty());
+
+        List<String> paths = new ArrayList<String>();
+        int length = 0;
+        for (int i = 0; i < 500; ++i)
+        {
+            String path = "/opt/myapp/lib/dir" + (i / 50) + "/file" + i + ".jar";
+            paths.add(path);
+            length += path.length();
+            log.add(path);
+        }
+        assertEquals(500, log.size());
+        assertEquals(paths, new ArrayList<String>(log.getPaths()));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        log.writeTo(bytes);
+        assertTrue(bytes.size() < length / 2);
+
+        File file = temporaryFolder.newFile("paths.log");
+        FileUtils.writeByteArrayToFile(file, bytes.toByteArray());
+        FrontCodedPathReader reader = new FrontCodedPathReader(file);
+        try
+        {
+            assertEquals(paths, new ArrayList<String>(reader.asList(false)));
+            Collections.reverse(paths);
+            assertEquals(paths, new ArrayList<String>(reader.asList(true)));
+        }
+        finally
+        {
+            reader.close();
+        }
+        log.delete();
+    }
+
+    /**
+     * Verifies that paths added after the log has been read are visible to subsequent reads.
+     */
+    @Test
+    public void testAddAfterRead()
+    {
+        PathLog log = new PathLog(PREFIX);
+        log.add("a");
+        assertEquals("a", log.getPaths().get(0));
+        log.add("b");
+        List<String> paths = log.getPaths();
+        assertEquals(2, paths.size());
+        assertEquals("b", paths.get(1));
+        log.delete();
+    }
+
+    /**
+     * Verifies that {@link PathLog#delete()} removes the temporary file, and that a subsequent append starts
+     * a new log.
+     */
+    @Test
+    public void testDelete()
+    {
+        PathLog log = new PathLog(PREFIX);
+        log.add("a");
+        log.getPaths().get(0);
+        assertEquals(1, getLogs().size());
+
+        log.delete();
+        assertEquals(0, getLogs().size());
+        assertEquals(0, log.size());
+
+        log.add("b");
+        assertEquals(Collections.singletonList("b"), new ArrayList<String>(log.getPaths()));
+        log.delete();
+        assertEquals(0, getLogs().size());
+    }
+
+    /**
+     * Verifies that the logs of an {@link UninstallData} are deleted when the installer shuts down.
+     */
+    @Test
+    public void testUninstallDataCleanup()
+    {
+        Housekeeper housekeeper = new Housekeeper()
+        {
+            @Override
+            protected void terminate(int exitCode, boolean reboot)
+            {
+            }
+        };
+        UninstallData data = new UninstallData(housekeeper);
+        data.addFile("a", true);
+        data.addFile("b", false);
+        assertEquals(2, data.getInstalledFilesList().size());
+        assertEquals(1, data.getUninstalableFilesList().size());
+
+        housekeeper.shutDown(0);
+        assertEquals(0, data.getInstalledFilesList().size());
+        assertEquals(0, data.getUninstalableFilesList().size());
+    }
+
+    private List<File> getLogs()
+    {
+        File[] files = FileUtils.getTempDirectory().listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith(PREFIX);
+            }
+        });
+        List<File> result = new ArrayList<File>();
+        if (files != null)
+        {
+            Collections.addAll(result, files);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.izforge.izpack.installer.gui;
+
+import com.izforge.izpack.api.container.Container;
+import com.izforge.izpack.api.data.LocaleDatabase;
+import com.izforge.izpack.api.data.Panel;
+import com.izforge.izpack.api.factory.ObjectFactory;
+import com.izforge.izpack.api.resource.Messages;
+import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.core.container.DefaultContainer;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.core.factory.DefaultObjectFactory;
+import com.izforge.izpack.core.resource.DefaultLocales;
+import com.izforge.izpack.core.rules.ConditionContainer;
+import com.izforge.izpack.core.rules.RulesEngineImpl;
+import com.izforge.izpack.installer.data.GUIInstallData;
+import com.izforge.izpack.util.Platforms;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the {@link IzPanels}.
+ */
+public class IzPanelsTest
+{
+
+    /**
+     * The installation data.
+     */
+    private final GUIInstallData installData;
+
+    /**
+     * Factory for creating IzPanels.
+     */
+    private final ObjectFactory factory;
+
+    /**
+     * The container.
+     */
+    private final Container container;
+
+
+    /**
+     * Constructs an {@code IzPanelsTest}.
+     */
+    public IzPanelsTest()
+    {
+        final InstallerFrame frame = Mockito.mock(InstallerFrame.class);
+        installData = new GUIInstallData(new DefaultVariables(), Platforms.WINDOWS);
+        RulesEngine rules = new RulesEngineImpl(Mockito.mock(ConditionContainer.class), Platforms.WINDOWS);
+        installData.setRules(rules);
+        final Resources resources = Mockito.mock(Resources.class);
+        installData.setMessages(new LocaleDatabase((Messages) null, new DefaultLocales(resources)));
+
+        container = new DefaultContainer()
+        {
+            {
+                getContainer().addComponent(frame);
+                getContainer().addComponent(resources);
+                getContainer().addComponent(installData);
+            }
+        };
+        factory = new DefaultObjectFactory(container);
+    }
+
+    /**
+     * Verifies that panels are constructed on demand, and that the installation data panel list contains every
+     * panel in installation order.
+     */
+    @Test
+    public void testPanelsConstructedOnDemand()
+    {
+        List<IzPanelView> views = new ArrayList<IzPanelView>();
+        for (int i = 0; i < 5; ++i)
+        {
+            Panel panel = new Panel();
+            panel.setClassName(TestIzPanel.class.getName());
+            panel.setPanelId("panel" + i);
+            views.add(new IzPanelView(panel, factory, installData));
+        }
+        IzPanels panels = new IzPanels(views, container, installData);
+        panels.initialise();
+
+        List<IzPanel> list = installData.getPanels();
+        assertEquals(5, list.size());
+
+        // the first panel is constructed on initialisation, the last isn't
+        IzPanel first = (IzPanel) container.getComponent("panel0");
+        assertNotNull(first);
+        assertTrue(panels.isCreated(views.get(0)));
+        assertFalse(panels.isCreated(views.get(4)));
+
+        // searching and describing the list doesn't construct panels
+        assertEquals(0, list.indexOf(first));
+        assertEquals(-1, list.indexOf(new Object()));
+        assertNotNull(list.toString());
+        assertFalse(panels.isCreated(views.get(4)));
+        // only the first panel, and those being pre-warmed, are constructed
+        int created = installData.getCreatedPanels().size();
+        assertTrue(created >= 1 && created <= 3);
+
+        // accessing a panel constructs it
+        IzPanel last = list.get(4);
+        assertTrue(panels.isCreated(views.get(4)));
+        assertSame(last, container.getComponent("panel4"));
+        assertSame(last, views.get(4).getView());
+        assertEquals(4, list.indexOf(last));
+    }
+
+    /**
+     * Verifies that panels are registered with the container on initialisation, and constructed when they are
+     * first retrieved from it.
+     */
+    @Test
+    public void testPanelsRetrievedFromContainer()
+    {
+        List<IzPanelView> views = new ArrayList<IzPanelView>();
+        for (int i = 0; i < 3; ++i)
+        {
+            Panel panel = new Panel();
+            panel.setClassName(TestIzPanel.class.getName());
+            if (i != 2)
+            {
+                panel.setPanelId("panel" + i);
+            }
+            views.add(new IzPanelView(panel, factory, installData));
+        }
+        IzPanels panels = new IzPanels(views, container, installData);
+        panels.initialise();
+        assertFalse(panels.isCreated(views.get(1)));
+
+        IzPanel panel = (IzPanel) container.getComponent("panel1");
+        assertTrue(panels.isCreated(views.get(1)));
+        assertSame(views.get(1).getView(), panel);
+        assertEquals(1, installData.getPanels().indexOf(panel));
+
+        // panels without an identifier are keyed on class name
+        IzPanel unnamed = (IzPanel) container.getComponent(TestIzPanel.class.getName());
+        assertSame(views.get(2).getView(), unnamed);
+        assertEquals(3, installData.getCreatedPanels().size());
+    }
+}
@@ -25,9 +25,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.IOException;
 
 import org.junit.Test;
 
+import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.util.FileUtil;
 
 /**
@@ -64,4 +66,33 @@ public class LockFileCheckerTest extends AbstractRequirementCheckerTest
         assertTrue(file.delete());
         assertTrue(checker.check());
     }
+
+    /**
+     * Verifies that embedded installations neither create nor check the lock file, as they may run concurrently.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testEmbedded() throws IOException
+    {
+        String appName = "TestApp" + System.currentTimeMillis();
+        installData.getInfo().setAppName(appName);
+        installData.setVariable(InstallData.EMBEDDED_INSTALLATION, Boolean.TRUE.toString());
+        LockFileChecker checker = new LockFileChecker(installData, prompt);
+
+        assertTrue(checker.check());
+        File file = FileUtil.getLockFile(appName);
+        assertFalse(file.exists());
+
+        // an existing lock file is ignored, without prompting
+        try
+        {
+            assertTrue(file.createNewFile());
+            assertTrue(checker.check());
+        }
+        finally
+        {
+            assertTrue(file.delete());
+        }
+    }
 }
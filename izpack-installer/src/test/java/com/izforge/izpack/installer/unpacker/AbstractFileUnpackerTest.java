@@ -25,10 +25,12 @@ import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.util.FileExecutor;
 import com.izforge.izpack.util.Librarian;
 import com.izforge.izpack.util.Platforms;
 import com.izforge.izpack.util.os.FileQueue;
 import org.apache.commons.io.IOUtils;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -110,6 +112,38 @@ public abstract class AbstractFileUnpackerTest
         checkTarget(source, target);
     }
 
+    /**
+     * Verifies that a file that is executable at compile time is executable by its owner once unpacked, and that
+     * the executable permission isn't extended to other users.
+     *
+     * @throws Exception throws exception for any error
+     */
+    @Test
+    public void testUnpackExecutable() throws Exception
+    {
+        Assume.assumeTrue('/' == File.separatorChar);
+        File baseDir = temporaryFolder.getRoot();
+        File sourceDir = baseDir.getAbsoluteFile();
+
+        File source = createSourceFile(baseDir);
+        assertTrue(source.setExecutable(true, true));
+        File target = getTargetFile(baseDir);
+
+        FileQueue queue = new FileQueueFactory(Platforms.WINDOWS, librarian).create();
+        PackFile file = createPackFile(baseDir, source, target, Blockable.BLOCKABLE_NONE);
+        assertTrue(file.isExecutable());
+
+        FileUnpacker unpacker = createUnpacker(sourceDir, queue);
+        unpacker.unpack(file, createPackStream(source), target);
+
+        checkTarget(source, target);
+        assertTrue(target.canExecute());
+        String permissions = FileExecutor.getExecOutput(new String[]{"ls", "-l", target.getPath()}, true);
+        assertEquals('x', permissions.charAt(3));
+        assertFalse(permissions.charAt(6) == 'x');
+        assertFalse(permissions.charAt(9) == 'x');
+    }
+
     /**
      * Verifies that a file that does not have a blockable type of {@link Blockable#BLOCKABLE_NONE} is queued rather
      * than unpacked to its target.
@@ -0,0 +1,258 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.exception.InstallerException;
+
+
+/**
+ * Tests the {@link ArchiveTarget} class.
+ */
+public class ArchiveTargetTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The installation path.
+     */
+    private File installPath;
+
+    /**
+     * The last modified timestamp of installed files.
+     */
+    private static final long LAST_MODIFIED = 1262304000000L;
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        installPath = new File(temporaryFolder.getRoot(), "install");
+    }
+
+    /**
+     * Verifies that files and directories are written to a compressed tar archive, with their permissions and
+     * timestamps.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testTar() throws Exception
+    {
+        File file = write(temporaryFolder.newFile("archive.tar.gz"));
+
+        assertFalse(installPath.exists());
+        TarArchiveInputStream in = new TarArchiveInputStream(
+                new GzipCompressorInputStream(FileUtils.openInputStream(file)));
+        try
+        {
+            List<String> names = new ArrayList<String>();
+            TarArchiveEntry entry;
+            while ((entry = in.getNextTarEntry()) != null)
+            {
+                names.add(entry.getName());
+                if (entry.getName().equals("bin/run.sh"))
+                {
+                    assertEquals(0755, entry.getMode() & 0777);
+                    assertEquals(LAST_MODIFIED, entry.getModTime().getTime());
+                    assertEquals("#!/bin/sh", IOUtils.toString(in, "UTF-8"));
+                }
+                else if (entry.getName().equals("lib/doc/readme.txt"))
+                {
+                    assertEquals(0644, entry.getMode() & 0777);
+                    assertEquals("readme", IOUtils.toString(in, "UTF-8"));
+                }
+                else
+                {
+                    assertTrue(entry.isDirectory());
+                }
+            }
+            assertEquals(names.toString(), 6, names.size());
+            assertTrue(names.contains("bin/"));
+            assertTrue(names.contains("empty/"));
+            assertTrue(names.contains("lib/"));
+            assertTrue(names.contains("lib/doc/"));
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Verifies that files and directories are written to a zip archive, with their permissions and timestamps.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testZip() throws Exception
+    {
+        File file = write(temporaryFolder.newFile("archive.zip"));
+
+        ZipFile zip = new ZipFile(file);
+        try
+        {
+            int count = 0;
+            for (Enumeration<ZipArchiveEntry> entries = zip.getEntries(); entries.hasMoreElements(); )
+            {
+                entries.nextElement();
+                ++count;
+            }
+            assertEquals(6, count);
+            ZipArchiveEntry script = zip.getEntry("bin/run.sh");
+            assertEquals(0755, script.getUnixMode() & 0777);
+            assertEquals(LAST_MODIFIED, script.getTime());
+            assertEquals("#!/bin/sh", IOUtils.toString(zip.getInputStream(script), "UTF-8"));
+            ZipArchiveEntry readme = zip.getEntry("lib/doc/readme.txt");
+            assertEquals(0644, readme.getUnixMode() & 0777);
+            assertEquals("readme", IOUtils.toString(zip.getInputStream(readme), "UTF-8"));
+            assertTrue(zip.getEntry("empty/").isDirectory());
+            assertTrue(zip.getEntry("lib/doc/").isDirectory());
+            assertNull(zip.getEntry("install/"));
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+    /**
+     * Verifies that a {@link FileUnpacker} writes to the archive rather than the file system, when one is supplied.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnpack() throws Exception
+    {
+        File source = temporaryFolder.newFile("source.txt");
+        FileUtils.writeStringToFile(source, "content", "UTF-8");
+        source.setLastModified(LAST_MODIFIED);
+        File target = new File(installPath, "dir/target.txt");
+        PackFile packFile = new PackFile(temporaryFolder.getRoot(), source, "dir/target.txt", null,
+                                         OverrideType.OVERRIDE_TRUE, null, Blockable.BLOCKABLE_NONE, null);
+        packFile.setSize(source.length());
+
+        File file = temporaryFolder.newFile("archive.tar");
+        ArchiveTarget archive = new ArchiveTarget(file, installPath);
+        FileUnpacker unpacker = new DefaultFileUnpacker(new Cancellable()
+        {
+            @Override
+            public boolean isCancelled()
+            {
+                return false;
+            }
+        }, null);
+        unpacker.setArchiveTarget(archive);
+        unpacker.unpack(packFile, new ByteArrayInputStream("content".getBytes("UTF-8")), target);
+        archive.close();
+
+        assertFalse(target.exists());
+        TarArchiveInputStream in = new TarArchiveInputStream(FileUtils.openInputStream(file));
+        try
+        {
+            assertEquals("dir/", in.getNextTarEntry().getName());
+            TarArchiveEntry entry = in.getNextTarEntry();
+            assertEquals("dir/target.txt", entry.getName());
+            assertEquals(LAST_MODIFIED, entry.getModTime().getTime());
+            assertEquals("content", IOUtils.toString(in, "UTF-8"));
+            assertNull(in.getNextTarEntry());
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Verifies that an {@link InstallerException} is thrown for unsupported archive formats.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testUnsupportedFormat() throws IOException
+    {
+        try
+        {
+            new ArchiveTarget(new File(temporaryFolder.getRoot(), "archive.rar"), installPath);
+            fail("Expected InstallerException");
+        }
+        catch (InstallerException expected)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Writes a script, a nested file and an empty directory to an archive.
+     *
+     * @param file the archive
+     * @return the archive
+     * @throws IOException for any I/O error
+     */
+    private File write(File file) throws IOException
+    {
+        ArchiveTarget archive = new ArchiveTarget(file, installPath);
+        try
+        {
+            archive.addDirectory(installPath, -1);
+            archive.addFile(new File(installPath, "bin/run.sh"), 9, LAST_MODIFIED, true,
+                            new ByteArrayInputStream("#!/bin/sh".getBytes("UTF-8")));
+            archive.addDirectory(new File(installPath, "empty"), LAST_MODIFIED);
+            File readme = temporaryFolder.newFile("readme.txt");
+            FileUtils.writeStringToFile(readme, "readme", "UTF-8");
+            archive.addFile(new File(installPath, "lib/doc/readme.txt"), readme, -1, false);
+        }
+        finally
+        {
+            archive.close();
+        }
+        return file;
+    }
+}
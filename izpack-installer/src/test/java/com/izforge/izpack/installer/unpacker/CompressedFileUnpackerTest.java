@@ -0,0 +1,135 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.util.os.FileQueue;
+
+
+/**
+ * Tests the {@link CompressedFileUnpacker} class.
+ */
+public class CompressedFileUnpackerTest extends AbstractFileUnpackerTest
+{
+
+    /**
+     * Verifies that a file split into independently compressed chunks is unpacked.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnpackChunks() throws Exception
+    {
+        File baseDir = temporaryFolder.getRoot();
+        File source = new File(baseDir, "large.bin");
+        byte[] content = new byte[1000 * 1000];
+        new Random(1).nextBytes(content);
+        Arrays.fill(content, 200 * 1000, 600 * 1000, (byte) 'x');
+        FileUtils.writeByteArrayToFile(source, content);
+        File target = getTargetFile(baseDir);
+
+        int chunkSize = 300 * 1000;
+        ByteArrayOutputStream pack = new ByteArrayOutputStream();
+        long[] sizes = new long[4];
+        for (int i = 0; i < sizes.length; ++i)
+        {
+            int offset = i * chunkSize;
+            byte[] chunk = compress(Arrays.copyOfRange(content, offset, Math.min(content.length, offset + chunkSize)));
+            pack.write(chunk);
+            sizes[i] = chunk.length;
+        }
+        PackFile file = super.createPackFile(baseDir, source, target, Blockable.BLOCKABLE_NONE);
+        file.setChunks(chunkSize, sizes);
+        file.setSize(pack.size());
+
+        FileUnpacker unpacker = createUnpacker(baseDir.getAbsoluteFile(), null);
+        unpacker.unpack(file, new ByteArrayInputStream(pack.toByteArray()), target);
+
+        checkTarget(source, target);
+    }
+
+    /**
+     * Creates a pack file stream.
+     *
+     * @param source the source
+     * @return a new stream
+     * @throws IOException for any I/O error
+     */
+    @Override
+    protected InputStream createPackStream(File source) throws IOException
+    {
+        return new ByteArrayInputStream(compress(FileUtils.readFileToByteArray(source)));
+    }
+
+    /**
+     * Helper to create a new pack file, with the compressed size of the source.
+     *
+     * @param baseDir   the base directory
+     * @param source    the source file
+     * @param target    the target file
+     * @param blockable the blockable type
+     * @return a new pack file
+     * @throws IOException if the source file doesn't exist
+     */
+    @Override
+    protected PackFile createPackFile(File baseDir, File source, File target, Blockable blockable) throws IOException
+    {
+        PackFile result = super.createPackFile(baseDir, source, target, blockable);
+        result.setSize(compress(FileUtils.readFileToByteArray(source)).length);
+        return result;
+    }
+
+    /**
+     * Helper to create an unpacker.
+     *
+     * @param sourceDir the source directory
+     * @param queue     the file queue. May be {@code null}
+     * @return a new unpacker
+     */
+    @Override
+    protected FileUnpacker createUnpacker(File sourceDir, FileQueue queue)
+    {
+        return new CompressedFileUnpacker(getCancellable(), queue, PackCompression.XZ);
+    }
+
+    private static byte[] compress(byte[] content) throws IOException
+    {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        OutputStream out = new XZCompressorOutputStream(result);
+        out.write(content);
+        out.close();
+        return result.toByteArray();
+    }
+}
@@ -22,10 +22,15 @@
 package com.izforge.izpack.installer.unpacker;
 
 
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.util.os.FileQueue;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.junit.Test;
 
 import java.io.*;
+import java.util.Random;
 
 
 /**
@@ -36,6 +41,30 @@ import java.io.*;
 public class DefaultFileUnpackerTest extends AbstractFileUnpackerTest
 {
 
+    /**
+     * Verifies that a file larger than the copy buffer replaces a longer existing file.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnpackLargeFile() throws Exception
+    {
+        File baseDir = temporaryFolder.getRoot();
+        File source = new File(baseDir, "large.bin");
+        byte[] content = new byte[1000 * 1000];
+        new Random(1).nextBytes(content);
+        FileUtils.writeByteArrayToFile(source, content);
+
+        File target = getTargetFile(baseDir);
+        FileUtils.writeByteArrayToFile(target, new byte[content.length + 100]);
+
+        PackFile file = createPackFile(baseDir, source, target, Blockable.BLOCKABLE_NONE);
+        FileUnpacker unpacker = createUnpacker(baseDir.getAbsoluteFile(), null);
+        unpacker.unpack(file, createPackStream(source), target);
+
+        checkTarget(source, target);
+    }
+
     /**
      * Creates a pack file stream.
      *
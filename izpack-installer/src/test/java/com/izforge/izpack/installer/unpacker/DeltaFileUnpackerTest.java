@@ -0,0 +1,166 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.util.delta.DeltaEncoder;
+import com.izforge.izpack.util.delta.Digests;
+
+
+/**
+ * Tests the {@link DeltaFileUnpacker} class.
+ */
+public class DeltaFileUnpackerTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The previous version of the file, as installed.
+     */
+    private File target;
+
+    /**
+     * The new version of the file.
+     */
+    private File source;
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws Exception for any error
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        String content = StringUtils.repeat("the quick brown fox jumps over the lazy dog ", 1000);
+        target = temporaryFolder.newFile("target.txt");
+        FileUtils.writeStringToFile(target, content, "UTF-8");
+        source = temporaryFolder.newFile("source.txt");
+        FileUtils.writeStringToFile(source, content.replace("lazy dog", "lazy cat"), "UTF-8");
+    }
+
+    /**
+     * Verifies that the installed file is upgraded by applying the delta.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnpack() throws Exception
+    {
+        PackFile file = createPackFile(source, Digests.digest(target));
+        byte[] delta = encode(target, source);
+        file.setSize(delta.length);
+
+        createUnpacker().unpack(file, new ByteArrayInputStream(delta), target);
+        assertEquals(FileUtils.readFileToString(source, "UTF-8"), FileUtils.readFileToString(target, "UTF-8"));
+        assertEquals(source.lastModified(), target.lastModified());
+    }
+
+    /**
+     * Verifies that an unchanged file is left as is.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnchanged() throws Exception
+    {
+        PackFile file = createPackFile(target, Digests.digest(target));
+        file.setSize(0);
+        long lastModified = target.lastModified();
+
+        createUnpacker().unpack(file, new ByteArrayInputStream(new byte[0]), target);
+        assertEquals(lastModified, target.lastModified());
+    }
+
+    /**
+     * Verifies that an installed file that doesn't match the file the delta was generated against is not upgraded.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testModified() throws Exception
+    {
+        PackFile file = createPackFile(source, Digests.digest(target));
+        byte[] delta = encode(target, source);
+        file.setSize(delta.length);
+        FileUtils.writeStringToFile(target, "modified", "UTF-8");
+        try
+        {
+            createUnpacker().unpack(file, new ByteArrayInputStream(delta), target);
+            fail("Expected InstallerException");
+        }
+        catch (InstallerException expected)
+        {
+            assertEquals("modified", FileUtils.readFileToString(target, "UTF-8"));
+        }
+    }
+
+    private DeltaFileUnpacker createUnpacker()
+    {
+        Cancellable cancellable = new Cancellable()
+        {
+            @Override
+            public boolean isCancelled()
+            {
+                return false;
+            }
+        };
+        return new DeltaFileUnpacker(cancellable, null, PackCompression.XZ);
+    }
+
+    private PackFile createPackFile(File file, byte[] baselineDigest) throws Exception
+    {
+        PackFile result = new PackFile(temporaryFolder.getRoot(), file, "target.txt", null,
+                                       OverrideType.OVERRIDE_TRUE, null, Blockable.BLOCKABLE_NONE, null);
+        result.setDigest(Digests.digest(file));
+        result.setBaselineDigest(baselineDigest);
+        return result;
+    }
+
+    private byte[] encode(File from, File to) throws Exception
+    {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        OutputStream out = new XZCompressorOutputStream(result);
+        new DeltaEncoder().encode(from, to, out);
+        out.close();
+        return result.toByteArray();
+    }
+}
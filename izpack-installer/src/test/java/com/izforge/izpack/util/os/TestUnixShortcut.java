@@ -0,0 +1,133 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.os;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.util.unix.UnixUser;
+
+
+/**
+ * A {@link Unix_Shortcut} that records the commands it looks up and executes, rather than executing them.
+ * <p/>
+ * This is a top-level class as the shortcut's class name is used in the names of files referred to by generated
+ * shell scripts, where the {@code $} of a nested class name would be expanded.
+ */
+public class TestUnixShortcut extends Unix_Shortcut
+{
+
+    /**
+     * The command paths, keyed on command name.
+     */
+    private final Map<String, String> commands;
+
+    /**
+     * The user that ran the installer via sudo. May be {@code null}.
+     */
+    private final UnixUser sudoUser;
+
+    /**
+     * The users to share shortcuts with.
+     */
+    private final List<UnixUser> users;
+
+    /**
+     * The names of the commands looked up.
+     */
+    private final List<String> lookups = new ArrayList<String>();
+
+    /**
+     * The executed commands.
+     */
+    private final List<String[]> executed = new ArrayList<String[]>();
+
+
+    /**
+     * Constructs a {@code TestUnixShortcut}.
+     *
+     * @param resources   the resources
+     * @param installData the installation data
+     * @param commands    the command paths, keyed on command name
+     * @param sudoUser    the user that ran the installer via sudo. May be {@code null}
+     * @param users       the users to share shortcuts with
+     */
+    public TestUnixShortcut(Resources resources, InstallData installData, Map<String, String> commands,
+                            UnixUser sudoUser, List<UnixUser> users)
+    {
+        super(resources, installData);
+        this.commands = commands;
+        this.sudoUser = sudoUser;
+        this.users = users;
+    }
+
+    /**
+     * Returns the names of the commands looked up.
+     *
+     * @return the command names, in the order they were looked up
+     */
+    public List<String> getLookups()
+    {
+        return lookups;
+    }
+
+    /**
+     * Returns the executed commands.
+     *
+     * @return the commands, in the order they were executed
+     */
+    public List<String[]> getExecuted()
+    {
+        return executed;
+    }
+
+    @Override
+    String findCommand(String name)
+    {
+        lookups.add(name);
+        return commands.get(name);
+    }
+
+    @Override
+    String getSudoUserName()
+    {
+        return sudoUser != null ? sudoUser.getName() : null;
+    }
+
+    @Override
+    List<UnixUser> getUsers()
+    {
+        List<UnixUser> result = new ArrayList<UnixUser>(users);
+        if (sudoUser != null)
+        {
+            result.add(sudoUser);
+        }
+        return result;
+    }
+
+    @Override
+    void exec(String[] command)
+    {
+        executed.add(command);
+    }
+}
@@ -22,14 +22,29 @@
 package com.izforge.izpack.util.os;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.injectors.ProviderAdapter;
 
@@ -40,13 +55,18 @@ import com.izforge.izpack.core.container.PlatformProvider;
 import com.izforge.izpack.core.data.DefaultVariables;
 import com.izforge.izpack.core.factory.DefaultObjectFactory;
 import com.izforge.izpack.core.resource.ResourceManager;
+import com.izforge.izpack.installer.data.InstallData;
+import com.izforge.izpack.installer.data.UninstallData;
 import com.izforge.izpack.test.util.TestLibrarian;
 import com.izforge.izpack.util.DefaultTargetPlatformFactory;
+import com.izforge.izpack.util.FileExecutor;
 import com.izforge.izpack.util.Housekeeper;
+import com.izforge.izpack.util.OsVersion;
 import com.izforge.izpack.util.Platform;
 import com.izforge.izpack.util.Platforms;
 import com.izforge.izpack.util.TargetFactory;
 import com.izforge.izpack.util.TargetPlatformFactory;
+import com.izforge.izpack.util.unix.UnixUser;
 
 
 /**
@@ -59,6 +79,16 @@ public class Unix_ShortcutTest
 {
     private final String NOT_FOUND = "!!!NOT FOUND!!!";
 
+    /**
+     * The xdg-desktop-icon script, created in the shortcut location.
+     */
+    private static final String XDG_SCRIPT = "IzPackLocaleEnabledXdgDesktopIconScript.sh";
+
+    /**
+     * Temporary folder for the installation and user homes.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     /**
      * The factory.
@@ -88,7 +118,7 @@ public class Unix_ShortcutTest
                 addComponent(Properties.class);
                 addComponent(DefaultVariables.class);
                 addComponent(ResourceManager.class);
-                addComponent(com.izforge.izpack.installer.data.InstallData.class);
+                addComponent(InstallData.class);
                 addComponent(TestLibrarian.class);
                 addComponent(Housekeeper.class);
                 addComponent(TargetFactory.class);
@@ -455,4 +485,241 @@ public class Unix_ShortcutTest
       assertEquals(kdeSubstUID, getValue(result, "X-KDE-SubstituteUID"));
       assertEquals(kdeUserName, getValue(result, "X-KDE-Username"));
     }
+
+    /**
+     * Verifies that the desktop files created on behalf of the sudo user are transferred to it with a single
+     * {@code chown}, once all shortcuts have been saved, and that commands are only looked up once.
+     * <p/>
+     * The commands are recorded rather than executed, so this doesn't require root.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSudoUserOwnershipBatched() throws Exception
+    {
+        Assume.assumeTrue(OsVersion.IS_UNIX);
+        UnixUser bob = createUser("bob");
+        TestUnixShortcut shortcut = createShortcut(null, bob, Collections.<UnixUser>emptyList());
+
+        for (int i = 0; i < 3; ++i)
+        {
+            configure(shortcut, "shortcut" + i, Shortcut.CURRENT_USER);
+            shortcut.save();
+        }
+        assertTrue(shortcut.getExecuted().isEmpty());
+
+        File[] desktopFiles = new File(bob.getHome(), "Desktop").listFiles();
+        assertNotNull(desktopFiles);
+        assertEquals(3, desktopFiles.length);
+        Set<String> paths = new HashSet<String>();
+        for (File file : desktopFiles)
+        {
+            // setExecutable(true, true) is the equivalent of chmod u+x
+            String permissions = getPermissions(file);
+            assertEquals(file.getName(), 'x', permissions.charAt(2));
+            assertFalse(file.getName(), permissions.charAt(5) == 'x');
+            assertFalse(file.getName(), permissions.charAt(8) == 'x');
+            paths.add(file.getPath());
+        }
+
+        shortcut.execPostAction();
+        assertEquals(1, shortcut.getExecuted().size());
+        String[] chown = shortcut.getExecuted().get(0);
+        assertEquals("/bin/chown", chown[0]);
+        assertEquals("bob", chown[1]);
+        assertEquals(paths, new HashSet<String>(Arrays.asList(chown).subList(2, chown.length)));
+
+        // a subsequent post action has nothing further to transfer
+        shortcut.execPostAction();
+        assertEquals(1, shortcut.getExecuted().size());
+
+        assertEquals(Arrays.asList("xdg-desktop-icon", "chown"), shortcut.getLookups());
+    }
+
+    /**
+     * Verifies that the xdg-desktop-icon script is written once for all shortcuts saved to the same location, and
+     * is executable by all users.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testXdgDesktopIconScriptCreatedOnce() throws Exception
+    {
+        Assume.assumeTrue(OsVersion.IS_UNIX);
+        TestUnixShortcut shortcut = createShortcut("/usr/bin/xdg-desktop-icon", null,
+                                               Collections.<UnixUser>emptyList());
+
+        configure(shortcut, "shortcut1", Shortcut.CURRENT_USER);
+        shortcut.save();
+        File script = new File(installData.getInstallPath(), XDG_SCRIPT);
+        assertTrue(script.exists());
+
+        // setExecutable(true, false) is the equivalent of chmod a+x
+        String permissions = getPermissions(script);
+        assertEquals('x', permissions.charAt(2));
+        assertEquals('x', permissions.charAt(5));
+        assertEquals('x', permissions.charAt(8));
+
+        FileUtils.writeStringToFile(script, "unchanged", "UTF-8");
+        configure(shortcut, "shortcut2", Shortcut.CURRENT_USER);
+        shortcut.save();
+        assertEquals("unchanged", FileUtils.readFileToString(script, "UTF-8"));
+
+        assertEquals(Collections.singletonList("xdg-desktop-icon"), shortcut.getLookups());
+        assertTrue(shortcut.getExecuted().isEmpty());
+    }
+
+    /**
+     * Verifies that the temporary copy of a desktop file shared with all users can be read, written and executed by
+     * all users, and is removed by the post action.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testAllUsersTempFilePermissions() throws Exception
+    {
+        Assume.assumeTrue(OsVersion.IS_UNIX);
+
+        // the installing user's copy of the shortcut is placed in user.home, so redirect it
+        String userHome = System.getProperty("user.home");
+        TestUnixShortcut shortcut;
+        try
+        {
+            System.setProperty("user.home", createUser("me").getHome());
+            shortcut = createShortcut(null, null, Collections.<UnixUser>emptyList());
+        }
+        finally
+        {
+            System.setProperty("user.home", userHome);
+        }
+        Set<File> tempFiles = getTempFiles();
+
+        configure(shortcut, "shortcut", Shortcut.ALL_USERS);
+        shortcut.setCreateForAll(true);
+        shortcut.save();
+        assertEquals(1, new File(temporaryFolder.getRoot(), "me/Desktop").list().length);
+
+        Set<File> created = getTempFiles();
+        created.removeAll(tempFiles);
+        assertEquals(1, created.size());
+        File tempFile = created.iterator().next();
+
+        // setReadable/setWritable/setExecutable(true, false) is the equivalent of chmod a+rwx
+        assertEquals("rwxrwxrwx", getPermissions(tempFile));
+
+        shortcut.execPostAction();
+        assertFalse(tempFile.exists());
+    }
+
+    /**
+     * The installation data.
+     */
+    private InstallData installData;
+
+    /**
+     * Creates a shortcut that records the commands it looks up and executes.
+     *
+     * @param xdgDesktopIcon the path of the xdg-desktop-icon command. May be {@code null}
+     * @param sudoUser       the user that ran the installer via sudo. May be {@code null}
+     * @param users          the users to share shortcuts with
+     * @return a new shortcut
+     * @throws IOException for any I/O error
+     */
+    private TestUnixShortcut createShortcut(String xdgDesktopIcon, UnixUser sudoUser, List<UnixUser> users)
+            throws IOException
+    {
+        installData = container.getComponent(InstallData.class);
+        installData.setInstallPath(temporaryFolder.newFolder("install").getPath());
+
+        Map<String, String> commands = new HashMap<String, String>();
+        commands.put("xdg-desktop-icon", xdgDesktopIcon);
+        commands.put("chown", "/bin/chown");
+        commands.put("cp", "/bin/cp");
+        commands.put("rm", "/bin/rm");
+
+        TestUnixShortcut shortcut = new TestUnixShortcut(container.getComponent(ResourceManager.class),
+                                                         installData, commands, sudoUser, users);
+        shortcut.setUninstaller(new UninstallData());
+        return shortcut;
+    }
+
+    /**
+     * Configures a desktop shortcut.
+     *
+     * @param shortcut the shortcut
+     * @param linkName the link name
+     * @param userType the user type
+     * @throws Exception for any error
+     */
+    private void configure(Shortcut shortcut, String linkName, int userType) throws Exception
+    {
+        shortcut.setLinkName(linkName);
+        shortcut.setLinkType(Shortcut.DESKTOP);
+        shortcut.setProgramGroup("");
+        shortcut.setUserType(userType);
+        shortcut.setCreateForAll(false);
+        shortcut.setArguments("");
+        shortcut.setCategories("");
+        shortcut.setDescription(linkName);
+        shortcut.setEncoding("UTF-8");
+        shortcut.setIconLocation("", 0);
+        shortcut.setMimetype("");
+        shortcut.setTargetPath("/bin/true");
+        shortcut.setTerminal("false");
+        shortcut.setTerminalOptions("");
+        shortcut.setType("Application");
+        shortcut.setURL("");
+        shortcut.setKdeSubstUID("false");
+        shortcut.setKdeUserName("");
+        shortcut.setWorkingDirectory(installData.getInstallPath());
+    }
+
+    /**
+     * Creates a user with a desktop folder.
+     *
+     * @param name the user name
+     * @return a new user
+     * @throws IOException for any I/O error
+     */
+    private UnixUser createUser(String name) throws IOException
+    {
+        File home = temporaryFolder.newFolder(name);
+        assertTrue(new File(home, "Desktop").mkdir());
+        return new UnixUser().fromEtcPasswdLine(name + ":x:1000:1000:" + name + ":" + home + ":/bin/sh");
+    }
+
+    /**
+     * Returns the owner, group and other permissions of a file, as listed by {@code ls -l}.
+     *
+     * @param file the file
+     * @return the permissions e.g. {@code "rwxr-xr-x"}
+     */
+    private String getPermissions(File file)
+    {
+        String output = FileExecutor.getExecOutput(new String[]{"ls", "-l", file.getPath()}, true);
+        return output.substring(1, 10);
+    }
+
+    /**
+     * Returns the temporary files created by {@link TestUnixShortcut} instances.
+     *
+     * @return the temporary files
+     */
+    private Set<File> getTempFiles()
+    {
+        File[] files = FileUtils.getTempDirectory().listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith(TestUnixShortcut.class.getName()) && name.endsWith(".tmp");
+            }
+        });
+        Set<File> result = new HashSet<File>();
+        if (files != null)
+        {
+            result.addAll(Arrays.asList(files));
+        }
+        return result;
+    }
 }
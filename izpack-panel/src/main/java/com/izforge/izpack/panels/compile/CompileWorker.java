@@ -36,10 +36,24 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.IOUtils;
+
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.adaptator.IXMLParser;
 import com.izforge.izpack.api.adaptator.impl.XMLParser;
@@ -84,6 +98,16 @@ public class CompileWorker implements Runnable
 
     private static final String ECLIPSE_COMPILER_CLASS = "org.eclipse.jdt.internal.compiler.batch.Main";
 
+    /**
+     * The name of the choice that compiles in-process, using the system Java compiler.
+     */
+    static final String JAVA_COMPILER_NAME = "Integrated Java Compiler";
+
+    /**
+     * The external compiler to fall back to, if the system Java compiler isn't available.
+     */
+    private static final String JAVA_COMPILER_FALLBACK = "javac";
+
     private VariableSubstitutor vs;
 
     private IXMLElement spec;
@@ -285,21 +309,21 @@ public class CompileWorker implements Runnable
         this.compilerList = new ArrayList<String>();
 
         // read <global> information
-        IXMLElement global = this.spec.getFirstChildNamed("global");
+        IXMLElement global = this.spec.getFirstDirectChildNamed("global");
 
         // use some default values if no <global> section found
         if (global != null)
         {
 
             // get list of compilers
-            this.compilerSpec = global.getFirstChildNamed("compiler");
+            this.compilerSpec = global.getFirstDirectChildNamed("compiler");
 
             if (this.compilerSpec != null)
             {
                 readChoices(this.compilerSpec, this.compilerList);
             }
 
-            this.compilerArgumentsSpec = global.getFirstChildNamed("arguments");
+            this.compilerArgumentsSpec = global.getFirstDirectChildNamed("arguments");
 
             if (this.compilerArgumentsSpec != null)
             {
@@ -367,6 +391,15 @@ public class CompileWorker implements Runnable
                             // ignore, just don't add it as a choice
                         }
                     }
+                    else if (value.equalsIgnoreCase(JAVA_COMPILER_NAME))
+                    {
+                        // only available when running on a JDK
+                        String compiler = (getSystemCompiler() != null) ? JAVA_COMPILER_NAME : JAVA_COMPILER_FALLBACK;
+                        if (!choiceList.contains(compiler))
+                        {
+                            choiceList.add(compiler);
+                        }
+                    }
                     else
                     {
                         try
@@ -390,7 +423,7 @@ public class CompileWorker implements Runnable
      */
     private boolean collectJobs() throws Exception
     {
-        IXMLElement data = this.spec.getFirstChildNamed("jobs");
+        IXMLElement data = this.spec.getFirstDirectChildNamed("jobs");
 
         if (data == null)
         {
@@ -422,6 +455,13 @@ public class CompileWorker implements Runnable
             args.add(tokenizer.nextToken());
         }
 
+        String compiler = this.compilerToUse;
+        if (compiler.equalsIgnoreCase(JAVA_COMPILER_NAME) && getSystemCompiler() == null)
+        {
+            logger.info("No system Java compiler available, using " + JAVA_COMPILER_FALLBACK);
+            compiler = JAVA_COMPILER_FALLBACK;
+        }
+
         Iterator<CompilationJob> job_it = this.jobs.iterator();
 
         this.handler.startAction("Compilation", this.jobs.size());
@@ -431,7 +471,7 @@ public class CompileWorker implements Runnable
         {
             CompilationJob first_job = this.jobs.get(0);
 
-            CompileResult check_result = first_job.checkCompiler(this.compilerToUse, args);
+            CompileResult check_result = first_job.checkCompiler(compiler, args);
             if (!check_result.isContinue())
             {
                 return check_result;
@@ -439,6 +479,11 @@ public class CompileWorker implements Runnable
 
         }
 
+        if (compiler.equalsIgnoreCase(JAVA_COMPILER_NAME))
+        {
+            return compileJobsInProcess(args);
+        }
+
         int job_no = 0;
 
         while (job_it.hasNext())
@@ -447,7 +492,7 @@ public class CompileWorker implements Runnable
 
             this.handler.nextStep(job.getName(), job.getSize(), job_no++);
 
-            CompileResult job_result = job.perform(this.compilerToUse, args);
+            CompileResult job_result = job.perform(compiler, args);
 
             if (!job_result.isContinue())
             {
@@ -459,6 +504,112 @@ public class CompileWorker implements Runnable
         return new CompileResult();
     }
 
+    /**
+     * Performs the compilation in-process, using the system Java compiler.
+     * <p/>
+     * Jobs are compiled in parallel, apart from those whose class path refers to the output of an earlier job, which
+     * wait for that job to complete. Results are reported in job order, and compilation errors are collected as
+     * diagnostics rather than parsed from the compiler output.
+     *
+     * @param args the compiler arguments
+     * @return the result
+     */
+    private CompileResult compileJobsInProcess(List<String> args)
+    {
+        JavaCompiler compiler = getSystemCompiler();
+        File outputDir = getOutputDirectory(args);
+        int size = this.jobs.size();
+        int threads = Math.max(1, Math.min(size, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            // jobs are queued in order, so the jobs a job depends on have always started before it
+            List<Future<CompileResult>> results = new ArrayList<Future<CompileResult>>();
+            for (int i = 0; i < size; i++)
+            {
+                CompilationJob job = this.jobs.get(i);
+                List<Future<CompileResult>> dependencies = new ArrayList<Future<CompileResult>>();
+                for (int j = 0; j < i; j++)
+                {
+                    if (job.dependsOn(this.jobs.get(j), outputDir))
+                    {
+                        dependencies.add(results.get(j));
+                    }
+                }
+                results.add(executor.submit(new InProcessCompilation(job, compiler, args, dependencies)));
+            }
+
+            for (int i = 0; i < size; i++)
+            {
+                CompilationJob job = this.jobs.get(i);
+                this.handler.nextStep(job.getName(), job.getSize(), i);
+                CompileResult job_result = get(results.get(i));
+                this.handler.progress(job.getSize(), job.getName());
+                if (!job_result.isSuccess())
+                {
+                    this.handler.handleCompileError(job_result);
+                    if (!job_result.isContinue())
+                    {
+                        return job_result;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        logger.fine("Compilation finished");
+        return new CompileResult();
+    }
+
+    /**
+     * Waits for an in-process compilation to complete.
+     *
+     * @param future the compilation
+     * @return the compilation result
+     */
+    private static CompileResult get(Future<CompileResult> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            return new CompileResult(exception);
+        }
+        catch (ExecutionException exception)
+        {
+            Throwable cause = exception.getCause();
+            return new CompileResult((cause instanceof Exception) ? (Exception) cause : exception);
+        }
+    }
+
+    /**
+     * Returns the system Java compiler.
+     *
+     * @return the compiler, or {@code null} if the installer isn't running on a JDK
+     */
+    private static JavaCompiler getSystemCompiler()
+    {
+        return ToolProvider.getSystemJavaCompiler();
+    }
+
+    /**
+     * Returns the class output directory specified by the compiler arguments.
+     *
+     * @param args the compiler arguments
+     * @return the output directory, or {@code null} if classes are written alongside their sources
+     */
+    private static File getOutputDirectory(List<String> args)
+    {
+        int index = args.indexOf("-d");
+        return (index != -1 && index + 1 < args.size()) ? new File(args.get(index + 1)).getAbsoluteFile() : null;
+    }
+
     private CompilationJob collectJobsRecursive(IXMLElement node, List<String> classpath)
             throws Exception
     {
@@ -693,6 +844,105 @@ public class CompileWorker implements Runnable
             return this.files.size();
         }
 
+        /**
+         * Determines if this job must be compiled after another, as its class path refers to the other's output.
+         *
+         * @param other     the other job
+         * @param outputDir the class output directory, or {@code null} if classes are written alongside their sources
+         * @return {@code true} if this job depends on the other job
+         */
+        public boolean dependsOn(CompilationJob other, File outputDir)
+        {
+            for (String cp : this.classpath)
+            {
+                String path = new File(cp).getAbsolutePath();
+                if (outputDir != null)
+                {
+                    if (isWithin(outputDir.getPath(), path) || isWithin(path, outputDir.getPath()))
+                    {
+                        return true;
+                    }
+                }
+                else
+                {
+                    for (File file : other.files)
+                    {
+                        if (isWithin(file.getAbsolutePath(), path))
+                        {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Compiles this job in-process, using the system Java compiler.
+         * <p/>
+         * All files are compiled by a single compiler invocation, so the job isn't split to limit the command line
+         * length. Errors are returned rather than reported to the listener, so this may be invoked by any thread.
+         *
+         * @param compiler  the system Java compiler
+         * @param arguments the compiler arguments to use
+         * @return the result
+         */
+        public CompileResult performInProcess(JavaCompiler compiler, List<String> arguments)
+        {
+            logger.fine("starting job " + this.name);
+            List<String> options = new ArrayList<String>(arguments);
+            options.add("-classpath");
+            options.add(getClassPath());
+
+            List<String> cmdline = new ArrayList<String>();
+            cmdline.add(JAVA_COMPILER_NAME);
+            cmdline.addAll(options);
+            for (File file : this.files)
+            {
+                cmdline.add(file.getAbsolutePath());
+            }
+
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+            StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+            boolean success;
+            try
+            {
+                Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(this.files);
+                success = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+            }
+            catch (RuntimeException exception)
+            {
+                // thrown for invalid arguments, or if the compiler fails
+                return new CompileResult(messages.get("CompilePanel.error"), cmdline, "", exception.getMessage());
+            }
+            finally
+            {
+                IOUtils.closeQuietly(fileManager);
+            }
+
+            StringBuilder stdout = new StringBuilder();
+            StringBuilder stderr = new StringBuilder();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+            {
+                StringBuilder output = (diagnostic.getKind() == Diagnostic.Kind.ERROR) ? stderr : stdout;
+                if (diagnostic.getSource() != null)
+                {
+                    output.append(diagnostic.getSource().getName()).append(':')
+                            .append(diagnostic.getLineNumber()).append(": ");
+                }
+                output.append(diagnostic.getKind().toString().toLowerCase()).append(": ")
+                        .append(diagnostic.getMessage(null)).append('\n');
+            }
+            if (!success)
+            {
+                return new CompileResult(messages.get("CompilePanel.error"), cmdline, stdout.toString(),
+                                         stderr.toString());
+            }
+
+            logger.fine("Job " + this.name + " done (" + this.files.size() + " files compiled)");
+            return new CompileResult();
+        }
+
         /**
          * Perform this job - start compilation.
          *
@@ -1046,6 +1296,92 @@ public class CompileWorker implements Runnable
 
         }
 
+        /**
+         * Checks that the system Java compiler supports the compiler arguments.
+         * <p/>
+         * Options such as <em>-d</em> and <em>-encoding</em> are handled by the file manager, rather than the
+         * compiler, so both are consulted.
+         *
+         * @param arguments the compiler arguments
+         * @return the result
+         */
+        private CompileResult checkSystemCompiler(List<String> arguments)
+        {
+            JavaCompiler compiler = getSystemCompiler();
+            StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+            try
+            {
+                for (int i = 0; i < arguments.size(); i++)
+                {
+                    String argument = arguments.get(i);
+                    int operands = compiler.isSupportedOption(argument);
+                    if (operands == -1)
+                    {
+                        operands = fileManager.isSupportedOption(argument);
+                    }
+                    if (operands == -1)
+                    {
+                        List<String> args = new ArrayList<String>(arguments);
+                        args.add(0, JAVA_COMPILER_NAME);
+                        CompileResult result = new CompileResult(
+                                messages.get("CompilePanel.error.invalidarguments"), args, "",
+                                "Unsupported option: " + argument);
+                        this.listener.handleCompileError(result);
+                        if (!result.isContinue())
+                        {
+                            return result;
+                        }
+                        break;
+                    }
+                    i += operands;
+                }
+            }
+            finally
+            {
+                IOUtils.closeQuietly(fileManager);
+            }
+            return new CompileResult();
+        }
+
+        /**
+         * Returns the class path to compile against.
+         * <p/>
+         * If the job has no class path, this defaults to that of an external compiler: the <em>CLASSPATH</em>
+         * environment variable, or the current directory, rather than the class path of the installer.
+         *
+         * @return the class path
+         */
+        private String getClassPath()
+        {
+            StringBuilder result = new StringBuilder();
+            for (String cp : this.classpath)
+            {
+                if (result.length() > 0)
+                {
+                    result.append(File.pathSeparatorChar);
+                }
+                result.append(new File(cp).getAbsolutePath());
+            }
+            if (result.length() == 0)
+            {
+                String env = System.getenv("CLASSPATH");
+                result.append((env != null) ? env : ".");
+            }
+            return result.toString();
+        }
+
+        /**
+         * Determines if a path is the same as, or within, a directory.
+         *
+         * @param path the path
+         * @param dir  the directory
+         * @return {@code true} if the path is within the directory
+         */
+        private static boolean isWithin(String path, String dir)
+        {
+            return path.equals(dir) || path.startsWith(dir.endsWith(File.separator) ? dir : dir + File.separator);
+        }
+
         /**
          * Check whether the given compiler works.
          * <p/>
@@ -1070,6 +1406,10 @@ public class CompileWorker implements Runnable
             {
                 return new CompileResult();
             }
+            if (compiler.equalsIgnoreCase(JAVA_COMPILER_NAME))
+            {
+                return checkSystemCompiler(arguments);
+            }
 
             int retval = 0;
             FileExecutor executor = new FileExecutor();
@@ -1147,6 +1487,40 @@ public class CompileWorker implements Runnable
 
     }
 
+    /**
+     * Compiles a job in-process, once the jobs it depends on have completed.
+     */
+    private static class InProcessCompilation implements Callable<CompileResult>
+    {
+        private final CompilationJob job;
+
+        private final JavaCompiler compiler;
+
+        private final List<String> arguments;
+
+        private final List<Future<CompileResult>> dependencies;
+
+        public InProcessCompilation(CompilationJob job, JavaCompiler compiler, List<String> arguments,
+                                    List<Future<CompileResult>> dependencies)
+        {
+            this.job = job;
+            this.compiler = compiler;
+            this.arguments = arguments;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public CompileResult call() throws Exception
+        {
+            for (Future<CompileResult> dependency : dependencies)
+            {
+                // compile regardless of the outcome; failures are reported for the job that failed
+                dependency.get();
+            }
+            return job.performInProcess(compiler, arguments);
+        }
+    }
+
     /**
      * This PrintStream is used to track the Eclipse compiler output.
      * <p/>
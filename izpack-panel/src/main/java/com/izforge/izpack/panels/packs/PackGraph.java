@@ -0,0 +1,333 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.packs;
+
+import com.izforge.izpack.api.data.Pack;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * An index of the relationships between the packs visible to the user.
+ * <p/>
+ * Packs are identified by their row, i.e. their position in the list of visible packs. Parent, child, dependency
+ * and exclude group relationships are resolved once, to arrays of rows. The packs that transitively depend on each
+ * pack are also precomputed, so that the packs disabled by deselecting a pack can be determined without searching
+ * the graph.
+ * <p/>
+ * Relationships to packs that aren't visible are ignored.
+ */
+public class PackGraph
+{
+
+    /**
+     * The visible packs.
+     */
+    private final List<Pack> packs;
+
+    /**
+     * Maps pack names to their rows.
+     */
+    private final Map<String, Integer> rows;
+
+    /**
+     * The row of the parent of each pack, or {@code -1} if the pack has no parent.
+     */
+    private final int[] parents;
+
+    /**
+     * The rows of the children of each pack.
+     */
+    private final int[][] children;
+
+    /**
+     * The rows of the packs that each pack depends on.
+     */
+    private final int[][] dependencies;
+
+    /**
+     * The rows of the packs that directly depend on each pack.
+     */
+    private final int[][] dependants;
+
+    /**
+     * The rows of the packs in the same exclude group as each pack, including the pack itself.
+     */
+    private final int[][] excludeGroups;
+
+    /**
+     * The rows of the packs that directly or indirectly depend on each pack.
+     */
+    private final BitSet[] transitiveDependants;
+
+    /**
+     * Empty rows.
+     */
+    private static final int[] NONE = new int[0];
+
+
+    /**
+     * Constructs a {@code PackGraph}.
+     *
+     * @param packs the packs visible to the user
+     */
+    public PackGraph(List<Pack> packs)
+    {
+        int size = packs.size();
+        this.packs = Collections.unmodifiableList(new ArrayList<Pack>(packs));
+        rows = new HashMap<String, Integer>(size * 2);
+        for (int i = 0; i < size; ++i)
+        {
+            rows.put(packs.get(i).getName(), i);
+        }
+
+        parents = new int[size];
+        dependencies = new int[size][];
+        excludeGroups = new int[size][];
+        List<List<Integer>> childLists = newLists(size);
+        List<List<Integer>> dependantLists = newLists(size);
+        Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < size; ++i)
+        {
+            Pack pack = packs.get(i);
+            parents[i] = getRow(pack.getParent());
+            if (parents[i] != -1)
+            {
+                childLists.get(parents[i]).add(i);
+            }
+
+            List<Integer> depends = new ArrayList<Integer>();
+            if (pack.getDependencies() != null)
+            {
+                for (String name : pack.getDependencies())
+                {
+                    int row = getRow(name);
+                    if (row != -1)
+                    {
+                        depends.add(row);
+                        dependantLists.get(row).add(i);
+                    }
+                }
+            }
+            dependencies[i] = toArray(depends);
+
+            String group = pack.getExcludeGroup();
+            if (group != null)
+            {
+                List<Integer> members = groups.get(group);
+                if (members == null)
+                {
+                    members = new ArrayList<Integer>();
+                    groups.put(group, members);
+                }
+                members.add(i);
+            }
+        }
+
+        children = new int[size][];
+        dependants = new int[size][];
+        for (int i = 0; i < size; ++i)
+        {
+            children[i] = toArray(childLists.get(i));
+            dependants[i] = toArray(dependantLists.get(i));
+            excludeGroups[i] = NONE;
+        }
+        for (List<Integer> members : groups.values())
+        {
+            int[] group = toArray(members);
+            for (int row : group)
+            {
+                excludeGroups[row] = group;
+            }
+        }
+
+        transitiveDependants = new BitSet[size];
+        for (int i = 0; i < size; ++i)
+        {
+            transitiveDependants[i] = collectDependants(i);
+        }
+    }
+
+    /**
+     * Returns the no. of packs.
+     *
+     * @return the no. of packs
+     */
+    public int size()
+    {
+        return packs.size();
+    }
+
+    /**
+     * Returns the visible packs, in row order.
+     *
+     * @return the packs
+     */
+    public List<Pack> getPacks()
+    {
+        return packs;
+    }
+
+    /**
+     * Returns the pack at the specified row.
+     *
+     * @param row the row
+     * @return the pack
+     */
+    public Pack getPack(int row)
+    {
+        return packs.get(row);
+    }
+
+    /**
+     * Returns the row of a pack.
+     *
+     * @param name the pack name. May be {@code null}
+     * @return the row of the pack, or {@code -1} if there is no visible pack with the name
+     */
+    public int getRow(String name)
+    {
+        Integer row = (name != null) ? rows.get(name) : null;
+        return (row != null) ? row : -1;
+    }
+
+    /**
+     * Returns the row of the parent of a pack.
+     *
+     * @param row the pack row
+     * @return the parent row, or {@code -1} if the pack has no visible parent
+     */
+    public int getParent(int row)
+    {
+        return parents[row];
+    }
+
+    /**
+     * Returns the rows of the children of a pack.
+     *
+     * @param row the pack row
+     * @return the child rows. The array must not be modified
+     */
+    public int[] getChildren(int row)
+    {
+        return children[row];
+    }
+
+    /**
+     * Returns the rows of the packs that a pack depends on.
+     *
+     * @param row the pack row
+     * @return the dependency rows. The array must not be modified
+     */
+    public int[] getDependencies(int row)
+    {
+        return dependencies[row];
+    }
+
+    /**
+     * Returns the rows of the packs that directly depend on a pack.
+     *
+     * @param row the pack row
+     * @return the dependant rows. The array must not be modified
+     */
+    public int[] getDependants(int row)
+    {
+        return dependants[row];
+    }
+
+    /**
+     * Returns the rows of the packs in the same exclude group as a pack.
+     *
+     * @param row the pack row
+     * @return the rows of the exclude group, including {@code row}, or an empty array if the pack has no exclude
+     *         group. The array must not be modified
+     */
+    public int[] getExcludeGroup(int row)
+    {
+        return excludeGroups[row];
+    }
+
+    /**
+     * Adds the rows of the packs that directly or indirectly depend on a pack to a set.
+     *
+     * @param row    the pack row
+     * @param result the set to add to
+     */
+    public void addTransitiveDependants(int row, BitSet result)
+    {
+        result.or(transitiveDependants[row]);
+    }
+
+    /**
+     * Collects the rows of the packs that directly or indirectly depend on a pack.
+     *
+     * @param row the pack row
+     * @return the dependant rows
+     */
+    private BitSet collectDependants(int row)
+    {
+        BitSet result = new BitSet(packs.size());
+        int[] stack = new int[packs.size() + 1];
+        int top = 0;
+        stack[top++] = row;
+        while (top > 0)
+        {
+            for (int dependant : dependants[stack[--top]])
+            {
+                if (!result.get(dependant))
+                {
+                    result.set(dependant);
+                    stack[top++] = dependant;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<List<Integer>> newLists(int size)
+    {
+        List<List<Integer>> result = new ArrayList<List<Integer>>(size);
+        for (int i = 0; i < size; ++i)
+        {
+            result.add(new ArrayList<Integer>(0));
+        }
+        return result;
+    }
+
+    private static int[] toArray(List<Integer> list)
+    {
+        if (list.isEmpty())
+        {
+            return NONE;
+        }
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+}
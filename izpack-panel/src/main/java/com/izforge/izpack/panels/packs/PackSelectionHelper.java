@@ -1,5 +1,71 @@
 package com.izforge.izpack.panels.packs;
 
+import com.izforge.izpack.api.data.Pack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper methods shared by the pack selection panels, resolved via the {@link PackGraph} of a {@link PacksModel}.
+ */
 public class PackSelectionHelper
 {
+
+    /**
+     * Returns the visible packs excluded by selecting a pack.
+     *
+     * @param graph the pack graph
+     * @param row   the pack row
+     * @return the other packs in the same exclude group as the pack
+     */
+    public static List<Pack> getExcludedPacks(PackGraph graph, int row)
+    {
+        List<Pack> result = new ArrayList<Pack>();
+        for (int other : graph.getExcludeGroup(row))
+        {
+            if (other != row)
+            {
+                result.add(graph.getPack(other));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the visible children of a pack.
+     *
+     * @param graph the pack graph
+     * @param row   the pack row
+     * @return the child packs
+     */
+    public static List<Pack> getChildPacks(PackGraph graph, int row)
+    {
+        List<Pack> result = new ArrayList<Pack>();
+        for (int child : graph.getChildren(row))
+        {
+            result.add(graph.getPack(child));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the size of a pack, including that of its fully or partially selected children.
+     *
+     * @param model the packs model
+     * @param row   the pack row
+     * @return the size of the pack, in bytes
+     */
+    public static long getSelectedSize(PacksModel model, int row)
+    {
+        PackGraph graph = model.getGraph();
+        long bytes = graph.getPack(row).getSize();
+        for (int child : graph.getChildren(row))
+        {
+            if (model.isChecked(child) || model.isPartiallyChecked(child))
+            {
+                bytes += graph.getPack(child).getSize();
+            }
+        }
+        return bytes;
+    }
 }
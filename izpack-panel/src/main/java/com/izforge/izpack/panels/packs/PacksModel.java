@@ -26,7 +26,6 @@ package com.izforge.izpack.panels.packs;
 
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Pack;
-import com.izforge.izpack.api.data.PackColor;
 import com.izforge.izpack.api.data.Variables;
 import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.resource.Messages;
@@ -66,6 +65,8 @@ public class PacksModel extends AbstractTableModel
     private final Map<String, Pack> nameToPack;
     private final Map<String, Integer> nameToRow;
 
+    private final PackGraph graph;
+
     private final boolean modifyInstallation;
 
     public PacksModel(InstallData idata)
@@ -89,6 +90,7 @@ public class PacksModel extends AbstractTableModel
         this.nameToPack = getNametoPackMapping(idata.getAvailablePacks());
 
         this.packs = setPackProperties(packs, nameToPack);
+        this.graph = new PackGraph(packs);
         this.checkValues = initCheckValues(packs, packsToInstall);
 
         updateConditions(true);
@@ -117,6 +119,10 @@ public class PacksModel extends AbstractTableModel
      */
     public List<Pack> getVisiblePacks()
     {
+        if (graph != null)
+        {
+            return graph.getPacks();
+        }
         List<Pack> visiblePacks = new ArrayList<Pack>();
         for (Pack availablePack : installData.getAvailablePacks())
         {
@@ -217,40 +223,27 @@ public class PacksModel extends AbstractTableModel
      */
     private void updateConditions(boolean initial)
     {
-        boolean changes = true;
-
-        while (changes)
+        // The conditions are evaluated against the variables and the packs to install, neither of which are
+        // changed here, so a single pass is sufficient
+        for (int pos = 0; pos < packs.size(); pos++)
         {
-            changes = false;
-            for (Pack pack : packs)
+            String packName = packs.get(pos).getName();
+            if (!rules.canInstallPack(packName, variables))
             {
-                String packName = pack.getName();
-                int pos = getPos(packName);
-                if (!rules.canInstallPack(packName, variables))
+                logger.fine("Conditions for pack '" + packName + "' are not complied with");
+                if (rules.canInstallPackOptional(packName, variables))
                 {
-                    logger.fine("Conditions for pack '" + packName + "' are not complied with");
-                    if (rules.canInstallPackOptional(packName, variables))
+                    logger.fine("Pack '" + packName + "' can be installed optionally.");
+                    if (initial)
                     {
-                        logger.fine("Pack '" + packName + "' can be installed optionally.");
-                        if (initial)
-                        {
-                            if (checkValues.get(pos) != CbSelectionState.DESELECTED)
-                            {
-                                checkValues.set(pos, CbSelectionState.DESELECTED);
-                                changes = true;
-                            }
-                        }
-                    }
-                    else
-                    {
-                        if (checkValues.get(pos) != CbSelectionState.DEPENDENT_DESELECTED)
-                        {
-                            logger.fine("Pack '" + packName + "' cannot be installed");
-                            checkValues.set(pos, CbSelectionState.DEPENDENT_DESELECTED);
-                            changes = true;
-                        }
+                        checkValues.set(pos, CbSelectionState.DESELECTED);
                     }
                 }
+                else if (checkValues.get(pos) != CbSelectionState.DEPENDENT_DESELECTED)
+                {
+                    logger.fine("Pack '" + packName + "' cannot be installed");
+                    checkValues.set(pos, CbSelectionState.DEPENDENT_DESELECTED);
+                }
             }
         }
     }
@@ -295,14 +288,10 @@ public class PacksModel extends AbstractTableModel
         // If a packs dependency cannot be resolved checkboc value should be DEPENDENT_DESELECTED
         for (int i = 0; i < packs.size(); i++)
         {
-            Pack pack = packs.get(i);
             if (checkValues[i] == CbSelectionState.DESELECTED)
             {
-                List<String> deps = pack.getDependants();
-                for (int j = 0; deps != null && j < deps.size(); j++)
+                for (int pos : graph.getDependants(i))
                 {
-                    String name = deps.get(j);
-                    int pos = getPos(name);
                     checkValues[pos] = CbSelectionState.DEPENDENT_DESELECTED;
                 }
             }
@@ -310,20 +299,13 @@ public class PacksModel extends AbstractTableModel
             // for mutual exclusion, uncheck uncompatible packs too
             // (if available in the current installGroup)
             CbSelectionState checkState = checkValues[i];
-            if (checkState != null && checkState.isFullyOrPartiallySelected() && pack.getExcludeGroup() != null)
+            if (checkState != null && checkState.isFullyOrPartiallySelected())
             {
-                for (int q = 0; q < packs.size(); q++)
+                for (int q : graph.getExcludeGroup(i))
                 {
-                    if (q != i)
+                    if (q != i && checkValues[q] == CbSelectionState.SELECTED)
                     {
-                        Pack otherPack = packs.get(q);
-                        if (pack.getExcludeGroup().equals(otherPack.getExcludeGroup()))
-                        {
-                            if (checkValues[q] == CbSelectionState.SELECTED)
-                            {
-                                checkValues[q] = CbSelectionState.DESELECTED;
-                            }
-                        }
+                        checkValues[q] = CbSelectionState.DESELECTED;
                     }
                 }
             }
@@ -352,13 +334,10 @@ public class PacksModel extends AbstractTableModel
 
         final int pos = getPos(name);
         checkValues.set(pos, CbSelectionState.REQUIRED_SELECTED);
-        List<String> deps = packs.get(pos).getDependencies();
-        if (deps != null)
+        int[] deps = graph.getDependencies(pos);
+        if (deps.length > 0)
         {
-            for (String s : deps)
-            {
-                return propRequirement(s, checkValues);
-            }
+            return propRequirement(packs.get(deps[0]).getName(), checkValues);
         }
         return checkValues;
 
@@ -537,21 +516,23 @@ public class PacksModel extends AbstractTableModel
      */
     private void updateParent(Pack childPack)
     {
-        String parentName = childPack.getParent();
-        Pack parentPack = nameToPack.get(parentName);
-        int parentPosition = nameToRow.get(parentName);
+        int parentPosition = graph.getParent(getPos(childPack.getName()));
+        if (parentPosition == -1)
+        {
+            return;
+        }
+        int[] children = graph.getChildren(parentPosition);
 
         int childrenSelected = 0;
-        for (String childName : parentPack.getChildren())
+        for (int childPosition : children)
         {
-            int childPosition = nameToRow.get(childName);
             if (isChecked(childPosition))
             {
                 childrenSelected += 1;
             }
         }
 
-        if (parentPack.getChildren().size() == childrenSelected)
+        if (children.length == childrenSelected)
         {
             if (!checkValues.get(parentPosition).isSelectable())
             {
@@ -595,13 +576,11 @@ public class PacksModel extends AbstractTableModel
      */
     private void updateChildren(Pack parentPack)
     {
-        String parentName = parentPack.getName();
-        int parentPosition = nameToRow.get(parentName);
+        int parentPosition = getPos(parentPack.getName());
         CbSelectionState parentValue = checkValues.get(parentPosition);
 
-        for (String childName : parentPack.getChildren())
+        for (int childPosition : graph.getChildren(parentPosition))
         {
-            int childPosition = nameToRow.get(childName);
             checkValues.set(childPosition, parentValue);
         }
     }
@@ -710,30 +689,31 @@ public class PacksModel extends AbstractTableModel
 
     /**
      * This function updates the checkboxes after a change by disabling packs that cannot be
-     * installed anymore and enabling those that can after the change. This is accomplished by
-     * running a search that pinpoints the packs that must be disabled by a non-fullfiled
-     * dependency.
-     * TODO: Look into "+2" and "-2", doesn't look safe
+     * installed anymore and enabling those that can after the change. The packs that must be
+     * disabled by a non-fullfiled dependency are those that transitively depend on a pack that
+     * isn't selected, which are precomputed by the {@link PackGraph}.
      */
     private void updateDeps()
     {
-        int[] statusArray = new int[packs.size()];
-        for (int i = 0; i < statusArray.length; i++)
+        BitSet disabled = new BitSet(packs.size());
+        for (int i = 0; i < packs.size(); i++)
         {
-            statusArray[i] = 0;
+            if (!checkValues.get(i).isSelectedOrRequiredSelected())
+            {
+                graph.addTransitiveDependants(i, disabled);
+            }
         }
-        dfs(statusArray);
-        for (int i = 0; i < statusArray.length; i++)
+        for (int i = 0; i < packs.size(); i++)
         {
-            if (statusArray[i] == 0 && !checkValues.get(i).isSelectable())
+            boolean wipe = disabled.get(i);
+            if (!wipe && !checkValues.get(i).isSelectable())
             {
                 checkValues.set(i, CbSelectionState.PARTIAL_SELECTED);
             }
-            if (statusArray[i] == 1 && checkValues.get(i).isSelectable())
+            if (wipe && checkValues.get(i).isSelectable())
             {
                 checkValues.set(i, CbSelectionState.DEPENDENT_DESELECTED);
             }
-
         }
         // The required ones must propagate their required status to all the ones that they depend on
         for (Pack pack : packs)
@@ -756,87 +736,19 @@ public class PacksModel extends AbstractTableModel
     private void updateExcludes(int rowindex)
     {
         CbSelectionState value = checkValues.get(rowindex);
-        Pack pack = packs.get(rowindex);
-        if (value != null && value.isFullyOrPartiallySelected() && pack.getExcludeGroup() != null)
+        if (value != null && value.isFullyOrPartiallySelected())
         {
-            for (int q = 0; q < packs.size(); q++)
+            for (int q : graph.getExcludeGroup(rowindex))
             {
-                if (rowindex != q)
+                if (rowindex != q && checkValues.get(q) == CbSelectionState.SELECTED)
                 {
-                    Pack otherPack = packs.get(q);
-                    String name1 = otherPack.getExcludeGroup();
-                    String name2 = pack.getExcludeGroup();
-                    if (name2.equals(name1))
-                    {
-                        if (checkValues.get(q) == CbSelectionState.SELECTED)
-                        {
-                            checkValues.set(q, CbSelectionState.DESELECTED);
-                        }
-                    }
+                    checkValues.set(q, CbSelectionState.DESELECTED);
                 }
             }
         }
     }
 
 
-    /**
-     * We use a modified dfs graph search algorithm as described in: Thomas H. Cormen, Charles
-     * Leiserson, Ronald Rivest and Clifford Stein. Introduction to algorithms 2nd Edition
-     * 540-549,MIT Press, 2001
-     */
-    private void dfs(int[] status)
-    {
-        Map<String, PackColor> colours = new HashMap<String, PackColor>();
-        for (int i = 0; i < packs.size(); i++)
-        {
-            for (Pack pack : packs)
-            {
-                colours.put(pack.getName(), PackColor.WHITE);
-            }
-            Pack pack = packs.get(i);
-            boolean wipe = false;
-
-            if (dfsVisit(pack, status, wipe, colours) != 0)
-            {
-                return;
-            }
-
-        }
-    }
-
-    private int dfsVisit(Pack u, int[] status, boolean wipe, Map<String, PackColor> colours)
-    {
-        colours.put(u.getName(), PackColor.GREY);
-        CbSelectionState check = checkValues.get(getPos(u.getName()));
-
-        if (!check.isSelectedOrRequiredSelected())
-        {
-            wipe = true;
-        }
-        List<String> deps = u.getDependants();
-        if (deps != null)
-        {
-            for (String name : deps)
-            {
-                Pack v = nameToPack.get(name);
-                if (wipe)
-                {
-                    status[getPos(v.getName())] = 1;
-                }
-                if (colours.get(v.getName()) == PackColor.WHITE)
-                {
-                    final int result = dfsVisit(v, status, wipe, colours);
-                    if (result != 0)
-                    {
-                        return result;
-                    }
-                }
-            }
-        }
-        colours.put(u.getName(), PackColor.BLACK);
-        return 0;
-    }
-
     /**
      * Get previously installed packs on modifying a pre-installed application
      * @return the installedPacks
@@ -983,15 +895,12 @@ public class PacksModel extends AbstractTableModel
      */
     public long getTotalByteSize()
     {
-        Map<Pack, Integer> packToRow = getPacksToRowNumbers();
-        int row;
         long bytes = 0;
-        for (Pack pack : packs)
+        for (int row = 0; row < packs.size(); row++)
         {
-            row = packToRow.get(pack);
-            if(isChecked(row))
+            if (isChecked(row))
             {
-                bytes += pack.getSize();
+                bytes += packs.get(row).getSize();
             }
         }
         return bytes;
@@ -1034,7 +943,7 @@ public class PacksModel extends AbstractTableModel
      */
     public boolean dependenciesExist()
     {
-        for (Pack pack : getVisiblePacks())
+        for (Pack pack : packs)
         {
             if (pack.hasDependencies())
             {
@@ -1044,6 +953,14 @@ public class PacksModel extends AbstractTableModel
         return false;
     }
 
+    /**
+     * @return the graph of the relationships between the visible packs
+     */
+    public PackGraph getGraph()
+    {
+        return graph;
+    }
+
     /**
      * @param packName
      * @return helper method to get a pack object from the pack's name
@@ -140,7 +140,7 @@ public class ProcessPanelWorker implements Runnable
         }
 
         // Handle logfile
-        IXMLElement logFileDirElement = spec.getFirstChildNamed("logfiledir");
+        IXMLElement logFileDirElement = spec.getFirstDirectChildNamed("logfiledir");
         if (logFileDirElement != null)
         {
             logfiledir = logFileDirElement.getContent();
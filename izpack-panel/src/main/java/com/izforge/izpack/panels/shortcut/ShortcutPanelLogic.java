@@ -796,11 +796,11 @@ public class ShortcutPanelLogic implements CleanupClient
           3. Find out if we should simulate a not supported scenario
           4. Set flag if 'lateShortcutInstall' element found
          */
-        simulateNotSupported = (spec.getFirstChildNamed(SPEC_KEY_NOT_SUPPORTED) != null);
-        defaultCurrentUserFlag = (spec.getFirstChildNamed(SPEC_KEY_DEF_CUR_USER) != null);
-        skipIfNotSupported = (spec.getFirstChildNamed(SPEC_KEY_SKIP_IFNOT_SUPPORTED) != null);
-        previousDisabled = (spec.getFirstChildNamed(SPEC_KEY_PREVIOUS_DISABLED) != null);
-        setCreateShortcutsImmediately(spec.getFirstChildNamed(SPEC_KEY_LATE_INSTALL) == null);
+        simulateNotSupported = (spec.getFirstDirectChildNamed(SPEC_KEY_NOT_SUPPORTED) != null);
+        defaultCurrentUserFlag = (spec.getFirstDirectChildNamed(SPEC_KEY_DEF_CUR_USER) != null);
+        skipIfNotSupported = (spec.getFirstDirectChildNamed(SPEC_KEY_SKIP_IFNOT_SUPPORTED) != null);
+        previousDisabled = (spec.getFirstDirectChildNamed(SPEC_KEY_PREVIOUS_DISABLED) != null);
+        setCreateShortcutsImmediately(spec.getFirstDirectChildNamed(SPEC_KEY_LATE_INSTALL) == null);
 
 
         /*
@@ -827,7 +827,7 @@ public class ShortcutPanelLogic implements CleanupClient
         }
         if (group == null)
         {
-            group = spec.getFirstChildNamed(SPEC_KEY_PROGRAM_GROUP);
+            group = spec.getFirstDirectChildNamed(SPEC_KEY_PROGRAM_GROUP);
         }
 
         String location;
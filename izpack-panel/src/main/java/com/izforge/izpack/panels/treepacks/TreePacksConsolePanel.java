@@ -37,6 +37,7 @@ import com.izforge.izpack.installer.console.AbstractConsolePanel;
 import com.izforge.izpack.installer.console.ConsolePanel;
 import com.izforge.izpack.installer.panel.PanelView;
 import com.izforge.izpack.installer.util.PackHelper;
+import com.izforge.izpack.panels.packs.PackSelectionHelper;
 import com.izforge.izpack.panels.packs.PacksModel;
 import com.izforge.izpack.panels.packs.PacksPanelAutomationHelper;
 import com.izforge.izpack.util.Console;
@@ -248,11 +249,11 @@ public class TreePacksConsolePanel extends AbstractConsolePanel implements Conso
         }
 
         // Generate string for children
-        if (pack.hasChildren())
+        List<Pack> childPacks = PackSelectionHelper.getChildPacks(packsModel.getGraph(), row);
+        if (!childPacks.isEmpty())
         {
-            for (String childPackName : pack.getChildren())
+            for (Pack childPack : childPacks)
             {
-                Pack childPack = nameToPack.get(childPackName);
                 children += PackHelper.getPackName(childPack, messages) + ", ";
             }
             children = children.substring(0, children.length()-2);
@@ -14,6 +14,7 @@ import com.izforge.izpack.installer.gui.InstallerFrame;
 import com.izforge.izpack.installer.gui.IzPanel;
 import com.izforge.izpack.installer.util.PackHelper;
 import com.izforge.izpack.installer.web.WebAccessor;
+import com.izforge.izpack.panels.packs.PackSelectionHelper;
 import com.izforge.izpack.panels.packs.PacksModel;
 import com.izforge.izpack.panels.packs.PacksPanelAutomationHelper;
 import com.izforge.izpack.util.IoHelper;
@@ -502,21 +503,12 @@ public class TreePacksPanel extends IzPanel
             String excludesList = (messages == null) ? "Excludes: " : messages.get("PacksPanel.excludes");
             int numExcludes = 0;
             int i = getRowIndex(pack);
-            if (pack.getExcludeGroup() != null)
+            if (i != -1)
             {
-                for (int q = 0; q < packsModel.getVisiblePacks().size(); q++)
+                for (Pack otherPack : PackSelectionHelper.getExcludedPacks(packsModel.getGraph(), i))
                 {
-                    Pack otherPack = packsModel.getVisiblePacks().get(q);
-                    String exGroup = otherPack.getExcludeGroup();
-                    if (exGroup != null)
-                    {
-                        if (q != i && pack.getExcludeGroup().equals(exGroup))
-                        {
-
-                            excludesList += getI18NPackName(otherPack) + ", ";
-                            numExcludes++;
-                        }
-                    }
+                    excludesList += getI18NPackName(otherPack) + ", ";
+                    numExcludes++;
                 }
             }
 
@@ -683,23 +675,12 @@ public class TreePacksPanel extends IzPanel
     {
         CheckBoxNode node;
         long bytes;
+        List<Pack> packs = packsModel.getVisiblePacks();
 
-        for (Pack pack : packsModel.getVisiblePacks())
+        for (int row = 0; row < packs.size(); row++)
         {
-            bytes = pack.getSize();
-            if(pack.hasChildren())
-            {
-                for(String childPackName : pack.getChildren())
-                {
-                    Pack childPack = packsModel.getPack(childPackName);
-                    int row = packsModel.getNameToRow().get(childPackName);
-
-                    if (packsModel.isChecked(row) || packsModel.isPartiallyChecked(row))
-                    {
-                        bytes += childPack.getSize();//SOMETHING HERE
-                    }
-                }
-            }
+            Pack pack = packs.get(row);
+            bytes = PackSelectionHelper.getSelectedSize(packsModel, row);
 
             node = nameToCheckBox.get(pack.getName());
 
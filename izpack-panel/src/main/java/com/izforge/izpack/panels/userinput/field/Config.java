@@ -153,7 +153,7 @@ public class Config
      */
     public IXMLElement getElement(IXMLElement parent, String name)
     {
-        IXMLElement child = parent.getFirstChildNamed(name);
+        IXMLElement child = parent.getFirstDirectChildNamed(name);
         if (child == null)
         {
             String message = "<" + parent.getName() + "> requires child <" + name + ">";
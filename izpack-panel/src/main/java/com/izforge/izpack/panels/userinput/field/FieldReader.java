@@ -302,7 +302,7 @@ public class FieldReader extends ElementReader implements FieldConfig
     @Override
     public String getDescription()
     {
-        return getText(field.getFirstChildNamed("description"));
+        return getText(field.getFirstDirectChildNamed("description"));
     }
 
     /**
@@ -22,15 +22,12 @@ package com.izforge.izpack.panels.userinput.field;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Logger;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Panel;
 import com.izforge.izpack.api.exception.IzPackException;
-import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.factory.ObjectFactory;
-import com.izforge.izpack.api.resource.Messages;
 import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.util.PlatformModelMatcher;
 
@@ -78,14 +75,14 @@ public class UserInputPanelSpec
     private final PlatformModelMatcher matcher;
 
     /**
-     * The panel identifier attribute name
+     * The shared specifications.
      */
-    private static final String PANEL_IDENTIFIER = "id";
+    private final UserInputSpecRepository repository;
 
     /**
-     * The logger.
+     * The panel identifier attribute name
      */
-    private static final Logger logger = Logger.getLogger(UserInputPanelSpec.class.getName());
+    private static final String PANEL_IDENTIFIER = "id";
 
 
     /**
@@ -99,17 +96,8 @@ public class UserInputPanelSpec
     public UserInputPanelSpec(Resources resources, InstallData installData, ObjectFactory factory,
                               PlatformModelMatcher matcher)
     {
-        Messages messages = installData.getMessages();
-        try
-        {
-            messages = messages.newMessages(LANG_FILE_NAME);
-        }
-        catch (ResourceNotFoundException exception)
-        {
-            logger.info(exception.getMessage());
-        }
-
-        config = new Config(SPEC_FILE_NAME, resources, installData, factory, messages);
+        repository = UserInputSpecRepository.getInstance(resources, installData, factory);
+        config = repository.getConfig();
         this.installData = installData;
         this.matcher = matcher;
     }
@@ -124,19 +112,7 @@ public class UserInputPanelSpec
     public IXMLElement getPanelSpec(Panel panel)
     {
         String panelId = panel.getPanelId();
-        List<IXMLElement> panels = config.getRoot().getChildrenNamed(PANEL);
-        IXMLElement result = null;
-        for (IXMLElement spec : panels)
-        {
-            String id = spec.getAttribute(PANEL_IDENTIFIER);
-
-            if (id != null && panelId != null && panelId.equals(id))
-            {
-                // use the current element as spec
-                result = spec;
-                break;
-            }
-        }
+        IXMLElement result = repository.getPanelSpec(panelId);
         if (result == null)
         {
             throw new IzPackException("No user input specification with " + PANEL_IDENTIFIER + "=" + panelId);
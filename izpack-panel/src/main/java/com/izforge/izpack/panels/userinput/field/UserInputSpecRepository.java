@@ -0,0 +1,179 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.userinput.field;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.api.exception.ResourceNotFoundException;
+import com.izforge.izpack.api.factory.ObjectFactory;
+import com.izforge.izpack.api.resource.Messages;
+import com.izforge.izpack.api.resource.Resources;
+
+
+/**
+ * Installer-wide repository of the user input panel specifications.
+ * <p/>
+ * The user input specification and language pack are read once, and the panel specifications are indexed by
+ * identifier. The repository is shared by all user input panels via an {@link InstallData} attribute, and is
+ * rebuilt if the resources, messages or specification resource change.
+ */
+public class UserInputSpecRepository
+{
+
+    /**
+     * The install data attribute that the repository is stored in.
+     */
+    private static final String ATTRIBUTE = UserInputSpecRepository.class.getName();
+
+    /**
+     * The panel identifier attribute name
+     */
+    private static final String PANEL_IDENTIFIER = "id";
+
+    /**
+     * The resources.
+     */
+    private final Resources resources;
+
+    /**
+     * The object factory.
+     */
+    private final ObjectFactory factory;
+
+    /**
+     * The installation messages that the user input messages inherit.
+     */
+    private final Messages parentMessages;
+
+    /**
+     * The specification resource URL.
+     */
+    private final String url;
+
+    /**
+     * Provides access to the XML configuration.
+     */
+    private final Config config;
+
+    /**
+     * The panel specifications, keyed on identifier.
+     */
+    private final Map<String, IXMLElement> panels = new HashMap<String, IXMLElement>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(UserInputSpecRepository.class.getName());
+
+
+    /**
+     * Constructs an {@code UserInputSpecRepository}.
+     *
+     * @param resources   the resources
+     * @param installData the installation data
+     * @param factory     the factory
+     * @param url         the specification resource URL
+     */
+    private UserInputSpecRepository(Resources resources, InstallData installData, ObjectFactory factory, String url)
+    {
+        this.resources = resources;
+        this.factory = factory;
+        this.parentMessages = installData.getMessages();
+        this.url = url;
+
+        Messages messages = parentMessages;
+        try
+        {
+            messages = messages.newMessages(UserInputPanelSpec.LANG_FILE_NAME);
+        }
+        catch (ResourceNotFoundException exception)
+        {
+            logger.info(exception.getMessage());
+        }
+
+        config = new Config(UserInputPanelSpec.SPEC_FILE_NAME, resources, installData, factory, messages);
+        for (IXMLElement spec : config.getRoot().getChildrenNamed(UserInputPanelSpec.PANEL))
+        {
+            String id = spec.getAttribute(PANEL_IDENTIFIER);
+            if (id != null && !panels.containsKey(id))
+            {
+                panels.put(id, spec);
+            }
+        }
+    }
+
+    /**
+     * Returns the repository for an installation, creating it if required.
+     *
+     * @param resources   the resources
+     * @param installData the installation data
+     * @param factory     the factory
+     * @return the repository
+     * @throws ResourceNotFoundException if the specification resource doesn't exist
+     * @throws com.izforge.izpack.api.exception.IzPackException if the specification cannot be read
+     */
+    public static UserInputSpecRepository getInstance(Resources resources, InstallData installData,
+                                                      ObjectFactory factory)
+    {
+        synchronized (installData)
+        {
+            String url = resources.getURL(UserInputPanelSpec.SPEC_FILE_NAME).toExternalForm();
+            Object existing = installData.getAttribute(ATTRIBUTE);
+            if (existing instanceof UserInputSpecRepository)
+            {
+                UserInputSpecRepository repository = (UserInputSpecRepository) existing;
+                if (repository.resources == resources && repository.factory == factory
+                        && repository.parentMessages == installData.getMessages() && repository.url.equals(url))
+                {
+                    return repository;
+                }
+            }
+            UserInputSpecRepository result = new UserInputSpecRepository(resources, installData, factory, url);
+            installData.setAttribute(ATTRIBUTE, result);
+            return result;
+        }
+    }
+
+    /**
+     * Returns the configuration.
+     *
+     * @return the configuration
+     */
+    public Config getConfig()
+    {
+        return config;
+    }
+
+    /**
+     * Returns the specification of a panel.
+     *
+     * @param panelId the panel identifier. May be {@code null}
+     * @return the specification, or {@code null} if none is found
+     */
+    public IXMLElement getPanelSpec(String panelId)
+    {
+        return (panelId != null) ? panels.get(panelId) : null;
+    }
+
+}
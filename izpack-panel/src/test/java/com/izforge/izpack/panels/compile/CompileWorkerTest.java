@@ -0,0 +1,181 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.compile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.api.data.binding.OsModel;
+import com.izforge.izpack.api.resource.Messages;
+import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
+import com.izforge.izpack.util.PlatformModelMatcher;
+
+
+/**
+ * Tests in-process compilation by the {@link CompileWorker}.
+ */
+public class CompileWorkerTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The handler.
+     */
+    private CompileHandler handler;
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        assumeNotNull(ToolProvider.getSystemJavaCompiler());
+        handler = mock(CompileHandler.class);
+    }
+
+    /**
+     * Verifies that a job is compiled after the job whose output is on its class path.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCompile() throws Exception
+    {
+        File api = write("api/A.java", "public class A { public static int value() { return 1; } }");
+        File impl = write("impl/B.java", "public class B { int value = A.value(); }");
+        write("other/C.java", "public class C { }");
+
+        CompileWorker worker = createWorker("<job name='api'><directory name='" + api.getParent() + "'/></job>"
+                                                    + "<job name='impl'><classpath add='" + api.getParent() + "'/>"
+                                                    + "<directory name='" + impl.getParent() + "'/></job>"
+                                                    + "<job name='other'><directory name='"
+                                                    + temporaryFolder.getRoot() + "/other'/></job>");
+        worker.run();
+
+        assertTrue(worker.getResult().isSuccess());
+        assertTrue(new File(api.getParentFile(), "A.class").exists());
+        assertTrue(new File(impl.getParentFile(), "B.class").exists());
+        assertTrue(new File(temporaryFolder.getRoot(), "other/C.class").exists());
+        verify(handler, never()).handleCompileError(any(CompileResult.class));
+    }
+
+    /**
+     * Verifies that compilation errors are reported as diagnostics.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testError() throws Exception
+    {
+        File source = write("broken/Broken.java", "public class Broken { int value = undefined; }");
+
+        CompileWorker worker = createWorker("<job name='broken'><directory name='" + source.getParent()
+                                                    + "'/></job>");
+        worker.run();
+
+        CompileResult result = worker.getResult();
+        assertFalse(result.isSuccess());
+        assertEquals("compile error", result.getMessage());
+        assertTrue(result.getStderr(), result.getStderr().contains("Broken.java:1: error:"));
+        verify(handler).handleCompileError(result);
+    }
+
+    /**
+     * Verifies that options handled by the file manager, such as <em>-d</em> and <em>-encoding</em>, are accepted.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testFileManagerOptions() throws Exception
+    {
+        File source = write("src/D.java", "public class D { String value = \"\u00e9\"; }");
+        File output = temporaryFolder.newFolder("classes");
+
+        CompileWorker worker = createWorker("<job name='d'><directory name='" + source.getParent() + "'/></job>",
+                                            "-g -d " + output.getPath() + " -encoding UTF-8");
+        worker.run();
+
+        assertTrue(worker.getResult().isSuccess());
+        assertTrue(new File(output, "D.class").exists());
+        assertFalse(new File(source.getParentFile(), "D.class").exists());
+        verify(handler, never()).handleCompileError(any(CompileResult.class));
+    }
+
+    private File write(String path, String content) throws Exception
+    {
+        File file = new File(temporaryFolder.getRoot(), path);
+        FileUtils.writeStringToFile(file, content, "UTF-8");
+        return file;
+    }
+
+    private CompileWorker createWorker(String jobs) throws Exception
+    {
+        return createWorker(jobs, "-g");
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompileWorker createWorker(String jobs, String arguments) throws Exception
+    {
+        String spec = "<compilation><global>"
+                + "<compiler><choice value='" + CompileWorker.JAVA_COMPILER_NAME + "'/></compiler>"
+                + "<arguments><choice value='-g'/></arguments>"
+                + "</global><jobs>" + jobs + "</jobs></compilation>";
+        Resources resources = mock(Resources.class);
+        when(resources.getInputStream("CompilePanel.Spec.xml")).thenReturn(
+                new ByteArrayInputStream(spec.getBytes("UTF-8")));
+        Messages messages = mock(Messages.class);
+        when(messages.get("CompilePanel.error")).thenReturn("compile error");
+        InstallData installData = mock(InstallData.class);
+        when(installData.getMessages()).thenReturn(messages);
+        PlatformModelMatcher matcher = mock(PlatformModelMatcher.class);
+        when(matcher.matchesCurrentPlatform(anyListOf(OsModel.class))).thenReturn(true);
+
+        CompileWorker worker = new CompileWorker(installData, handler,
+                                                 new VariableSubstitutorImpl(new DefaultVariables()),
+                                                 resources, matcher);
+        assertEquals(CompileWorker.JAVA_COMPILER_NAME, worker.getAvailableCompilers().get(0));
+        worker.setCompiler(CompileWorker.JAVA_COMPILER_NAME);
+        worker.setCompilerArguments(arguments);
+        return worker;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.packs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.izforge.izpack.api.data.Pack;
+
+
+/**
+ * Tests the {@link PackGraph} class.
+ */
+public class PackGraphTest
+{
+
+    /**
+     * Verifies that relationships are resolved to rows, and that transitive dependants are determined.
+     */
+    @Test
+    public void testGraph()
+    {
+        Pack base = createPack("base", null, "group");
+        Pack core = createPack("core", Arrays.asList("base", "hidden"), null);
+        Pack docs = createPack("docs", Arrays.asList("core"), "group");
+        Pack samples = createPack("samples", null, null);
+        samples.setParent("docs");
+        PackGraph graph = new PackGraph(Arrays.asList(base, core, docs, samples));
+
+        assertEquals(1, graph.getRow("core"));
+        assertEquals(-1, graph.getRow("hidden"));
+        assertArrayEquals(new int[]{0}, graph.getDependencies(1));
+        assertArrayEquals(new int[]{2}, graph.getDependants(1));
+        assertArrayEquals(new int[]{3}, graph.getChildren(2));
+        assertEquals(2, graph.getParent(3));
+        assertArrayEquals(new int[]{0, 2}, graph.getExcludeGroup(2));
+        assertArrayEquals(new int[0], graph.getExcludeGroup(1));
+
+        BitSet dependants = new BitSet();
+        graph.addTransitiveDependants(0, dependants);
+        assertEquals("{1, 2}", dependants.toString());
+    }
+
+    private Pack createPack(String name, List<String> dependencies, String excludeGroup)
+    {
+        return new Pack(name, null, null, null, dependencies, false, true, false, excludeGroup, true, 0);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.userinput.field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.api.data.Panel;
+import com.izforge.izpack.api.exception.IzPackException;
+import com.izforge.izpack.api.factory.ObjectFactory;
+import com.izforge.izpack.core.resource.ResourceManager;
+import com.izforge.izpack.panels.test.TestConsolePanelContainer;
+import com.izforge.izpack.test.Container;
+import com.izforge.izpack.test.junit.PicoRunner;
+import com.izforge.izpack.util.PlatformModelMatcher;
+
+
+/**
+ * Tests the {@link UserInputSpecRepository} and its use by {@link UserInputPanelSpec}.
+ */
+@RunWith(PicoRunner.class)
+@Container(TestConsolePanelContainer.class)
+public class UserInputSpecRepositoryTest
+{
+
+    /**
+     * The installation data.
+     */
+    private final InstallData installData;
+
+    /**
+     * The factory.
+     */
+    private final ObjectFactory factory;
+
+    /**
+     * The resources.
+     */
+    private final ResourceManager resources;
+
+    /**
+     * The platform-model matcher.
+     */
+    private final PlatformModelMatcher matcher;
+
+
+    /**
+     * Constructs an {@code UserInputSpecRepositoryTest}.
+     *
+     * @param installData the installation data
+     * @param factory     the factory
+     * @param resources   the resources
+     * @param matcher     the platform-model matcher
+     */
+    public UserInputSpecRepositoryTest(InstallData installData, ObjectFactory factory, ResourceManager resources,
+                                       PlatformModelMatcher matcher)
+    {
+        this.installData = installData;
+        this.factory = factory;
+        this.resources = resources;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Sets up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        // pick up com/izforge/izpack/panels/userinput/spec/userInputSpec.xml
+        resources.setResourceBasePath("/com/izforge/izpack/panels/userinput/spec/");
+    }
+
+    /**
+     * Verifies that the specification is read once, and that repeated lookups return the same panel
+     * specifications.
+     */
+    @Test
+    public void testRepeatedLookups()
+    {
+        UserInputSpecRepository repository = UserInputSpecRepository.getInstance(resources, installData, factory);
+        assertSame(repository, UserInputSpecRepository.getInstance(resources, installData, factory));
+
+        IXMLElement panel1 = repository.getPanelSpec("panel1");
+        IXMLElement panel2 = repository.getPanelSpec("panel2");
+        assertNotNull(panel1);
+        assertNotNull(panel2);
+        assertEquals("panel1", panel1.getAttribute("id"));
+        assertEquals("panel2", panel2.getAttribute("id"));
+        for (int i = 0; i < 3; ++i)
+        {
+            assertSame(panel1, repository.getPanelSpec("panel1"));
+            assertSame(panel2, repository.getPanelSpec("panel2"));
+        }
+    }
+
+    /**
+     * Verifies that panels share the specification, but each creates its own fields.
+     */
+    @Test
+    public void testPanelsShareSpec()
+    {
+        UserInputPanelSpec spec1 = new UserInputPanelSpec(resources, installData, factory, matcher);
+        UserInputPanelSpec spec2 = new UserInputPanelSpec(resources, installData, factory, matcher);
+        assertSame(spec1.getConfig(), spec2.getConfig());
+
+        IXMLElement panel1 = spec1.getPanelSpec(createPanel("panel1"));
+        IXMLElement panel2 = spec2.getPanelSpec(createPanel("panel2"));
+        assertSame(panel1, spec2.getPanelSpec(createPanel("panel1")));
+        assertSame(panel2, spec1.getPanelSpec(createPanel("panel2")));
+
+        assertEquals(1, spec1.createFields(panel1).size());
+        assertEquals(2, spec2.createFields(panel2).size());
+        assertNotSame(spec1.createFields(panel1).get(0), spec2.createFields(panel1).get(0));
+    }
+
+    /**
+     * Verifies that a missing panel identifier is reported.
+     */
+    @Test
+    public void testMissingPanel()
+    {
+        UserInputSpecRepository repository = UserInputSpecRepository.getInstance(resources, installData, factory);
+        assertNull(repository.getPanelSpec("missing"));
+        assertNull(repository.getPanelSpec(null));
+
+        UserInputPanelSpec spec = new UserInputPanelSpec(resources, installData, factory, matcher);
+        try
+        {
+            spec.getPanelSpec(createPanel("missing"));
+            fail("Expected IzPackException");
+        }
+        catch (IzPackException expected)
+        {
+            assertEquals("No user input specification with id=missing", expected.getMessage());
+        }
+    }
+
+    /**
+     * Verifies that the repository is rebuilt if the specification resource changes.
+     */
+    @Test
+    public void testSpecChanged()
+    {
+        UserInputSpecRepository repository = UserInputSpecRepository.getInstance(resources, installData, factory);
+        assertNotNull(repository.getPanelSpec("panel1"));
+
+        // pick up com/izforge/izpack/panels/userinput/text/userInputSpec.xml
+        resources.setResourceBasePath("/com/izforge/izpack/panels/userinput/text/");
+        UserInputSpecRepository changed = UserInputSpecRepository.getInstance(resources, installData, factory);
+        assertNotSame(repository, changed);
+        assertNull(changed.getPanelSpec("panel1"));
+        assertNotNull(changed.getPanelSpec("textinput"));
+    }
+
+    private Panel createPanel(String id)
+    {
+        Panel panel = new Panel();
+        panel.setPanelId(id);
+        return panel;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.integration.automation;
+
+import static com.izforge.izpack.test.util.TestHelper.assertFileExists;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.compiler.container.TestCompilationContainer;
+import com.izforge.izpack.installer.automation.InstallerEngine;
+import com.izforge.izpack.integration.HelperTestMethod;
+import com.izforge.izpack.test.Container;
+import com.izforge.izpack.test.InstallFile;
+import com.izforge.izpack.test.junit.PicoRunner;
+import com.izforge.izpack.test.junit.UnloadJarRule;
+import com.izforge.izpack.util.file.FrontCodedPathReader;
+
+
+/**
+ * Tests the {@link InstallerEngine}.
+ */
+@RunWith(PicoRunner.class)
+@Container(TestCompilationContainer.class)
+public class InstallerEngineTest
+{
+
+    /**
+     * The number of concurrent installations.
+     */
+    private static final int INSTALLATIONS = 3;
+
+    /**
+     * Temporary folder to perform installations to.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public TestRule globalTimeout = new Timeout(HelperTestMethod.TIMEOUT, TimeUnit.MILLISECONDS);
+
+    @Rule
+    public UnloadJarRule unloadJarRule = new UnloadJarRule();
+
+    /**
+     * The compilation container.
+     */
+    private final TestCompilationContainer container;
+
+
+    /**
+     * Constructs an {@code InstallerEngineTest}.
+     *
+     * @param container the compilation container
+     */
+    public InstallerEngineTest(TestCompilationContainer container)
+    {
+        this.container = container;
+    }
+
+    /**
+     * Compiles the installer, and makes it available to the engine.
+     */
+    @Before
+    public void setUp()
+    {
+        container.launchCompilation();
+    }
+
+    /**
+     * Verifies that installations run concurrently by the same engine install into their own targets, using their
+     * own variables, and don't leave temporary files behind.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    @InstallFile("samples/basicInstall/basicInstall.xml")
+    public void testConcurrentInstallations() throws Exception
+    {
+        // the installation path is supplied by each installation's variables
+        final File record = createInstallRecord("${" + InstallData.INSTALL_PATH + "}");
+        final InstallerEngine engine = new InstallerEngine();
+        Set<String> tempFiles = getTempFiles();
+
+        List<File> dirs = new ArrayList<File>();
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        ExecutorService executor = Executors.newFixedThreadPool(INSTALLATIONS);
+        try
+        {
+            for (int i = 0; i < INSTALLATIONS; ++i)
+            {
+                File dir = new File(temporaryFolder.getRoot(), "tenant" + i);
+                dirs.add(dir);
+                final Properties variables = new Properties();
+                variables.setProperty(InstallData.INSTALL_PATH, dir.getAbsolutePath());
+                results.add(executor.submit(new Callable<Boolean>()
+                {
+                    @Override
+                    public Boolean call() throws Exception
+                    {
+                        return engine.install(record, variables);
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results)
+            {
+                assertTrue(result.get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        for (File dir : dirs)
+        {
+            checkInstallation(dir);
+        }
+        assertEquals(tempFiles, getTempFiles());
+    }
+
+    /**
+     * Verifies an installation contains the expected files, and that its uninstaller only refers to those files.
+     *
+     * @param dir the installation directory
+     * @throws Exception for any error
+     */
+    private void checkInstallation(File dir) throws Exception
+    {
+        assertFileExists(dir, "Licence.txt");
+        assertFileExists(dir, "Readme.txt");
+
+        // the parsed script refers to the installation's own path
+        File script = new File(dir, "test/script.bat");
+        assertFileExists(script);
+        assertEquals("echo " + dir.getAbsolutePath(), FileUtils.readFileToString(script, "UTF-8").trim());
+
+        File uninstaller = new File(dir, "Uninstaller/uninstaller.jar");
+        assertFileExists(uninstaller);
+        JarFile jar = new JarFile(uninstaller);
+        File files = temporaryFolder.newFile();
+        try
+        {
+            assertEquals(dir.getAbsolutePath(), readEntry(jar, "install.log").trim());
+            InputStream in = jar.getInputStream(jar.getEntry("install.files"));
+            try
+            {
+                FileUtils.copyInputStreamToFile(in, files);
+            }
+            finally
+            {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        finally
+        {
+            jar.close();
+        }
+
+        FrontCodedPathReader reader = new FrontCodedPathReader(files);
+        try
+        {
+            assertFalse(reader.asList(false).isEmpty());
+            for (String path : reader.asList(false))
+            {
+                assertTrue(path, path.startsWith(dir.getAbsolutePath()));
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Creates an installation record from the sample record, with the specified installation path.
+     *
+     * @param installPath the installation path
+     * @return the installation record
+     * @throws Exception for any error
+     */
+    private File createInstallRecord(String installPath) throws Exception
+    {
+        URL url = getClass().getResource("/samples/basicInstall/auto.xml");
+        assertNotNull(url);
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(url.toString());
+        Node node = (Node) XPathFactory.newInstance().newXPath().evaluate("//installpath", doc,
+                                                                          XPathConstants.NODE);
+        node.setTextContent(installPath);
+
+        File record = temporaryFolder.newFile("auto.xml");
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(record));
+        return record;
+    }
+
+    private String readEntry(JarFile jar, String name) throws Exception
+    {
+        InputStream in = jar.getInputStream(jar.getEntry(name));
+        try
+        {
+            return IOUtils.toString(in, "UTF-8");
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Returns the temporary files that installations may create.
+     *
+     * @return the temporary file names
+     */
+    private Set<String> getTempFiles()
+    {
+        String[] names = FileUtils.getTempDirectory().list(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith("izpack") || name.startsWith("uninstaller") || name.startsWith("iz-");
+            }
+        });
+        Set<String> result = new TreeSet<String>();
+        if (names != null)
+        {
+            result.addAll(Arrays.asList(names));
+        }
+        return result;
+    }
+}
@@ -25,7 +25,16 @@ import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -81,11 +90,31 @@ public class Destroyer implements Runnable
      */
     private boolean forceDelete;
 
+    /**
+     * The no. of threads used to delete files. If <tt>1</tt>, files are deleted serially.
+     */
+    private int threads = 1;
+
     /**
      * Tracks the no. of files that couldn't be deleted.
      */
     private List<File> failed = new ArrayList<File>();
 
+    /**
+     * Serialises listener callbacks when files are deleted concurrently.
+     */
+    private final Object callbackLock = new Object();
+
+    /**
+     * The maximum no. of files deleted by a single task when deleting concurrently.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * The maximum no. of threads used to delete files concurrently.
+     */
+    private static final int MAX_THREADS = 8;
+
     /**
      * The logger.
      */
@@ -138,6 +167,29 @@ public class Destroyer implements Runnable
         this.forceDelete = force;
     }
 
+    /**
+     * Sets the no. of threads used to delete files.
+     * <p/>
+     * If greater than <tt>1</tt>, leaf files are deleted in parallel, a directory at a time, and directories are
+     * then removed bottom-up. Listener callbacks for each file are still invoked in order, one file at a time.
+     *
+     * @param threads the no. of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Returns the default no. of threads to use when deleting files concurrently.
+     *
+     * @return the default no. of threads
+     */
+    public static int getDefaultThreads()
+    {
+        return Math.min(MAX_THREADS, Math.max(2, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
     /**
      * Runs the destroyer.
      */
@@ -187,7 +239,24 @@ public class Destroyer implements Runnable
      */
     private void destroy() throws Exception
     {
-        List<File> files = log.getInstalled();
+        try
+        {
+            destroy(log.getInstalled());
+        }
+        finally
+        {
+            log.close();
+        }
+    }
+
+    /**
+     * Deletes installed files, runs any root scripts, and cleans up remaining files if required.
+     *
+     * @param files the installed files, in leaf first order
+     * @throws Exception for any error
+     */
+    private void destroy(List<File> files) throws Exception
+    {
         int size = files.size();
         listeners.beforeDeletion(files, listener);
         if (listener != null)
@@ -195,17 +264,25 @@ public class Destroyer implements Runnable
             listener.startAction("destroy", size);
         }
 
-        for (int i = 0; i < size; i++)
+        List<File> notDeleted = null;
+        if (threads > 1)
+        {
+            notDeleted = deleteConcurrently(files);
+        }
+        else
         {
-            File file = files.get(i);
-            listeners.beforeDelete(file, listener);
+            for (int i = 0; i < size; i++)
+            {
+                File file = files.get(i);
+                listeners.beforeDelete(file, listener);
 
-            delete(file);
+                delete(file);
 
-            listeners.afterDelete(file, listener);
-            if (listener != null)
-            {
-                listener.progress(i, file.getAbsolutePath());
+                listeners.afterDelete(file, listener);
+                if (listener != null)
+                {
+                    listener.progress(i, file.getAbsolutePath());
+                }
             }
         }
 
@@ -216,14 +293,22 @@ public class Destroyer implements Runnable
         // We make a complementary cleanup
         if (listener != null)
         {
-            listener.progress(log.getInstalled().size(), "[ cleanups ]");
+            listener.progress(size, "[ cleanups ]");
         }
 
         File installPath = new File(log.getInstallPath());
-        cleanup(installPath);
+        // when deleting concurrently, and every logged file and directory was removed, only the installation
+        // directory may remain. Only walk the tree if it can't be removed on its own
+        boolean removed = notDeleted != null && notDeleted.isEmpty()
+                && (installPath.delete() || !installPath.exists());
+        if (!removed)
+        {
+            cleanup(installPath);
+        }
 
         // verify that the files no longer exist. Check this here, as the root scripts may have performed cleanup.
-        checkDeletion(files, installPath);
+        // When deleting concurrently, only those files that failed to be deleted need to be checked
+        checkDeletion((notDeleted != null) ? notDeleted : files, installPath);
 
         if (listener != null)
         {
@@ -231,6 +316,148 @@ public class Destroyer implements Runnable
         }
     }
 
+    /**
+     * Deletes files using a pool of {@link #threads} threads.
+     * <p/>
+     * Directories are identified from the installed paths themselves, rather than by querying the file system.
+     * Leaf files are deleted first, in batches grouped by parent directory. Directories are then deleted deepest
+     * first, each level in parallel.
+     *
+     * @param files the files to delete, in leaf first order
+     * @return the files that couldn't be deleted
+     * @throws Exception for any error
+     */
+    private List<File> deleteConcurrently(List<File> files) throws Exception
+    {
+        Set<String> parents = new HashSet<String>();
+        for (File file : files)
+        {
+            String parent = file.getParent();
+            while (parent != null && parents.add(parent))
+            {
+                parent = new File(parent).getParent();
+            }
+        }
+
+        List<File> notDeleted = Collections.synchronizedList(new ArrayList<File>());
+        AtomicInteger progress = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            // delete the leaf files, a directory at a time
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            TreeMap<Integer, List<File>> directories = new TreeMap<Integer, List<File>>(
+                    Collections.reverseOrder());
+            List<File> batch = new ArrayList<File>();
+            String batchParent = null;
+            for (File file : files)
+            {
+                String path = file.getPath();
+                if (parents.contains(path))
+                {
+                    int depth = getDepth(path);
+                    List<File> level = directories.get(depth);
+                    if (level == null)
+                    {
+                        level = new ArrayList<File>();
+                        directories.put(depth, level);
+                    }
+                    level.add(file);
+                }
+                else
+                {
+                    String parent = file.getParent();
+                    if (batch.size() == BATCH_SIZE || (!batch.isEmpty() && !equals(parent, batchParent)))
+                    {
+                        futures.add(executor.submit(new Deleter(batch, notDeleted, progress)));
+                        batch = new ArrayList<File>();
+                    }
+                    batch.add(file);
+                    batchParent = parent;
+                }
+            }
+            if (!batch.isEmpty())
+            {
+                futures.add(executor.submit(new Deleter(batch, notDeleted, progress)));
+            }
+            waitFor(futures);
+
+            // delete the directories, bottom-up
+            for (List<File> level : directories.values())
+            {
+                futures.clear();
+                for (int i = 0; i < level.size(); i += BATCH_SIZE)
+                {
+                    List<File> dirs = level.subList(i, Math.min(i + BATCH_SIZE, level.size()));
+                    futures.add(executor.submit(new Deleter(dirs, notDeleted, progress)));
+                }
+                waitFor(futures);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return notDeleted;
+    }
+
+    /**
+     * Waits for deletion tasks to complete.
+     *
+     * @param futures the tasks
+     * @throws Exception the first exception thrown by a task
+     */
+    private void waitFor(List<Future<?>> futures) throws Exception
+    {
+        for (Future<?> future : futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (ExecutionException exception)
+            {
+                Throwable cause = exception.getCause();
+                if (cause instanceof Exception)
+                {
+                    throw (Exception) cause;
+                }
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Returns the no. of separators in a path.
+     *
+     * @param path the path
+     * @return the path depth
+     */
+    private static int getDepth(String path)
+    {
+        int depth = 0;
+        for (int i = 0; i < path.length(); ++i)
+        {
+            if (path.charAt(i) == File.separatorChar)
+            {
+                ++depth;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Helper to compare two possibly <tt>null</tt> strings for equality.
+     *
+     * @param a the first string. May be <tt>null</tt>
+     * @param b the second string. May be <tt>null</tt>
+     * @return <tt>true</tt> if they are equal
+     */
+    private static boolean equals(String a, String b)
+    {
+        return (a == null) ? b == null : a.equals(b);
+    }
+
     /**
      * Verifies that the installed files have been deleted.
      *
@@ -291,4 +518,102 @@ public class Destroyer implements Runnable
         }
     }
 
+    /**
+     * Deletes a batch of files, invoking the per-file listener callbacks for each.
+     * <p/>
+     * Callbacks are serialised across all deleters, so each file sees <em>beforeDelete</em>, then
+     * <em>afterDelete</em>, without interleaving with other files. To guarantee this, the deletion of each file is
+     * also serialised when there are file listeners, so files are only deleted in parallel when there are none.
+     */
+    private class Deleter implements Runnable
+    {
+
+        /**
+         * The files to delete.
+         */
+        private final List<File> files;
+
+        /**
+         * Collects the files that couldn't be deleted.
+         */
+        private final List<File> notDeleted;
+
+        /**
+         * The no. of files processed across all deleters.
+         */
+        private final AtomicInteger progress;
+
+        /**
+         * Constructs a <tt>Deleter</tt>.
+         *
+         * @param files      the files to delete
+         * @param notDeleted collects the files that couldn't be deleted
+         * @param progress   the no. of files processed across all deleters
+         */
+        public Deleter(List<File> files, List<File> notDeleted, AtomicInteger progress)
+        {
+            this.files = files;
+            this.notDeleted = notDeleted;
+            this.progress = progress;
+        }
+
+        /**
+         * Deletes the files.
+         */
+        @Override
+        public void run()
+        {
+            boolean fileListener = listeners.isFileListener();
+            for (File file : files)
+            {
+                if (fileListener)
+                {
+                    synchronized (callbackLock)
+                    {
+                        listeners.beforeDelete(file, listener);
+                        deleteFile(file);
+                        listeners.afterDelete(file, listener);
+                        progress(file);
+                    }
+                }
+                else
+                {
+                    deleteFile(file);
+                    synchronized (callbackLock)
+                    {
+                        progress(file);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Deletes a file, collecting it if it couldn't be deleted.
+         *
+         * @param file the file to delete
+         */
+        private void deleteFile(File file)
+        {
+            // only stat the file if it couldn't be deleted, as it may never have existed
+            if (!file.delete() && file.exists())
+            {
+                logger.info("Failed to delete: " + file);
+                notDeleted.add(file);
+            }
+        }
+
+        /**
+         * Notifies the progress listener that a file has been processed.
+         *
+         * @param file the file
+         */
+        private void progress(File file)
+        {
+            if (listener != null)
+            {
+                listener.progress(progress.getAndIncrement(), file.getAbsolutePath());
+            }
+        }
+    }
+
 }
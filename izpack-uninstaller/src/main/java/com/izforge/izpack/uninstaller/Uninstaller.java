@@ -133,6 +133,10 @@ public class Uninstaller
                 {
                     force = true;
                 }
+                else if (arg.equals("-p"))
+                {
+                    container.getComponent(Destroyer.class).setThreads(Destroyer.getDefaultThreads());
+                }
             }
             uninstaller.uninstall(force);
         }
@@ -164,6 +168,10 @@ public class Uninstaller
                         {
                             displayForceOption = false;
                         }
+                        else if (arg.equals("-p"))
+                        {
+                            container.getComponent(Destroyer.class).setThreads(Destroyer.getDefaultThreads());
+                        }
                     }
 
                     UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -80,6 +80,16 @@ public class UninstallerListeners
         }
     }
 
+    /**
+     * Determines if any listener should be notified of every file and directory deletion.
+     *
+     * @return <tt>true</tt> if a listener should be notified, otherwise <tt>false</tt>
+     */
+    public boolean isFileListener()
+    {
+        return fileListener;
+    }
+
     /**
      * Initialises the listeners.
      *
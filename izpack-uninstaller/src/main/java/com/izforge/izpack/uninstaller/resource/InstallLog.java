@@ -22,12 +22,18 @@
 package com.izforge.izpack.uninstaller.resource;
 
 import com.izforge.izpack.api.exception.IzPackException;
+import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.util.file.FrontCodedPathReader;
+import com.izforge.izpack.util.file.FrontCodedPathSorter;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.TreeSet;
 
@@ -36,6 +42,9 @@ import java.util.TreeSet;
  * The installation log.
  * <p/>
  * This holds the installation path and the list of installed files.
+ * <p/>
+ * Installed files read from an <em>install.files</em> resource are sorted into a temporary file, which is removed
+ * by {@link #close()}.
  *
  * @author Tim Anderson
  */
@@ -47,15 +56,47 @@ public class InstallLog
      */
     private static final String INSTALL_LOG = "install.log";
 
+    /**
+     * The install.files resource path.
+     */
+    private static final String INSTALL_FILES = "install.files";
+
     /**
      * The installation directory.
      */
     private final String installPath;
 
     /**
-     * The installed files.
+     * The resources.
+     */
+    private final Resources resources;
+
+    /**
+     * The installed files. May be <tt>null</tt> if the <em>install.files</em> log has been closed.
+     */
+    private List<File> files;
+
+    /**
+     * The reader of the sorted <em>install.files</em> paths. May be <tt>null</tt>.
+     */
+    private FrontCodedPathReader reader;
+
+    /**
+     * The sorted <em>install.files</em> paths. May be <tt>null</tt>.
+     */
+    private File sorted;
+
+    /**
+     * Orders paths leaf first, i.e. in reverse order, so children precede their parents.
      */
-    private final List<File> files;
+    private static final Comparator<String> LEAF_ORDER = new Comparator<String>()
+    {
+        @Override
+        public int compare(String o1, String o2)
+        {
+            return new File(o2).compareTo(new File(o1));
+        }
+    };
 
 
     /**
@@ -66,6 +107,7 @@ public class InstallLog
      */
     public InstallLog(Resources resources)
     {
+        this.resources = resources;
         InputStream in = null;
         InputStreamReader inReader = null;
         try
@@ -75,7 +117,8 @@ public class InstallLog
             BufferedReader reader = new BufferedReader(inReader);
 
             installPath = getInstallPath(reader);
-            files = getFiles(reader);
+            List<File> installed = getFiles(resources);
+            files = (installed != null) ? installed : getFiles(reader);
         }
         catch (IOException exception)
         {
@@ -99,15 +142,47 @@ public class InstallLog
     }
 
     /**
-     * Returns the installed files, in leaf order.
+     * Returns the installed files, in leaf order, without duplicates.
+     * <p/>
+     * If the installer wrote an <em>install.files</em> resource, the files are read on demand from a sorted
+     * temporary file.
      *
      * @return the installed files
+     * @throws IzPackException if the installed files cannot be read
      */
-    public List<File> getInstalled()
+    public synchronized List<File> getInstalled()
     {
+        if (files == null)
+        {
+            try
+            {
+                files = getFiles(resources);
+            }
+            catch (IOException exception)
+            {
+                throw new IzPackException(exception);
+            }
+        }
         return files;
     }
 
+    /**
+     * Releases the temporary file holding the sorted <em>install.files</em> paths.
+     * <p/>
+     * A subsequent call to {@link #getInstalled()} re-reads them.
+     */
+    public synchronized void close()
+    {
+        if (reader != null)
+        {
+            IOUtils.closeQuietly(reader);
+            reader = null;
+            files = null;
+        }
+        FileUtils.deleteQuietly(sorted);
+        sorted = null;
+    }
+
     /**
      * Helper to determine the installation path.
      *
@@ -155,6 +230,68 @@ public class InstallLog
         return path;
     }
 
+    /**
+     * Returns the installed files from the <em>install.files</em> resource, in leaf first order, without duplicates.
+     * <p/>
+     * The resource is copied to a temporary file and sorted with a {@link FrontCodedPathSorter}, so that the paths
+     * are never all loaded into memory.
+     *
+     * @param resources used to locate the <em>install.files</em> resource
+     * @return the installed files, or <tt>null</tt> if there is no <em>install.files</em> resource
+     * @throws IOException for any I/O error
+     */
+    private List<File> getFiles(Resources resources) throws IOException
+    {
+        InputStream in;
+        try
+        {
+            in = resources.getInputStream(INSTALL_FILES);
+        }
+        catch (ResourceNotFoundException exception)
+        {
+            in = null;
+        }
+        if (in == null)
+        {
+            return null;
+        }
+        File file = null;
+        try
+        {
+            file = File.createTempFile("izpack-uninstall", ".log");
+            FileUtils.copyInputStreamToFile(in, file);
+            sorted = File.createTempFile("izpack-uninstall", ".sorted");
+            FrontCodedPathSorter.sort(file, sorted, LEAF_ORDER);
+            reader = new FrontCodedPathReader(sorted);
+        }
+        catch (IOException exception)
+        {
+            FileUtils.deleteQuietly(sorted);
+            sorted = null;
+            throw exception;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+            FileUtils.deleteQuietly(file);
+        }
+        final List<String> paths = reader.asList(false);
+        return new AbstractList<File>()
+        {
+            @Override
+            public File get(int index)
+            {
+                return new File(paths.get(index));
+            }
+
+            @Override
+            public int size()
+            {
+                return paths.size();
+            }
+        };
+    }
+
     /**
      * Returns the installed files, in leaf first order.
      *
@@ -0,0 +1,230 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.uninstaller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.event.AbstractUninstallerListener;
+import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.api.handler.Prompt;
+import com.izforge.izpack.uninstaller.event.UninstallerListeners;
+import com.izforge.izpack.uninstaller.resource.Executables;
+import com.izforge.izpack.uninstaller.resource.InstallLog;
+import com.izforge.izpack.uninstaller.resource.RootScripts;
+
+
+/**
+ * Tests the {@link Destroyer} class.
+ */
+public class DestroyerTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that installed files are removed when deleting serially.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testSerialDestroy() throws IOException
+    {
+        checkDestroy(1, true);
+    }
+
+    /**
+     * Verifies that installed files are removed when deleting concurrently.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testConcurrentDestroy() throws IOException
+    {
+        checkDestroy(4, true);
+    }
+
+    /**
+     * Verifies that installed files are removed when deleting concurrently, with no file listeners registered.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testConcurrentDestroyWithoutFileListeners() throws IOException
+    {
+        checkDestroy(4, false);
+    }
+
+    /**
+     * Installs a directory tree, and verifies it is removed by the destroyer.
+     * <p/>
+     * This also verifies that the listener callbacks are invoked in order: <em>beforeDelete</em> and
+     * <em>afterDelete</em> for each file without interleaving with other files, and each directory after its
+     * contents.
+     *
+     * @param threads      the no. of destroyer threads
+     * @param fileListener determines if the listener is notified of each file
+     * @throws IOException for any I/O error
+     */
+    private void checkDestroy(int threads, boolean fileListener) throws IOException
+    {
+        File installPath = temporaryFolder.newFolder("myapp");
+        List<File> installed = new ArrayList<File>();
+        for (int i = 0; i < 5; ++i)
+        {
+            File dir = new File(installPath, "dir" + i);
+            File subdir = new File(dir, "subdir");
+            assertTrue(subdir.mkdirs());
+            installed.add(dir);
+            installed.add(subdir);
+            for (int j = 0; j < 300; ++j)
+            {
+                File file = new File((j % 2 == 0) ? dir : subdir, "file" + j);
+                assertTrue(file.createNewFile());
+                installed.add(file);
+            }
+        }
+        // include a file that was never installed
+        installed.add(new File(installPath, "missing"));
+        Collections.sort(installed, Collections.reverseOrder());
+
+        InstallLog log = Mockito.mock(InstallLog.class);
+        when(log.getInstallPath()).thenReturn(installPath.getPath());
+        when(log.getInstalled()).thenReturn(installed);
+        Executables executables = Mockito.mock(Executables.class);
+        when(executables.run()).thenReturn(true);
+        Prompt prompt = Mockito.mock(Prompt.class);
+
+        UninstallerListeners listeners = new UninstallerListeners(prompt);
+        CallbackRecorder recorder = new CallbackRecorder(fileListener);
+        listeners.add(recorder);
+        Destroyer destroyer = new Destroyer(log, listeners, executables, Mockito.mock(RootScripts.class), prompt);
+        destroyer.setThreads(threads);
+        destroyer.run();
+
+        assertTrue(destroyer.getFailedToDelete().isEmpty());
+        assertFalse(installPath.exists());
+
+        List<String> callbacks = recorder.callbacks;
+        assertEquals(fileListener ? installed.size() * 2 + 2 : 2, callbacks.size());
+        assertEquals("beforeDeletion", callbacks.get(0));
+        assertEquals("afterDeletion", callbacks.get(callbacks.size() - 1));
+        Set<File> deleted = new HashSet<File>();
+        for (int i = 1; i < callbacks.size() - 1; i += 2)
+        {
+            File file = new File(callbacks.get(i).substring("before ".length()));
+            assertEquals("before " + file.getPath(), callbacks.get(i));
+            assertEquals("after " + file.getPath(), callbacks.get(i + 1));
+            if (threads == 1)
+            {
+                assertEquals(installed.get(i / 2), file);
+            }
+            assertTrue(deleted.add(file));
+        }
+        for (File file : installed)
+        {
+            File parent = file.getParentFile();
+            if (fileListener && !parent.equals(installPath))
+            {
+                // directories are only deleted once their contents have been
+                int index = callbacks.indexOf("after " + file.getPath());
+                assertTrue(index < callbacks.indexOf("before " + parent.getPath()));
+            }
+        }
+    }
+
+    /**
+     * Records the listener callbacks.
+     */
+    private static class CallbackRecorder extends AbstractUninstallerListener
+    {
+
+        /**
+         * The callbacks, in the order they were invoked.
+         */
+        private final List<String> callbacks = Collections.synchronizedList(new ArrayList<String>());
+
+        /**
+         * Determines if the listener is notified of each file.
+         */
+        private final boolean fileListener;
+
+        /**
+         * Constructs a {@code CallbackRecorder}.
+         *
+         * @param fileListener determines if the listener is notified of each file
+         */
+        public CallbackRecorder(boolean fileListener)
+        {
+            this.fileListener = fileListener;
+        }
+
+        @Override
+        public void beforeDelete(List<File> files, ProgressListener listener)
+        {
+            callbacks.add("beforeDeletion");
+        }
+
+        @Override
+        public void beforeDelete(File file)
+        {
+            callbacks.add("before " + file.getPath());
+        }
+
+        @Override
+        public void afterDelete(File file)
+        {
+            callbacks.add("after " + file.getPath());
+        }
+
+        @Override
+        public void afterDelete(List<File> files, ProgressListener listener)
+        {
+            callbacks.add("afterDeletion");
+        }
+
+        @Override
+        public boolean isFileListener()
+        {
+            return fileListener;
+        }
+    }
+
+}
@@ -25,17 +25,25 @@ package com.izforge.izpack.uninstaller.resource;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.io.input.ReaderInputStream;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.util.file.FrontCodedPathWriter;
 
 /**
  * Tests the {@link InstallLog} class.
@@ -67,7 +75,7 @@ public class InstallLogTest
                 + "myapp/dir1\n";
         StringReader reader = new StringReader(installLog);
         resources = Mockito.mock(Resources.class);
-        when(resources.getInputStream("install.log")).thenReturn(new ReaderInputStream(reader));
+        when(resources.getInputStream("install.log")).thenReturn(new ReaderInputStream(reader, "UTF-8"));
     }
 
     /**
@@ -104,4 +112,80 @@ public class InstallLogTest
         assertEquals(new File("myapp/dir1"), installed.get(3));
     }
 
+    /**
+     * Verifies that when an <em>install.files</em> resource is present, the installed files are read from it
+     * in reverse install order.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testInstalledFromFrontCodedLog() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrontCodedPathWriter writer = new FrontCodedPathWriter(bytes, 2);
+        writer.write("myapp/dir1");
+        writer.write("myapp/dir2");
+        writer.write("myapp/dir2/file1");
+        writer.close();
+
+        InputStream installLog = new ByteArrayInputStream("myapp\n".getBytes("UTF-8"));
+        when(resources.getInputStream("install.log")).thenReturn(installLog);
+        when(resources.getInputStream("install.files")).thenReturn(new ByteArrayInputStream(bytes.toByteArray()));
+        InstallLog log = new InstallLog(resources);
+
+        assertEquals("myapp", log.getInstallPath());
+        List<File> installed = log.getInstalled();
+        assertEquals(3, installed.size());
+        assertEquals(new File("myapp/dir2/file1"), installed.get(0));
+        assertEquals(new File("myapp/dir2"), installed.get(1));
+        assertEquals(new File("myapp/dir1"), installed.get(2));
+        log.close();
+    }
+
+    /**
+     * Verifies that paths logged by different packs are returned leaf first and without duplicates, when read
+     * from an <em>install.files</em> resource.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testLeafOrderAcrossPacks() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrontCodedPathWriter writer = new FrontCodedPathWriter(bytes, 2);
+        // pack 1
+        writer.write("myapp/a/file1");
+        writer.write("myapp/b/file2");
+        // pack 2
+        writer.write("myapp/a");
+        writer.write("myapp/a/file1");
+        writer.write("myapp/a/sub");
+        writer.write("myapp/a/sub/file3");
+        writer.write("myapp/b");
+        writer.close();
+        final byte[] content = bytes.toByteArray();
+
+        InputStream installLog = new ByteArrayInputStream("myapp\n".getBytes("UTF-8"));
+        when(resources.getInputStream("install.log")).thenReturn(installLog);
+        when(resources.getInputStream("install.files")).thenAnswer(new Answer<InputStream>()
+        {
+            @Override
+            public InputStream answer(InvocationOnMock invocation)
+            {
+                return new ByteArrayInputStream(content);
+            }
+        });
+        InstallLog log = new InstallLog(resources);
+
+        List<File> expected = Arrays.asList(new File("myapp/b/file2"), new File("myapp/b"),
+                                            new File("myapp/a/sub/file3"), new File("myapp/a/sub"),
+                                            new File("myapp/a/file1"), new File("myapp/a"));
+        assertEquals(expected, new ArrayList<File>(log.getInstalled()));
+
+        // the installed files are re-read after the log is closed
+        log.close();
+        assertEquals(expected, new ArrayList<File>(log.getInstalled()));
+        log.close();
+    }
+
 }
@@ -26,12 +26,17 @@ import static com.izforge.izpack.util.Platform.Name.UNIX;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,6 +48,8 @@ import com.izforge.izpack.api.data.ExecutableFile;
  * postprocessing. Executable file can be any file installed with current package. After execution
  * the file can be optionally removed. Before execution on Unix systems execution flag will be set
  * on processed file.
+ * <p/>
+ * Executables may be grouped, in which case they run concurrently with those they don't depend on.
  *
  * @author Olexij Tkatchenko <ot@parcs.de>
  */
@@ -53,46 +60,28 @@ public class FileExecutor
 
     private static final String JAR_FILE_SUFFIX = ".jar";
 
-    private boolean stopThread(Thread t, MonitorInputStream monitorInputStream)
+    /**
+     * Constructs a new executor. The executable files specified must have pretranslated paths
+     * (variables expanded and file separator characters converted if necessary).
+     *
+     * @param files the executable files to process
+     */
+    public FileExecutor(Collection<ExecutableFile> files)
     {
-        monitorInputStream.stop();
-        long softTimeout = 1000;
-        try
-        {
-            t.join(softTimeout);
-        }
-        catch (InterruptedException e)
-        {
-            // ignore
-        }
-
-        if (!t.isAlive())
-        {
-            return true;
-        }
-
-        t.interrupt();
-        long hardTimeout = 1000;
-        try
-        {
-            t.join(hardTimeout);
-        }
-        catch (InterruptedException e)
-        {
-            // ignore
-        }
-        return !t.isAlive();
+        this(files, Runtime.getRuntime().availableProcessors());
     }
 
     /**
      * Constructs a new executor. The executable files specified must have pretranslated paths
      * (variables expanded and file separator characters converted if necessary).
      *
-     * @param files the executable files to process
+     * @param files   the executable files to process
+     * @param threads the maximum no. of threads to execute grouped files with
      */
-    public FileExecutor(Collection<ExecutableFile> files)
+    public FileExecutor(Collection<ExecutableFile> files, int threads)
     {
         this.files = files;
+        this.threads = threads;
     }
 
     /**
@@ -100,7 +89,7 @@ public class FileExecutor
      */
     public FileExecutor()
     {
-        this.files = null;
+        this(null);
     }
 
     /**
@@ -211,10 +200,8 @@ public class FileExecutor
             retval.append("working dir: ").append(dir).append("\n");
         }
         Process process = null;
-        MonitorInputStream outMonitor = null;
-        MonitorInputStream errMonitor = null;
-        Thread outMonitorThread = null;
-        Thread errMonitorThread = null;
+        ProcessOutputPump.Capture out = null;
+        ProcessOutputPump.Capture err = null;
         int exitStatus = -1;
 
         logger.fine(retval.toString());
@@ -239,30 +226,18 @@ public class FileExecutor
                 process = Runtime.getRuntime().exec(params);
             }
 
-            StringWriter outWriter = new StringWriter();
-            StringWriter errWriter = new StringWriter();
-
-            InputStreamReader outStreamReader = new InputStreamReader(process.getInputStream());
-            InputStreamReader errStreamReader = new InputStreamReader(process.getErrorStream());
-            outMonitor = new MonitorInputStream(outStreamReader, outWriter);
-            errMonitor = new MonitorInputStream(errStreamReader, errWriter);
-            outMonitorThread = new Thread(outMonitor);
-            errMonitorThread = new Thread(errMonitor);
-            outMonitorThread.setDaemon(true);
-            errMonitorThread.setDaemon(true);
-            outMonitorThread.start();
-            errMonitorThread.start();
+            // the output is captured by a thread shared with any other running commands
+            out = ProcessOutputPump.capture(process.getInputStream());
+            err = ProcessOutputPump.capture(process.getErrorStream());
 
             // wait for command to complete
             exitStatus = process.waitFor();
-            outMonitorThread.join();
-            errMonitorThread.join();
 
             // save command output
-            output[0] = outWriter.toString();
+            output[0] = out.finish();
             logger.fine("stdout:");
             logger.fine(output[0]);
-            output[1] = errWriter.toString();
+            output[1] = err.finish();
             logger.fine("stderr:");
             logger.fine(output[1]);
             logger.fine("exit status: " + Integer.toString(exitStatus));
@@ -270,8 +245,14 @@ public class FileExecutor
         catch (InterruptedException e)
         {
             logger.log(Level.FINE, "Command execution interrupted", e);
-            stopThread(outMonitorThread, outMonitor);
-            stopThread(errMonitorThread, errMonitor);
+            if (out != null)
+            {
+                out.cancel();
+            }
+            if (err != null)
+            {
+                err.cancel();
+            }
             output[0] = "";
             output[1] = e.getMessage() + "\n";
         }
@@ -296,143 +277,281 @@ public class FileExecutor
 
     /**
      * Executes files specified at construction time.
+     * <p/>
+     * Executables without a {@link ExecutableFile#getGroup() group} run in order, each after all executables
+     * preceding it. Those with a group don't wait for other grouped executables, bar the preceding ones of the groups
+     * named by {@link ExecutableFile#getAfter()}, so independent executables run concurrently on a bounded pool.
+     * <p/>
+     * Once an executable fails, and its failure handling doesn't allow continuing, no further executables are
+     * started.
      *
      * @param currentStage the stage of the installation
      * @param matcher      the platform-model matcher
      * @param handler      The AbstractUIHandler to notify on errors.
      * @return 0 on success, else the exit status of the last failed command
      */
-    public int executeFiles(int currentStage, PlatformModelMatcher matcher, AbstractUIHandler handler)
+    public int executeFiles(final int currentStage, PlatformModelMatcher matcher,
+                            final AbstractUIHandler handler)
     {
-        int exitStatus = 0;
-        String[] output = new String[2];
-        // String permissions = (System.getProperty("user.name").equals("root"))
-        // ? "a+x" : "u+x";
-        String permissions = "a+x";
-        boolean isUnix = matcher.getCurrentPlatform().isA(UNIX);
+        final boolean isUnix = matcher.getCurrentPlatform().isA(UNIX);
+        final AtomicInteger exitStatus = new AtomicInteger();
+        Map<String, List<Future<?>>> groups = new HashMap<String, List<Future<?>>>();
+        List<Future<?>> running = new ArrayList<Future<?>>();
+        ExecutorService executor = null;
 
-        // loop through all executables
-        Iterator<ExecutableFile> efileIterator = this.files.iterator();
-        while (exitStatus == 0 && efileIterator.hasNext())
+        try
         {
-            ExecutableFile efile = efileIterator.next();
-            boolean deleteAfterwards = !efile.keepFile;
-            File file = new File(efile.path);
-
-            logger.fine("Handling executable file " + efile + "...");
-
-            // skip file if not for current OS (it might not have been installed
-            // at all)
-            if (!matcher.matchesCurrentPlatform(efile.osList))
+            // loop through all executables
+            for (final ExecutableFile efile : this.files)
             {
-                continue;
-            }
-
-            if (ExecutableFile.BIN == efile.type && currentStage != ExecutableFile.UNINSTALL && isUnix)
-            {
-                // fix executable permission for unix systems
-                logger.fine("Making file executable (setting executable flag)");
-                String[] params = {"/bin/chmod", permissions, file.toString()};
-                exitStatus = executeCommand(params, output);
-                if (exitStatus != 0)
+                if (exitStatus.get() != 0)
                 {
-                    handler.emitWarning("file execution error", "Error executing \n" + params[0]
-                            + " " + params[1] + " " + params[2]);
-                    continue;
+                    break;
                 }
-            }
 
-            // execute command in POSTINSTALL stage
-            if (currentStage == ExecutableFile.POSTINSTALL && efile.executionStage == ExecutableFile.POSTINSTALL || currentStage == ExecutableFile.UNINSTALL && efile.executionStage == ExecutableFile.UNINSTALL)
-            {
-                List<String> paramList = new ArrayList<String>();
-                if (ExecutableFile.BIN == efile.type)
+                logger.fine("Handling executable file " + efile + "...");
+
+                // skip file if not for current OS (it might not have been installed
+                // at all)
+                if (!matcher.matchesCurrentPlatform(efile.osList))
                 {
-                    paramList.add(file.toString());
+                    continue;
                 }
-                else if (ExecutableFile.JAR == efile.type && null == efile.mainClass)
+
+                String group = efile.getGroup();
+                if (group == null)
                 {
-                    paramList.add(System.getProperty("java.home") + "/bin/java");
-                    paramList.add("-jar");
-                    paramList.add(file.toString());
+                    waitFor(running, exitStatus);
+                    running.clear();
+                    if (exitStatus.get() == 0)
+                    {
+                        executeFile(efile, currentStage, isUnix, handler, exitStatus);
+                    }
                 }
-                else if (ExecutableFile.JAR == efile.type && null != efile.mainClass)
+                else
                 {
-                    paramList.add(System.getProperty("java.home") + "/bin/java");
-                    paramList.add("-cp");
-                    try
+                    final List<Future<?>> dependencies = new ArrayList<Future<?>>();
+                    for (String name : efile.getAfter())
+                    {
+                        List<Future<?>> futures = groups.get(name);
+                        if (futures != null)
+                        {
+                            dependencies.addAll(futures);
+                        }
+                        else
+                        {
+                            logger.fine("No executables of group " + name + " precede " + efile.path);
+                        }
+                    }
+                    if (executor == null)
                     {
-                        paramList.add(buildClassPath(file.toString()));
+                        executor = Executors.newFixedThreadPool(Math.max(1, threads));
                     }
-                    catch (Exception e)
+
+                    // dependencies are always submitted first, so waiting on them can't starve the pool
+                    Future<?> future = executor.submit(new Runnable()
                     {
-                        logger.log(Level.WARNING, e.getMessage(), e);
+                        @Override
+                        public void run()
+                        {
+                            waitFor(dependencies, exitStatus);
+                            if (exitStatus.get() == 0)
+                            {
+                                executeFile(efile, currentStage, isUnix, handler, exitStatus);
+                            }
+                        }
+                    });
+                    running.add(future);
+                    List<Future<?>> members = groups.get(group);
+                    if (members == null)
+                    {
+                        members = new ArrayList<Future<?>>();
+                        groups.put(group, members);
                     }
-                    paramList.add(efile.mainClass);
+                    members.add(future);
                 }
+            }
+            waitFor(running, exitStatus);
+        }
+        finally
+        {
+            if (executor != null)
+            {
+                executor.shutdownNow();
+            }
+        }
+        return exitStatus.get();
+    }
+
+    /**
+     * Executes a file.
+     *
+     * @param efile        the file to execute
+     * @param currentStage the stage of the installation
+     * @param isUnix       determines if the current platform is Unix
+     * @param handler      the handler to notify on errors. Notifications are synchronized on it
+     * @param exitStatus   updated with the exit status of the command, if it fails and its failure handling doesn't
+     *                     allow continuing
+     */
+    private void executeFile(ExecutableFile efile, int currentStage, boolean isUnix, AbstractUIHandler handler,
+                             AtomicInteger exitStatus)
+    {
+        String[] output = new String[2];
+        // String permissions = (System.getProperty("user.name").equals("root"))
+        // ? "a+x" : "u+x";
+        String permissions = "a+x";
+        boolean deleteAfterwards = !efile.keepFile;
+        File file = new File(efile.path);
 
-                if (null != efile.argList && !efile.argList.isEmpty())
+        if (ExecutableFile.BIN == efile.type && currentStage != ExecutableFile.UNINSTALL && isUnix)
+        {
+            // fix executable permission for unix systems, falling back to chmod if it can't be done in-process
+            logger.fine("Making file executable (setting executable flag)");
+            String[] params = {"/bin/chmod", permissions, file.toString()};
+            int status = file.setExecutable(true, false) ? 0 : executeCommand(params, output);
+            if (status != 0)
+            {
+                synchronized (handler)
                 {
-                    paramList.addAll(efile.argList);
+                    handler.emitWarning("file execution error", "Error executing \n" + params[0]
+                            + " " + params[1] + " " + params[2]);
                 }
+                exitStatus.set(status);
+                return;
+            }
+        }
 
-                String[] params = new String[paramList.size()];
-                for (int i = 0; i < paramList.size(); i++)
+        // execute command in POSTINSTALL stage
+        if (currentStage == ExecutableFile.POSTINSTALL && efile.executionStage == ExecutableFile.POSTINSTALL || currentStage == ExecutableFile.UNINSTALL && efile.executionStage == ExecutableFile.UNINSTALL)
+        {
+            List<String> paramList = new ArrayList<String>();
+            if (ExecutableFile.BIN == efile.type)
+            {
+                paramList.add(file.toString());
+            }
+            else if (ExecutableFile.JAR == efile.type && null == efile.mainClass)
+            {
+                paramList.add(System.getProperty("java.home") + "/bin/java");
+                paramList.add("-jar");
+                paramList.add(file.toString());
+            }
+            else if (ExecutableFile.JAR == efile.type && null != efile.mainClass)
+            {
+                paramList.add(System.getProperty("java.home") + "/bin/java");
+                paramList.add("-cp");
+                try
+                {
+                    paramList.add(buildClassPath(file.toString()));
+                }
+                catch (Exception e)
                 {
-                    params[i] = paramList.get(i);
+                    logger.log(Level.WARNING, e.getMessage(), e);
                 }
+                paramList.add(efile.mainClass);
+            }
+
+            if (null != efile.argList && !efile.argList.isEmpty())
+            {
+                paramList.addAll(efile.argList);
+            }
+
+            String[] params = new String[paramList.size()];
+            for (int i = 0; i < paramList.size(); i++)
+            {
+                params[i] = paramList.get(i);
+            }
 
-                exitStatus = executeCommand(params, output);
+            int status = executeCommand(params, output);
 
-                // bring a dialog depending on return code and failure handling
-                if (exitStatus != 0)
+            // bring a dialog depending on return code and failure handling
+            if (status != 0)
+            {
+                deleteAfterwards = false;
+                String message = output[0] + "\n" + output[1];
+                if (message.length() == 1)
                 {
-                    deleteAfterwards = false;
-                    String message = output[0] + "\n" + output[1];
-                    if (message.length() == 1)
-                    {
-                        message = "Failed to execute " + file.toString() + ".";
-                    }
+                    message = "Failed to execute " + file.toString() + ".";
+                }
 
+                // executables may run concurrently, so only notify one failure at a time
+                synchronized (handler)
+                {
                     if (efile.onFailure == ExecutableFile.ABORT)
                     {
-                        handler.emitError("File execution returned " + exitStatus, message);
+                        handler.emitError("File execution returned " + status, message);
+                        exitStatus.set(status);
                     }
                     else if (efile.onFailure == ExecutableFile.WARN)
                     {
-                        handler.emitWarning("File execution returned " + exitStatus, message);
-                        exitStatus = 0;
+                        handler.emitWarning("File execution returned " + status, message);
                     }
                     else if (efile.onFailure == ExecutableFile.IGNORE)
                     {
                         // do nothing
-                        exitStatus = 0;
                     }
                     else
                     {
                         if (handler
                                 .askQuestion("Execution Failed", message + "\nContinue Installation?",
-                                             AbstractUIHandler.CHOICES_YES_NO) == AbstractUIHandler.ANSWER_YES)
+                                             AbstractUIHandler.CHOICES_YES_NO) != AbstractUIHandler.ANSWER_YES)
                         {
-                            exitStatus = 0;
+                            exitStatus.set(status);
                         }
                     }
-
                 }
 
             }
 
-            // POSTINSTALL executables will be deleted
-            if (efile.executionStage == ExecutableFile.POSTINSTALL && deleteAfterwards)
+        }
+
+        // POSTINSTALL executables will be deleted
+        if (efile.executionStage == ExecutableFile.POSTINSTALL && deleteAfterwards)
+        {
+            if (file.canWrite())
+            {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Waits for executions to complete.
+     * <p/>
+     * If the thread is interrupted, the wait is abandoned and the exit status set to -1, so that no further
+     * executables are started.
+     *
+     * @param futures    the executions
+     * @param exitStatus the exit status
+     */
+    private static void waitFor(List<Future<?>> futures, AtomicInteger exitStatus)
+    {
+        for (Future<?> future : futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException exception)
+            {
+                logger.log(Level.FINE, "Execution interrupted", exception);
+                Thread.currentThread().interrupt();
+                exitStatus.compareAndSet(0, -1);
+                return;
+            }
+            catch (ExecutionException exception)
             {
-                if (file.canWrite())
+                Throwable cause = exception.getCause();
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error)
                 {
-                    file.delete();
+                    throw (Error) cause;
                 }
+                throw new IllegalStateException(cause);
             }
-
         }
-        return exitStatus;
     }
 
     /**
@@ -499,4 +618,9 @@ public class FileExecutor
      * The files to execute.
      */
     private final Collection<ExecutableFile> files;
+
+    /**
+     * The maximum no. of threads to execute grouped files with.
+     */
+    private final int threads;
 }
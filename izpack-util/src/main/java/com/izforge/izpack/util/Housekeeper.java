@@ -118,6 +118,8 @@ public class Housekeeper
                 logger.log(Level.WARNING, exception.getMessage(), exception);
             }
         }
+        // clients are only cleaned up once, should terminate() return
+        cleanupClients.clear();
 
         terminate(exitCode, reboot);
     }
@@ -93,6 +93,11 @@ public class Librarian implements CleanupClient
      */
     private String extension = "";
 
+    /**
+     * The cache of libraries extracted from jars.
+     */
+    private final NativeLibraryCache cache = new NativeLibraryCache();
+
 
     /**
      * Constructs a <tt>Librarian</tt>.
@@ -213,8 +218,8 @@ public class Librarian implements CleanupClient
      * the library, this attempt will fail.
      * <li>If the client is located on the local file system, an attempt is made to load the
      * library from the local files system as well.
-     * <li>If the library is located inside a *.jar file, it is extracted to 'java.io.tmpdir' and
-     * an attempt is made to load it from there.
+     * <li>If the library is located inside a *.jar file, it is extracted to the {@link NativeLibraryCache}, or
+     * if that is not writable, to 'java.io.tmpdir', and an attempt is made to load it from there.
      * </ul>
      * <br>
      * <br>
@@ -298,6 +303,9 @@ public class Librarian implements CleanupClient
 
     /**
      * Attempts to load a library from a jar.
+     * <p/>
+     * The library is loaded from the {@link NativeLibraryCache} if possible, otherwise it is extracted to a temporary
+     * file which is removed on cleanup.
      *
      * @param name   the library name
      * @param url    the library URL within the jar
@@ -305,6 +313,31 @@ public class Librarian implements CleanupClient
      * @return <tt>true</tt> if the library was loaded successfully, otherwise <tt>false</tt>
      */
     private boolean loadJarLibrary(String name, URL url, NativeLibraryClient client)
+    {
+        try
+        {
+            File cached = cache.get(name, extension, url);
+            if (cached != null && load(cached.getAbsolutePath(), client))
+            {
+                return true;
+            }
+        }
+        catch (IOException exception)
+        {
+            logger.log(Level.FINE, "Failed to cache library: " + name + ": " + exception.getMessage(), exception);
+        }
+        return loadTemporaryLibrary(name, url, client);
+    }
+
+    /**
+     * Attempts to load a library from a jar, by extracting it to a temporary file.
+     *
+     * @param name   the library name
+     * @param url    the library URL within the jar
+     * @param client the native library client
+     * @return <tt>true</tt> if the library was loaded successfully, otherwise <tt>false</tt>
+     */
+    private boolean loadTemporaryLibrary(String name, URL url, NativeLibraryClient client)
     {
         boolean result = false;
         File file = null;
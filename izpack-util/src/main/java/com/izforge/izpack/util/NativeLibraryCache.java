@@ -0,0 +1,283 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.izforge.izpack.util.delta.Digests;
+
+
+/**
+ * A persistent cache of native libraries extracted from jars.
+ * <p/>
+ * Libraries are stored under a name derived from their content digest, so that repeated installer and uninstaller
+ * runs reuse a previous extraction, and different versions of a library never collide. Libraries are written to a
+ * temporary file in the cache directory, and renamed into place, so concurrent installers never see a partially
+ * written library. Cached libraries are verified against their digest before they are returned.
+ * <p/>
+ * The cache directory defaults to a directory private to the current user, outside of any shared temporary
+ * directory: <em>%LOCALAPPDATA%\IzPack\native</em> on Windows, and <em>~/.izpack/native</em> elsewhere. It is
+ * created accessible to its owner only. As other users could replace a library between its verification and loading
+ * if they can write to the directory, a directory specified using the {@link #DIRECTORY_PROPERTY} system property
+ * must not be writable by other users.
+ * <p/>
+ * Each time a library is cached, versions of the library that haven't been used for {@link #EXPIRY} milliseconds,
+ * and abandoned temporary files, are removed.
+ */
+public class NativeLibraryCache
+{
+
+    /**
+     * The system property used to specify the cache directory.
+     */
+    public static final String DIRECTORY_PROPERTY = "izpack.native.cache";
+
+    /**
+     * The time after which unused libraries are removed, in milliseconds.
+     */
+    public static final long EXPIRY = 30L * 24 * 60 * 60 * 1000;
+
+    /**
+     * The length of a hexadecimal digest.
+     */
+    private static final int DIGEST_LENGTH = 64;
+
+    /**
+     * The cache directory.
+     */
+    private final File dir;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(NativeLibraryCache.class.getName());
+
+
+    /**
+     * Constructs a {@code NativeLibraryCache} using the default directory.
+     */
+    public NativeLibraryCache()
+    {
+        this(getDefaultDirectory());
+    }
+
+    /**
+     * Constructs a {@code NativeLibraryCache}.
+     *
+     * @param dir the cache directory. Created if it doesn't exist
+     */
+    public NativeLibraryCache(File dir)
+    {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the cached copy of a library, extracting it if it isn't present or fails verification.
+     *
+     * @param name      the library name
+     * @param extension the library file extension, including the '.'
+     * @param url       the library URL
+     * @return the cached library, or {@code null} if the cache directory isn't writable
+     * @throws IOException if the library cannot be read
+     */
+    public File get(String name, String extension, URL url) throws IOException
+    {
+        byte[] content;
+        InputStream in = url.openStream();
+        try
+        {
+            content = IOUtils.toByteArray(in);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+        byte[] digest = Digests.create().digest(content);
+        File file = new File(dir, name + "-" + Digests.toString(digest) + extension);
+
+        if (isValid(file, digest))
+        {
+            logger.fine("Using cached library: " + file);
+            // record the use, so that the library isn't pruned
+            if (!file.setLastModified(System.currentTimeMillis()))
+            {
+                logger.fine("Failed to update last modified time of: " + file);
+            }
+            return file;
+        }
+        if (!dir.isDirectory() && !createDirectory())
+        {
+            logger.fine("Cannot create native library cache: " + dir);
+            return null;
+        }
+        if (!dir.canWrite())
+        {
+            logger.fine("Native library cache is not writable: " + dir);
+            return null;
+        }
+        if (file.exists())
+        {
+            logger.warning("Replacing corrupt cached library: " + file);
+            if (!file.delete())
+            {
+                return null;
+            }
+        }
+
+        File temp = File.createTempFile(name, ".tmp", dir);
+        OutputStream out = new FileOutputStream(temp);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+        }
+        if (!temp.renameTo(file))
+        {
+            FileUtils.deleteQuietly(temp);
+            // another installer may have cached the library concurrently
+            return isValid(file, digest) ? file : null;
+        }
+        logger.fine("Cached library: " + file);
+        prune(name, extension, file);
+        return file;
+    }
+
+    /**
+     * Returns the cache directory.
+     *
+     * @return the cache directory
+     */
+    public File getDirectory()
+    {
+        return dir;
+    }
+
+    /**
+     * Creates the cache directory, accessible to the current user only.
+     *
+     * @return {@code true} if the directory was created
+     */
+    private boolean createDirectory()
+    {
+        if (!dir.mkdirs())
+        {
+            return dir.isDirectory();
+        }
+        boolean restricted = dir.setReadable(false, false) && dir.setReadable(true, true)
+                && dir.setWritable(false, false) && dir.setWritable(true, true)
+                && dir.setExecutable(false, false) && dir.setExecutable(true, true);
+        if (!restricted)
+        {
+            logger.fine("Failed to restrict access to native library cache: " + dir);
+        }
+        return true;
+    }
+
+    /**
+     * Removes versions of a library that haven't been used for {@link #EXPIRY} milliseconds, as well as abandoned
+     * temporary files.
+     *
+     * @param name      the library name
+     * @param extension the library file extension
+     * @param current   the current version of the library
+     */
+    private void prune(String name, String extension, File current)
+    {
+        File[] files = dir.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        long expired = System.currentTimeMillis() - EXPIRY;
+        String prefix = name + "-";
+        for (File file : files)
+        {
+            String fileName = file.getName();
+            boolean version = fileName.startsWith(prefix) && fileName.endsWith(extension)
+                    && fileName.length() == prefix.length() + DIGEST_LENGTH + extension.length();
+            boolean temp = fileName.startsWith(name) && fileName.endsWith(".tmp");
+            if ((version || temp) && !file.equals(current) && file.lastModified() < expired)
+            {
+                // a library still loaded on Windows can't be deleted; it will be removed on a subsequent run
+                if (file.delete())
+                {
+                    logger.fine("Removed unused library: " + file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines if a cached library exists and matches its digest.
+     *
+     * @param file   the cached library
+     * @param digest the expected digest
+     * @return {@code true} if the library is valid
+     */
+    private boolean isValid(File file, byte[] digest)
+    {
+        if (file.isFile())
+        {
+            try
+            {
+                return Arrays.equals(digest, Digests.digest(file));
+            }
+            catch (IOException exception)
+            {
+                logger.fine("Failed to verify cached library: " + file + ": " + exception.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the default cache directory.
+     *
+     * @return the value of the {@link #DIRECTORY_PROPERTY} system property if set, otherwise a directory private
+     *         to the current user
+     */
+    private static File getDefaultDirectory()
+    {
+        String path = System.getProperty(DIRECTORY_PROPERTY);
+        if (path != null && path.trim().length() != 0)
+        {
+            return new File(path.trim());
+        }
+        String localAppData = System.getenv("LOCALAPPDATA");
+        if (localAppData != null && localAppData.trim().length() != 0)
+        {
+            return new File(localAppData.trim(), "IzPack" + File.separator + "native");
+        }
+        return new File(System.getProperty("user.home"), ".izpack" + File.separator + "native");
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Captures the output of child processes on a single shared daemon thread, rather than a thread per stream.
+ * <p/>
+ * The streams are polled for available data, so that a process can't block on a full pipe. Once a process has
+ * exited, the remainder of its output is read by the thread that waited for it.
+ * <p/>
+ * The thread is started when a stream is first captured, and stops once no stream has been captured for a while.
+ */
+final class ProcessOutputPump implements Runnable
+{
+
+    /**
+     * The time to wait between polls when no stream has data, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 10;
+
+    /**
+     * The time the thread stays alive with no streams to capture, in milliseconds.
+     */
+    private static final long IDLE_TIMEOUT = 1000;
+
+    /**
+     * The shared instance.
+     */
+    private static final ProcessOutputPump INSTANCE = new ProcessOutputPump();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ProcessOutputPump.class.getName());
+
+    /**
+     * The streams being captured.
+     */
+    private final List<Capture> captures = new ArrayList<Capture>();
+
+    /**
+     * The capturing thread, or {@code null} if it isn't running.
+     */
+    private Thread thread;
+
+
+    private ProcessOutputPump()
+    {
+    }
+
+    /**
+     * Starts capturing a process output stream.
+     *
+     * @param in the stream to capture
+     * @return the capture
+     */
+    static Capture capture(InputStream in)
+    {
+        return INSTANCE.register(in);
+    }
+
+    /**
+     * Polls the captured streams until there have been none for {@link #IDLE_TIMEOUT}.
+     */
+    @Override
+    public void run()
+    {
+        long idleSince = System.currentTimeMillis();
+        try
+        {
+            while (true)
+            {
+                Capture[] current;
+                synchronized (this)
+                {
+                    while (captures.isEmpty())
+                    {
+                        long remaining = idleSince + IDLE_TIMEOUT - System.currentTimeMillis();
+                        if (remaining <= 0)
+                        {
+                            thread = null;
+                            return;
+                        }
+                        wait(remaining);
+                    }
+                    current = captures.toArray(new Capture[captures.size()]);
+                }
+                boolean read = false;
+                for (Capture capture : current)
+                {
+                    read |= capture.poll();
+                }
+                if (!read)
+                {
+                    Thread.sleep(POLL_INTERVAL);
+                }
+                idleSince = System.currentTimeMillis();
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            synchronized (this)
+            {
+                thread = null;
+            }
+        }
+    }
+
+    /**
+     * Registers a stream to capture, starting the thread if required.
+     *
+     * @param in the stream
+     * @return the capture
+     */
+    private synchronized Capture register(InputStream in)
+    {
+        Capture capture = new Capture(in);
+        captures.add(capture);
+        if (thread == null)
+        {
+            thread = new Thread(this, "ProcessOutputPump");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        notifyAll();
+        return capture;
+    }
+
+    /**
+     * Stops polling a stream.
+     *
+     * @param capture the capture to remove
+     */
+    private synchronized void unregister(Capture capture)
+    {
+        captures.remove(capture);
+    }
+
+    /**
+     * The output captured from a stream.
+     */
+    static final class Capture
+    {
+
+        /**
+         * The stream.
+         */
+        private final InputStream in;
+
+        /**
+         * The output read so far.
+         */
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        /**
+         * Determines if the stream has been read to the end, or abandoned.
+         */
+        private boolean closed;
+
+
+        private Capture(InputStream in)
+        {
+            this.in = in;
+        }
+
+        /**
+         * Reads the rest of the stream, and returns the output.
+         * <p/>
+         * This should only be invoked once the process has exited, as it blocks until end-of-stream. The stream is
+         * read without holding the capture lock, so the pump thread isn't blocked from polling other streams.
+         * <p/>
+         * As per {@link MonitorInputStream}, each line of the output is terminated by the platform line separator.
+         *
+         * @return the output
+         */
+        String finish()
+        {
+            INSTANCE.unregister(this);
+            boolean drain;
+            synchronized (this)
+            {
+                // once closed, the pump thread no longer reads the stream, so it can be drained without the lock
+                drain = !closed;
+                closed = true;
+            }
+            if (drain)
+            {
+                try
+                {
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) != -1)
+                    {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                catch (IOException exception)
+                {
+                    logger.log(Level.FINE, exception.getMessage(), exception);
+                }
+            }
+            return toLines(out.toByteArray());
+        }
+
+        /**
+         * Stops capturing the stream, discarding its output.
+         */
+        void cancel()
+        {
+            INSTANCE.unregister(this);
+            synchronized (this)
+            {
+                closed = true;
+            }
+        }
+
+        /**
+         * Reads what is available from the stream, without blocking.
+         *
+         * @return {@code true} if anything was read
+         */
+        private synchronized boolean poll()
+        {
+            if (closed)
+            {
+                return false;
+            }
+            try
+            {
+                int available = in.available();
+                if (available > 0)
+                {
+                    byte[] buffer = new byte[Math.min(available, 8192)];
+                    int read = in.read(buffer);
+                    if (read > 0)
+                    {
+                        out.write(buffer, 0, read);
+                        return true;
+                    }
+                }
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.FINE, exception.getMessage(), exception);
+                closed = true;
+            }
+            return false;
+        }
+
+        /**
+         * Decodes output, terminating each line with the platform line separator.
+         *
+         * @param bytes the output
+         * @return the decoded output
+         */
+        private static String toLines(byte[] bytes)
+        {
+            StringBuilder result = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes)));
+            String separator = System.getProperty("line.separator");
+            try
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    result.append(line).append(separator);
+                }
+            }
+            catch (IOException exception)
+            {
+                // can't occur reading from memory
+                logger.log(Level.FINE, exception.getMessage(), exception);
+            }
+            return result.toString();
+        }
+    }
+}
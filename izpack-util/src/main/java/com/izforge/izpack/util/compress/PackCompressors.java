@@ -0,0 +1,91 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.compressors.deflate.DeflateCompressorInputStream;
+import org.apache.commons.compress.compressors.deflate.DeflateParameters;
+
+import com.izforge.izpack.api.data.PackCompression;
+
+
+/**
+ * Decompresses pack files, for installers and for compilers reading previous installers.
+ * <p/>
+ * Installers compiled with the {@link PackCompression#DEFAULT default} compression don't include commons-compress,
+ * so it is only referenced by a nested class that is loaded on demand.
+ */
+public final class PackCompressors
+{
+
+    private PackCompressors()
+    {
+    }
+
+    /**
+     * Creates a stream to decompress pack files with.
+     *
+     * @param format     the compression format. Must not be {@link PackCompression#DEFAULT}
+     * @param in         the compressed stream
+     * @param dictionary the dictionary the stream was compressed with. May be {@code null}
+     * @return a new decompressing stream
+     * @throws IOException if the stream cannot be created, or for any I/O error
+     */
+    public static InputStream createInputStream(PackCompression format, InputStream in, byte[] dictionary)
+            throws IOException
+    {
+        if (format == PackCompression.ZSTD)
+        {
+            return Zstd.createInputStream(in, dictionary);
+        }
+        return CommonsCompress.createInputStream(format, in);
+    }
+
+    /**
+     * The formats provided by commons-compress.
+     */
+    private static class CommonsCompress
+    {
+
+        public static InputStream createInputStream(PackCompression format, InputStream in) throws IOException
+        {
+            if (format == PackCompression.DEFLATE)
+            {
+                DeflateParameters deflateParameters = new DeflateParameters();
+                deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
+                return new DeflateCompressorInputStream(in, deflateParameters);
+            }
+            try
+            {
+                return new CompressorStreamFactory().createCompressorInputStream(format.toName(), in);
+            }
+            catch (CompressorException exception)
+            {
+                throw new IOException("Cannot decompress " + format.toName() + ": " + exception.getMessage(),
+                                      exception);
+            }
+        }
+    }
+}
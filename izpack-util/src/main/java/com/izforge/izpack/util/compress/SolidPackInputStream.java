@@ -0,0 +1,150 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.compress;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CountingInputStream;
+
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+
+
+/**
+ * A pack stream containing {@link PackFile#isSolid() solid} blocks.
+ * <p/>
+ * Each block is decompressed once, as its files are read in order. Blocks that contain no files to read are skipped
+ * without being decompressed. Files stored outside blocks are read directly, as stored. The stream can only move
+ * forward, so back references to files in earlier blocks need a stream of their own.
+ */
+public class SolidPackInputStream extends FilterInputStream
+{
+
+    /**
+     * The compression format.
+     */
+    private final PackCompression format;
+
+    /**
+     * The offset of the current block in the pack stream, or {@code -1} if no block has been read.
+     */
+    private long blockStart = -1;
+
+    /**
+     * The decompressed current block.
+     */
+    private CountingInputStream block;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(SolidPackInputStream.class.getName());
+
+
+    /**
+     * Constructs a {@code SolidPackInputStream}.
+     *
+     * @param in     the pack stream
+     * @param format the compression format
+     */
+    public SolidPackInputStream(InputStream in, PackCompression format)
+    {
+        super(new CountingInputStream(in));
+        this.format = format;
+    }
+
+    /**
+     * Returns a stream to read a pack file from.
+     * <p/>
+     * Closing the returned stream has no effect on this stream.
+     *
+     * @param file the pack file. Must be stored after the last file read
+     * @return a stream of the file contents
+     * @throws IOException if the file precedes the last file read, or for any I/O error
+     */
+    public InputStream getInputStream(PackFile file) throws IOException
+    {
+        BoundedInputStream result;
+        if (!file.isSolid())
+        {
+            // stored between blocks
+            seek(file.getStreamOffset());
+            result = new BoundedInputStream(in, file.size());
+        }
+        else
+        {
+            if (block == null || blockStart != file.getStreamOffset() || block.getByteCount() > file.getBlockOffset())
+            {
+                openBlock(file);
+            }
+            IOUtils.skipFully(block, file.getBlockOffset() - block.getByteCount());
+            result = new BoundedInputStream(block, file.length());
+        }
+        result.setPropagateClose(false);
+        return result;
+    }
+
+    /**
+     * Starts decompressing the block containing a file.
+     *
+     * @param file the pack file
+     * @throws IOException if the block precedes the current position, or for any I/O error
+     */
+    private void openBlock(PackFile file) throws IOException
+    {
+        long offset = file.getStreamOffset();
+        seek(offset);
+        logger.fine("|- Reading block at offset " + offset + " (" + file.getBlockSize() + " bytes)");
+
+        // bound the compressed data, so that the decompressor cannot read ahead into the next block
+        BoundedInputStream compressed = new BoundedInputStream(in, file.getBlockSize());
+        compressed.setPropagateClose(false);
+        block = new CountingInputStream(PackCompressors.createInputStream(format, IOUtils.buffer(compressed), null));
+        blockStart = offset;
+    }
+
+    /**
+     * Closes the current block, and moves to an offset in the pack stream.
+     *
+     * @param offset the offset
+     * @throws IOException if the offset precedes the current position, or for any I/O error
+     */
+    private void seek(long offset) throws IOException
+    {
+        CountingInputStream pack = (CountingInputStream) in;
+        if (pack.getByteCount() > offset)
+        {
+            throw new IOException("Cannot read offset " + offset + " of pack stream positioned at "
+                                          + pack.getByteCount());
+        }
+        if (block != null)
+        {
+            block.close();
+            block = null;
+            blockStart = -1;
+        }
+        IOUtils.skipFully(pack, offset - pack.getByteCount());
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+
+/**
+ * Zstandard streams, provided by the <a href="https://github.com/luben/zstd-jni">zstd-jni</a> library.
+ * <p/>
+ * The library is bound at runtime, so that it only needs to be on the classpath of compilers and installers that use
+ * Zstandard compression.
+ */
+public final class Zstd
+{
+
+    /**
+     * The package of the library classes.
+     */
+    public static final String PACKAGE = "com/github/luben/zstd";
+
+    /**
+     * The maximum window size, as a power of 2, that streams are decompressed with.
+     */
+    private static final int MAX_WINDOW_LOG = 31;
+
+    private static final String OUTPUT_STREAM = "com.github.luben.zstd.ZstdOutputStream";
+
+    private static final String INPUT_STREAM = "com.github.luben.zstd.ZstdInputStream";
+
+    private static final String DICT_TRAINER = "com.github.luben.zstd.ZstdDictTrainer";
+
+
+    private Zstd()
+    {
+    }
+
+    /**
+     * Determines if the zstd-jni library is available.
+     *
+     * @return {@code true} if the library is available
+     */
+    public static boolean isAvailable()
+    {
+        try
+        {
+            getClass(OUTPUT_STREAM);
+            return true;
+        }
+        catch (IOException exception)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Creates a stream to compress with.
+     *
+     * @param out        the stream to write compressed data to
+     * @param level      the compression level, or {@code 0} for the library default
+     * @param windowLog  the window size for long distance matching, as a power of 2, or {@code 0} to disable long
+     *                   distance matching
+     * @param dictionary the dictionary to compress with. May be {@code null}
+     * @return a new compressor stream
+     * @throws IOException if the library isn't available or the stream cannot be created
+     */
+    public static OutputStream createOutputStream(OutputStream out, int level, int windowLog, byte[] dictionary)
+            throws IOException
+    {
+        Class<?> type = getClass(OUTPUT_STREAM);
+        OutputStream result;
+        if (level != 0)
+        {
+            result = (OutputStream) newInstance(type, new Class<?>[]{OutputStream.class, int.class}, out, level);
+        }
+        else
+        {
+            result = (OutputStream) newInstance(type, new Class<?>[]{OutputStream.class}, out);
+        }
+        if (windowLog > 0)
+        {
+            invoke(result, "setLong", new Class<?>[]{int.class}, windowLog);
+        }
+        if (dictionary != null)
+        {
+            invoke(result, "setDict", new Class<?>[]{byte[].class}, (Object) dictionary);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a stream to decompress with.
+     * <p/>
+     * Streams compressed with long distance matching are supported, up to the maximum window size.
+     *
+     * @param in         the compressed stream
+     * @param dictionary the dictionary the stream was compressed with. May be {@code null}
+     * @return a new decompressor stream
+     * @throws IOException if the library isn't available or the stream cannot be created
+     */
+    public static InputStream createInputStream(InputStream in, byte[] dictionary) throws IOException
+    {
+        Class<?> type = getClass(INPUT_STREAM);
+        InputStream result = (InputStream) newInstance(type, new Class<?>[]{InputStream.class}, in);
+        if (hasMethod(type, "setLongMax", int.class))
+        {
+            // not supported by older library versions, which only decompress the default window sizes
+            invoke(result, "setLongMax", new Class<?>[]{int.class}, MAX_WINDOW_LOG);
+        }
+        if (dictionary != null)
+        {
+            invoke(result, "setDict", new Class<?>[]{byte[].class}, (Object) dictionary);
+        }
+        return result;
+    }
+
+    /**
+     * Trains a dictionary for compressing small, similar files.
+     *
+     * @param samples        the sample data
+     * @param dictionarySize the maximum dictionary size, in bytes
+     * @return the dictionary
+     * @throws IOException if the library isn't available or there isn't enough sample data to train with
+     */
+    public static byte[] trainDictionary(List<byte[]> samples, int dictionarySize) throws IOException
+    {
+        int sampleSize = 0;
+        for (byte[] sample : samples)
+        {
+            sampleSize += sample.length;
+        }
+        Class<?> type = getClass(DICT_TRAINER);
+        Object trainer = newInstance(type, new Class<?>[]{int.class, int.class}, sampleSize, dictionarySize);
+        for (byte[] sample : samples)
+        {
+            invoke(trainer, "addSample", new Class<?>[]{byte[].class}, (Object) sample);
+        }
+        return (byte[]) invoke(trainer, "trainSamples", new Class<?>[0]);
+    }
+
+    private static Class<?> getClass(String name) throws IOException
+    {
+        try
+        {
+            return Class.forName(name, true, Zstd.class.getClassLoader());
+        }
+        catch (ClassNotFoundException exception)
+        {
+            throw new IOException("Zstandard compression requires the zstd-jni library", exception);
+        }
+        catch (LinkageError error)
+        {
+            throw new IOException("Failed to load the zstd-jni library: " + error.getMessage(), error);
+        }
+    }
+
+    private static Object newInstance(Class<?> type, Class<?>[] parameterTypes, Object... args) throws IOException
+    {
+        try
+        {
+            Constructor<?> constructor = type.getConstructor(parameterTypes);
+            return constructor.newInstance(args);
+        }
+        catch (InvocationTargetException exception)
+        {
+            throw rethrow(exception.getCause());
+        }
+        catch (Exception exception)
+        {
+            throw new IOException("Failed to create " + type.getName() + ": " + exception.getMessage(), exception);
+        }
+    }
+
+    private static Object invoke(Object object, String name, Class<?>[] parameterTypes, Object... args)
+            throws IOException
+    {
+        try
+        {
+            Method method = object.getClass().getMethod(name, parameterTypes);
+            return method.invoke(object, args);
+        }
+        catch (InvocationTargetException exception)
+        {
+            throw rethrow(exception.getCause());
+        }
+        catch (Exception exception)
+        {
+            throw new IOException("Failed to invoke " + object.getClass().getName() + "." + name + ": "
+                                          + exception.getMessage(), exception);
+        }
+    }
+
+    private static boolean hasMethod(Class<?> type, String name, Class<?>... parameterTypes)
+    {
+        try
+        {
+            type.getMethod(name, parameterTypes);
+            return true;
+        }
+        catch (NoSuchMethodException exception)
+        {
+            return false;
+        }
+    }
+
+    private static IOException rethrow(Throwable cause)
+    {
+        if (cause instanceof IOException)
+        {
+            return (IOException) cause;
+        }
+        return new IOException(cause.getMessage(), cause);
+    }
+}
@@ -23,10 +23,18 @@
 package com.izforge.izpack.util.config;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.api.config.Configurable;
+import com.izforge.izpack.api.config.spi.OptionPatcher;
 
 public abstract class ConfigFileTask extends SingleConfigurableTask
 {
+    private static final Logger logger = Logger.getLogger(ConfigFileTask.class.getName());
+
     protected File oldFile;
 
     protected File newFile;
@@ -41,6 +49,12 @@ public abstract class ConfigFileTask extends SingleConfigurableTask
      */
     private List<String> comment;
 
+    /**
+     * The configuration of the target file left by a preceding task of the same {@link ConfigFileTaskPlan},
+     * not yet written. {@code null} if the target file is to be read from disk
+     */
+    private Configurable pending;
+
     /**
      * Location of the configuration file to be patched to; optional. If not set, any empty
      * reference file is assumed, instead.
@@ -96,4 +110,265 @@ public abstract class ConfigFileTask extends SingleConfigurableTask
         if (this.toFile == null) { throw new Exception("The \"file\" attribute must be set"); }
     }
 
+    /**
+     * Executes the task.
+     * <p/>
+     * If the task only sets values in an existing file, the file is patched in place, so that only the lines of
+     * changed options are rewritten.
+     *
+     * @throws Exception for any error
+     */
+    @Override
+    public void execute() throws Exception
+    {
+        if (!patch(Collections.singletonList(this)))
+        {
+            super.execute();
+        }
+    }
+
+    /**
+     * Applies tasks on the same target file by patching it in place.
+     * <p/>
+     * This is only possible if the file exists, and each task has the same format and only sets values, without
+     * patching from other files or adding a header comment.
+     *
+     * @param tasks the tasks, in order
+     * @return {@code true} if the tasks were applied, {@code false} if they must be applied to the loaded
+     *         configuration
+     * @throws Exception for any error
+     */
+    static boolean patch(List<ConfigFileTask> tasks) throws Exception
+    {
+        ConfigFileTask first = tasks.get(0);
+        OptionPatcher patcher = first.newPatcher();
+        if (patcher == null)
+        {
+            return false;
+        }
+        for (ConfigFileTask task : tasks)
+        {
+            if (!task.isPatchable(patcher) || !task.hasSameFormat(first))
+            {
+                return false;
+            }
+        }
+        for (ConfigFileTask task : tasks)
+        {
+            for (Entry entry : task.getEntries())
+            {
+                patcher.set(patcher.hasSections() ? entry.getSection() : null, entry.getKey(), entry.getValue());
+            }
+        }
+        try
+        {
+            if (patcher.patch(first.toFile))
+            {
+                logger.fine("Patched configuration file in place: " + first.toFile.getAbsolutePath());
+                return true;
+            }
+        }
+        catch (IOException ioe)
+        {
+            throw new Exception(ioe);
+        }
+        return false;
+    }
+
+    /**
+     * Returns a patcher for the target file.
+     *
+     * @return a new patcher, or {@code null} if the file type cannot be patched in place
+     */
+    protected OptionPatcher newPatcher()
+    {
+        return null;
+    }
+
+    /**
+     * Returns the configuration of the target file left by a preceding task, not yet written.
+     * <p/>
+     * If non-null, this should be used in place of the target file contents.
+     *
+     * @return the pending configuration, or {@code null} if the target file should be read
+     */
+    protected Configurable getPendingConfigurable()
+    {
+        return pending;
+    }
+
+    /**
+     * Writes a configuration to the target file. The file exists.
+     *
+     * @param model the configuration to write
+     * @throws IOException for any I/O error
+     */
+    protected abstract void storeConfigurable(Configurable model) throws IOException;
+
+    /**
+     * Returns the target file.
+     *
+     * @return the target file. May be {@code null}
+     */
+    File getToFile()
+    {
+        return toFile;
+    }
+
+    /**
+     * Returns the files read or written by this task.
+     *
+     * @return the files read or written
+     */
+    File[] getFiles()
+    {
+        return new File[]{toFile, newFile, oldFile};
+    }
+
+    /**
+     * Returns the files written or deleted by this task.
+     *
+     * @return the files written or deleted
+     */
+    File[] getModifiedFiles()
+    {
+        return new File[]{toFile, cleanup ? oldFile : null};
+    }
+
+    /**
+     * Determines if this task can be applied to the unwritten configuration left by another task on the same
+     * target file.
+     * <p/>
+     * This is not possible if the tasks read files in a different format, or this task reads the target file
+     * other than as its original configuration.
+     *
+     * @param previous the previous task
+     * @return {@code true} if this task can use the configuration of {@code previous}
+     */
+    boolean canContinue(ConfigFileTask previous)
+    {
+        return hasSameFormat(previous) && !isTarget(newFile) && !isTarget(oldFile);
+    }
+
+    /**
+     * Executes this task, without writing the target file.
+     * <p/>
+     * This behaves as {@link #execute()}, except that the target file contents are taken from {@code pending},
+     * if non-null, and the result is returned rather than written.
+     *
+     * @param pending the unwritten configuration of the target file. May be {@code null}
+     * @return the configuration to write to the target file, or {@code null} if the target file may not be
+     *         created
+     * @throws Exception for any error
+     */
+    Configurable execute(Configurable pending) throws Exception
+    {
+        checkAttributes();
+        this.pending = pending;
+        try
+        {
+            configure();
+        }
+        finally
+        {
+            this.pending = null;
+        }
+        if (pending == null && !toFile.exists() && !createConfigurable)
+        {
+            logger.warning("Configuration file " + toFile.getAbsolutePath()
+                    + " did not exist and is not allowed to be created");
+            return null;
+        }
+        return configurable;
+    }
+
+    /**
+     * Deletes the file patched from, if cleanup is required.
+     * <p/>
+     * This should be invoked after {@link #execute(Configurable)} returns a configuration, and, if
+     * {@link #isTargetCleanup()} is {@code true}, after the configuration is stored.
+     */
+    void cleanup()
+    {
+        if (cleanup && oldFile != null && oldFile.exists())
+        {
+            if (!oldFile.delete())
+            {
+                logger.warning("File " + oldFile + " could not be cleant up");
+            }
+        }
+    }
+
+    /**
+     * Determines if the cleanup deletes the target file.
+     *
+     * @return {@code true} if the file patched from is the target file, and is to be deleted
+     */
+    boolean isTargetCleanup()
+    {
+        return cleanup && isTarget(oldFile);
+    }
+
+    /**
+     * Writes a configuration returned by {@link #execute(Configurable)} to the target file, creating it if
+     * required.
+     *
+     * @param model the configuration to write
+     * @throws Exception for any error
+     */
+    void store(Configurable model) throws Exception
+    {
+        try
+        {
+            if (!toFile.exists())
+            {
+                File parent = toFile.getParentFile();
+                if (parent != null && !parent.exists())
+                {
+                    parent.mkdirs();
+                }
+                logger.fine("Creating configuration file: " + toFile.getAbsolutePath());
+                toFile.createNewFile();
+            }
+            storeConfigurable(model);
+        }
+        catch (IOException ioe)
+        {
+            throw new Exception(ioe);
+        }
+    }
+
+    /**
+     * Determines if this task can be applied by patching the target file in place.
+     *
+     * @param patcher the patcher
+     * @return {@code true} if the task only sets values in an existing file
+     */
+    private boolean isPatchable(OptionPatcher patcher)
+    {
+        if (toFile == null || !toFile.isFile() || newFile != null || oldFile != null || getComment() != null)
+        {
+            return false;
+        }
+        for (Entry entry : getEntries())
+        {
+            if (!entry.isLiteralSet() || (patcher.hasSections() && entry.getSection() == null))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines if a file is the target file.
+     *
+     * @param file the file. May be {@code null}
+     * @return {@code true} if the file is the target file
+     */
+    private boolean isTarget(File file)
+    {
+        return file != null && toFile != null && file.getAbsoluteFile().equals(toFile.getAbsoluteFile());
+    }
+
 }
@@ -0,0 +1,294 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.api.config.Configurable;
+
+
+/**
+ * Executes a sequence of {@link ConfigFileTask}s, writing each target file once.
+ * <p/>
+ * Tasks are grouped by target file. The tasks of a group are applied in order to a single in-memory
+ * configuration, which is written when the group completes, or when a task needs to read the target file
+ * from disk. If the tasks of a group only set values in an existing file, the file is instead patched in place,
+ * rewriting only the changed lines.
+ * <p/>
+ * If no group reads or deletes a file that another group writes, the groups are independent, and are executed
+ * concurrently. Otherwise, only consecutive tasks on the same target file are grouped, and the groups are
+ * executed in order.
+ */
+public class ConfigFileTaskPlan
+{
+
+    /**
+     * The maximum no. of threads to execute independent groups with.
+     */
+    private final int threads;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ConfigFileTaskPlan.class.getName());
+
+
+    /**
+     * Constructs a {@code ConfigFileTaskPlan} that uses up to one thread per available processor.
+     */
+    public ConfigFileTaskPlan()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a {@code ConfigFileTaskPlan}.
+     *
+     * @param threads the maximum no. of threads to execute independent groups with
+     */
+    public ConfigFileTaskPlan(int threads)
+    {
+        this.threads = threads;
+    }
+
+    /**
+     * Executes tasks.
+     *
+     * @param tasks the tasks to execute
+     * @throws Exception for any error. If tasks are executed concurrently, this is the error of the first group
+     *                   to fail, in task order
+     */
+    public void execute(List<? extends ConfigFileTask> tasks) throws Exception
+    {
+        Map<File, List<ConfigFileTask>> groups = new LinkedHashMap<File, List<ConfigFileTask>>();
+        for (ConfigFileTask task : tasks)
+        {
+            File key = getKey(task.getToFile());
+            List<ConfigFileTask> group = groups.get(key);
+            if (group == null)
+            {
+                group = new ArrayList<ConfigFileTask>();
+                groups.put(key, group);
+            }
+            group.add(task);
+        }
+
+        if (isIndependent(groups))
+        {
+            logger.fine("Executing " + tasks.size() + " configuration tasks on " + groups.size() + " files");
+            executeGroups(new ArrayList<List<ConfigFileTask>>(groups.values()));
+        }
+        else
+        {
+            List<ConfigFileTask> group = new ArrayList<ConfigFileTask>();
+            File target = null;
+            for (ConfigFileTask task : tasks)
+            {
+                File key = getKey(task.getToFile());
+                if (!group.isEmpty() && !equals(key, target))
+                {
+                    executeGroup(group);
+                    group.clear();
+                }
+                group.add(task);
+                target = key;
+            }
+            if (!group.isEmpty())
+            {
+                executeGroup(group);
+            }
+        }
+    }
+
+    /**
+     * Executes independent groups, concurrently if there is more than one.
+     *
+     * @param groups the groups
+     * @throws Exception for any error
+     */
+    private void executeGroups(List<List<ConfigFileTask>> groups) throws Exception
+    {
+        int count = Math.min(threads, groups.size());
+        if (count <= 1)
+        {
+            for (List<ConfigFileTask> group : groups)
+            {
+                executeGroup(group);
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final List<ConfigFileTask> group : groups)
+            {
+                futures.add(executor.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        executeGroup(group);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (ExecutionException exception)
+                {
+                    Throwable cause = exception.getCause();
+                    if (cause instanceof Exception)
+                    {
+                        throw (Exception) cause;
+                    }
+                    throw exception;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Executes the tasks of a group, in order.
+     *
+     * @param group tasks on the same target file
+     * @throws Exception for any error
+     */
+    private void executeGroup(List<ConfigFileTask> group) throws Exception
+    {
+        if (ConfigFileTask.patch(group))
+        {
+            return;
+        }
+        Configurable pending = null;
+        ConfigFileTask writer = null;
+        for (ConfigFileTask task : group)
+        {
+            if (pending != null && !task.canContinue(writer))
+            {
+                writer.store(pending);
+                pending = null;
+            }
+            Configurable result = task.execute(pending);
+            if (result != null)
+            {
+                pending = result;
+                writer = task;
+                if (task.isTargetCleanup())
+                {
+                    writer.store(pending);
+                    pending = null;
+                }
+                task.cleanup();
+            }
+        }
+        if (pending != null)
+        {
+            writer.store(pending);
+        }
+    }
+
+    /**
+     * Determines if no group reads or deletes a file written by another.
+     *
+     * @param groups the groups, keyed on target file
+     * @return {@code true} if the groups are independent
+     */
+    private boolean isIndependent(Map<File, List<ConfigFileTask>> groups)
+    {
+        Map<File, File> modified = new HashMap<File, File>();
+        for (Map.Entry<File, List<ConfigFileTask>> entry : groups.entrySet())
+        {
+            for (ConfigFileTask task : entry.getValue())
+            {
+                for (File file : task.getModifiedFiles())
+                {
+                    File key = getKey(file);
+                    if (key != null)
+                    {
+                        File previous = modified.put(key, entry.getKey());
+                        if (previous != null && !previous.equals(entry.getKey()))
+                        {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        for (Map.Entry<File, List<ConfigFileTask>> entry : groups.entrySet())
+        {
+            for (ConfigFileTask task : entry.getValue())
+            {
+                for (File file : task.getFiles())
+                {
+                    File key = getKey(file);
+                    File group = (key != null) ? modified.get(key) : null;
+                    if (group != null && !group.equals(entry.getKey()))
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the key to compare files with.
+     *
+     * @param file the file. May be {@code null}
+     * @return the absolute file, or {@code null} if {@code file} is {@code null}
+     */
+    private static File getKey(File file)
+    {
+        return (file != null) ? file.getAbsoluteFile() : null;
+    }
+
+    /**
+     * Determines if two keys are equal.
+     *
+     * @param key1 the first key. May be {@code null}
+     * @param key2 the second key. May be {@code null}
+     * @return {@code true} if they are equal
+     */
+    private static boolean equals(File key1, File key2)
+    {
+        return (key1 == null) ? key2 == null : key1.equals(key2);
+    }
+}
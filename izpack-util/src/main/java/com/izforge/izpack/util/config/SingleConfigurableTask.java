@@ -210,11 +210,58 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
         Config.getGlobal().setOperator(operator);
         Config.getGlobal().setFileEncoding(encoding);
         checkAttributes();
+        configure();
+        writeConfigurable();
+    }
+
+    /**
+     * Reads the configuration and the configuration to patch from, and applies the patches and nested entries.
+     *
+     * @throws Exception for any error
+     */
+    protected void configure() throws Exception
+    {
         readConfigurable();
         readSourceConfigurable();
         patchConfigurable();
         executeNestedEntries();
-        writeConfigurable();
+    }
+
+    /**
+     * Returns the configuration used to read and write files, derived from the global configuration and the
+     * settings of this task.
+     * <p/>
+     * Unlike the global configuration, this is private to the task, so it is not affected by tasks executing
+     * concurrently.
+     *
+     * @return a new configuration
+     */
+    protected Config getConfig()
+    {
+        Config config = Config.getGlobal().clone();
+        config.setHeaderComment(headerComment);
+        config.setEmptyLines(emptyLines);
+        config.setAutoNumbering(autoNumbering);
+        config.setEscape(escape);
+        config.setEscapeNewline(escapeNewLine);
+        config.setOperator(operator);
+        config.setFileEncoding(encoding);
+        return config;
+    }
+
+    /**
+     * Determines if another task reads and writes files the same way as this task.
+     *
+     * @param other the other task
+     * @return {@code true} if the tasks have the same format settings
+     */
+    boolean hasSameFormat(SingleConfigurableTask other)
+    {
+        return getClass() == other.getClass() && escape == other.escape && escapeNewLine == other.escapeNewLine
+                && headerComment == other.headerComment && emptyLines == other.emptyLines
+                && autoNumbering == other.autoNumbering
+                && (operator == null ? other.operator == null : operator.equals(other.operator))
+                && (encoding == null ? other.encoding == null : encoding.equals(other.encoding));
     }
 
     private String getValueFromOptionMap(OptionMap map, String key, int index)
@@ -653,6 +700,16 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
         entries.addElement(entry);
     }
 
+    /**
+     * Returns the nested entries.
+     *
+     * @return the entries
+     */
+    List<Entry> getEntries()
+    {
+        return entries;
+    }
+
     /**
      * Instance of this class represents nested elements of a task configuration file.
      */
@@ -736,6 +793,17 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
             return value;
         }
 
+        /**
+         * Determines if this entry sets a string value, regardless of any previous value.
+         *
+         * @return {@code true} if the new value doesn't depend on the previous one
+         */
+        boolean isLiteralSet()
+        {
+            return operation == Operation.SET && type == Type.STRING && key != null && value != null
+                    && defaultValue == null;
+        }
+
         public LookupType getLookupType()
         {
             return lookupType;
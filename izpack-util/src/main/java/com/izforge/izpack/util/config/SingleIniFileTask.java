@@ -26,7 +26,9 @@ import java.io.File;
 import java.io.IOException;
 import java.util.logging.Logger;
 
+import com.izforge.izpack.api.config.Configurable;
 import com.izforge.izpack.api.config.Ini;
+import com.izforge.izpack.api.config.spi.OptionPatcher;
 
 public class SingleIniFileTask extends ConfigFileTask
 {
@@ -47,7 +49,7 @@ public class SingleIniFileTask extends ConfigFileTask
                 }
                 logger.fine("Loading INI file: " + oldFile.getAbsolutePath());
                 // Configuration file type must be the same as the target type
-                fromConfigurable = new Ini(this.oldFile);
+                fromConfigurable = new Ini(this.oldFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -64,19 +66,24 @@ public class SingleIniFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading original configuration file: " + newFile.getAbsolutePath());
-                configurable = new Ini(newFile);
+                configurable = new Ini(newFile, getConfig());
             }
             catch (IOException ioe)
             {
                 throw new Exception("Error opening original configuration file: " + ioe.toString());
             }
         }
+        else if (getPendingConfigurable() != null)
+        {
+            logger.fine("Using pending target configuration: " + toFile.getAbsolutePath());
+            configurable = getPendingConfigurable();
+        }
         else if (toFile != null && toFile.exists())
         {
             try
             {
                 logger.fine("Loading target configuration file: " + toFile.getAbsolutePath());
-                configurable = new Ini(toFile);
+                configurable = new Ini(toFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -85,7 +92,7 @@ public class SingleIniFileTask extends ConfigFileTask
         }
         else
         {
-            configurable = new Ini();
+            configurable = new Ini(getConfig());
         }
     }
 
@@ -114,10 +121,7 @@ public class SingleIniFileTask extends ConfigFileTask
                     return;
                 }
             }
-            Ini ini = (Ini) configurable;
-            ini.setFile(toFile);
-            ini.setHeaderComment(getComment());
-            ini.store();
+            storeConfigurable(configurable);
         }
         catch (IOException ioe)
         {
@@ -132,4 +136,19 @@ public class SingleIniFileTask extends ConfigFileTask
             }
         }
     }
+
+    @Override
+    protected void storeConfigurable(Configurable model) throws IOException
+    {
+        Ini ini = (Ini) model;
+        ini.setFile(toFile);
+        ini.setHeaderComment(getComment());
+        ini.store();
+    }
+
+    @Override
+    protected OptionPatcher newPatcher()
+    {
+        return OptionPatcher.newIniPatcher(getConfig());
+    }
 }
@@ -26,7 +26,9 @@ import java.io.File;
 import java.io.IOException;
 import java.util.logging.Logger;
 
+import com.izforge.izpack.api.config.Configurable;
 import com.izforge.izpack.api.config.Options;
+import com.izforge.izpack.api.config.spi.OptionPatcher;
 
 public class SingleOptionFileTask extends ConfigFileTask
 {
@@ -47,7 +49,7 @@ public class SingleOptionFileTask extends ConfigFileTask
                 }
                 logger.fine("Loading options file: " + oldFile.getAbsolutePath());
                 // Configuration file type must be the same as the target type
-                fromConfigurable = new Options(this.oldFile);
+                fromConfigurable = new Options(this.oldFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -64,19 +66,24 @@ public class SingleOptionFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading original configuration file: " + newFile.getAbsolutePath());
-                configurable = new Options(newFile);
+                configurable = new Options(newFile, getConfig());
             }
             catch (IOException ioe)
             {
                 throw new Exception("Error opening original configuration file: " + ioe.toString());
             }
         }
+        else if (getPendingConfigurable() != null)
+        {
+            logger.fine("Using pending target configuration: " + toFile.getAbsolutePath());
+            configurable = getPendingConfigurable();
+        }
         else if (toFile != null && toFile.exists())
         {
             try
             {
                 logger.fine("Loading target configuration file: " + toFile.getAbsolutePath());
-                configurable = new Options(toFile);
+                configurable = new Options(toFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -85,7 +92,7 @@ public class SingleOptionFileTask extends ConfigFileTask
         }
         else
         {
-            configurable = new Options();
+            configurable = new Options(getConfig());
         }
     }
 
@@ -114,10 +121,7 @@ public class SingleOptionFileTask extends ConfigFileTask
                     return;
                 }
             }
-            Options opts = (Options) configurable;
-            opts.setFile(toFile);
-            opts.setHeaderComment(getComment());
-            opts.store();
+            storeConfigurable(configurable);
         }
         catch (IOException ioe)
         {
@@ -135,4 +139,19 @@ public class SingleOptionFileTask extends ConfigFileTask
             }
         }
     }
+
+    @Override
+    protected void storeConfigurable(Configurable model) throws IOException
+    {
+        Options opts = (Options) model;
+        opts.setFile(toFile);
+        opts.setHeaderComment(getComment());
+        opts.store();
+    }
+
+    @Override
+    protected OptionPatcher newPatcher()
+    {
+        return OptionPatcher.newOptionsPatcher(getConfig());
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.delta;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+
+/**
+ * Reconstructs a file from its previous version and a delta produced by {@link DeltaEncoder}.
+ */
+public class DeltaDecoder
+{
+
+    /**
+     * The size of the copy buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The copy buffer.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+
+    /**
+     * Decodes a delta.
+     *
+     * @param source the previous version
+     * @param delta  the delta
+     * @param out    the stream to write the new version to. This is not closed
+     * @return the length of the new version
+     * @throws IOException if the delta is invalid, or for any I/O error
+     */
+    public long decode(File source, InputStream delta, OutputStream out) throws IOException
+    {
+        DataInputStream in = new DataInputStream(delta);
+        RandomAccessFile from = new RandomAccessFile(source, "r");
+        try
+        {
+            if (in.readInt() != DeltaFormat.MAGIC)
+            {
+                throw new IOException("Invalid delta");
+            }
+            long length = from.length();
+            long written = 0;
+            int operation;
+            while ((operation = in.readUnsignedByte()) != DeltaFormat.END)
+            {
+                if (operation == DeltaFormat.COPY)
+                {
+                    long offset = in.readLong();
+                    long size = in.readLong();
+                    if (offset < 0 || size < 0 || offset + size > length)
+                    {
+                        throw new IOException("Invalid delta: copy of " + size + " bytes at offset " + offset
+                                                      + " exceeds source length " + length);
+                    }
+                    from.seek(offset);
+                    copy(from, out, size);
+                    written += size;
+                }
+                else if (operation == DeltaFormat.ADD)
+                {
+                    int size = in.readInt();
+                    if (size < 0)
+                    {
+                        throw new IOException("Invalid delta: add of " + size + " bytes");
+                    }
+                    copy(in, out, size);
+                    written += size;
+                }
+                else
+                {
+                    throw new IOException("Invalid delta operation: " + operation);
+                }
+            }
+            return written;
+        }
+        catch (EOFException exception)
+        {
+            throw new IOException("Unexpected end of delta", exception);
+        }
+        finally
+        {
+            from.close();
+        }
+    }
+
+    private void copy(RandomAccessFile from, OutputStream out, long size) throws IOException
+    {
+        while (size > 0)
+        {
+            int length = (int) Math.min(size, buffer.length);
+            from.readFully(buffer, 0, length);
+            out.write(buffer, 0, length);
+            size -= length;
+        }
+    }
+
+    private void copy(DataInputStream from, OutputStream out, int size) throws IOException
+    {
+        while (size > 0)
+        {
+            int length = Math.min(size, buffer.length);
+            from.readFully(buffer, 0, length);
+            out.write(buffer, 0, length);
+            size -= length;
+        }
+    }
+}
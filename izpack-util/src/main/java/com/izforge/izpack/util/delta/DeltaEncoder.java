@@ -0,0 +1,427 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.delta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+import com.izforge.izpack.util.NoCloseOutputStream;
+
+
+/**
+ * Encodes a file as a binary delta against a previous version of it.
+ * <p/>
+ * The previous version is divided into blocks, indexed by a rolling checksum. The checksum is rolled over the new
+ * version a byte at a time and, where it matches that of a block, the bytes are compared. Matching blocks are extended
+ * as far as the versions agree, and encoded as copies from the previous version. Everything else is added from the
+ * new version.
+ */
+public class DeltaEncoder
+{
+
+    /**
+     * The default block size.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 2048;
+
+    /**
+     * The maximum no. of blocks with the same checksum that are compared at each position.
+     */
+    private static final int MAX_CANDIDATES = 16;
+
+    /**
+     * The maximum length of the data added by a single operation.
+     */
+    private static final int MAX_ADD_LENGTH = 64 * 1024;
+
+    /**
+     * The size of the buffer used to read the new version.
+     */
+    private static final int TARGET_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * The size of the buffer used to read the previous version.
+     */
+    private static final int SOURCE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The block size.
+     */
+    private final int blockSize;
+
+
+    /**
+     * Constructs a {@code DeltaEncoder} with the default block size.
+     */
+    public DeltaEncoder()
+    {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a {@code DeltaEncoder}.
+     *
+     * @param blockSize the size of the blocks matched between versions
+     */
+    public DeltaEncoder(int blockSize)
+    {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Encodes a file as a delta against its previous version.
+     *
+     * @param source the previous version
+     * @param target the new version
+     * @param out    the stream to write the delta to. This is not closed
+     * @return the no. of bytes of the new version copied from the previous version
+     * @throws IOException for any I/O error
+     */
+    public long encode(File source, File target, OutputStream out) throws IOException
+    {
+        Index index = new Index(source);
+        Window from = new Window(source, SOURCE_BUFFER_SIZE);
+        Window to = new Window(target, TARGET_BUFFER_SIZE);
+        try
+        {
+            DataOutputStream delta = new DataOutputStream(new BufferedOutputStream(new NoCloseOutputStream(out)));
+            delta.writeInt(DeltaFormat.MAGIC);
+            long copied = encode(index, from, to, delta);
+            delta.writeByte(DeltaFormat.END);
+            delta.close();
+            return copied;
+        }
+        finally
+        {
+            from.close();
+            to.close();
+        }
+    }
+
+    /**
+     * Encodes the operations of a delta.
+     *
+     * @param index the index of the previous version's blocks
+     * @param from  the previous version
+     * @param to    the new version
+     * @param delta the stream to write operations to
+     * @return the no. of bytes copied from the previous version
+     * @throws IOException for any I/O error
+     */
+    private long encode(Index index, Window from, Window to, DataOutputStream delta) throws IOException
+    {
+        long length = to.length();
+        long copied = 0;
+        long position = 0;
+        long added = 0;
+        int a = 0;
+        int b = 0;
+        boolean rolling = false;
+        while (position + blockSize <= length)
+        {
+            if (!rolling)
+            {
+                a = 0;
+                b = 0;
+                for (int i = 0; i < blockSize; ++i)
+                {
+                    int value = to.get(position + i);
+                    a += value;
+                    b += (blockSize - i) * value;
+                }
+                a &= 0xffff;
+                b &= 0xffff;
+                rolling = true;
+            }
+            long match = find(index, from, to, position, (b << 16) | a);
+            if (match >= 0)
+            {
+                long matched = blockSize;
+                while (position + matched < length && match + matched < from.length()
+                        && from.get(match + matched) == to.get(position + matched))
+                {
+                    ++matched;
+                }
+                long before = 0;
+                while (position - before > added && match - before > 0
+                        && from.get(match - before - 1) == to.get(position - before - 1))
+                {
+                    ++before;
+                }
+                add(to, added, position - before, delta);
+                delta.writeByte(DeltaFormat.COPY);
+                delta.writeLong(match - before);
+                delta.writeLong(before + matched);
+                copied += before + matched;
+                position += matched;
+                added = position;
+                rolling = false;
+            }
+            else
+            {
+                if (position + blockSize < length)
+                {
+                    int out = to.get(position);
+                    int in = to.get(position + blockSize);
+                    a = (a - out + in) & 0xffff;
+                    b = (b - blockSize * out + a) & 0xffff;
+                }
+                ++position;
+            }
+        }
+        add(to, added, length, delta);
+        return copied;
+    }
+
+    /**
+     * Finds a block of the previous version that matches the new version at a position.
+     *
+     * @param index    the index of the previous version's blocks
+     * @param from     the previous version
+     * @param to       the new version
+     * @param position the position in the new version
+     * @param checksum the checksum of the block at the position
+     * @return the offset of the matching block in the previous version, or {@code -1} if there is no match
+     * @throws IOException for any I/O error
+     */
+    private long find(Index index, Window from, Window to, long position, int checksum) throws IOException
+    {
+        int candidates = 0;
+        for (int block = index.first(checksum); block != -1 && candidates < MAX_CANDIDATES;
+             block = index.next(block))
+        {
+            if (index.getChecksum(block) == checksum)
+            {
+                ++candidates;
+                long offset = (long) block * blockSize;
+                int i = 0;
+                while (i < blockSize && from.get(offset + i) == to.get(position + i))
+                {
+                    ++i;
+                }
+                if (i == blockSize)
+                {
+                    return offset;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a range of the new version to the delta.
+     *
+     * @param to    the new version
+     * @param start the start of the range
+     * @param end   the end of the range, exclusive
+     * @param delta the stream to write operations to
+     * @throws IOException for any I/O error
+     */
+    private void add(Window to, long start, long end, DataOutputStream delta) throws IOException
+    {
+        while (start < end)
+        {
+            int length = (int) Math.min(end - start, MAX_ADD_LENGTH);
+            delta.writeByte(DeltaFormat.ADD);
+            delta.writeInt(length);
+            for (int i = 0; i < length; ++i)
+            {
+                delta.write(to.get(start + i));
+            }
+            start += length;
+        }
+    }
+
+    /**
+     * Computes the checksum of a block, as rolled by {@link #encode(Index, Window, Window, DataOutputStream)}.
+     *
+     * @param data   the data
+     * @param length the length of the block
+     * @return the checksum
+     */
+    private static int checksum(byte[] data, int length)
+    {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; ++i)
+        {
+            int value = data[i] & 0xff;
+            a += value;
+            b += (length - i) * value;
+        }
+        return ((b & 0xffff) << 16) | (a & 0xffff);
+    }
+
+    /**
+     * Indexes the blocks of the previous version by checksum.
+     */
+    private class Index
+    {
+
+        /**
+         * The first block in each bucket, or {@code -1} if the bucket is empty.
+         */
+        private final int[] buckets;
+
+        /**
+         * The next block in the same bucket as each block, or {@code -1} if it is the last.
+         */
+        private final int[] chain;
+
+        /**
+         * The checksum of each block.
+         */
+        private final int[] checksums;
+
+        public Index(File source) throws IOException
+        {
+            long count = source.length() / blockSize;
+            if (count > Integer.MAX_VALUE / 2)
+            {
+                throw new IOException("File too large to encode a delta against: " + source);
+            }
+            int blocks = (int) count;
+            int size = Integer.highestOneBit(Math.max(16, blocks * 2 - 1)) << 1;
+            buckets = new int[size];
+            Arrays.fill(buckets, -1);
+            chain = new int[blocks];
+            checksums = new int[blocks];
+
+            byte[] block = new byte[blockSize];
+            InputStream in = new BufferedInputStream(new FileInputStream(source), SOURCE_BUFFER_SIZE);
+            try
+            {
+                for (int i = 0; i < blocks; ++i)
+                {
+                    IOUtils.readFully(in, block);
+                    checksums[i] = checksum(block, blockSize);
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+            // link in reverse, so that earlier blocks are found first
+            for (int i = blocks - 1; i >= 0; --i)
+            {
+                int bucket = bucket(checksums[i]);
+                chain[i] = buckets[bucket];
+                buckets[bucket] = i;
+            }
+        }
+
+        public int first(int checksum)
+        {
+            return buckets[bucket(checksum)];
+        }
+
+        public int next(int block)
+        {
+            return chain[block];
+        }
+
+        public int getChecksum(int block)
+        {
+            return checksums[block];
+        }
+
+        private int bucket(int checksum)
+        {
+            return (checksum * 0x9e3779b1) >>> (32 - Integer.numberOfTrailingZeros(buckets.length));
+        }
+    }
+
+    /**
+     * Provides random access to a file, through a buffer that retains a block's worth of data before the last
+     * position read.
+     */
+    private class Window
+    {
+
+        private final RandomAccessFile file;
+
+        private final long length;
+
+        private final byte[] buffer;
+
+        private long start;
+
+        private int count;
+
+        public Window(File file, int size) throws IOException
+        {
+            this.file = new RandomAccessFile(file, "r");
+            this.length = this.file.length();
+            this.buffer = new byte[Math.max(size, blockSize * 2)];
+        }
+
+        public long length()
+        {
+            return length;
+        }
+
+        /**
+         * Returns the byte at a position.
+         *
+         * @param position the position. Must be less than the file length
+         * @return the byte, as an unsigned value
+         * @throws IOException for any I/O error
+         */
+        public int get(long position) throws IOException
+        {
+            if (position < start || position >= start + count)
+            {
+                fill(position);
+            }
+            return buffer[(int) (position - start)] & 0xff;
+        }
+
+        public void close() throws IOException
+        {
+            file.close();
+        }
+
+        private void fill(long position) throws IOException
+        {
+            start = Math.max(0, position - blockSize);
+            count = (int) Math.min(buffer.length, length - start);
+            file.seek(start);
+            try
+            {
+                file.readFully(buffer, 0, count);
+            }
+            catch (EOFException exception)
+            {
+                throw new IOException("File changed whilst encoding delta", exception);
+            }
+        }
+    }
+}
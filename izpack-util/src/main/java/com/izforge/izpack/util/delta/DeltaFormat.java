@@ -0,0 +1,60 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.delta;
+
+
+/**
+ * The format of binary deltas.
+ * <p/>
+ * A delta starts with {@link #MAGIC}, followed by a sequence of operations, each identified by a byte:
+ * <ul>
+ * <li>{@link #COPY}, followed by the offset and length of a range of the source to copy, as longs</li>
+ * <li>{@link #ADD}, followed by the length of the data to add, as an int, and the data itself</li>
+ * <li>{@link #END}, terminating the delta</li>
+ * </ul>
+ */
+final class DeltaFormat
+{
+
+    /**
+     * Identifies the start of a delta.
+     */
+    static final int MAGIC = 0x495a4431;
+
+    /**
+     * Terminates a delta.
+     */
+    static final int END = 0;
+
+    /**
+     * Copies a range of the source to the target.
+     */
+    static final int COPY = 1;
+
+    /**
+     * Adds data from the delta to the target.
+     */
+    static final int ADD = 2;
+
+
+    private DeltaFormat()
+    {
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.delta;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * Computes the digests that files are verified with before and after applying deltas.
+ */
+public final class Digests
+{
+
+    /**
+     * The digest algorithm.
+     */
+    public static final String ALGORITHM = "SHA-256";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+
+    private Digests()
+    {
+    }
+
+    /**
+     * Creates a new message digest.
+     *
+     * @return a new message digest
+     */
+    public static MessageDigest create()
+    {
+        try
+        {
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException exception)
+        {
+            // all Java platforms are required to support SHA-256
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Computes the digest of a file.
+     *
+     * @param file the file
+     * @return the digest
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] digest(File file) throws IOException
+    {
+        MessageDigest digest = create();
+        byte[] buffer = new byte[64 * 1024];
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, read);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Formats a digest for display.
+     *
+     * @param digest the digest
+     * @return the digest as a hexadecimal string
+     */
+    public static String toString(byte[] digest)
+    {
+        StringBuilder result = new StringBuilder(digest.length * 2);
+        for (byte value : digest)
+        {
+            result.append(HEX[(value >> 4) & 0xf]).append(HEX[value & 0xf]);
+        }
+        return result.toString();
+    }
+}
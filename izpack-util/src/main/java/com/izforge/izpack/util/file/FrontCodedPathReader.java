@@ -0,0 +1,330 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Reads paths written by a {@link FrontCodedPathWriter}.
+ * <p/>
+ * Only the offset and entry count of each block are held in memory. Paths are decoded a block at a time on demand,
+ * so the paths may be accessed in either direction without materialising the whole log.
+ */
+public class FrontCodedPathReader implements Closeable
+{
+
+    /**
+     * The file to read.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * The offset of each block.
+     */
+    private long[] offsets;
+
+    /**
+     * The byte length of each block.
+     */
+    private int[] lengths;
+
+    /**
+     * The index of the first path of each block.
+     */
+    private int[] firsts;
+
+    /**
+     * The total no. of paths.
+     */
+    private int size;
+
+    /**
+     * The index of the currently decoded block, or <tt>-1</tt> if no block has been decoded.
+     */
+    private int current = -1;
+
+    /**
+     * The paths in the currently decoded block.
+     */
+    private String[] decoded;
+
+
+    /**
+     * Constructs a <tt>FrontCodedPathReader</tt>.
+     *
+     * @param file the file to read
+     * @throws IOException if the file is not a valid path log, or an I/O error occurs
+     */
+    public FrontCodedPathReader(File file) throws IOException
+    {
+        this.file = new RandomAccessFile(file, "r");
+        try
+        {
+            readIndex();
+        }
+        catch (IOException exception)
+        {
+            this.file.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the no. of paths.
+     *
+     * @return the no. of paths
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the path at the specified index, in the order the paths were written.
+     * <p/>
+     * Sequential access, in either direction, only decodes each block once.
+     *
+     * @param index the path index
+     * @return the path
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IOException               for any I/O error
+     */
+    public synchronized String get(int index) throws IOException
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int block = Arrays.binarySearch(firsts, index);
+        if (block < 0)
+        {
+            block = -block - 2;
+        }
+        else
+        {
+            // skip over any empty blocks sharing the same first index
+            while (block + 1 < firsts.length && firsts[block + 1] == index)
+            {
+                ++block;
+            }
+        }
+        if (block != current)
+        {
+            decoded = decode(block);
+            current = block;
+        }
+        return decoded[index - firsts[block]];
+    }
+
+    /**
+     * Returns a read-only list view of the paths.
+     *
+     * @param reverse if <tt>true</tt>, the paths are returned in reverse order to that in which they were written
+     * @return the paths
+     */
+    public List<String> asList(final boolean reverse)
+    {
+        return new AbstractList<String>()
+        {
+            @Override
+            public String get(int index)
+            {
+                try
+                {
+                    return FrontCodedPathReader.this.get(reverse ? size - 1 - index : index);
+                }
+                catch (IOException exception)
+                {
+                    throw new IllegalStateException(exception);
+                }
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Closes the underlying file.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Override
+    public void close() throws IOException
+    {
+        file.close();
+    }
+
+    /**
+     * Walks the block footers from the end of the file to determine the block offsets.
+     *
+     * @throws IOException if the file is not a valid path log, or an I/O error occurs
+     */
+    private void readIndex() throws IOException
+    {
+        long length = file.length();
+        if (length < FrontCodedPathWriter.HEADER_SIZE || file.readInt() != FrontCodedPathWriter.MAGIC)
+        {
+            throw new IOException("Invalid path log");
+        }
+        int version = file.readUnsignedByte();
+        if (version != FrontCodedPathWriter.VERSION)
+        {
+            throw new IOException("Unsupported path log version: " + version);
+        }
+
+        int blocks = 0;
+        long[] offsets = new long[16];
+        int[] lengths = new int[16];
+        int[] counts = new int[16];
+        long end = length;
+        while (end > FrontCodedPathWriter.HEADER_SIZE)
+        {
+            if (end - FrontCodedPathWriter.FOOTER_SIZE < FrontCodedPathWriter.HEADER_SIZE)
+            {
+                throw new IOException("Invalid path log");
+            }
+            file.seek(end - FrontCodedPathWriter.FOOTER_SIZE);
+            int count = file.readInt();
+            int blockLength = file.readInt();
+            long start = end - FrontCodedPathWriter.FOOTER_SIZE - blockLength;
+            if (count < 0 || blockLength < 0 || start < FrontCodedPathWriter.HEADER_SIZE)
+            {
+                throw new IOException("Invalid path log");
+            }
+            if (blocks == offsets.length)
+            {
+                offsets = Arrays.copyOf(offsets, blocks * 2);
+                lengths = Arrays.copyOf(lengths, blocks * 2);
+                counts = Arrays.copyOf(counts, blocks * 2);
+            }
+            offsets[blocks] = start;
+            lengths[blocks] = blockLength;
+            counts[blocks] = count;
+            ++blocks;
+            end = start;
+        }
+
+        // the blocks were read last to first, so reverse them
+        this.offsets = new long[blocks];
+        this.lengths = new int[blocks];
+        this.firsts = new int[blocks];
+        int first = 0;
+        for (int i = 0; i < blocks; ++i)
+        {
+            int j = blocks - 1 - i;
+            this.offsets[i] = offsets[j];
+            this.lengths[i] = lengths[j];
+            this.firsts[i] = first;
+            first += counts[j];
+        }
+        size = first;
+    }
+
+    /**
+     * Decodes a block.
+     *
+     * @param block the block index
+     * @return the paths in the block
+     * @throws IOException for any I/O error
+     */
+    private String[] decode(int block) throws IOException
+    {
+        int count = ((block + 1 < firsts.length) ? firsts[block + 1] : size) - firsts[block];
+        byte[] data = new byte[lengths[block]];
+        file.seek(offsets[block]);
+        file.readFully(data);
+
+        String[] result = new String[count];
+        byte[] path = new byte[0];
+        int[] pos = {0};
+        for (int i = 0; i < count; ++i)
+        {
+            int shared = readVarInt(data, pos);
+            int suffix = readVarInt(data, pos);
+            if (shared > path.length || pos[0] + suffix > data.length)
+            {
+                throw new IOException("Invalid path log");
+            }
+            byte[] next = new byte[shared + suffix];
+            System.arraycopy(path, 0, next, 0, shared);
+            System.arraycopy(data, pos[0], next, shared, suffix);
+            pos[0] += suffix;
+            path = next;
+            result[i] = decode(path);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes a path.
+     *
+     * @param path the encoded path
+     * @return the decoded path
+     */
+    private static String decode(byte[] path)
+    {
+        try
+        {
+            return new String(path, FrontCodedPathWriter.ENCODING);
+        }
+        catch (UnsupportedEncodingException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Reads an unsigned variable length integer.
+     *
+     * @param data the data to read
+     * @param pos  the position to read from. This is updated with the position following the integer
+     * @return the integer
+     * @throws IOException if the integer is invalid
+     */
+    private static int readVarInt(byte[] data, int[] pos) throws IOException
+    {
+        int result = 0;
+        int shift = 0;
+        while (pos[0] < data.length && shift < 32)
+        {
+            int b = data[pos[0]++];
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return result;
+            }
+            shift += 7;
+        }
+        throw new IOException("Invalid path log");
+    }
+
+}
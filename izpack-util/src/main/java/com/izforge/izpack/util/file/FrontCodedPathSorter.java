@@ -0,0 +1,261 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+
+/**
+ * Sorts and de-duplicates paths written by a {@link FrontCodedPathWriter}, without holding them all in memory.
+ * <p/>
+ * The paths are sorted in runs of at most {@link #DEFAULT_RUN_SIZE} paths. Each run is spooled to a temporary
+ * file, and the runs are then merged.
+ */
+public final class FrontCodedPathSorter
+{
+
+    /**
+     * The default maximum no. of paths sorted in memory.
+     */
+    public static final int DEFAULT_RUN_SIZE = 64 * 1024;
+
+
+    private FrontCodedPathSorter()
+    {
+    }
+
+    /**
+     * Sorts paths, removing duplicates.
+     *
+     * @param source     the paths to sort
+     * @param target     the file to write the sorted paths to
+     * @param comparator the comparator to order paths. Paths that compare equal are duplicates
+     * @return the no. of sorted paths
+     * @throws IOException for any I/O error
+     */
+    public static int sort(File source, File target, Comparator<String> comparator) throws IOException
+    {
+        return sort(source, target, comparator, DEFAULT_RUN_SIZE);
+    }
+
+    /**
+     * Sorts paths, removing duplicates.
+     *
+     * @param source     the paths to sort
+     * @param target     the file to write the sorted paths to
+     * @param comparator the comparator to order paths. Paths that compare equal are duplicates
+     * @param runSize    the maximum no. of paths to sort in memory
+     * @return the no. of sorted paths
+     * @throws IOException for any I/O error
+     */
+    public static int sort(File source, File target, Comparator<String> comparator, int runSize) throws IOException
+    {
+        List<File> runs = new ArrayList<File>();
+        FrontCodedPathReader reader = new FrontCodedPathReader(source);
+        try
+        {
+            TreeSet<String> run = new TreeSet<String>(comparator);
+            for (int i = 0; i < reader.size(); ++i)
+            {
+                run.add(reader.get(i));
+                if (run.size() >= runSize)
+                {
+                    runs.add(writeRun(run, target.getParentFile()));
+                    run.clear();
+                }
+            }
+            if (runs.isEmpty())
+            {
+                write(run, target);
+                return run.size();
+            }
+            if (!run.isEmpty())
+            {
+                runs.add(writeRun(run, target.getParentFile()));
+            }
+            return merge(runs, target, comparator);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(reader);
+            for (File run : runs)
+            {
+                FileUtils.deleteQuietly(run);
+            }
+        }
+    }
+
+    /**
+     * Writes a sorted run to a temporary file.
+     *
+     * @param run the run
+     * @param dir the directory to create the file in. May be <tt>null</tt>
+     * @return the temporary file
+     * @throws IOException for any I/O error
+     */
+    private static File writeRun(Collection<String> run, File dir) throws IOException
+    {
+        File file = File.createTempFile("izpack-sort", ".run", dir);
+        write(run, file);
+        return file;
+    }
+
+    /**
+     * Writes paths to a file.
+     *
+     * @param paths the paths
+     * @param file  the file
+     * @throws IOException for any I/O error
+     */
+    private static void write(Collection<String> paths, File file) throws IOException
+    {
+        FrontCodedPathWriter writer = new FrontCodedPathWriter(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try
+        {
+            for (String path : paths)
+            {
+                writer.write(path);
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Merges sorted runs, removing duplicates.
+     *
+     * @param runs       the runs
+     * @param target     the file to write the merged paths to
+     * @param comparator the comparator to order paths
+     * @return the no. of merged paths
+     * @throws IOException for any I/O error
+     */
+    private static int merge(List<File> runs, File target, final Comparator<String> comparator) throws IOException
+    {
+        PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(runs.size(), new Comparator<Cursor>()
+        {
+            @Override
+            public int compare(Cursor o1, Cursor o2)
+            {
+                return comparator.compare(o1.path, o2.path);
+            }
+        });
+        List<Cursor> cursors = new ArrayList<Cursor>();
+        FrontCodedPathWriter writer = null;
+        try
+        {
+            for (File run : runs)
+            {
+                Cursor cursor = new Cursor(new FrontCodedPathReader(run));
+                cursors.add(cursor);
+                if (cursor.next())
+                {
+                    queue.add(cursor);
+                }
+            }
+            writer = new FrontCodedPathWriter(new BufferedOutputStream(new FileOutputStream(target)));
+            int count = 0;
+            String last = null;
+            while (!queue.isEmpty())
+            {
+                Cursor cursor = queue.poll();
+                if (last == null || comparator.compare(last, cursor.path) != 0)
+                {
+                    last = cursor.path;
+                    writer.write(last);
+                    ++count;
+                }
+                if (cursor.next())
+                {
+                    queue.add(cursor);
+                }
+            }
+            writer.close();
+            writer = null;
+            return count;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(writer);
+            for (Cursor cursor : cursors)
+            {
+                IOUtils.closeQuietly(cursor.reader);
+            }
+        }
+    }
+
+    /**
+     * Iterates the paths of a sorted run.
+     */
+    private static class Cursor
+    {
+
+        /**
+         * The run reader.
+         */
+        private final FrontCodedPathReader reader;
+
+        /**
+         * The index of the next path.
+         */
+        private int index;
+
+        /**
+         * The current path.
+         */
+        private String path;
+
+        public Cursor(FrontCodedPathReader reader)
+        {
+            this.reader = reader;
+        }
+
+        /**
+         * Moves to the next path.
+         *
+         * @return <tt>true</tt> if there is a path, <tt>false</tt> if the run is exhausted
+         * @throws IOException for any I/O error
+         */
+        public boolean next() throws IOException
+        {
+            if (index < reader.size())
+            {
+                path = reader.get(index++);
+                return true;
+            }
+            return false;
+        }
+    }
+}
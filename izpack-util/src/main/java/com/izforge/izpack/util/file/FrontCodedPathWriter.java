@@ -0,0 +1,258 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+
+/**
+ * Writes a sequence of paths in a prefix-compressed (front-coded) format.
+ * <p/>
+ * Paths are grouped into blocks. The first path of each block is stored in full, subsequent paths store the number
+ * of leading bytes shared with their predecessor followed by the remaining bytes. Each block is terminated by
+ * a footer holding its entry count and byte length, so that a {@link FrontCodedPathReader} can walk the blocks
+ * from the end of the stream without an index.
+ * <p/>
+ * The stream layout is:
+ * <pre>
+ * header: int MAGIC, byte VERSION
+ * block*: entry* int count, int length
+ * entry:  varint shared, varint suffixLength, byte[suffixLength] suffix
+ * </pre>
+ */
+public class FrontCodedPathWriter implements Closeable, Flushable
+{
+
+    /**
+     * The stream magic number.
+     */
+    public static final int MAGIC = 0x495A4643; // "IZFC"
+
+    /**
+     * The format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The default maximum no. of paths per block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    static final int HEADER_SIZE = 5;
+
+    /**
+     * The size of a block footer, in bytes.
+     */
+    static final int FOOTER_SIZE = 8;
+
+    /**
+     * The character set used to encode paths.
+     */
+    static final String ENCODING = "UTF-8";
+
+    /**
+     * The underlying stream.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * The maximum no. of paths per block.
+     */
+    private final int blockSize;
+
+    /**
+     * The current block.
+     */
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+    /**
+     * The no. of paths in the current block.
+     */
+    private int blockCount;
+
+    /**
+     * The encoded previous path in the current block.
+     */
+    private byte[] previous;
+
+    /**
+     * The total no. of paths written.
+     */
+    private long count;
+
+
+    /**
+     * Constructs a <tt>FrontCodedPathWriter</tt> with the default block size.
+     *
+     * @param out the stream to write to
+     * @throws IOException for any I/O error
+     */
+    public FrontCodedPathWriter(OutputStream out) throws IOException
+    {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a <tt>FrontCodedPathWriter</tt>.
+     *
+     * @param out       the stream to write to
+     * @param blockSize the maximum no. of paths per block
+     * @throws IOException for any I/O error
+     */
+    public FrontCodedPathWriter(OutputStream out, int blockSize) throws IOException
+    {
+        if (blockSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid block size: " + blockSize);
+        }
+        this.out = new DataOutputStream(out);
+        this.blockSize = blockSize;
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+    }
+
+    /**
+     * Appends a path.
+     *
+     * @param path the path to append
+     * @throws IOException for any I/O error
+     */
+    public void write(String path) throws IOException
+    {
+        byte[] bytes = encode(path);
+        int shared = 0;
+        if (previous != null)
+        {
+            int max = Math.min(previous.length, bytes.length);
+            while (shared < max && previous[shared] == bytes[shared])
+            {
+                ++shared;
+            }
+        }
+        writeVarInt(block, shared);
+        writeVarInt(block, bytes.length - shared);
+        block.write(bytes, shared, bytes.length - shared);
+        previous = bytes;
+        ++count;
+        if (++blockCount == blockSize)
+        {
+            endBlock();
+        }
+    }
+
+    /**
+     * Returns the no. of paths written.
+     *
+     * @return the no. of paths written
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Terminates the current block and flushes the underlying stream.
+     * <p/>
+     * After flushing, the data written so far forms a complete stream that may be read by a
+     * {@link FrontCodedPathReader}. Subsequent writes start a new block.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        endBlock();
+        out.flush();
+    }
+
+    /**
+     * Terminates the current block and closes the underlying stream.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Override
+    public void close() throws IOException
+    {
+        flush();
+        out.close();
+    }
+
+    /**
+     * Encodes a path.
+     *
+     * @param path the path
+     * @return the encoded path
+     */
+    static byte[] encode(String path)
+    {
+        try
+        {
+            return path.getBytes(ENCODING);
+        }
+        catch (UnsupportedEncodingException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Writes the current block, if it contains any paths.
+     *
+     * @throws IOException for any I/O error
+     */
+    private void endBlock() throws IOException
+    {
+        if (blockCount > 0)
+        {
+            block.writeTo(out);
+            out.writeInt(blockCount);
+            out.writeInt(block.size());
+            block.reset();
+            blockCount = 0;
+            previous = null;
+        }
+    }
+
+    /**
+     * Writes an unsigned variable length integer.
+     *
+     * @param stream the stream to write to
+     * @param value  the value to write
+     */
+    private static void writeVarInt(ByteArrayOutputStream stream, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            stream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        stream.write(value);
+    }
+
+}
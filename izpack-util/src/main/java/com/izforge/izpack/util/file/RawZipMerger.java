@@ -0,0 +1,337 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Merges zip files by copying their entries as is, without inflating and deflating them.
+ * <p/>
+ * The local entries of each file are concatenated, followed by a central directory combining each file's
+ * central directory with the local header offsets adjusted. Zip64 archives are not supported.
+ * <p/>
+ * The caller is responsible for ensuring that the files don't contain duplicate entries.
+ */
+public class RawZipMerger
+{
+
+    /**
+     * The end of central directory signature.
+     */
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    /**
+     * The central directory file header signature.
+     */
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+    /**
+     * The size of the end of central directory record, excluding the comment.
+     */
+    private static final int END_SIZE = 22;
+
+    /**
+     * The size of a central directory file header, excluding the variable length fields.
+     */
+    private static final int CENTRAL_SIZE = 46;
+
+    /**
+     * The maximum size of the zip file comment.
+     */
+    private static final int MAX_COMMENT = 0xFFFF;
+
+    /**
+     * The general purpose flag indicating that names are UTF-8 encoded.
+     */
+    private static final int UTF8_FLAG = 0x800;
+
+
+    /**
+     * Returns the names of the entries in a zip file, read from its central directory.
+     *
+     * @param file the zip file
+     * @return the entry names
+     * @throws IOException if the file is not a supported zip file, or an I/O error occurs
+     */
+    public static List<String> getEntryNames(File file) throws IOException
+    {
+        RandomAccessFile zip = new RandomAccessFile(file, "r");
+        try
+        {
+            Directory directory = readDirectory(zip);
+            List<String> result = new ArrayList<String>(directory.entries);
+            byte[] central = directory.read(zip);
+            int pos = 0;
+            for (int i = 0; i < directory.entries; ++i)
+            {
+                checkCentralHeader(central, pos);
+                int flags = getShort(central, pos + 8);
+                int nameLength = getShort(central, pos + 28);
+                String encoding = ((flags & UTF8_FLAG) != 0) ? "UTF-8" : "Cp437";
+                result.add(decode(central, pos + CENTRAL_SIZE, nameLength, encoding));
+                pos += getCentralHeaderSize(central, pos);
+            }
+            return result;
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+    /**
+     * Merges zip files.
+     *
+     * @param files the files to merge
+     * @param out   the stream to write the merged zip file to
+     * @throws IOException if a file is not a supported zip file, or an I/O error occurs
+     */
+    public static void merge(List<File> files, OutputStream out) throws IOException
+    {
+        List<byte[]> directories = new ArrayList<byte[]>();
+        long offset = 0;
+        long entries = 0;
+        byte[] buffer = new byte[64 * 1024];
+        for (File file : files)
+        {
+            RandomAccessFile zip = new RandomAccessFile(file, "r");
+            try
+            {
+                Directory directory = readDirectory(zip);
+                byte[] central = directory.read(zip);
+
+                // adjust the local header offsets by the size of the preceding local entries
+                int pos = 0;
+                for (int i = 0; i < directory.entries; ++i)
+                {
+                    checkCentralHeader(central, pos);
+                    long local = getInt(central, pos + 42) + offset;
+                    if (local > 0xFFFFFFFFL)
+                    {
+                        throw new IOException("Merged zip file too large: " + file);
+                    }
+                    putInt(central, pos + 42, local);
+                    pos += getCentralHeaderSize(central, pos);
+                }
+                directories.add(central);
+
+                // copy the local entries
+                zip.seek(0);
+                long remaining = directory.offset;
+                while (remaining > 0)
+                {
+                    int read = zip.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0)
+                    {
+                        throw new IOException("Unexpected end of file: " + file);
+                    }
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+                offset += directory.offset;
+                entries += directory.entries;
+            }
+            finally
+            {
+                zip.close();
+            }
+        }
+        if (entries > 0xFFFF)
+        {
+            throw new IOException("Too many entries to merge: " + entries);
+        }
+
+        long size = 0;
+        for (byte[] central : directories)
+        {
+            out.write(central);
+            size += central.length;
+        }
+        if (offset > 0xFFFFFFFFL)
+        {
+            throw new IOException("Merged zip file too large");
+        }
+
+        byte[] end = new byte[END_SIZE];
+        putInt(end, 0, END_SIGNATURE);
+        putShort(end, 8, (int) entries);
+        putShort(end, 10, (int) entries);
+        putInt(end, 12, size);
+        putInt(end, 16, offset);
+        out.write(end);
+        out.flush();
+    }
+
+    /**
+     * Reads the end of central directory record.
+     *
+     * @param zip the zip file
+     * @return the central directory location
+     * @throws IOException if the file is not a supported zip file, or an I/O error occurs
+     */
+    private static Directory readDirectory(RandomAccessFile zip) throws IOException
+    {
+        long length = zip.length();
+        if (length < END_SIZE)
+        {
+            throw new IOException("Invalid zip file");
+        }
+        int tail = (int) Math.min(length, END_SIZE + MAX_COMMENT);
+        byte[] data = new byte[tail];
+        zip.seek(length - tail);
+        zip.readFully(data);
+        for (int pos = tail - END_SIZE; pos >= 0; --pos)
+        {
+            if (getInt(data, pos) == END_SIGNATURE && pos + END_SIZE + getShort(data, pos + 20) == tail)
+            {
+                int entries = getShort(data, pos + 10);
+                long size = getInt(data, pos + 12);
+                long offset = getInt(data, pos + 16);
+                if (entries == 0xFFFF || size == 0xFFFFFFFFL || offset == 0xFFFFFFFFL)
+                {
+                    throw new IOException("Zip64 files are not supported");
+                }
+                if (offset + size > length - tail + pos)
+                {
+                    throw new IOException("Invalid zip file");
+                }
+                return new Directory(entries, offset, (int) size);
+            }
+        }
+        throw new IOException("Invalid zip file");
+    }
+
+    /**
+     * Verifies that a central directory file header is present.
+     *
+     * @param central the central directory
+     * @param pos     the header position
+     * @throws IOException if the header is invalid
+     */
+    private static void checkCentralHeader(byte[] central, int pos) throws IOException
+    {
+        if (pos + CENTRAL_SIZE > central.length || getInt(central, pos) != CENTRAL_SIGNATURE
+                || pos + getCentralHeaderSize(central, pos) > central.length)
+        {
+            throw new IOException("Invalid zip central directory");
+        }
+        if (getInt(central, pos + 42) == 0xFFFFFFFFL)
+        {
+            throw new IOException("Zip64 files are not supported");
+        }
+    }
+
+    /**
+     * Returns the size of a central directory file header, including the variable length fields.
+     *
+     * @param central the central directory
+     * @param pos     the header position
+     * @return the header size
+     */
+    private static int getCentralHeaderSize(byte[] central, int pos)
+    {
+        return CENTRAL_SIZE + getShort(central, pos + 28) + getShort(central, pos + 30) + getShort(central, pos + 32);
+    }
+
+    private static String decode(byte[] data, int pos, int length, String encoding) throws IOException
+    {
+        try
+        {
+            return new String(data, pos, length, encoding);
+        }
+        catch (UnsupportedEncodingException exception)
+        {
+            return new String(data, pos, length, "UTF-8");
+        }
+    }
+
+    private static int getShort(byte[] data, int pos)
+    {
+        return (data[pos] & 0xFF) | ((data[pos + 1] & 0xFF) << 8);
+    }
+
+    private static long getInt(byte[] data, int pos)
+    {
+        return (getShort(data, pos) | ((long) getShort(data, pos + 2) << 16)) & 0xFFFFFFFFL;
+    }
+
+    private static void putShort(byte[] data, int pos, int value)
+    {
+        data[pos] = (byte) value;
+        data[pos + 1] = (byte) (value >>> 8);
+    }
+
+    private static void putInt(byte[] data, int pos, long value)
+    {
+        putShort(data, pos, (int) (value & 0xFFFF));
+        putShort(data, pos + 2, (int) ((value >>> 16) & 0xFFFF));
+    }
+
+    /**
+     * The location of a central directory.
+     */
+    private static class Directory
+    {
+
+        /**
+         * The no. of entries.
+         */
+        private final int entries;
+
+        /**
+         * The offset of the central directory, which is also the size of the local entries.
+         */
+        private final long offset;
+
+        /**
+         * The size of the central directory.
+         */
+        private final int size;
+
+        public Directory(int entries, long offset, int size)
+        {
+            this.entries = entries;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        /**
+         * Reads the central directory.
+         *
+         * @param zip the zip file
+         * @return the central directory
+         * @throws IOException for any I/O error
+         */
+        public byte[] read(RandomAccessFile zip) throws IOException
+        {
+            byte[] result = new byte[size];
+            zip.seek(offset);
+            zip.readFully(result);
+            return result;
+        }
+    }
+}
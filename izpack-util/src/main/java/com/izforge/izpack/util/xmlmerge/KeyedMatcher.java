@@ -0,0 +1,54 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.xmlmerge;
+
+import java.util.Collection;
+
+import org.jdom2.Element;
+
+/**
+ * A matcher that allows the elements an element may match to be looked up by key, rather than by comparing it
+ * with each element in turn.
+ * <p/>
+ * If {@code matches(first, second)} returns true, {@code getIndexKeys(first)} and {@code getLookupKeys(second)}
+ * must have at least one key in common. Elements that share a key need not match, so elements found by key must
+ * still be compared with {@link #matches(Element, Element)}.
+ */
+public interface KeyedMatcher extends Matcher
+{
+
+    /**
+     * Returns the keys to index an element by, when it is passed as the first argument to
+     * {@link #matches(Element, Element)}.
+     *
+     * @param element The element to index
+     * @return The keys of the element
+     */
+    Collection<String> getIndexKeys(Element element);
+
+    /**
+     * Returns the keys to look up the elements an element may match, when it is passed as the second argument to
+     * {@link #matches(Element, Element)}.
+     *
+     * @param element The element to look up matches of
+     * @return The keys of the matching elements
+     */
+    Collection<String> getLookupKeys(Element element);
+}
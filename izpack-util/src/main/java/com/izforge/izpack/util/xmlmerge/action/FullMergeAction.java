@@ -23,8 +23,10 @@
 package com.izforge.izpack.util.xmlmerge.action;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.jdom2.Attribute;
@@ -37,7 +39,6 @@ import com.izforge.izpack.util.xmlmerge.AbstractXmlMergeException;
 import com.izforge.izpack.util.xmlmerge.Action;
 import com.izforge.izpack.util.xmlmerge.DocumentException;
 import com.izforge.izpack.util.xmlmerge.Mapper;
-import com.izforge.izpack.util.xmlmerge.Matcher;
 
 /**
  * Merge implementation traversing element contents undependend of their order.
@@ -95,53 +96,31 @@ public class FullMergeAction extends AbstractMergeAction
         addAttributes(parentOut, patchElement);
 
         List<Content> origContentList = origElement.getContent();
-        List<Content> patchContentList = patchElement.getContent();
-        List<Content> unmatchedPatchContentList = new ArrayList<Content>();
-        List<Content> matchedPatchContentList = new ArrayList<Content>();
+        PatchIndex patchIndex = null;
+        Set<Element> matchedPatchElements = new HashSet<Element>();
 
         for (Content origContent : origContentList)
         {
             logger.fine("Checking original content: " + origContent + " for matching patch contents");
             if (origContent instanceof Element)
             {
+                if (patchIndex == null)
+                {
+                    patchIndex = new PatchIndex(patchElement.getContent(), m_matcherFactory);
+                }
                 boolean patchMatched = false;
 
-                for (Content patchContent : patchContentList)
+                // Continue searching after each match for finding multiple matches. Matches are looked up again
+                // after applying each one, as the merge may change the original element.
+                int position = patchIndex.nextMatch((Element) origContent, 0);
+                while (position != -1)
                 {
-                    logger.fine("Checking patch content: " + patchContent);
-
-                    if (patchContent instanceof Comment || patchContent instanceof Text)
-                    {
-                        // skip and leave original comment or text
-                        logger.fine("Skipped patch content: " + patchContent);
-                    }
-                    else if (!(patchContent instanceof Element))
-                    {
-                        throw new DocumentException(patchContent.getDocument(), "Contents of type "
-                                + patchContent.getClass().getName() + " in patch document not supported");
-                    }
-                    else
-                    {
-                        if (((Matcher) m_matcherFactory.getOperation((Element) patchContent, (Element) origContent))
-                                .matches((Element) patchContent, (Element) origContent))
-                        {
-                            logger.fine("Apply matching patch: " + patchContent + " -> " + origContent);
-                            applyAction(parentOut, (Element) origContent, (Element) patchContent);
-                            patchMatched = true;
-                            if (!matchedPatchContentList.contains(patchContent))
-                            {
-                                matchedPatchContentList.add(patchContent);
-                            }
-                        }
-                        else
-                        {
-                            if (!unmatchedPatchContentList.contains(patchContent))
-                            {
-                                unmatchedPatchContentList.add(patchContent);
-                            }
-                        }
-                        // Continue searching here for finding multiple matches
-                    }
+                    Element patchContent = patchIndex.getPatches().get(position);
+                    logger.fine("Apply matching patch: " + patchContent + " -> " + origContent);
+                    applyAction(parentOut, (Element) origContent, patchContent);
+                    patchMatched = true;
+                    matchedPatchElements.add(patchContent);
+                    position = patchIndex.nextMatch((Element) origContent, position + 1);
                 }
 
                 if (!patchMatched)
@@ -162,12 +141,15 @@ public class FullMergeAction extends AbstractMergeAction
             }
         }
 
-        for (Content unmatchedPatchContent : unmatchedPatchContentList)
+        if (patchIndex != null)
         {
-            if (!matchedPatchContentList.contains(unmatchedPatchContent))
+            for (Element unmatchedPatchContent : patchIndex.getPatches())
             {
-                logger.fine("Apply unmatching patch: "+ unmatchedPatchContent);
-                applyAction(parentOut, null, (Element) unmatchedPatchContent);
+                if (!matchedPatchElements.contains(unmatchedPatchContent))
+                {
+                    logger.fine("Apply unmatching patch: "+ unmatchedPatchContent);
+                    applyAction(parentOut, null, unmatchedPatchContent);
+                }
             }
         }
     }
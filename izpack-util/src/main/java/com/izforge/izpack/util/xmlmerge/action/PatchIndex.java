@@ -0,0 +1,247 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.xmlmerge.action;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom2.Comment;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Text;
+
+import com.izforge.izpack.util.xmlmerge.AbstractXmlMergeException;
+import com.izforge.izpack.util.xmlmerge.DocumentException;
+import com.izforge.izpack.util.xmlmerge.KeyedMatcher;
+import com.izforge.izpack.util.xmlmerge.Matcher;
+import com.izforge.izpack.util.xmlmerge.OperationFactory;
+import com.izforge.izpack.util.xmlmerge.factory.RankedOperationFactory;
+
+/**
+ * Finds the patch elements that match an original element.
+ * <p/>
+ * If the matcher factory is a {@link RankedOperationFactory}, the matcher for each patch element is resolved
+ * once, and patch elements are grouped by rank. Where the matcher for a group is a {@link KeyedMatcher}, the group
+ * is indexed by key, so only the patch elements sharing a key with the original element are compared with it.
+ * Otherwise, the original element is compared with each patch element in turn.
+ */
+class PatchIndex
+{
+
+    /**
+     * The patch elements, in document order.
+     */
+    private final List<Element> m_patches = new ArrayList<Element>();
+
+    /**
+     * The matcher factory.
+     */
+    private final OperationFactory m_matcherFactory;
+
+    /**
+     * The matcher factory, if it is ranked, else <code>null</code>.
+     */
+    private final RankedOperationFactory m_rankedFactory;
+
+    /**
+     * The rank of each patch element.
+     */
+    private final int[] m_ranks;
+
+    /**
+     * The positions of the patch elements, keyed on rank.
+     */
+    private final Map<Integer, List<Integer>> m_groups = new LinkedHashMap<Integer, List<Integer>>();
+
+    /**
+     * The positions of the patch elements in each group, keyed on the group and matcher ranks, then on key.
+     */
+    private final Map<String, Map<String, List<Integer>>> m_keys = new HashMap<String, Map<String, List<Integer>>>();
+
+    /**
+     * Creates a PatchIndex.
+     *
+     * @param patchContents The contents of the patch element
+     * @param matcherFactory The matcher factory
+     * @throws AbstractXmlMergeException If the contents aren't supported, or cannot be ranked
+     */
+    public PatchIndex(List<Content> patchContents, OperationFactory matcherFactory)
+            throws AbstractXmlMergeException
+    {
+        for (Content patchContent : patchContents)
+        {
+            if (patchContent instanceof Element)
+            {
+                m_patches.add((Element) patchContent);
+            }
+            else if (!(patchContent instanceof Comment || patchContent instanceof Text))
+            {
+                throw new DocumentException(patchContent.getDocument(), "Contents of type "
+                        + patchContent.getClass().getName() + " in patch document not supported");
+            }
+        }
+        m_matcherFactory = matcherFactory;
+        m_rankedFactory = (matcherFactory instanceof RankedOperationFactory)
+                ? (RankedOperationFactory) matcherFactory : null;
+        m_ranks = new int[m_patches.size()];
+        if (m_rankedFactory != null)
+        {
+            for (int i = 0; i < m_ranks.length; ++i)
+            {
+                m_ranks[i] = m_rankedFactory.getRank(m_patches.get(i));
+                List<Integer> group = m_groups.get(m_ranks[i]);
+                if (group == null)
+                {
+                    group = new ArrayList<Integer>();
+                    m_groups.put(m_ranks[i], group);
+                }
+                group.add(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the patch elements, in document order.
+     *
+     * @return The patch elements
+     */
+    public List<Element> getPatches()
+    {
+        return m_patches;
+    }
+
+    /**
+     * Returns the position of the next patch element that matches an original element.
+     *
+     * @param originalElement The original element
+     * @param from The position to start searching from
+     * @return The position of the matching patch element, or <code>-1</code> if there is none
+     * @throws AbstractXmlMergeException If an error occurred during matching
+     */
+    public int nextMatch(Element originalElement, int from) throws AbstractXmlMergeException
+    {
+        if (m_rankedFactory == null)
+        {
+            for (int i = from; i < m_patches.size(); ++i)
+            {
+                Element patchElement = m_patches.get(i);
+                if (((Matcher) m_matcherFactory.getOperation(patchElement, originalElement))
+                        .matches(patchElement, originalElement))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int originalRank = m_rankedFactory.getRank(originalElement);
+        BitSet candidates = getCandidates(originalElement, originalRank);
+        for (int i = candidates.nextSetBit(from); i >= 0; i = candidates.nextSetBit(i + 1))
+        {
+            Matcher matcher = (Matcher) m_rankedFactory.getOperation(Math.min(m_ranks[i], originalRank));
+            if (matcher.matches(m_patches.get(i), originalElement))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the positions of the patch elements that may match an original element.
+     *
+     * @param originalElement The original element
+     * @param originalRank The rank of the original element
+     * @return The candidate positions
+     * @throws AbstractXmlMergeException If an error occurred resolving a matcher
+     */
+    private BitSet getCandidates(Element originalElement, int originalRank) throws AbstractXmlMergeException
+    {
+        BitSet result = new BitSet(m_patches.size());
+        for (Map.Entry<Integer, List<Integer>> entry : m_groups.entrySet())
+        {
+            int matcherRank = Math.min(entry.getKey(), originalRank);
+            Matcher matcher = (Matcher) m_rankedFactory.getOperation(matcherRank);
+            if (matcher instanceof KeyedMatcher)
+            {
+                KeyedMatcher keyed = (KeyedMatcher) matcher;
+                Map<String, List<Integer>> index = getIndex(entry.getKey(), matcherRank, keyed, entry.getValue());
+                for (String key : keyed.getLookupKeys(originalElement))
+                {
+                    List<Integer> positions = index.get(key);
+                    if (positions != null)
+                    {
+                        for (int position : positions)
+                        {
+                            result.set(position);
+                        }
+                    }
+                }
+            }
+            else
+            {
+                for (int position : entry.getValue())
+                {
+                    result.set(position);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of a group of patch elements, creating it if required.
+     *
+     * @param groupRank The rank of the group
+     * @param matcherRank The rank of the matcher
+     * @param matcher The matcher
+     * @param group The positions of the patch elements in the group
+     * @return The positions of the patch elements in the group, keyed on key
+     */
+    private Map<String, List<Integer>> getIndex(int groupRank, int matcherRank, KeyedMatcher matcher,
+                                                List<Integer> group)
+    {
+        String indexKey = groupRank + "/" + matcherRank;
+        Map<String, List<Integer>> result = m_keys.get(indexKey);
+        if (result == null)
+        {
+            result = new HashMap<String, List<Integer>>();
+            for (int position : group)
+            {
+                for (String key : matcher.getIndexKeys(m_patches.get(position)))
+                {
+                    List<Integer> positions = result.get(key);
+                    if (positions == null)
+                    {
+                        positions = new ArrayList<Integer>(1);
+                        result.put(key, positions);
+                    }
+                    positions.add(position);
+                }
+            }
+            m_keys.put(indexKey, result);
+        }
+        return result;
+    }
+}
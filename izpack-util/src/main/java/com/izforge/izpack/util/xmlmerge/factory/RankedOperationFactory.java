@@ -0,0 +1,54 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.xmlmerge.factory;
+
+import org.jdom2.Element;
+
+import com.izforge.izpack.util.xmlmerge.AbstractXmlMergeException;
+import com.izforge.izpack.util.xmlmerge.Operation;
+import com.izforge.izpack.util.xmlmerge.OperationFactory;
+
+/**
+ * An operation factory where the operation for a pair of elements can be determined from each element separately.
+ * <p/>
+ * Each element is given a rank, and the operation for a pair of elements is that of the lower ranked element.
+ * This allows the operation for an element to be resolved once, rather than for each pair it is a member of.
+ */
+public interface RankedOperationFactory extends OperationFactory
+{
+
+    /**
+     * Returns the rank of an element.
+     *
+     * @param element The element. May be <code>null</code>
+     * @return The rank of the element
+     * @throws AbstractXmlMergeException If an error occurred while ranking the element
+     */
+    int getRank(Element element) throws AbstractXmlMergeException;
+
+    /**
+     * Returns the operation for a rank.
+     *
+     * @param rank The rank, as returned by {@link #getRank(Element)}
+     * @return The operation for the rank
+     * @throws AbstractXmlMergeException If an error occurred during operation creation
+     */
+    Operation getOperation(int rank) throws AbstractXmlMergeException;
+}
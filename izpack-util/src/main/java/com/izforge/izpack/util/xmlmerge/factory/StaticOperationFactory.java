@@ -25,7 +25,6 @@ package com.izforge.izpack.util.xmlmerge.factory;
 import org.jdom2.Element;
 
 import com.izforge.izpack.util.xmlmerge.Operation;
-import com.izforge.izpack.util.xmlmerge.OperationFactory;
 
 /**
  * An operation factory returning always the same operation whatever the specified elements.
@@ -33,7 +32,7 @@ import com.izforge.izpack.util.xmlmerge.OperationFactory;
  * @author Laurent Bovet (LBO)
  * @author Alex Mathey (AMA)
  */
-public class StaticOperationFactory implements OperationFactory
+public class StaticOperationFactory implements RankedOperationFactory
 {
 
     /**
@@ -57,4 +56,16 @@ public class StaticOperationFactory implements OperationFactory
         return m_operation;
     }
 
+    @Override
+    public int getRank(Element element)
+    {
+        return 0;
+    }
+
+    @Override
+    public Operation getOperation(int rank)
+    {
+        return m_operation;
+    }
+
 }
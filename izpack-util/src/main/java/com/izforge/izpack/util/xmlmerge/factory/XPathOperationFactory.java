@@ -22,9 +22,15 @@
 
 package com.izforge.izpack.util.xmlmerge.factory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
+import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.filter.Filters;
 import org.jdom2.xpath.XPathExpression;
@@ -34,16 +40,19 @@ import com.izforge.izpack.util.xmlmerge.AbstractXmlMergeException;
 import com.izforge.izpack.util.xmlmerge.ConfigurationException;
 import com.izforge.izpack.util.xmlmerge.MatchException;
 import com.izforge.izpack.util.xmlmerge.Operation;
-import com.izforge.izpack.util.xmlmerge.OperationFactory;
 
 /**
  * An operation factory that resolves operations given a map { xpath (as String), Operation }. The
  * order in the map is relevant if several XPath matches.
+ * <p/>
+ * Each XPath expression is compiled once. Absolute expressions that don't refer to attributes are evaluated once
+ * per document, and the elements they select are cached, so that matching an element is a set lookup. Expressions
+ * referring to attributes are evaluated for each element, as merging detaches attributes from the source elements.
  *
  * @author Laurent Bovet (LBO)
  * @author Alex Mathey (AMA)
  */
-public class XPathOperationFactory implements OperationFactory
+public class XPathOperationFactory implements RankedOperationFactory
 {
 
     /**
@@ -56,14 +65,20 @@ public class XPathOperationFactory implements OperationFactory
      */
     Operation m_defaultOperation;
 
+    /**
+     * The compiled XPath expressions, in map order. Compiled on first use.
+     */
+    private List<CompiledXPath> m_compiled;
+
     /**
      * Sets the factory's map containing configuration properties.
      *
      * @param map A map containing configuration properties.
      */
-    public void setOperationMap(Map<String, Operation> map)
+    public synchronized void setOperationMap(Map<String, Operation> map)
     {
         this.m_map = map;
+        this.m_compiled = null;
     }
 
     /**
@@ -80,44 +95,145 @@ public class XPathOperationFactory implements OperationFactory
     public Operation getOperation(Element originalElement, Element patchElement)
             throws AbstractXmlMergeException
     {
-        for (String xPath : m_map.keySet())
+        return getOperation(Math.min(getRank(originalElement), getRank(patchElement)));
+    }
+
+    /**
+     * Returns the rank of an element.
+     * <p/>
+     * This is the position of the first XPath expression that matches the element, or the no. of expressions
+     * if none match.
+     *
+     * @param element The element. May be <code>null</code>
+     * @return The rank of the element
+     * @throws AbstractXmlMergeException If an XPath expression is invalid or cannot be evaluated
+     */
+    @Override
+    public int getRank(Element element) throws AbstractXmlMergeException
+    {
+        List<CompiledXPath> compiled = getCompiled();
+        if (element != null)
         {
-            XPathExpression<Element> compiledExpression;
-            try
+            for (int i = 0; i < compiled.size(); ++i)
             {
-                compiledExpression = XPathFactory.instance().compile(xPath, Filters.element());
+                if (compiled.get(i).matches(element))
+                {
+                    return i;
+                }
             }
-            catch (IllegalArgumentException e)
-            {
-                throw new ConfigurationException(e.getMessage(), e);
-            }
-            if (matches(originalElement, compiledExpression) || matches(patchElement, compiledExpression))
+        }
+        return compiled.size();
+    }
+
+    @Override
+    public Operation getOperation(int rank) throws AbstractXmlMergeException
+    {
+        List<CompiledXPath> compiled = getCompiled();
+        return (rank < compiled.size()) ? compiled.get(rank).m_operation : m_defaultOperation;
+    }
+
+    /**
+     * Returns the compiled XPath expressions, compiling them if required.
+     *
+     * @return The compiled XPath expressions
+     * @throws ConfigurationException If an XPath expression is invalid
+     */
+    private synchronized List<CompiledXPath> getCompiled() throws ConfigurationException
+    {
+        if (m_compiled == null)
+        {
+            List<CompiledXPath> compiled = new ArrayList<CompiledXPath>();
+            for (Map.Entry<String, Operation> entry : m_map.entrySet())
             {
-                return m_map.get(xPath);
+                compiled.add(new CompiledXPath(entry.getKey(), entry.getValue()));
             }
+            m_compiled = compiled;
         }
-        return m_defaultOperation;
+        return m_compiled;
     }
 
     /**
-     * Detects whether the given element matches the given XPath string.
-     *
-     * @param element The element which will be checked
-     * @param xPathString The XPath expression the element will be checked against
-     * @return True if the given element matches the given XPath string
-     * @throws AbstractXmlMergeException If an error occurred during the matching process
+     * A compiled XPath expression and its operation.
      */
-    private boolean matches(Element element, XPathExpression<Element> compiledExpression) throws AbstractXmlMergeException
+    private static class CompiledXPath
     {
 
-        try
+        /**
+         * The compiled expression.
+         */
+        private final XPathExpression<Element> m_expression;
+
+        /**
+         * The operation for elements matching the expression.
+         */
+        private final Operation m_operation;
+
+        /**
+         * Determines if the elements the expression selects can be cached per document. This requires that the
+         * expression selects the same elements regardless of its context, and that the elements it selects aren't
+         * changed by merging.
+         */
+        private final boolean m_cacheable;
+
+        /**
+         * The elements selected by a cacheable expression, per document.
+         */
+        private final Map<Document, Set<Element>> m_selected = new WeakHashMap<Document, Set<Element>>();
+
+        /**
+         * Compiles an XPath expression.
+         *
+         * @param xPath The XPath expression
+         * @param operation The operation for elements matching the expression
+         * @throws ConfigurationException If the expression is invalid
+         */
+        public CompiledXPath(String xPath, Operation operation) throws ConfigurationException
         {
-            if (element == null) { return false; }
-            return compiledExpression.evaluate(element).contains(element);
+            try
+            {
+                m_expression = XPathFactory.instance().compile(xPath, Filters.element());
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new ConfigurationException(e.getMessage(), e);
+            }
+            m_operation = operation;
+            String trimmed = xPath.trim();
+            m_cacheable = trimmed.startsWith("/") && trimmed.indexOf('|') == -1 && trimmed.indexOf('@') == -1
+                    && !trimmed.contains("attribute");
         }
-        catch (IllegalStateException e)
+
+        /**
+         * Detects whether the given element matches the expression.
+         *
+         * @param element The element which will be checked
+         * @return True if the given element matches the expression
+         * @throws AbstractXmlMergeException If an error occurred during the matching process
+         */
+        public boolean matches(Element element) throws AbstractXmlMergeException
         {
-            throw new MatchException(element, e);
+            try
+            {
+                Document document = m_cacheable ? element.getDocument() : null;
+                if (document == null)
+                {
+                    return m_expression.evaluate(element).contains(element);
+                }
+                synchronized (m_selected)
+                {
+                    Set<Element> selected = m_selected.get(document);
+                    if (selected == null)
+                    {
+                        selected = new HashSet<Element>(m_expression.evaluate(document));
+                        m_selected.put(document, selected);
+                    }
+                    return selected.contains(element);
+                }
+            }
+            catch (IllegalStateException e)
+            {
+                throw new MatchException(element, e);
+            }
         }
     }
 
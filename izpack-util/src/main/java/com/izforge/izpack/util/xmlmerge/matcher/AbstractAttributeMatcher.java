@@ -22,6 +22,9 @@
 
 package com.izforge.izpack.util.xmlmerge.matcher;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.jdom2.Attribute;
@@ -36,6 +39,21 @@ public abstract class AbstractAttributeMatcher extends AbstractTagMatcher
     protected abstract boolean ignoreCaseAttributeValue();
     protected abstract String getAttributeName();
 
+    /**
+     * Key suffix for elements that match elements with any value of the attribute.
+     */
+    private static final String ANY_VALUE = "\u0000*";
+
+    /**
+     * Key suffix for elements that don't have a single value for the attribute.
+     */
+    private static final String NO_VALUE = "\u0000-";
+
+    /**
+     * Key prefix for an attribute value.
+     */
+    private static final String VALUE = "\u0000=";
+
     @Override
     public boolean matches(Element originalElement, Element patchElement)
     {
@@ -88,4 +106,72 @@ public abstract class AbstractAttributeMatcher extends AbstractTagMatcher
         }
         return false;
     }
+
+    /**
+     * Returns the keys to index an element by.
+     * <p/>
+     * Matching elements have the same name and no. of attributes. If the matched attribute is restricted, an
+     * element with a value for it is indexed by that value, and as matching any element without a value.
+     *
+     * @param element the element to index
+     * @return the keys of the element
+     */
+    @Override
+    public Collection<String> getIndexKeys(Element element)
+    {
+        String key = getKey(element);
+        if (getAttributeName() == null)
+        {
+            return Collections.singletonList(key);
+        }
+        String value = getAttributeValue(element);
+        return (value != null) ? Arrays.asList(key + VALUE + value, key + ANY_VALUE)
+                : Arrays.asList(key + ANY_VALUE, key + NO_VALUE);
+    }
+
+    @Override
+    public Collection<String> getLookupKeys(Element element)
+    {
+        String key = getKey(element);
+        if (getAttributeName() == null)
+        {
+            return Collections.singletonList(key);
+        }
+        String value = getAttributeValue(element);
+        return (value != null) ? Arrays.asList(key + VALUE + value, key + NO_VALUE)
+                : Collections.singletonList(key + ANY_VALUE);
+    }
+
+    /**
+     * Returns a key for the name and no. of attributes of an element.
+     *
+     * @param element the element
+     * @return the key
+     */
+    private String getKey(Element element)
+    {
+        return getTagKey(element) + "\u0000" + element.getAttributes().size();
+    }
+
+    /**
+     * Returns the folded value of the matched attribute of an element.
+     *
+     * @param element the element
+     * @return the attribute value, or <code>null</code> if the element doesn't have exactly one attribute
+     *         with the matched name
+     */
+    private String getAttributeValue(Element element)
+    {
+        String result = null;
+        int count = 0;
+        for (Attribute attribute : element.getAttributes())
+        {
+            if (equalsString(attribute.getQualifiedName(), getAttributeName(), ignoreCaseAttributeName()))
+            {
+                result = foldString(attribute.getValue(), ignoreCaseAttributeValue());
+                ++count;
+            }
+        }
+        return (count == 1) ? result : null;
+    }
 }
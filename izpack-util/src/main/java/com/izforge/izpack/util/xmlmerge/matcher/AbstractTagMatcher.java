@@ -22,14 +22,20 @@
 
 package com.izforge.izpack.util.xmlmerge.matcher;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import org.jdom2.Element;
 
-import com.izforge.izpack.util.xmlmerge.Matcher;
+import com.izforge.izpack.util.xmlmerge.KeyedMatcher;
 
 /**
  * Compares the qualified name of elements.
+ * <p/>
+ * Subclasses that change how elements are matched must also change their keys, so that matching elements share a
+ * key.
  */
-public abstract class AbstractTagMatcher implements Matcher
+public abstract class AbstractTagMatcher implements KeyedMatcher
 {
 
     protected abstract boolean ignoreCaseElementName();
@@ -41,6 +47,53 @@ public abstract class AbstractTagMatcher implements Matcher
                 ignoreCaseElementName());
     }
 
+    @Override
+    public Collection<String> getIndexKeys(Element element)
+    {
+        return Collections.singletonList(getTagKey(element));
+    }
+
+    @Override
+    public Collection<String> getLookupKeys(Element element)
+    {
+        return Collections.singletonList(getTagKey(element));
+    }
+
+    /**
+     * Returns a key for the qualified name of an element, such that the keys of two elements are equal if
+     * their names match.
+     *
+     * @param element the element
+     * @return the key
+     */
+    protected String getTagKey(Element element)
+    {
+        return foldString(element.getQualifiedName(), ignoreCaseElementName());
+    }
+
+    /**
+     * Folds the case of a string, such that two folded strings are equal if
+     * {@link #equalsString(String, String, boolean)} would return true for them.
+     *
+     * @param s the string
+     * @param ignoreCase if <code>true</code>, fold the case of the string
+     * @return the folded string
+     */
+    protected static String foldString(String s, boolean ignoreCase)
+    {
+        if (!ignoreCase)
+        {
+            return s;
+        }
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; ++i)
+        {
+            // the same per-character comparison String.equalsIgnoreCase() makes
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
     protected static boolean equalsString(String s1, String s2, boolean ignoreCase)
     {
         if (ignoreCase)
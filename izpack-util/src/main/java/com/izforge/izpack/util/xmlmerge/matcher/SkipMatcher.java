@@ -22,9 +22,12 @@
 
 package com.izforge.izpack.util.xmlmerge.matcher;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import org.jdom2.Element;
 
-import com.izforge.izpack.util.xmlmerge.Matcher;
+import com.izforge.izpack.util.xmlmerge.KeyedMatcher;
 
 /**
  * Elements compared with this matcher never match.
@@ -32,7 +35,7 @@ import com.izforge.izpack.util.xmlmerge.Matcher;
  * @author Laurent Bovet (LBO)
  * @author Alex Mathey (AMA)
  */
-public class SkipMatcher implements Matcher
+public class SkipMatcher implements KeyedMatcher
 {
 
     @Override
@@ -41,4 +44,16 @@ public class SkipMatcher implements Matcher
         return false;
     }
 
+    @Override
+    public Collection<String> getIndexKeys(Element element)
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Collection<String> getLookupKeys(Element element)
+    {
+        return Collections.emptyList();
+    }
+
 }
@@ -0,0 +1,193 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.ExecutableFile;
+import com.izforge.izpack.api.handler.AbstractUIHandler;
+
+
+/**
+ * Tests the {@link FileExecutor} class.
+ */
+public class FileExecutorTest
+{
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    /**
+     * The errors emitted.
+     */
+    private final List<String> errors = new ArrayList<String>();
+
+    /**
+     * The platform-model matcher.
+     */
+    private final PlatformModelMatcher matcher = new PlatformModelMatcher(new Platforms(), Platforms.LINUX);
+
+    /**
+     * Only runs the tests where there is a Bourne shell.
+     */
+    @Before
+    public void setUp()
+    {
+        Assume.assumeTrue(new File("/bin/sh").canExecute());
+    }
+
+    /**
+     * Verifies that executables of a group run concurrently, and that executables ordered after a group wait for
+     * it to complete.
+     * <p/>
+     * Each executable of the group waits for the other to start, so they cannot complete if run sequentially.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testGroups() throws Exception
+    {
+        File dir = tmpDir.getRoot();
+        String wait = "i=0\n"
+                + "while [ ! -f %s ]; do i=$((i+1)); if [ $i -gt 100 ]; then exit 1; fi; sleep 0.1; done\n";
+        ExecutableFile first = createExecutable("first.sh", "touch first.started\n"
+                + String.format(wait, "second.started") + "touch first.done\n", "index");
+        ExecutableFile second = createExecutable("second.sh", "touch second.started\n"
+                + String.format(wait, "first.started") + "touch second.done\n", "index");
+        ExecutableFile last = createExecutable("last.sh",
+                                               "[ -f first.done ] && [ -f second.done ] && touch last.done\n",
+                                               "report");
+        last.setAfter(Arrays.asList("index"));
+
+        FileExecutor executor = new FileExecutor(Arrays.asList(first, second, last), 2);
+        assertEquals(0, executor.executeFiles(ExecutableFile.POSTINSTALL, matcher, new Handler()));
+        assertTrue(new File(dir, "last.done").exists());
+        assertTrue(errors.isEmpty());
+    }
+
+    /**
+     * Verifies that no further executables are started after one fails with {@link ExecutableFile#ABORT}.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testAbort() throws Exception
+    {
+        File dir = tmpDir.getRoot();
+        ExecutableFile failed = createExecutable("failed.sh", "exit 3\n", null);
+        ExecutableFile skipped = createExecutable("skipped.sh", "touch skipped.done\n", "other");
+
+        FileExecutor executor = new FileExecutor(Arrays.asList(failed, skipped), 2);
+        assertEquals(3, executor.executeFiles(ExecutableFile.POSTINSTALL, matcher, new Handler()));
+        assertEquals(1, errors.size());
+        assertFalse(new File(dir, "skipped.done").exists());
+    }
+
+    /**
+     * Verifies that standard output and error are captured.
+     */
+    @Test
+    public void testExecuteCommand()
+    {
+        String[] output = new String[2];
+        String separator = System.getProperty("line.separator");
+        int status = new FileExecutor().executeCommand(
+                new String[]{"/bin/sh", "-c", "echo out1; echo err >&2; printf out2"}, output);
+        assertEquals(0, status);
+        assertEquals("out1" + separator + "out2" + separator, output[0]);
+        assertEquals("err" + separator, output[1]);
+    }
+
+    /**
+     * Creates a shell script executable, run in the temporary directory.
+     *
+     * @param name   the script name
+     * @param script the script body
+     * @param group  the group. May be {@code null}
+     * @return a new executable
+     * @throws Exception for any error
+     */
+    private ExecutableFile createExecutable(String name, String script, String group) throws Exception
+    {
+        File file = new File(tmpDir.getRoot(), name);
+        FileUtils.writeStringToFile(file, "#!/bin/sh\ncd " + tmpDir.getRoot().getPath() + "\n" + script, "UTF-8");
+        ExecutableFile executable = new ExecutableFile();
+        executable.path = file.getPath();
+        executable.executionStage = ExecutableFile.POSTINSTALL;
+        executable.onFailure = ExecutableFile.ABORT;
+        executable.keepFile = true;
+        executable.setGroup(group);
+        return executable;
+    }
+
+    /**
+     * Handler that records errors.
+     */
+    private class Handler implements AbstractUIHandler
+    {
+        @Override
+        public void emitNotification(String message)
+        {
+        }
+
+        @Override
+        public boolean emitWarning(String title, String message)
+        {
+            return true;
+        }
+
+        @Override
+        public void emitError(String title, String message)
+        {
+            errors.add(message);
+        }
+
+        @Override
+        public int askQuestion(String title, String question, int choices)
+        {
+            return ANSWER_NO;
+        }
+
+        @Override
+        public int askQuestion(String title, String question, int choices, int default_choice)
+        {
+            return ANSWER_NO;
+        }
+
+        @Override
+        public int askWarningQuestion(String title, String question, int choices, int default_choice)
+        {
+            return ANSWER_NO;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link NativeLibraryCache}.
+ */
+public class NativeLibraryCacheTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The library URL.
+     */
+    private URL url;
+
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws Exception for any error
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        File library = temporaryFolder.newFile("library.so");
+        FileUtils.writeStringToFile(library, "library", "UTF-8");
+        url = library.toURI().toURL();
+    }
+
+    /**
+     * Verifies that a library is extracted once, and reused by subsequent requests.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testReuse() throws Exception
+    {
+        File dir = new File(temporaryFolder.getRoot(), "cache");
+        NativeLibraryCache cache = new NativeLibraryCache(dir);
+
+        File file = cache.get("library", ".so", url);
+        assertNotNull(file);
+        assertEquals(dir, file.getParentFile());
+        assertTrue(file.getName().startsWith("library-"));
+        assertTrue(file.getName().endsWith(".so"));
+        assertEquals("library", FileUtils.readFileToString(file, "UTF-8"));
+
+        assertEquals(file, new NativeLibraryCache(dir).get("library", ".so", url));
+        assertEquals("library", FileUtils.readFileToString(file, "UTF-8"));
+        assertEquals(1, dir.list().length);
+    }
+
+    /**
+     * Verifies that a cached library that fails verification is replaced.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCorrupt() throws Exception
+    {
+        NativeLibraryCache cache = new NativeLibraryCache(new File(temporaryFolder.getRoot(), "cache"));
+        File file = cache.get("library", ".so", url);
+        assertNotNull(file);
+        FileUtils.writeStringToFile(file, "corrupt", "UTF-8");
+
+        assertEquals(file, cache.get("library", ".so", url));
+        assertEquals("library", FileUtils.readFileToString(file, "UTF-8"));
+    }
+
+    /**
+     * Verifies that versions of a library that haven't been used recently are removed when a library is cached.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPrune() throws Exception
+    {
+        File dir = temporaryFolder.newFolder("cache");
+        long expired = System.currentTimeMillis() - NativeLibraryCache.EXPIRY - 1000;
+        File old = createFile(dir, "library-" + digest('0') + ".so", expired);
+        File recent = createFile(dir, "library-" + digest('1') + ".so", System.currentTimeMillis());
+        File abandoned = createFile(dir, "library123.tmp", expired);
+        File other = createFile(dir, "other-" + digest('0') + ".so", expired);
+
+        File file = new NativeLibraryCache(dir).get("library", ".so", url);
+        assertNotNull(file);
+        assertFalse(old.exists());
+        assertFalse(abandoned.exists());
+        assertTrue(recent.exists());
+        assertTrue(other.exists());
+
+        // reuse updates the last modified time, so that the library isn't pruned
+        assertTrue(file.setLastModified(expired));
+        assertEquals(file, new NativeLibraryCache(dir).get("library", ".so", url));
+        assertTrue(file.lastModified() > expired);
+    }
+
+    /**
+     * Verifies that {@code null} is returned if the cache directory cannot be created.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testNotWritable() throws Exception
+    {
+        File dir = temporaryFolder.newFile("cache");
+        assertNull(new NativeLibraryCache(dir).get("library", ".so", url));
+    }
+
+    private String digest(char value)
+    {
+        char[] digest = new char[64];
+        Arrays.fill(digest, value);
+        return new String(digest);
+    }
+
+    private File createFile(File dir, String name, long lastModified) throws Exception
+    {
+        File file = new File(dir, name);
+        FileUtils.writeStringToFile(file, name, "UTF-8");
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.compress;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackCompression;
+import com.izforge.izpack.api.data.PackFile;
+
+
+/**
+ * Tests the {@link SolidPackInputStream} class.
+ */
+public class SolidPackInputStreamTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The pack stream, containing a block of files a and b, file d stored without compression, and a block of
+     * file c.
+     */
+    private byte[] pack;
+
+    private PackFile a;
+
+    private PackFile b;
+
+    private PackFile c;
+
+    private PackFile d;
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws Exception for any error
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        a = createPackFile("a", "first");
+        b = createPackFile("b", "second");
+        c = createPackFile("c", "third");
+        d = createPackFile("d", "stored");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long size = writeBlock(out, "firstsecond");
+        for (PackFile file : new PackFile[]{a, b})
+        {
+            file.setStreamOffset(0);
+            file.setBlockSize(size);
+        }
+        b.setBlockOffset(5);
+        d.setStreamOffset(out.size());
+        out.write("stored".getBytes("UTF-8"));
+        c.setStreamOffset(out.size());
+        c.setBlockSize(writeBlock(out, "third"));
+        pack = out.toByteArray();
+    }
+
+    /**
+     * Verifies that files are read in order from their blocks.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testRead() throws Exception
+    {
+        SolidPackInputStream stream = createStream();
+        assertEquals("first", read(stream, a));
+        assertEquals("second", read(stream, b));
+        assertEquals("stored", read(stream, d));
+        assertEquals("third", read(stream, c));
+    }
+
+    /**
+     * Verifies that files can be skipped, both within a block and by skipping whole blocks.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSkip() throws Exception
+    {
+        assertEquals("second", read(createStream(), b));
+        assertEquals("third", read(createStream(), c));
+        assertEquals("stored", read(createStream(), d));
+
+        SolidPackInputStream stream = createStream();
+        stream.getInputStream(a).close();
+        assertEquals("third", read(stream, c));
+    }
+
+    private SolidPackInputStream createStream()
+    {
+        return new SolidPackInputStream(new ByteArrayInputStream(pack), PackCompression.XZ);
+    }
+
+    private String read(SolidPackInputStream stream, PackFile file) throws Exception
+    {
+        InputStream in = stream.getInputStream(file);
+        String result = IOUtils.toString(in, "UTF-8");
+        in.close();
+        return result;
+    }
+
+    private long writeBlock(ByteArrayOutputStream out, String content) throws Exception
+    {
+        int start = out.size();
+        OutputStream block = new XZCompressorOutputStream(out);
+        block.write(content.getBytes("UTF-8"));
+        block.close();
+        return out.size() - start;
+    }
+
+    private PackFile createPackFile(String name, String content) throws Exception
+    {
+        File file = temporaryFolder.newFile(name);
+        FileUtils.writeStringToFile(file, content, "UTF-8");
+        return new PackFile(temporaryFolder.getRoot(), file, name, null, OverrideType.OVERRIDE_TRUE, null,
+                            Blockable.BLOCKABLE_NONE, null);
+    }
+}
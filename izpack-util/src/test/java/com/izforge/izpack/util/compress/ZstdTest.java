@@ -0,0 +1,200 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link Zstd} class.
+ */
+public class ZstdTest
+{
+
+    /**
+     * Verifies that the library is available.
+     */
+    @Test
+    public void testAvailable()
+    {
+        assertTrue(Zstd.isAvailable());
+    }
+
+    /**
+     * Verifies that data can be compressed and decompressed, at the default and an explicit level.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        byte[] data = createData(256 * 1024);
+        checkRoundTrip(data, 0, 0, null);
+        checkRoundTrip(data, 19, 0, null);
+    }
+
+    /**
+     * Verifies that small files can be compressed and decompressed with a trained dictionary, and that the
+     * dictionary is required to decompress them.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testTrainedDictionary() throws IOException
+    {
+        List<byte[]> samples = new ArrayList<byte[]>();
+        for (int i = 0; i < 1000; ++i)
+        {
+            samples.add(("<entry id=\"" + i + "\" name=\"file" + i + ".properties\" size=\"" + (i * 31) % 1000
+                    + "\">key" + i + "=value " + (i % 10) + "</entry>").getBytes("UTF-8"));
+        }
+        byte[] dictionary = Zstd.trainDictionary(samples, 4096);
+        assertNotNull(dictionary);
+        assertTrue(dictionary.length > 0);
+        assertTrue(dictionary.length <= 4096);
+
+        byte[] data = samples.get(500);
+        byte[] compressed = checkRoundTrip(data, 0, 0, dictionary);
+        try
+        {
+            decompress(compressed, null);
+            fail("Expected decompression without the dictionary to fail");
+        }
+        catch (IOException expected)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Verifies that data compressed with long distance matching can be decompressed, and that repeats further
+     * apart than the default window are found.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testLongWindow() throws IOException
+    {
+        // a random block repeated beyond the default window of level 1
+        byte[] block = new byte[2 * 1024 * 1024];
+        new Random(0).nextBytes(block);
+        byte[] data = new byte[block.length * 2];
+        System.arraycopy(block, 0, data, 0, block.length);
+        System.arraycopy(block, 0, data, block.length, block.length);
+
+        byte[] plain = checkRoundTrip(data, 1, 0, null);
+        byte[] windowed = checkRoundTrip(data, 1, 27, null);
+        assertTrue(windowed.length < plain.length);
+        assertTrue(windowed.length < block.length + block.length / 10);
+    }
+
+    /**
+     * Verifies that a meaningful exception is thrown if the library isn't available.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testLibraryAbsent() throws Exception
+    {
+        // load the class in a class loader that cannot see the library
+        URL location = Zstd.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader loader = new URLClassLoader(new URL[]{location}, null);
+        Class<?> type = loader.loadClass(Zstd.class.getName());
+
+        assertEquals(Boolean.FALSE, type.getMethod("isAvailable").invoke(null));
+        checkAbsent(type.getMethod("createOutputStream", OutputStream.class, int.class, int.class, byte[].class),
+                    new ByteArrayOutputStream(), 0, 0, null);
+        checkAbsent(type.getMethod("createInputStream", InputStream.class, byte[].class),
+                    new ByteArrayInputStream(new byte[0]), null);
+        checkAbsent(type.getMethod("trainDictionary", List.class, int.class), new ArrayList<byte[]>(), 1024);
+    }
+
+    private byte[] checkRoundTrip(byte[] data, int level, int windowLog, byte[] dictionary) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = Zstd.createOutputStream(bytes, level, windowLog, dictionary);
+        out.write(data);
+        out.close();
+        byte[] compressed = bytes.toByteArray();
+        assertArrayEquals(data, decompress(compressed, dictionary));
+        return compressed;
+    }
+
+    private byte[] decompress(byte[] compressed, byte[] dictionary) throws IOException
+    {
+        InputStream in = Zstd.createInputStream(new ByteArrayInputStream(compressed), dictionary);
+        try
+        {
+            return IOUtils.toByteArray(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private void checkAbsent(Method method, Object... args) throws IllegalAccessException
+    {
+        try
+        {
+            method.invoke(null, args);
+            fail("Expected " + method.getName() + " to fail");
+        }
+        catch (InvocationTargetException exception)
+        {
+            Throwable cause = exception.getCause();
+            assertTrue(cause instanceof IOException);
+            assertEquals("Zstandard compression requires the zstd-jni library", cause.getMessage());
+            assertFalse(cause.getCause() == null);
+        }
+    }
+
+    private byte[] createData(int size)
+    {
+        StringBuilder builder = new StringBuilder();
+        Random random = new Random(0);
+        while (builder.length() < size)
+        {
+            builder.append("line ").append(random.nextInt(100)).append(": the quick brown fox\n");
+        }
+        return builder.toString().getBytes();
+    }
+}
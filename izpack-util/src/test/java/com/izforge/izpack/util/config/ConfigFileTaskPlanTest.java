@@ -0,0 +1,120 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.util.config.SingleConfigurableTask.Entry;
+
+
+/**
+ * Tests the {@link ConfigFileTaskPlan} class.
+ */
+public class ConfigFileTaskPlanTest
+{
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    /**
+     * Verifies that tasks executed by the plan produce the same configurations as tasks executed one at a time.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSameResultAsSequentialExecution() throws Exception
+    {
+        File planned = tmpDir.newFolder("planned");
+        File sequential = tmpDir.newFolder("sequential");
+        for (File dir : new File[]{planned, sequential})
+        {
+            FileUtils.writeStringToFile(new File(dir, "a.ini"), "[main]\nexisting = 1\n", "UTF-8");
+            FileUtils.writeStringToFile(new File(dir, "patch.ini"), "[main]\nexisting = 2\nold = 3\n", "UTF-8");
+        }
+
+        new ConfigFileTaskPlan(2).execute(createTasks(planned));
+        for (ConfigFileTask task : createTasks(sequential))
+        {
+            task.execute();
+        }
+
+        // each rewrite of a file appends an empty line, so only compare up to the trailing whitespace
+        for (String name : new String[]{"a.ini", "b.ini"})
+        {
+            assertEquals(name, FileUtils.readFileToString(new File(sequential, name), "UTF-8").trim(),
+                         FileUtils.readFileToString(new File(planned, name), "UTF-8").trim());
+        }
+        assertFalse(new File(planned, "patch.ini").exists());
+        assertFalse(new File(planned, "c.ini").exists());
+    }
+
+    /**
+     * Creates tasks on three files, interleaved.
+     *
+     * @param dir the directory containing the files
+     * @return the tasks
+     */
+    private List<ConfigFileTask> createTasks(File dir)
+    {
+        List<ConfigFileTask> tasks = new ArrayList<ConfigFileTask>();
+        tasks.add(createTask(dir, "a.ini", "first", "1"));
+        tasks.add(createTask(dir, "b.ini", "first", "2"));
+        SingleIniFileTask patch = createTask(dir, "a.ini", "second", "3");
+        patch.setOldFile(new File(dir, "patch.ini"));
+        patch.setCleanup(true);
+        tasks.add(patch);
+        SingleIniFileTask missing = createTask(dir, "c.ini", "first", "4");
+        missing.setCreate(false);
+        tasks.add(missing);
+        tasks.add(createTask(dir, "b.ini", "first", "5"));
+        tasks.add(createTask(dir, "a.ini", "third", "6"));
+        return tasks;
+    }
+
+    /**
+     * Creates a task that sets a value in the "main" section of a file.
+     *
+     * @param dir   the directory
+     * @param name  the file name
+     * @param key   the key
+     * @param value the value
+     * @return a new task
+     */
+    private SingleIniFileTask createTask(File dir, String name, String key, String value)
+    {
+        SingleIniFileTask task = new SingleIniFileTask();
+        task.setToFile(new File(dir, name));
+        Entry entry = new Entry();
+        entry.setSection("main");
+        entry.setKey(key);
+        entry.setValue(value);
+        task.addEntry(entry);
+        return task;
+    }
+}
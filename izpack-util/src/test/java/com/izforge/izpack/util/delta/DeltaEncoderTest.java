@@ -0,0 +1,134 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.delta;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Tests the {@link DeltaEncoder} and {@link DeltaDecoder} classes.
+ */
+public class DeltaEncoderTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that a file with insertions, deletions and modifications is reconstructed from a delta that copies
+     * most of it from the previous version.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testEncode() throws Exception
+    {
+        byte[] source = new byte[500 * 1000];
+        new Random(1).nextBytes(source);
+
+        byte[] insert = new byte[3000];
+        new Random(2).nextBytes(insert);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        target.write(source, 0, 100 * 1000);
+        target.write(insert);
+        target.write(source, 100 * 1000, 200 * 1000);
+        target.write(source, 350 * 1000, 150 * 1000);
+        byte[] expected = target.toByteArray();
+        expected[450 * 1000] ^= 1;
+
+        byte[] delta = encode(source, expected);
+        assertTrue(delta.length < 20 * 1000);
+        assertArrayEquals(expected, decode(source, delta));
+    }
+
+    /**
+     * Verifies that identical, unrelated, empty and short files are encoded.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testEdgeCases() throws Exception
+    {
+        byte[] source = new byte[10000];
+        new Random(3).nextBytes(source);
+        byte[] unrelated = new byte[9000];
+        new Random(4).nextBytes(unrelated);
+        byte[] zeros = new byte[20000];
+
+        for (byte[] target : Arrays.asList(source, unrelated, zeros, new byte[0], new byte[]{1, 2, 3}))
+        {
+            assertArrayEquals(target, decode(source, encode(source, target)));
+            assertArrayEquals(target, decode(new byte[0], encode(new byte[0], target)));
+        }
+        assertArrayEquals(zeros, decode(new byte[10], encode(new byte[10], zeros)));
+        assertTrue(encode(source, source).length < 100);
+    }
+
+    /**
+     * Verifies that the length of data copied from the previous version is returned.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCopied() throws Exception
+    {
+        byte[] source = new byte[8192];
+        new Random(5).nextBytes(source);
+        byte[] target = Arrays.copyOf(source, 10000);
+
+        File from = write(source);
+        File to = write(target);
+        assertEquals(8192, new DeltaEncoder().encode(from, to, new ByteArrayOutputStream()));
+    }
+
+    private byte[] encode(byte[] source, byte[] target) throws Exception
+    {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        new DeltaEncoder().encode(write(source), write(target), result);
+        return result.toByteArray();
+    }
+
+    private byte[] decode(byte[] source, byte[] delta) throws Exception
+    {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        long length = new DeltaDecoder().decode(write(source), new ByteArrayInputStream(delta), result);
+        assertEquals(result.size(), length);
+        return result.toByteArray();
+    }
+
+    private File write(byte[] content) throws Exception
+    {
+        File file = temporaryFolder.newFile();
+        FileUtils.writeByteArrayToFile(file, content);
+        return file;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link FrontCodedPathWriter} and {@link FrontCodedPathReader} classes.
+ */
+public class FrontCodedPathReaderTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that paths can be read back in either direction, across block boundaries.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testReadWrite() throws IOException
+    {
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < 100; ++i)
+        {
+            paths.add("/opt/myapp/lib/dir" + (i / 10) + "/file" + i + ".jar");
+        }
+        paths.add("/opt/myapp/été/café.txt");
+        paths.add("/opt/myapp/été/cafè.txt");
+
+        File file = write(paths, 7);
+        FrontCodedPathReader reader = new FrontCodedPathReader(file);
+        try
+        {
+            assertEquals(paths.size(), reader.size());
+            assertEquals(paths, reader.asList(false));
+
+            List<String> reversed = reader.asList(true);
+            for (int i = 0; i < paths.size(); ++i)
+            {
+                assertEquals(paths.get(paths.size() - 1 - i), reversed.get(i));
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Verifies that a stream with no paths can be read.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testEmpty() throws IOException
+    {
+        File file = write(new ArrayList<String>(), FrontCodedPathWriter.DEFAULT_BLOCK_SIZE);
+        FrontCodedPathReader reader = new FrontCodedPathReader(file);
+        try
+        {
+            assertEquals(0, reader.size());
+            assertEquals(0, reader.asList(true).size());
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Writes paths to a file.
+     *
+     * @param paths     the paths to write
+     * @param blockSize the block size
+     * @return the file
+     * @throws IOException for any I/O error
+     */
+    private File write(List<String> paths, int blockSize) throws IOException
+    {
+        File file = temporaryFolder.newFile("paths.log");
+        FrontCodedPathWriter writer = new FrontCodedPathWriter(new FileOutputStream(file), blockSize);
+        for (int i = 0; i < paths.size(); ++i)
+        {
+            writer.write(paths.get(i));
+            if (i == 30)
+            {
+                // verify that flushing mid-stream produces a short block that is still readable
+                writer.flush();
+            }
+        }
+        writer.close();
+        return file;
+    }
+
+}
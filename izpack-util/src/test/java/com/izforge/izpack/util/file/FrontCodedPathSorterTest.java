@@ -0,0 +1,106 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link FrontCodedPathSorter} class.
+ */
+public class FrontCodedPathSorterTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that paths are sorted and de-duplicated when they fit in a single run.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testSingleRun() throws IOException
+    {
+        checkSort(FrontCodedPathSorter.DEFAULT_RUN_SIZE);
+    }
+
+    /**
+     * Verifies that paths are sorted and de-duplicated when they are merged from several runs.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testMergeRuns() throws IOException
+    {
+        checkSort(7);
+    }
+
+    private void checkSort(int runSize) throws IOException
+    {
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < 50; ++i)
+        {
+            paths.add("/opt/myapp/dir" + (i % 5) + "/file" + (i % 20));
+            paths.add("/opt/myapp/dir" + (i % 5));
+        }
+        File source = temporaryFolder.newFile("source");
+        FrontCodedPathWriter writer = new FrontCodedPathWriter(new FileOutputStream(source), 4);
+        for (String path : paths)
+        {
+            writer.write(path);
+        }
+        writer.close();
+
+        File target = temporaryFolder.newFile("target");
+        int count = FrontCodedPathSorter.sort(source, target, Collections.<String>reverseOrder(), runSize);
+
+        List<String> expected = new ArrayList<String>(new TreeSet<String>(paths));
+        Collections.reverse(expected);
+        assertEquals(expected.size(), count);
+        FrontCodedPathReader reader = new FrontCodedPathReader(target);
+        try
+        {
+            assertEquals(expected, new ArrayList<String>(reader.asList(false)));
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        // only the source and target remain
+        assertEquals(2, temporaryFolder.getRoot().list().length);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * IzPack - Copyright 2001-2016 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the {@link RawZipMerger} class.
+ */
+public class RawZipMergerTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    /**
+     * Verifies that the entries of merged zip files can be read back.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testMerge() throws IOException
+    {
+        File first = createZip("first.zip", "a/1.txt", "a/2.txt");
+        File second = createZip("second.zip", "b/3.txt");
+        assertEquals(Arrays.asList("a/1.txt", "a/2.txt"), RawZipMerger.getEntryNames(first));
+
+        File merged = temporaryFolder.newFile("merged.zip");
+        OutputStream out = new FileOutputStream(merged);
+        try
+        {
+            RawZipMerger.merge(Arrays.asList(first, second), out);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        assertEquals(Arrays.asList("a/1.txt", "a/2.txt", "b/3.txt"), RawZipMerger.getEntryNames(merged));
+        ZipFile zip = new ZipFile(merged);
+        try
+        {
+            assertEquals(3, zip.size());
+            for (String name : new String[]{"a/1.txt", "a/2.txt", "b/3.txt"})
+            {
+                assertEquals("content of " + name, IOUtils.toString(zip.getInputStream(zip.getEntry(name)), "UTF-8"));
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+    /**
+     * Creates a zip file, where each entry contains its name.
+     *
+     * @param name    the zip file name
+     * @param entries the entry names
+     * @return the zip file
+     * @throws IOException for any I/O error
+     */
+    private File createZip(String name, String... entries) throws IOException
+    {
+        File file = temporaryFolder.newFile(name);
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+        try
+        {
+            for (String entry : entries)
+            {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.write(("content of " + entry).getBytes("UTF-8"));
+                zip.closeEntry();
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        return file;
+    }
+
+}
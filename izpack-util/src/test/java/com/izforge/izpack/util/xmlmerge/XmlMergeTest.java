@@ -157,4 +157,51 @@ public class XmlMergeTest
         assertTrue("Result document does not match expected result", resultDocument.isEqualNode(expectedDocument));
     }
 
+    /**
+     * Verifies that elements are matched by id attribute regardless of their order, with unmatched patch
+     * elements appended after the original ones.
+     */
+    @Test
+    public void testFullMergeMatchesById() throws AbstractXmlMergeException
+    {
+        StringBuilder original = new StringBuilder("<web-app>");
+        StringBuilder patch = new StringBuilder("<web-app>");
+        StringBuilder expected = new StringBuilder("<web-app>");
+        for (int i = 0; i < 100; ++i)
+        {
+            original.append("<servlet id=\"s").append(i).append("\"><name>original").append(i).append("</name></servlet>");
+        }
+        for (int i = 100; i >= 0; i -= 10)
+        {
+            patch.append("<servlet id=\"S").append(i).append("\"><init>patch").append(i).append("</init></servlet>");
+        }
+        for (int i = 0; i < 100; ++i)
+        {
+            if (i % 10 == 0)
+            {
+                expected.append("<servlet id=\"S").append(i).append("\"><init>patch").append(i)
+                        .append("</init><name>original").append(i).append("</name></servlet>");
+            }
+            else
+            {
+                expected.append("<servlet id=\"s").append(i).append("\"><name>original").append(i)
+                        .append("</name></servlet>");
+            }
+        }
+        expected.append("<servlet id=\"S100\"><init>patch100</init></servlet>");
+        original.append("</web-app>");
+        patch.append("</web-app>");
+        expected.append("</web-app>");
+
+        Properties confProps = new Properties();
+        confProps.setProperty("action.default", "FULLMERGE");
+        confProps.setProperty("xpath.servlet", "/web-app/servlet");
+        confProps.setProperty("matcher.servlet", "ID_ATTRIBUTE");
+        XmlMerge xmlMerge = new ConfigurableXmlMerge(new PropertyXPathConfigurer(confProps));
+        String result = xmlMerge.merge(new String[]{original.toString(), patch.toString()});
+
+        assertEquals(expected.toString(), result.replaceAll("\\s*[\\r\\n]\\s*", "")
+                .replace("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", ""));
+    }
+
 }